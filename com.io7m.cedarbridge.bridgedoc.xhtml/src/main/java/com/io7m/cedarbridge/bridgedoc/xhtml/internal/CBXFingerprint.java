@@ -0,0 +1,293 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.cedarbridge.bridgedoc.xhtml.internal;
+
+import com.io7m.cedarbridge.schema.compiled.CBExternalType;
+import com.io7m.cedarbridge.schema.compiled.CBFieldType;
+import com.io7m.cedarbridge.schema.compiled.CBPackageType;
+import com.io7m.cedarbridge.schema.compiled.CBProtocolDeclarationType;
+import com.io7m.cedarbridge.schema.compiled.CBRecordType;
+import com.io7m.cedarbridge.schema.compiled.CBTypeDeclarationType;
+import com.io7m.cedarbridge.schema.compiled.CBTypeExpressionApplication;
+import com.io7m.cedarbridge.schema.compiled.CBTypeExpressionType;
+import com.io7m.cedarbridge.schema.compiled.CBVariantType;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+
+import static com.io7m.cedarbridge.schema.compiled.CBTypeExpressionType.CBTypeExprNamedType;
+import static com.io7m.cedarbridge.schema.compiled.CBTypeExpressionType.CBTypeExprParameterType;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * <p>Fingerprints of the inputs of package pages.</p>
+ *
+ * <p>The fingerprint covers everything that can affect the rendered page:
+ * the page format, the custom style, and the declarations of the package
+ * (including the names and identifiers of types referenced in other
+ * packages). Each page records its fingerprint in a comment, and pages whose
+ * recorded fingerprint matches are not rendered again.</p>
+ */
+
+public final class CBXFingerprint
+{
+  /*
+   * Incremented whenever the page layout changes, so that pages written by
+   * older versions of the generator are rendered again.
+   */
+
+  private static final int PAGE_FORMAT = 1;
+
+  private static final String COMMENT_PREFIX =
+    "<!-- cedarbridge-fingerprint: ";
+  private static final String COMMENT_SUFFIX =
+    " -->";
+
+  private final MessageDigest digest;
+
+  private CBXFingerprint(
+    final MessageDigest inDigest)
+  {
+    this.digest = Objects.requireNonNull(inDigest, "digest");
+  }
+
+  /**
+   * Calculate the fingerprint of the page for the given package.
+   *
+   * @param pack        The package
+   * @param customStyle The custom style, if any
+   *
+   * @return The fingerprint
+   */
+
+  public static String of(
+    final CBPackageType pack,
+    final Optional<String> customStyle)
+  {
+    final MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-256");
+    } catch (final NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+
+    final var fingerprint = new CBXFingerprint(digest);
+    fingerprint.putInt(PAGE_FORMAT);
+    fingerprint.put(customStyle.orElse(""));
+    fingerprint.putPackage(pack);
+    return HexFormat.of().formatHex(digest.digest());
+  }
+
+  /**
+   * @param fingerprint The fingerprint
+   *
+   * @return The comment that records the fingerprint in a page
+   */
+
+  public static String comment(
+    final String fingerprint)
+  {
+    return COMMENT_PREFIX + fingerprint + COMMENT_SUFFIX;
+  }
+
+  /**
+   * Determine if the given page exists and was rendered from inputs with the
+   * given fingerprint.
+   *
+   * @param file        The page file
+   * @param fingerprint The fingerprint
+   *
+   * @return {@code true} if the page is up-to-date
+   */
+
+  public static boolean isUpToDate(
+    final Path file,
+    final String fingerprint)
+  {
+    final var expected = comment(fingerprint);
+    try (BufferedReader reader = Files.newBufferedReader(file, UTF_8)) {
+      for (int index = 0; index < 3; ++index) {
+        final var line = reader.readLine();
+        if (line == null) {
+          return false;
+        }
+        if (line.startsWith(COMMENT_PREFIX)) {
+          return Objects.equals(line, expected);
+        }
+      }
+      return false;
+    } catch (final IOException e) {
+      return false;
+    }
+  }
+
+  private void putInt(
+    final int x)
+  {
+    this.digest.update((byte) (x >>> 24));
+    this.digest.update((byte) (x >>> 16));
+    this.digest.update((byte) (x >>> 8));
+    this.digest.update((byte) x);
+  }
+
+  private void put(
+    final String text)
+  {
+    final var bytes = text.getBytes(UTF_8);
+    this.putInt(bytes.length);
+    this.digest.update(bytes);
+  }
+
+  private void putAll(
+    final List<String> texts)
+  {
+    this.putInt(texts.size());
+    texts.forEach(this::put);
+  }
+
+  private void putPackage(
+    final CBPackageType pack)
+  {
+    this.put(pack.name());
+
+    final var types =
+      pack.types()
+        .values()
+        .stream()
+        .sorted(Comparator.comparing(CBTypeDeclarationType::name))
+        .toList();
+
+    this.putInt(types.size());
+    for (final var type : types) {
+      this.putType(type);
+    }
+
+    final var protocols =
+      pack.protocols()
+        .values()
+        .stream()
+        .sorted(Comparator.comparing(CBProtocolDeclarationType::name))
+        .toList();
+
+    this.putInt(protocols.size());
+    for (final var protocol : protocols) {
+      this.put(protocol.name());
+      this.put(protocol.id().toString());
+      this.putAll(protocol.documentation());
+
+      this.putInt(protocol.versions().size());
+      for (final var version : protocol.versions().values()) {
+        this.put(version.version().toString());
+        this.putInt(version.typesInOrder().size());
+        for (final var type : version.typesInOrder()) {
+          final var declaration = type.declaration();
+          this.put(declaration.name());
+          this.put(declaration.id().toString());
+          this.putAll(declaration.documentation());
+        }
+      }
+    }
+  }
+
+  private void putType(
+    final CBTypeDeclarationType type)
+  {
+    if (type instanceof CBRecordType) {
+      this.put("record");
+    } else if (type instanceof CBVariantType) {
+      this.put("variant");
+    } else if (type instanceof CBExternalType) {
+      this.put("external");
+    } else {
+      throw new IllegalStateException();
+    }
+
+    this.put(type.name());
+    this.put(type.id().toString());
+    this.putAll(type.documentation());
+
+    this.putInt(type.parameters().size());
+    for (final var parameter : type.parameters()) {
+      this.put(parameter.name());
+      this.putAll(parameter.documentation());
+    }
+
+    if (type instanceof CBRecordType rec) {
+      this.putFields(rec.fields());
+    } else if (type instanceof CBVariantType var) {
+      this.putInt(var.cases().size());
+      for (final var caseV : var.cases()) {
+        this.put(caseV.name());
+        this.putFields(caseV.fields());
+      }
+    }
+  }
+
+  private void putFields(
+    final List<CBFieldType> fields)
+  {
+    this.putInt(fields.size());
+    for (final var field : fields) {
+      this.put(field.name());
+      this.putAll(field.documentation());
+      this.putTypeExpression(field.type());
+    }
+  }
+
+  private void putTypeExpression(
+    final CBTypeExpressionType type)
+  {
+    if (type instanceof CBTypeExpressionApplication app) {
+      this.put("application");
+      this.putTypeExpression(app.target());
+      this.putInt(app.arguments().size());
+      for (final var argument : app.arguments()) {
+        this.putTypeExpression(argument);
+      }
+      return;
+    }
+
+    if (type instanceof CBTypeExprParameterType exprParam) {
+      final var param = exprParam.parameter();
+      this.put("parameter");
+      this.put(param.name());
+      this.put(param.owner().id().toString());
+      return;
+    }
+
+    if (type instanceof CBTypeExprNamedType named) {
+      final var declaration = named.declaration();
+      this.put("named");
+      this.put(declaration.owner().name());
+      this.put(declaration.name());
+      this.put(declaration.id().toString());
+      return;
+    }
+
+    throw new IllegalStateException();
+  }
+}
@@ -0,0 +1,752 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.cedarbridge.bridgedoc.xhtml.internal;
+
+import com.io7m.cedarbridge.schema.compiled.CBExternalType;
+import com.io7m.cedarbridge.schema.compiled.CBFieldType;
+import com.io7m.cedarbridge.schema.compiled.CBPackageType;
+import com.io7m.cedarbridge.schema.compiled.CBProtocolDeclarationType;
+import com.io7m.cedarbridge.schema.compiled.CBProtocolVersionDeclarationType;
+import com.io7m.cedarbridge.schema.compiled.CBRecordType;
+import com.io7m.cedarbridge.schema.compiled.CBTypeDeclarationType;
+import com.io7m.cedarbridge.schema.compiled.CBTypeExpressionApplication;
+import com.io7m.cedarbridge.schema.compiled.CBTypeExpressionType;
+import com.io7m.cedarbridge.schema.compiled.CBVariantCaseType;
+import com.io7m.cedarbridge.schema.compiled.CBVariantType;
+
+import javax.xml.XMLConstants;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import java.io.Writer;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+
+import static com.io7m.cedarbridge.schema.compiled.CBTypeExpressionType.CBTypeExprNamedType;
+import static com.io7m.cedarbridge.schema.compiled.CBTypeExpressionType.CBTypeExprParameterType;
+
+/**
+ * A streaming writer for the XHTML page of a single package. Elements are
+ * written as they are produced, so memory use does not depend on the size
+ * of the package.
+ */
+
+public final class CBXPageWriter
+{
+  private static final String XHTML =
+    "http://www.w3.org/1999/xhtml";
+
+  private static final XMLOutputFactory OUTPUTS =
+    XMLOutputFactory.newDefaultFactory();
+
+  private final CBPackageType pack;
+  private final Optional<String> customStyle;
+  private final XMLStreamWriter out;
+
+  private CBXPageWriter(
+    final CBPackageType inPack,
+    final Optional<String> inCustomStyle,
+    final XMLStreamWriter inOut)
+  {
+    this.pack =
+      Objects.requireNonNull(inPack, "pack");
+    this.customStyle =
+      Objects.requireNonNull(inCustomStyle, "customStyle");
+    this.out =
+      Objects.requireNonNull(inOut, "out");
+  }
+
+  /**
+   * Write the page for the given package.
+   *
+   * @param writer      The output writer
+   * @param pack        The package
+   * @param customStyle The custom style, if any
+   * @param fingerprint The fingerprint of the page inputs
+   *
+   * @throws Exception On errors
+   */
+
+  public static void write(
+    final Writer writer,
+    final CBPackageType pack,
+    final Optional<String> customStyle,
+    final String fingerprint)
+    throws Exception
+  {
+    writer.append(xmlDirective());
+    writer.append("\n");
+    writer.append(xmlDoctype());
+    writer.append("\n");
+    writer.append(CBXFingerprint.comment(fingerprint));
+    writer.append("\n");
+
+    final var out = OUTPUTS.createXMLStreamWriter(writer);
+    try {
+      new CBXPageWriter(pack, customStyle, out).writePage();
+      out.flush();
+    } finally {
+      out.close();
+    }
+
+    writer.append("\n");
+    writer.flush();
+  }
+
+  private static String xmlDoctype()
+  {
+    return """
+      <!DOCTYPE html PUBLIC "-//W3C//DTD XHTML 1.1//EN" "http://www.w3.org/TR/xhtml11/DTD/xhtml11.dtd">
+            """.strip();
+  }
+
+  private static String xmlDirective()
+  {
+    return """
+      <?xml version="1.0" encoding="UTF-8"?>
+      """.strip();
+  }
+
+  private void start(
+    final String name)
+    throws XMLStreamException
+  {
+    this.out.writeStartElement(name);
+  }
+
+  private void start(
+    final String name,
+    final String className)
+    throws XMLStreamException
+  {
+    this.out.writeStartElement(name);
+    this.out.writeAttribute("class", className);
+  }
+
+  private void end()
+    throws XMLStreamException
+  {
+    this.out.writeEndElement();
+  }
+
+  private void text(
+    final String text)
+    throws XMLStreamException
+  {
+    this.out.writeCharacters(text);
+  }
+
+  private void element(
+    final String name,
+    final String text)
+    throws XMLStreamException
+  {
+    this.start(name);
+    this.text(text);
+    this.end();
+  }
+
+  private void link(
+    final String href,
+    final String text)
+    throws XMLStreamException
+  {
+    this.start("a");
+    this.out.writeAttribute("href", href);
+    this.text(text);
+    this.end();
+  }
+
+  private void keyword(
+    final String name)
+    throws XMLStreamException
+  {
+    this.start("span", "cbKeyword");
+    this.text(name);
+    this.end();
+  }
+
+  private void stylesheet(
+    final String href)
+    throws XMLStreamException
+  {
+    this.out.writeEmptyElement("link");
+    this.out.writeAttribute("rel", "stylesheet");
+    this.out.writeAttribute("type", "text/css");
+    this.out.writeAttribute("href", href);
+  }
+
+  private void writePage()
+    throws XMLStreamException
+  {
+    this.out.writeStartElement("html");
+    this.out.writeDefaultNamespace(XHTML);
+    this.out.writeAttribute("xml", XMLConstants.XML_NS_URI, "lang", "en");
+
+    this.start("head");
+    this.out.writeEmptyElement("meta");
+    this.out.writeAttribute("http-equiv", "content-type");
+    this.out.writeAttribute(
+      "content", "application/xhtml+xml; charset=utf-8");
+    this.stylesheet("cedarbridge-reset.css");
+    this.stylesheet("cedarbridge-document.css");
+    if (this.customStyle.isPresent()) {
+      this.stylesheet("%s.css".formatted(this.customStyle.get()));
+    }
+    this.element("title", this.pack.name());
+    this.end();
+
+    this.start("body");
+    this.start("div", "cbPackage");
+    this.out.writeAttribute("id", "main");
+
+    this.start("h1");
+    this.link("#main", this.pack.name());
+    this.end();
+
+    this.writeTypes();
+    this.writeProtocols();
+
+    this.end();
+    this.end();
+    this.end();
+    this.out.writeEndDocument();
+  }
+
+  private void writeProtocols()
+    throws XMLStreamException
+  {
+    final var protocols =
+      this.pack.protocols()
+        .values()
+        .stream()
+        .sorted(Comparator.comparing(CBProtocolDeclarationType::name))
+        .toList();
+
+    if (protocols.isEmpty()) {
+      return;
+    }
+
+    this.start("div", "cbProtocolList");
+    this.out.writeAttribute("id", "protocols");
+    this.start("h2");
+    this.link("#protocols", "Protocols");
+    this.end();
+    this.start("ul");
+    for (final var protocol : protocols) {
+      this.start("li");
+      this.link(anchor(protocol), protocol.name());
+      this.end();
+    }
+    this.end();
+    this.end();
+
+    for (final var protocol : protocols) {
+      this.writeProtocol(protocol);
+    }
+  }
+
+  private void writeProtocol(
+    final CBProtocolDeclarationType protocol)
+    throws XMLStreamException
+  {
+    this.start("div", "cbProtocol");
+    this.out.writeAttribute("id", id(protocol));
+
+    this.start("h3");
+    this.link(anchor(protocol), protocol.name());
+    this.end();
+
+    this.start("p");
+    this.text("Protocol identifier: ");
+    this.element("tt", protocol.id().toString());
+    this.end();
+
+    for (final var docText : protocol.documentation()) {
+      this.element("p", docText);
+    }
+
+    final var versions =
+      protocol.versions()
+        .values()
+        .stream()
+        .sorted(Comparator.comparing(CBProtocolVersionDeclarationType::version))
+        .toList();
+
+    for (final var version : versions) {
+      this.writeProtocolVersion(version);
+    }
+
+    this.end();
+  }
+
+  private void writeProtocolVersion(
+    final CBProtocolVersionDeclarationType version)
+    throws XMLStreamException
+  {
+    this.start("div", "cbProtocolVersion");
+    this.element(
+      "h4", "Version %s Messages".formatted(version.version()));
+
+    this.start("table", "cbProtocolTable");
+    this.writeTableHead(List.of("Name", "Description"));
+
+    this.start("tbody");
+    for (final var type : version.typesInOrder()) {
+      final var typeDecl = type.declaration();
+      this.start("tr");
+      this.start("td");
+      this.link(anchor(typeDecl), typeDecl.name());
+      this.end();
+      this.start("td");
+      this.writeDocumentationOrDefault(typeDecl.documentation());
+      this.end();
+      this.end();
+    }
+    this.end();
+
+    this.end();
+    this.end();
+  }
+
+  private void writeTableHead(
+    final List<String> columns)
+    throws XMLStreamException
+  {
+    this.start("thead");
+    this.start("tr");
+    for (final var column : columns) {
+      this.element("th", column);
+    }
+    this.end();
+    this.end();
+  }
+
+  private void writeDocumentationOrDefault(
+    final List<String> documentation)
+    throws XMLStreamException
+  {
+    if (!documentation.isEmpty()) {
+      this.writeDocumentationInline(documentation);
+    } else {
+      this.text("No description provided.");
+    }
+  }
+
+  private void writeDocumentationInline(
+    final List<String> documentation)
+    throws XMLStreamException
+  {
+    this.element("span", String.join(" ", documentation));
+  }
+
+  private void writeTypes()
+    throws XMLStreamException
+  {
+    final var types =
+      this.pack.types()
+        .values()
+        .stream()
+        .sorted(Comparator.comparing(CBTypeDeclarationType::name))
+        .toList();
+
+    if (types.isEmpty()) {
+      return;
+    }
+
+    this.start("div", "cbTypeList");
+    this.out.writeAttribute("id", "types");
+    this.start("h2");
+    this.link("#types", "Types");
+    this.end();
+    this.start("ul");
+    for (final var type : types) {
+      this.start("li");
+      this.link(anchor(type), type.name());
+      this.end();
+    }
+    this.end();
+    this.end();
+
+    for (final var type : types) {
+      this.writeType(type);
+    }
+  }
+
+  private void writeType(
+    final CBTypeDeclarationType t)
+    throws XMLStreamException
+  {
+    this.start("div", "cbType");
+    this.out.writeAttribute("id", id(t));
+
+    this.start("h3");
+    this.link(anchor(t), t.name());
+    this.end();
+
+    for (final var doc : t.documentation()) {
+      this.element("p", doc);
+    }
+
+    if (t instanceof CBRecordType rec) {
+      this.writeTypeRecord(rec);
+    } else if (t instanceof CBVariantType var) {
+      this.writeTypeVariant(var);
+    } else if (t instanceof CBExternalType ext) {
+      this.writeTypeExternal(ext);
+    } else {
+      throw new IllegalStateException();
+    }
+
+    this.end();
+  }
+
+  private void writeTypeExternal(
+    final CBExternalType ext)
+    throws XMLStreamException
+  {
+    this.start("div");
+
+    final var text = new StringBuilder(128);
+    text.append("[external ");
+    text.append(ext.name());
+    if (!ext.parameters().isEmpty()) {
+      text.append("\n");
+      for (final var parameter : ext.parameters()) {
+        text.append("  ");
+        text.append("[parameter ");
+        text.append(parameter.name());
+        text.append("]\n");
+      }
+    }
+    text.append(']');
+
+    this.start("div", "cbTypeOverview");
+    this.element("pre", text.toString());
+    this.end();
+
+    this.writeTypeParameters(ext);
+    this.end();
+  }
+
+  private void writeTypeParameters(
+    final CBTypeDeclarationType t)
+    throws XMLStreamException
+  {
+    final var parameters = t.parameters();
+    if (parameters.isEmpty()) {
+      return;
+    }
+
+    this.start("div");
+    this.element("h4", "Parameters");
+
+    this.start("table", "cbParameterTable");
+    this.writeTableHead(List.of("Name", "Description"));
+
+    this.start("tbody");
+    for (final var param : parameters) {
+      this.start("tr");
+      this.start("td");
+      this.start("a");
+      this.out.writeAttribute("id", idPlus(t, param.name()));
+      this.out.writeAttribute("href", anchorPlus(t, param.name()));
+      this.text(param.name());
+      this.end();
+      this.end();
+      this.start("td");
+      this.writeDocumentationOrDefault(param.documentation());
+      this.end();
+      this.end();
+    }
+    this.end();
+
+    this.end();
+    this.end();
+  }
+
+  private void writeTypeVariant(
+    final CBVariantType var)
+    throws XMLStreamException
+  {
+    this.start("div");
+    this.writeVariantOverview(var);
+    this.writeTypeParameters(var);
+
+    final var cases = var.cases();
+    if (!cases.isEmpty()) {
+      this.element("h4", "Cases");
+
+      for (final var caseV : cases) {
+        this.start("div");
+        this.start("h5");
+        this.text("Case ");
+        this.element("span", caseV.name());
+        this.end();
+
+        final var fields = caseV.fields();
+        if (fields.isEmpty()) {
+          this.start("p");
+          this.text("The case ");
+          this.start("span", "cbCaseName");
+          this.text(caseV.name());
+          this.end();
+          this.text(" has no fields.");
+          this.end();
+        } else {
+          this.writeFields(var, fields);
+        }
+        this.end();
+      }
+    }
+
+    this.end();
+  }
+
+  private void writeTypeRecord(
+    final CBRecordType rec)
+    throws XMLStreamException
+  {
+    this.start("div");
+    this.writeRecordOverview(rec);
+    this.writeTypeParameters(rec);
+    this.element("h4", "Fields");
+    this.writeFields(rec, rec.fields());
+    this.end();
+  }
+
+  private void writeFields(
+    final CBTypeDeclarationType type,
+    final List<CBFieldType> fields)
+    throws XMLStreamException
+  {
+    if (fields.isEmpty()) {
+      this.element("p", "The record type has no fields.");
+      return;
+    }
+
+    this.start("table", "cbFieldsTable");
+    this.writeTableHead(List.of("Name", "Type", "Description"));
+
+    this.start("tbody");
+    for (final var field : fields) {
+      this.start("tr");
+
+      this.start("td");
+      this.start("a");
+      final var owner = field.fieldOwner();
+      if (owner instanceof CBRecordType) {
+        this.out.writeAttribute("id", idPlus(type, field.name()));
+        this.out.writeAttribute("href", anchorPlus(type, field.name()));
+      } else if (owner instanceof CBVariantCaseType vcase) {
+        final var name = "%s_%s".formatted(vcase.name(), field.name());
+        this.out.writeAttribute("id", idPlus(type, name));
+        this.out.writeAttribute("href", anchorPlus(type, name));
+      }
+      this.text(field.name());
+      this.end();
+      this.end();
+
+      this.start("td");
+      this.writeTypeExpression(field.type());
+      this.end();
+
+      this.start("td");
+      this.writeDocumentationInline(field.documentation());
+      this.end();
+
+      this.end();
+    }
+    this.end();
+
+    this.end();
+  }
+
+  private void writeRecordOverview(
+    final CBRecordType rec)
+    throws XMLStreamException
+  {
+    this.start("div", "cbTypeOverview");
+    this.start("pre");
+    this.text("[");
+    this.keyword("record");
+    this.text(" ");
+    this.link(anchor(rec), rec.name());
+
+    if (!rec.parameters().isEmpty()) {
+      this.text("\n");
+      for (final var parameter : rec.parameters()) {
+        this.text("  [");
+        this.keyword("parameter");
+        this.text(" ");
+        this.link(anchorPlus(rec, parameter.name()), parameter.name());
+        this.text("]\n");
+      }
+    }
+
+    if (!rec.fields().isEmpty()) {
+      this.text("\n");
+      for (final var field : rec.fields()) {
+        this.text("  [");
+        this.keyword("field");
+        this.text(" ");
+        this.link(anchorPlus(rec, field.name()), field.name());
+        this.text(" ");
+        this.writeTypeExpression(field.type());
+        this.text("]\n");
+      }
+    }
+
+    this.text("]\n");
+    this.end();
+    this.end();
+  }
+
+  private void writeVariantOverview(
+    final CBVariantType var)
+    throws XMLStreamException
+  {
+    this.start("div", "cbTypeOverview");
+    this.start("pre");
+    this.text("[");
+    this.keyword("variant");
+    this.text(" ");
+    this.link(anchor(var), var.name());
+
+    if (!var.parameters().isEmpty()) {
+      this.text("\n");
+      for (final var parameter : var.parameters()) {
+        this.text("  [");
+        this.keyword("parameter");
+        this.text(" ");
+        this.link(anchorPlus(var, parameter.name()), parameter.name());
+        this.text("]");
+      }
+    }
+
+    if (!var.cases().isEmpty()) {
+      this.text("\n");
+      for (final var caseV : var.cases()) {
+        this.text("  [");
+        this.keyword("case");
+        this.text(" ");
+        this.text(caseV.name());
+
+        if (!caseV.fields().isEmpty()) {
+          this.text("\n");
+          for (final var field : caseV.fields()) {
+            this.text("    [");
+            this.keyword("field");
+            this.text(" ");
+            this.link(
+              anchorPlus(var, "%s_%s".formatted(caseV.name(), field.name())),
+              field.name()
+            );
+            this.text(" ");
+            this.writeTypeExpression(field.type());
+            this.text("]\n");
+          }
+          this.text("  ]\n");
+        } else {
+          this.text("]\n");
+        }
+      }
+    }
+
+    this.text("]\n");
+    this.end();
+    this.end();
+  }
+
+  private void writeTypeExpression(
+    final CBTypeExpressionType type)
+    throws XMLStreamException
+  {
+    if (type instanceof CBTypeExpressionApplication app) {
+      this.start("span");
+      this.text("[");
+      this.writeTypeExpression(app.target());
+      for (final var ex : app.arguments()) {
+        this.writeTypeExpression(ex);
+      }
+      this.text("]");
+      this.end();
+      return;
+    }
+
+    if (type instanceof CBTypeExprParameterType exprParam) {
+      final var param = exprParam.parameter();
+      this.link(anchorPlus(param.owner(), param.name()), param.name());
+      return;
+    }
+
+    if (type instanceof CBTypeExprNamedType named) {
+      final var targetType = named.declaration();
+      final var targetOwner = targetType.owner();
+      if (Objects.equals(targetOwner, this.pack)) {
+        this.link(anchor(targetType), targetType.name());
+      } else {
+        final var file = targetOwner.name() + ".xhtml";
+        this.link(file + anchor(targetType), targetType.name());
+      }
+      return;
+    }
+
+    throw new IllegalStateException();
+  }
+
+  private static String id(
+    final CBTypeDeclarationType type)
+  {
+    return String.format("id_%s", type.id());
+  }
+
+  private static String anchor(
+    final CBTypeDeclarationType type)
+  {
+    return String.format("#%s", id(type));
+  }
+
+  private static String idPlus(
+    final CBTypeDeclarationType type,
+    final String name)
+  {
+    return String.format("id_%s_%s", type.id(), name);
+  }
+
+  private static String anchorPlus(
+    final CBTypeDeclarationType type,
+    final String name)
+  {
+    return String.format("#%s", idPlus(type, name));
+  }
+
+  private static String id(
+    final CBProtocolDeclarationType type)
+  {
+    return String.format("id_%s", type.id());
+  }
+
+  private static String anchor(
+    final CBProtocolDeclarationType type)
+  {
+    return String.format("#%s", id(type));
+  }
+}
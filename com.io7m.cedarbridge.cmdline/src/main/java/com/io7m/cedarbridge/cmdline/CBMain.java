@@ -16,11 +16,14 @@
 
 package com.io7m.cedarbridge.cmdline;
 
+import com.io7m.cedarbridge.cmdline.internal.CBCommandBench;
 import com.io7m.cedarbridge.cmdline.internal.CBCommandCheck;
 import com.io7m.cedarbridge.cmdline.internal.CBCommandCompile;
 import com.io7m.cedarbridge.cmdline.internal.CBCommandDocument;
+import com.io7m.cedarbridge.cmdline.internal.CBCommandInspect;
 import com.io7m.cedarbridge.cmdline.internal.CBCommandListCodeGenerators;
 import com.io7m.cedarbridge.cmdline.internal.CBCommandListDocGenerators;
+import com.io7m.cedarbridge.cmdline.internal.CBCommandWatch;
 import com.io7m.quarrel.core.QApplication;
 import com.io7m.quarrel.core.QApplicationMetadata;
 import com.io7m.quarrel.core.QApplicationType;
@@ -67,11 +70,14 @@ public final class CBMain implements Runnable
       );
 
     final var builder = QApplication.builder(metadata);
+    builder.addCommand(new CBCommandBench());
     builder.addCommand(new CBCommandCheck());
     builder.addCommand(new CBCommandCompile());
     builder.addCommand(new CBCommandDocument());
+    builder.addCommand(new CBCommandInspect());
     builder.addCommand(new CBCommandListCodeGenerators());
     builder.addCommand(new CBCommandListDocGenerators());
+    builder.addCommand(new CBCommandWatch());
 
     this.application = builder.build();
     this.exitCode = 0;
@@ -0,0 +1,466 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.cedarbridge.cmdline.internal;
+
+import com.io7m.cedarbridge.runtime.api.CBSerializableType;
+import com.io7m.cedarbridge.runtime.api.CBSerializationContextByteBuffer;
+import com.io7m.cedarbridge.runtime.api.CBSerializationContextSize;
+import com.io7m.cedarbridge.runtime.api.CBSerializationContextType;
+import com.io7m.cedarbridge.runtime.dynamic.CBDynamicCodecStrategy;
+import com.io7m.cedarbridge.runtime.dynamic.CBDynamicCompiler;
+import com.io7m.cedarbridge.runtime.dynamic.CBDynamicValueGenerator;
+import com.io7m.cedarbridge.runtime.dynamic.CBDynamicValueType;
+import com.io7m.cedarbridge.schema.compiled.CBPackageType;
+import com.io7m.cedarbridge.schema.compiled.CBTypeDeclarationType;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.SplittableRandom;
+import java.util.function.Supplier;
+
+/**
+ * <p>Encoding and decoding benchmarks for the types and protocols of
+ * compiled packages.</p>
+ *
+ * <p>Each type with no type parameters, and each version of each protocol,
+ * is benchmarked in turn. A fixed set of random but valid sample values is
+ * generated from the compiled schema, each sample is encoded once to
+ * measure the distribution of encoded sizes, and then the whole set is
+ * repeatedly encoded and decoded, first to warm up and then to take
+ * measurements.</p>
+ */
+
+public final class CBBenchmark
+{
+  private final CBBenchmarkConfiguration configuration;
+  private final CBDynamicCompiler compiler;
+  private final CBDynamicValueGenerator generator;
+  private final AllocationCounterType allocations;
+
+  /**
+   * Create a benchmark.
+   *
+   * @param inConfiguration The configuration
+   */
+
+  public CBBenchmark(
+    final CBBenchmarkConfiguration inConfiguration)
+  {
+    this.configuration =
+      Objects.requireNonNull(inConfiguration, "configuration");
+    this.compiler =
+      new CBDynamicCompiler(inConfiguration.strategy());
+    this.generator =
+      new CBDynamicValueGenerator(new SplittableRandom(inConfiguration.seed()));
+    this.allocations =
+      AllocationCounterType.create();
+  }
+
+  /**
+   * The configuration of a benchmark.
+   *
+   * @param samples    The number of sample values per type
+   * @param warmup     The number of passes over the samples before measuring
+   * @param iterations The number of measured passes over the samples
+   * @param seed       The seed used to generate sample values
+   * @param strategy   The codec strategy
+   */
+
+  public record CBBenchmarkConfiguration(
+    int samples,
+    int warmup,
+    int iterations,
+    long seed,
+    CBDynamicCodecStrategy strategy)
+  {
+    /**
+     * The configuration of a benchmark.
+     *
+     * @param samples    The number of sample values per type
+     * @param warmup     The number of passes over the samples before
+     *                   measuring
+     * @param iterations The number of measured passes over the samples
+     * @param seed       The seed used to generate sample values
+     * @param strategy   The codec strategy
+     */
+
+    public CBBenchmarkConfiguration
+    {
+      Objects.requireNonNull(strategy, "strategy");
+
+      if (samples <= 0) {
+        throw new IllegalArgumentException(String.format(
+          "Sample count %d must be positive",
+          Integer.valueOf(samples))
+        );
+      }
+      if (warmup < 0) {
+        throw new IllegalArgumentException(String.format(
+          "Warmup count %d must be non-negative",
+          Integer.valueOf(warmup))
+        );
+      }
+      if (iterations <= 0) {
+        throw new IllegalArgumentException(String.format(
+          "Iteration count %d must be positive",
+          Integer.valueOf(iterations))
+        );
+      }
+    }
+  }
+
+  /**
+   * The result of benchmarking one type or protocol version.
+   *
+   * @param name                  The name of the type or protocol version
+   * @param samples               The number of samples
+   * @param sizeMinimum           The smallest encoded size in bytes
+   * @param sizeMedian            The median encoded size in bytes
+   * @param sizeP99               The 99th percentile encoded size in bytes
+   * @param sizeMaximum           The largest encoded size in bytes
+   * @param sizeMean              The mean encoded size in bytes
+   * @param encodeMessagesPerSec  The encoded messages per second
+   * @param encodeBytesPerSec     The encoded bytes per second
+   * @param encodeAllocatedPerMsg The bytes allocated per encoded message,
+   *                              or {@code NaN} if this cannot be measured
+   * @param decodeMessagesPerSec  The decoded messages per second
+   * @param decodeBytesPerSec     The decoded bytes per second
+   * @param decodeAllocatedPerMsg The bytes allocated per decoded message,
+   *                              or {@code NaN} if this cannot be measured
+   */
+
+  public record CBBenchmarkResult(
+    String name,
+    int samples,
+    int sizeMinimum,
+    int sizeMedian,
+    int sizeP99,
+    int sizeMaximum,
+    double sizeMean,
+    double encodeMessagesPerSec,
+    double encodeBytesPerSec,
+    double encodeAllocatedPerMsg,
+    double decodeMessagesPerSec,
+    double decodeBytesPerSec,
+    double decodeAllocatedPerMsg)
+  {
+    /**
+     * The result of benchmarking one type or protocol version.
+     *
+     * @param name                  The name of the type or protocol version
+     * @param samples               The number of samples
+     * @param sizeMinimum           The smallest encoded size in bytes
+     * @param sizeMedian            The median encoded size in bytes
+     * @param sizeP99               The 99th percentile encoded size in bytes
+     * @param sizeMaximum           The largest encoded size in bytes
+     * @param sizeMean              The mean encoded size in bytes
+     * @param encodeMessagesPerSec  The encoded messages per second
+     * @param encodeBytesPerSec     The encoded bytes per second
+     * @param encodeAllocatedPerMsg The bytes allocated per encoded message,
+     *                              or {@code NaN} if this cannot be measured
+     * @param decodeMessagesPerSec  The decoded messages per second
+     * @param decodeBytesPerSec     The decoded bytes per second
+     * @param decodeAllocatedPerMsg The bytes allocated per decoded message,
+     *                              or {@code NaN} if this cannot be measured
+     */
+
+    public CBBenchmarkResult
+    {
+      Objects.requireNonNull(name, "name");
+    }
+  }
+
+  /**
+   * Benchmark every type with no type parameters, and every version of
+   * every protocol, in the given packages.
+   *
+   * @param packages The packages
+   *
+   * @return The results, in package, type, and protocol name order
+   *
+   * @throws IOException              On encoding or decoding errors
+   * @throws IllegalArgumentException If a type refers to an unsupported
+   *                                  external type
+   */
+
+  public List<CBBenchmarkResult> run(
+    final List<CBPackageType> packages)
+    throws IOException
+  {
+    Objects.requireNonNull(packages, "packages");
+
+    final var sorted =
+      packages.stream()
+        .sorted(Comparator.comparing(CBPackageType::name))
+        .toList();
+
+    final var results = new ArrayList<CBBenchmarkResult>();
+    for (final var pack : sorted) {
+      final var types =
+        pack.types()
+          .values()
+          .stream()
+          .filter(t -> t.arity() == 0)
+          .filter(t -> t.external().isEmpty())
+          .sorted(Comparator.comparing(CBTypeDeclarationType::name))
+          .toList();
+
+      for (final var type : types) {
+        results.add(this.runType(type));
+      }
+
+      final var protocols =
+        pack.protocols()
+          .values()
+          .stream()
+          .sorted(Comparator.comparing(p -> p.name()))
+          .toList();
+
+      for (final var protocol : protocols) {
+        for (final var version : protocol.versions().values()) {
+          final var codec =
+            this.compiler.protocolCodecFor(version);
+          final var messages =
+            version.typesInOrder();
+          final var random =
+            new SplittableRandom(this.configuration.seed());
+
+          results.add(this.measure(
+            "%s:%s v%s".formatted(
+              pack.name(), protocol.name(), version.version()),
+            () -> this.generator.generate(
+              messages.get(random.nextInt(messages.size()))),
+            (context, value) -> {
+              codec.serialize(context, (CBDynamicValueType) value);
+            },
+            codec::deserialize
+          ));
+        }
+      }
+    }
+    return List.copyOf(results);
+  }
+
+  private CBBenchmarkResult runType(
+    final CBTypeDeclarationType type)
+    throws IOException
+  {
+    final var codec = this.compiler.codecFor(type);
+    return this.measure(
+      codec.type(),
+      () -> this.generator.generate(type),
+      codec::execute,
+      codec::execute
+    );
+  }
+
+  private interface EncoderType
+  {
+    void encode(
+      CBSerializationContextType context,
+      CBSerializableType value)
+      throws IOException;
+  }
+
+  private interface DecoderType
+  {
+    CBSerializableType decode(
+      CBSerializationContextType context)
+      throws IOException;
+  }
+
+  private CBBenchmarkResult measure(
+    final String name,
+    final Supplier<CBSerializableType> generate,
+    final EncoderType encoder,
+    final DecoderType decoder)
+    throws IOException
+  {
+    final var count = this.configuration.samples();
+    final var values = new CBSerializableType[count];
+    for (int index = 0; index < count; ++index) {
+      values[index] = generate.get();
+    }
+
+    /*
+     * Measure every sample once to find the encoded sizes, and then encode
+     * the samples back to back into a buffer that is used for decoding.
+     */
+
+    final var sizes = new int[count];
+    final var sizer = new CBSerializationContextSize();
+    for (int index = 0; index < count; ++index) {
+      sizer.reset();
+      encoder.encode(sizer, values[index]);
+      sizes[index] = Math.toIntExact(sizer.size());
+    }
+
+    final var totalBytes = Arrays.stream(sizes).asLongStream().sum();
+    final var decodeBuffer =
+      ByteBuffer.allocate(Math.toIntExact(totalBytes));
+    final var decodeContext =
+      CBSerializationContextByteBuffer.create(decodeBuffer);
+    for (final var value : values) {
+      encoder.encode(decodeContext, value);
+    }
+
+    final var encodeBuffer =
+      ByteBuffer.allocate(Arrays.stream(sizes).max().orElse(0));
+    final var encodeContext =
+      CBSerializationContextByteBuffer.create(encodeBuffer);
+
+    for (int pass = 0; pass < this.configuration.warmup(); ++pass) {
+      encodeAll(encoder, encodeContext, values);
+      decodeAll(decoder, decodeContext, count);
+    }
+
+    final var iterations = this.configuration.iterations();
+    final var messages = (double) count * (double) iterations;
+
+    final var encodeAllocThen = this.allocations.allocatedBytes();
+    final var encodeThen = System.nanoTime();
+    for (int pass = 0; pass < iterations; ++pass) {
+      encodeAll(encoder, encodeContext, values);
+    }
+    final var encodeTime = System.nanoTime() - encodeThen;
+    final var encodeAlloc = this.allocations.allocatedBytes() - encodeAllocThen;
+
+    final var decodeAllocThen = this.allocations.allocatedBytes();
+    final var decodeThen = System.nanoTime();
+    for (int pass = 0; pass < iterations; ++pass) {
+      decodeAll(decoder, decodeContext, count);
+    }
+    final var decodeTime = System.nanoTime() - decodeThen;
+    final var decodeAlloc = this.allocations.allocatedBytes() - decodeAllocThen;
+
+    final var sorted = sizes.clone();
+    Arrays.sort(sorted);
+
+    final var bytes = (double) totalBytes * (double) iterations;
+    return new CBBenchmarkResult(
+      name,
+      count,
+      sorted[0],
+      percentile(sorted, 0.50),
+      percentile(sorted, 0.99),
+      sorted[count - 1],
+      (double) totalBytes / (double) count,
+      perSecond(messages, encodeTime),
+      perSecond(bytes, encodeTime),
+      this.allocations.supported() ? encodeAlloc / messages : Double.NaN,
+      perSecond(messages, decodeTime),
+      perSecond(bytes, decodeTime),
+      this.allocations.supported() ? decodeAlloc / messages : Double.NaN
+    );
+  }
+
+  private static void encodeAll(
+    final EncoderType encoder,
+    final CBSerializationContextByteBuffer context,
+    final CBSerializableType[] values)
+    throws IOException
+  {
+    for (final var value : values) {
+      context.setPosition(0);
+      encoder.encode(context, value);
+    }
+  }
+
+  private static void decodeAll(
+    final DecoderType decoder,
+    final CBSerializationContextByteBuffer context,
+    final int count)
+    throws IOException
+  {
+    context.setPosition(0);
+    for (int index = 0; index < count; ++index) {
+      decoder.decode(context);
+    }
+  }
+
+  private static int percentile(
+    final int[] sorted,
+    final double fraction)
+  {
+    final var index = (int) Math.ceil(fraction * sorted.length) - 1;
+    return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+  }
+
+  private static double perSecond(
+    final double quantity,
+    final long nanoseconds)
+  {
+    return quantity / ((double) Math.max(1L, nanoseconds) / 1_000_000_000.0);
+  }
+
+  /**
+   * A counter of the bytes allocated by the current thread, where the JVM
+   * supports it.
+   */
+
+  private interface AllocationCounterType
+  {
+    boolean supported();
+
+    long allocatedBytes();
+
+    static AllocationCounterType create()
+    {
+      final var bean = ManagementFactory.getThreadMXBean();
+      if (bean instanceof com.sun.management.ThreadMXBean threads
+          && threads.isThreadAllocatedMemorySupported()) {
+        threads.setThreadAllocatedMemoryEnabled(true);
+        return new AllocationCounterType()
+        {
+          @Override
+          public boolean supported()
+          {
+            return true;
+          }
+
+          @Override
+          public long allocatedBytes()
+          {
+            return threads.getCurrentThreadAllocatedBytes();
+          }
+        };
+      }
+
+      return new AllocationCounterType()
+      {
+        @Override
+        public boolean supported()
+        {
+          return false;
+        }
+
+        @Override
+        public long allocatedBytes()
+        {
+          return 0L;
+        }
+      };
+    }
+  }
+}
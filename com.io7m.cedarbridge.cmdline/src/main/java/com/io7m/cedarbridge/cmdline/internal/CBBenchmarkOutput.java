@@ -0,0 +1,220 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.cedarbridge.cmdline.internal;
+
+import com.io7m.cedarbridge.cmdline.internal.CBBenchmark.CBBenchmarkResult;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Functions to display benchmark results.
+ */
+
+public final class CBBenchmarkOutput
+{
+  private static final List<String> HEADINGS =
+    List.of(
+      "Name",
+      "Samples",
+      "Size Min",
+      "Size P50",
+      "Size P99",
+      "Size Max",
+      "Size Mean",
+      "Enc msg/s",
+      "Enc MiB/s",
+      "Enc alloc/msg",
+      "Dec msg/s",
+      "Dec MiB/s",
+      "Dec alloc/msg"
+    );
+
+  private static final double MEBIBYTE = 1024.0 * 1024.0;
+
+  private CBBenchmarkOutput()
+  {
+
+  }
+
+  private static String decimal(
+    final double x)
+  {
+    if (Double.isNaN(x)) {
+      return "n/a";
+    }
+    return String.format(Locale.ROOT, "%.1f", Double.valueOf(x));
+  }
+
+  private static String integer(
+    final long x)
+  {
+    return Long.toString(x);
+  }
+
+  private static List<String> cells(
+    final CBBenchmarkResult r)
+  {
+    return List.of(
+      r.name(),
+      integer(r.samples()),
+      integer(r.sizeMinimum()),
+      integer(r.sizeMedian()),
+      integer(r.sizeP99()),
+      integer(r.sizeMaximum()),
+      decimal(r.sizeMean()),
+      integer(Math.round(r.encodeMessagesPerSec())),
+      decimal(r.encodeBytesPerSec() / MEBIBYTE),
+      decimal(r.encodeAllocatedPerMsg()),
+      integer(Math.round(r.decodeMessagesPerSec())),
+      decimal(r.decodeBytesPerSec() / MEBIBYTE),
+      decimal(r.decodeAllocatedPerMsg())
+    );
+  }
+
+  /**
+   * Format the given results as a table. The first column is left-aligned,
+   * and all numeric columns are right-aligned.
+   *
+   * @param results The results
+   *
+   * @return The lines of the table
+   */
+
+  public static List<String> formatTable(
+    final List<CBBenchmarkResult> results)
+  {
+    final var rows = new ArrayList<List<String>>(results.size() + 1);
+    rows.add(HEADINGS);
+    for (final var result : results) {
+      rows.add(cells(result));
+    }
+
+    final var widths = new int[HEADINGS.size()];
+    for (final var row : rows) {
+      for (int index = 0; index < widths.length; ++index) {
+        widths[index] = Math.max(widths[index], row.get(index).length());
+      }
+    }
+
+    final var lines = new ArrayList<String>(rows.size());
+    for (final var row : rows) {
+      final var line = new StringBuilder(128);
+      for (int index = 0; index < widths.length; ++index) {
+        if (index > 0) {
+          line.append("  ");
+        }
+        final var cell = row.get(index);
+        final var pad = " ".repeat(widths[index] - cell.length());
+        if (index == 0) {
+          line.append(cell).append(pad);
+        } else {
+          line.append(pad).append(cell);
+        }
+      }
+      lines.add(line.toString().stripTrailing());
+    }
+    return List.copyOf(lines);
+  }
+
+  static String jsonString(
+    final String text)
+  {
+    final var b = new StringBuilder(text.length() + 2);
+    b.append('"');
+    for (int index = 0; index < text.length(); ++index) {
+      final var c = text.charAt(index);
+      switch (c) {
+        case '"' -> b.append("\\\"");
+        case '\\' -> b.append("\\\\");
+        default -> {
+          if (c < 0x20) {
+            b.append(String.format(Locale.ROOT, "\\u%04x", Integer.valueOf(c)));
+          } else {
+            b.append(c);
+          }
+        }
+      }
+    }
+    b.append('"');
+    return b.toString();
+  }
+
+  private static String jsonNumber(
+    final double x)
+  {
+    if (Double.isNaN(x) || Double.isInfinite(x)) {
+      return "null";
+    }
+    return String.format(Locale.ROOT, "%.3f", Double.valueOf(x));
+  }
+
+  /**
+   * Format the given results as a JSON array with one object per result.
+   * Measurements that could not be taken are {@code null}.
+   *
+   * @param results The results
+   *
+   * @return The JSON text
+   */
+
+  public static String formatJSON(
+    final List<CBBenchmarkResult> results)
+  {
+    final var b = new StringBuilder(256 * (results.size() + 1));
+    b.append("[\n");
+    for (int index = 0; index < results.size(); ++index) {
+      final var r = results.get(index);
+      b.append("  {\n");
+      b.append("    \"name\": ").append(jsonString(r.name())).append(",\n");
+      b.append("    \"samples\": ").append(r.samples()).append(",\n");
+      b.append("    \"size\": {\n");
+      b.append("      \"minimum\": ").append(r.sizeMinimum()).append(",\n");
+      b.append("      \"median\": ").append(r.sizeMedian()).append(",\n");
+      b.append("      \"p99\": ").append(r.sizeP99()).append(",\n");
+      b.append("      \"maximum\": ").append(r.sizeMaximum()).append(",\n");
+      b.append("      \"mean\": ").append(jsonNumber(r.sizeMean()))
+        .append('\n');
+      b.append("    },\n");
+      b.append("    \"encode\": {\n");
+      b.append("      \"messagesPerSecond\": ")
+        .append(jsonNumber(r.encodeMessagesPerSec())).append(",\n");
+      b.append("      \"bytesPerSecond\": ")
+        .append(jsonNumber(r.encodeBytesPerSec())).append(",\n");
+      b.append("      \"allocatedBytesPerMessage\": ")
+        .append(jsonNumber(r.encodeAllocatedPerMsg())).append('\n');
+      b.append("    },\n");
+      b.append("    \"decode\": {\n");
+      b.append("      \"messagesPerSecond\": ")
+        .append(jsonNumber(r.decodeMessagesPerSec())).append(",\n");
+      b.append("      \"bytesPerSecond\": ")
+        .append(jsonNumber(r.decodeBytesPerSec())).append(",\n");
+      b.append("      \"allocatedBytesPerMessage\": ")
+        .append(jsonNumber(r.decodeAllocatedPerMsg())).append('\n');
+      b.append("    }\n");
+      b.append("  }");
+      if (index + 1 < results.size()) {
+        b.append(',');
+      }
+      b.append('\n');
+    }
+    b.append("]\n");
+    return b.toString();
+  }
+}
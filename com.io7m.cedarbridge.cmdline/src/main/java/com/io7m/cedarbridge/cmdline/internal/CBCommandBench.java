@@ -0,0 +1,283 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.cedarbridge.cmdline.internal;
+
+import com.io7m.cedarbridge.cmdline.internal.CBBenchmark.CBBenchmarkConfiguration;
+import com.io7m.cedarbridge.runtime.dynamic.CBDynamicCodecStrategy;
+import com.io7m.cedarbridge.schema.compiler.api.CBSchemaCompilation;
+import com.io7m.cedarbridge.schema.compiler.api.CBSchemaCompilerConfiguration;
+import com.io7m.cedarbridge.schema.compiler.api.CBSchemaCompilerException;
+import com.io7m.cedarbridge.schema.compiler.api.CBSchemaCompilerFactoryType;
+import com.io7m.cedarbridge.schema.compiler.api.CBSchemaCompilerInstrumentationType;
+import com.io7m.cedarbridge.schema.core_types.CBCore;
+import com.io7m.cedarbridge.schema.time.CBTime;
+import com.io7m.quarrel.core.QCommandContextType;
+import com.io7m.quarrel.core.QCommandMetadata;
+import com.io7m.quarrel.core.QCommandStatus;
+import com.io7m.quarrel.core.QCommandType;
+import com.io7m.quarrel.core.QParameterNamed01;
+import com.io7m.quarrel.core.QParameterNamed0N;
+import com.io7m.quarrel.core.QParameterNamed1;
+import com.io7m.quarrel.core.QParameterNamedType;
+import com.io7m.quarrel.core.QStringType.QConstant;
+import com.io7m.quarrel.ext.logback.QLogback;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * The "bench" command.
+ */
+
+public final class CBCommandBench implements QCommandType
+{
+  private static final QParameterNamed0N<Path> FILES =
+    new QParameterNamed0N<>(
+      "--file",
+      List.of(),
+      new QConstant("The file(s) to benchmark."),
+      List.of(),
+      Path.class
+    );
+
+  private static final QParameterNamed0N<Path> INCLUDES =
+    new QParameterNamed0N<>(
+      "--include",
+      List.of(),
+      new QConstant("The directories containing source files."),
+      List.of(),
+      Path.class
+    );
+
+  private static final QParameterNamed1<Boolean> NO_CORE =
+    new QParameterNamed1<>(
+      "--no-core",
+      List.of(),
+      new QConstant(
+        "Disable registration of the core com.io7m.cedarbridge packages."),
+      Optional.of(Boolean.FALSE),
+      Boolean.class
+    );
+
+  private static final QParameterNamed01<Path> CACHE_DIRECTORY =
+    new QParameterNamed01<>(
+      "--cache-directory",
+      List.of(),
+      new QConstant("The directory used to cache compiled imported packages."),
+      Optional.empty(),
+      Path.class
+    );
+
+  private static final QParameterNamed1<Integer> SAMPLES =
+    new QParameterNamed1<>(
+      "--samples",
+      List.of(),
+      new QConstant("The number of random sample values per type."),
+      Optional.of(Integer.valueOf(1000)),
+      Integer.class
+    );
+
+  private static final QParameterNamed1<Integer> WARMUP =
+    new QParameterNamed1<>(
+      "--warmup",
+      List.of(),
+      new QConstant(
+        "The number of unmeasured passes over the samples before measuring."),
+      Optional.of(Integer.valueOf(20)),
+      Integer.class
+    );
+
+  private static final QParameterNamed1<Integer> ITERATIONS =
+    new QParameterNamed1<>(
+      "--iterations",
+      List.of(),
+      new QConstant("The number of measured passes over the samples."),
+      Optional.of(Integer.valueOf(50)),
+      Integer.class
+    );
+
+  private static final QParameterNamed1<Long> SEED =
+    new QParameterNamed1<>(
+      "--seed",
+      List.of(),
+      new QConstant("The seed used to generate sample values."),
+      Optional.of(Long.valueOf(0L)),
+      Long.class
+    );
+
+  private static final QParameterNamed1<String> STRATEGY =
+    new QParameterNamed1<>(
+      "--strategy",
+      List.of(),
+      new QConstant(
+        "The codec strategy to measure (interpreted, bytecode)."),
+      Optional.of("bytecode"),
+      String.class
+    );
+
+  private static final QParameterNamed1<String> FORMAT =
+    new QParameterNamed1<>(
+      "--format",
+      List.of(),
+      new QConstant("The output format (table, json)."),
+      Optional.of("table"),
+      String.class
+    );
+
+  /**
+   * Construct a command.
+   */
+
+  public CBCommandBench()
+  {
+
+  }
+
+  @Override
+  public List<QParameterNamedType<?>> onListNamedParameters()
+  {
+    return Stream.concat(
+      Stream.of(
+        FILES,
+        INCLUDES,
+        NO_CORE,
+        CACHE_DIRECTORY,
+        SAMPLES,
+        WARMUP,
+        ITERATIONS,
+        SEED,
+        STRATEGY,
+        FORMAT
+      ),
+      QLogback.parameters().stream()
+    ).toList();
+  }
+
+  private static CBDynamicCodecStrategy parseStrategy(
+    final String text)
+  {
+    return switch (text.toLowerCase(Locale.ROOT)) {
+      case "interpreted" -> CBDynamicCodecStrategy.INTERPRETED;
+      case "bytecode" -> CBDynamicCodecStrategy.BYTECODE;
+      default -> throw new IllegalArgumentException(String.format(
+        "Unrecognized strategy '%s' (must be one of: interpreted, bytecode)",
+        text)
+      );
+    };
+  }
+
+  private static boolean parseFormatIsJSON(
+    final String text)
+  {
+    return switch (text.toLowerCase(Locale.ROOT)) {
+      case "table" -> false;
+      case "json" -> true;
+      default -> throw new IllegalArgumentException(String.format(
+        "Unrecognized format '%s' (must be one of: table, json)",
+        text)
+      );
+    };
+  }
+
+  @Override
+  public QCommandStatus onExecute(
+    final QCommandContextType context)
+    throws Exception
+  {
+    QLogback.configure(context);
+
+    final var benchConfiguration =
+      new CBBenchmarkConfiguration(
+        context.<Integer>parameterValue(SAMPLES).intValue(),
+        context.<Integer>parameterValue(WARMUP).intValue(),
+        context.<Integer>parameterValue(ITERATIONS).intValue(),
+        context.<Long>parameterValue(SEED).longValue(),
+        parseStrategy(context.parameterValue(STRATEGY))
+      );
+    final var json =
+      parseFormatIsJSON(context.parameterValue(FORMAT));
+
+    final var compilers =
+      CBServices.findService(CBSchemaCompilerFactoryType.class);
+
+    final var compileFiles =
+      context.parameterValues(FILES)
+        .stream()
+        .map(Path::toAbsolutePath)
+        .collect(Collectors.toList());
+
+    final var includeDirectories =
+      context.parameterValues(INCLUDES)
+        .stream()
+        .map(Path::toAbsolutePath)
+        .collect(Collectors.toList());
+
+    final var configuration =
+      new CBSchemaCompilerConfiguration(
+        includeDirectories,
+        compileFiles,
+        context.parameterValue(CACHE_DIRECTORY)
+          .map(Path::toAbsolutePath),
+        CBSchemaCompilerInstrumentationType.NONE
+      );
+
+    final var compiler =
+      compilers.createCompiler(configuration);
+
+    if (!context.<Boolean>parameterValue(NO_CORE).booleanValue()) {
+      final var loader = compiler.loader();
+      loader.register(CBCore.get());
+      loader.register(CBTime.get());
+    }
+
+    final CBSchemaCompilation compilation;
+    try {
+      compilation = compiler.execute();
+    } catch (final CBSchemaCompilerException e) {
+      return QCommandStatus.FAILURE;
+    }
+
+    final var results =
+      new CBBenchmark(benchConfiguration)
+        .run(compilation.compiledPackages());
+
+    if (json) {
+      System.out.print(CBBenchmarkOutput.formatJSON(results));
+    } else {
+      for (final var line : CBBenchmarkOutput.formatTable(results)) {
+        System.out.println(line);
+      }
+    }
+    return QCommandStatus.SUCCESS;
+  }
+
+  @Override
+  public QCommandMetadata metadata()
+  {
+    return new QCommandMetadata(
+      "bench",
+      new QConstant(
+        "Measure the encoding throughput and encoded sizes of schema types."),
+      Optional.empty()
+    );
+  }
+}
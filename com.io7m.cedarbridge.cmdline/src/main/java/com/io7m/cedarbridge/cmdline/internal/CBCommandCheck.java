@@ -19,12 +19,15 @@ package com.io7m.cedarbridge.cmdline.internal;
 import com.io7m.cedarbridge.schema.compiler.api.CBSchemaCompilerConfiguration;
 import com.io7m.cedarbridge.schema.compiler.api.CBSchemaCompilerException;
 import com.io7m.cedarbridge.schema.compiler.api.CBSchemaCompilerFactoryType;
+import com.io7m.cedarbridge.schema.compiler.api.CBSchemaCompilerInstrumentationType;
+import com.io7m.cedarbridge.schema.compiler.api.CBSchemaCompilerTimings;
 import com.io7m.cedarbridge.schema.core_types.CBCore;
 import com.io7m.cedarbridge.schema.time.CBTime;
 import com.io7m.quarrel.core.QCommandContextType;
 import com.io7m.quarrel.core.QCommandMetadata;
 import com.io7m.quarrel.core.QCommandStatus;
 import com.io7m.quarrel.core.QCommandType;
+import com.io7m.quarrel.core.QParameterNamed01;
 import com.io7m.quarrel.core.QParameterNamed0N;
 import com.io7m.quarrel.core.QParameterNamed1;
 import com.io7m.quarrel.core.QParameterNamedType;
@@ -72,6 +75,25 @@ public final class CBCommandCheck implements QCommandType
       Boolean.class
     );
 
+  private static final QParameterNamed01<Path> CACHE_DIRECTORY =
+    new QParameterNamed01<>(
+      "--cache-directory",
+      List.of(),
+      new QConstant("The directory used to cache compiled imported packages."),
+      Optional.empty(),
+      Path.class
+    );
+
+  private static final QParameterNamed1<Boolean> TIMINGS =
+    new QParameterNamed1<>(
+      "--timings",
+      List.of(),
+      new QConstant(
+        "Print the time taken by each compilation phase for each file."),
+      Optional.of(Boolean.FALSE),
+      Boolean.class
+    );
+
   /**
    * Construct a command.
    */
@@ -85,7 +107,7 @@ public final class CBCommandCheck implements QCommandType
   public List<QParameterNamedType<?>> onListNamedParameters()
   {
     return Stream.concat(
-      Stream.of(FILES, INCLUDES, NO_CORE),
+      Stream.of(FILES, INCLUDES, NO_CORE, CACHE_DIRECTORY, TIMINGS),
       QLogback.parameters().stream()
     ).toList();
   }
@@ -111,10 +133,18 @@ public final class CBCommandCheck implements QCommandType
         .map(Path::toAbsolutePath)
         .collect(Collectors.toList());
 
+    final var timings =
+      new CBSchemaCompilerTimings();
+    final var showTimings =
+      context.<Boolean>parameterValue(TIMINGS).booleanValue();
+
     final var configuration =
       new CBSchemaCompilerConfiguration(
         includeDirectories,
-        compileFiles
+        compileFiles,
+        context.parameterValue(CACHE_DIRECTORY)
+          .map(Path::toAbsolutePath),
+        showTimings ? timings : CBSchemaCompilerInstrumentationType.NONE
       );
 
     final var compiler =
@@ -130,6 +160,10 @@ public final class CBCommandCheck implements QCommandType
       compiler.execute();
     } catch (final CBSchemaCompilerException e) {
       return QCommandStatus.FAILURE;
+    } finally {
+      if (showTimings) {
+        CBTimingsOutput.show(timings);
+      }
     }
 
     return QCommandStatus.SUCCESS;
@@ -22,12 +22,15 @@ import com.io7m.cedarbridge.schema.compiler.api.CBSchemaCompilation;
 import com.io7m.cedarbridge.schema.compiler.api.CBSchemaCompilerConfiguration;
 import com.io7m.cedarbridge.schema.compiler.api.CBSchemaCompilerException;
 import com.io7m.cedarbridge.schema.compiler.api.CBSchemaCompilerFactoryType;
+import com.io7m.cedarbridge.schema.compiler.api.CBSchemaCompilerInstrumentationType;
+import com.io7m.cedarbridge.schema.compiler.api.CBSchemaCompilerTimings;
 import com.io7m.cedarbridge.schema.core_types.CBCore;
 import com.io7m.cedarbridge.schema.time.CBTime;
 import com.io7m.quarrel.core.QCommandContextType;
 import com.io7m.quarrel.core.QCommandMetadata;
 import com.io7m.quarrel.core.QCommandStatus;
 import com.io7m.quarrel.core.QCommandType;
+import com.io7m.quarrel.core.QParameterNamed01;
 import com.io7m.quarrel.core.QParameterNamed0N;
 import com.io7m.quarrel.core.QParameterNamed1;
 import com.io7m.quarrel.core.QParameterNamedType;
@@ -35,6 +38,7 @@ import com.io7m.quarrel.core.QStringType.QConstant;
 import com.io7m.quarrel.ext.logback.QLogback;
 
 import java.nio.file.Path;
+import java.time.Duration;
 import java.util.List;
 import java.util.Optional;
 import java.util.stream.Collectors;
@@ -92,6 +96,25 @@ public final class CBCommandCompile implements QCommandType
       String.class
     );
 
+  private static final QParameterNamed01<Path> CACHE_DIRECTORY =
+    new QParameterNamed01<>(
+      "--cache-directory",
+      List.of(),
+      new QConstant("The directory used to cache compiled imported packages."),
+      Optional.empty(),
+      Path.class
+    );
+
+  private static final QParameterNamed1<Boolean> TIMINGS =
+    new QParameterNamed1<>(
+      "--timings",
+      List.of(),
+      new QConstant(
+        "Print the time taken by each compilation phase for each file."),
+      Optional.of(Boolean.FALSE),
+      Boolean.class
+    );
+
   /**
    * Construct a command.
    */
@@ -105,7 +128,16 @@ public final class CBCommandCompile implements QCommandType
   public List<QParameterNamedType<?>> onListNamedParameters()
   {
     return Stream.concat(
-      Stream.of(FILES, INCLUDES, NO_CORE, OUTPUT_DIRECTORY, LANGUAGE),
+      Stream.of(
+        FILES,
+        INCLUDES,
+        NO_CORE,
+        OUTPUT_DIRECTORY,
+        LANGUAGE,
+        CACHE_DIRECTORY,
+        TIMINGS,
+        CBGeneratorOptions.GENERATOR_OPTION
+      ),
       QLogback.parameters().stream()
     ).toList();
   }
@@ -144,10 +176,18 @@ public final class CBCommandCompile implements QCommandType
         .map(Path::toAbsolutePath)
         .collect(Collectors.toList());
 
+    final var timings =
+      new CBSchemaCompilerTimings();
+    final var showTimings =
+      context.<Boolean>parameterValue(TIMINGS).booleanValue();
+
     final var configuration =
       new CBSchemaCompilerConfiguration(
         includeDirectories,
-        compileFiles
+        compileFiles,
+        context.parameterValue(CACHE_DIRECTORY)
+          .map(Path::toAbsolutePath),
+        showTimings ? timings : CBSchemaCompilerInstrumentationType.NONE
       );
 
     final var compiler =
@@ -163,18 +203,35 @@ public final class CBCommandCompile implements QCommandType
     try {
       compilation = compiler.execute();
     } catch (final CBSchemaCompilerException e) {
+      if (showTimings) {
+        CBTimingsOutput.show(timings);
+      }
       return QCommandStatus.FAILURE;
     }
 
     final var codeGeneratorConfiguration =
-      new CBCodeGeneratorConfiguration(context.parameterValue(OUTPUT_DIRECTORY));
+      new CBCodeGeneratorConfiguration(
+        context.parameterValue(OUTPUT_DIRECTORY),
+        CBGeneratorOptions.parse(
+          context.parameterValues(CBGeneratorOptions.GENERATOR_OPTION))
+      );
 
     final var codeGenerator =
       codeGeneratorFactory.createGenerator(codeGeneratorConfiguration);
 
+    final var timeThen = System.nanoTime();
     for (final var packV : compilation.compiledPackages()) {
       codeGenerator.execute(packV);
     }
+    final var timeNow = System.nanoTime();
+
+    if (showTimings) {
+      CBTimingsOutput.show(timings);
+      CBTimingsOutput.showCodeGeneration(
+        compilation.compiledPackages().size(),
+        Duration.ofNanos(timeNow - timeThen)
+      );
+    }
 
     return QCommandStatus.SUCCESS;
   }
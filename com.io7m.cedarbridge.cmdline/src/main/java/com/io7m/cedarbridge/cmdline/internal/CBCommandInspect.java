@@ -0,0 +1,355 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.cedarbridge.cmdline.internal;
+
+import com.io7m.cedarbridge.cmdline.internal.CBInspector.CBInspectorConfiguration;
+import com.io7m.cedarbridge.runtime.dynamic.CBDynamicCodecStrategy;
+import com.io7m.cedarbridge.runtime.dynamic.CBDynamicCompiler;
+import com.io7m.cedarbridge.schema.compiled.CBPackageType;
+import com.io7m.cedarbridge.schema.compiler.api.CBSchemaCompilation;
+import com.io7m.cedarbridge.schema.compiler.api.CBSchemaCompilerConfiguration;
+import com.io7m.cedarbridge.schema.compiler.api.CBSchemaCompilerException;
+import com.io7m.cedarbridge.schema.compiler.api.CBSchemaCompilerFactoryType;
+import com.io7m.cedarbridge.schema.compiler.api.CBSchemaCompilerInstrumentationType;
+import com.io7m.cedarbridge.schema.core_types.CBCore;
+import com.io7m.cedarbridge.schema.time.CBTime;
+import com.io7m.quarrel.core.QCommandContextType;
+import com.io7m.quarrel.core.QCommandMetadata;
+import com.io7m.quarrel.core.QCommandStatus;
+import com.io7m.quarrel.core.QCommandType;
+import com.io7m.quarrel.core.QParameterNamed01;
+import com.io7m.quarrel.core.QParameterNamed0N;
+import com.io7m.quarrel.core.QParameterNamed1;
+import com.io7m.quarrel.core.QParameterNamedType;
+import com.io7m.quarrel.core.QStringType.QConstant;
+import com.io7m.quarrel.ext.logback.QLogback;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.OutputStreamWriter;
+import java.math.BigInteger;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * The "inspect" command.
+ */
+
+public final class CBCommandInspect implements QCommandType
+{
+  private static final Logger LOG =
+    LoggerFactory.getLogger(CBCommandInspect.class);
+
+  private static final QParameterNamed0N<Path> FILES =
+    new QParameterNamed0N<>(
+      "--file",
+      List.of(),
+      new QConstant("The file(s) containing the protocol."),
+      List.of(),
+      Path.class
+    );
+
+  private static final QParameterNamed0N<Path> INCLUDES =
+    new QParameterNamed0N<>(
+      "--include",
+      List.of(),
+      new QConstant("The directories containing source files."),
+      List.of(),
+      Path.class
+    );
+
+  private static final QParameterNamed1<Boolean> NO_CORE =
+    new QParameterNamed1<>(
+      "--no-core",
+      List.of(),
+      new QConstant(
+        "Disable registration of the core com.io7m.cedarbridge packages."),
+      Optional.of(Boolean.FALSE),
+      Boolean.class
+    );
+
+  private static final QParameterNamed01<Path> CACHE_DIRECTORY =
+    new QParameterNamed01<>(
+      "--cache-directory",
+      List.of(),
+      new QConstant("The directory used to cache compiled imported packages."),
+      Optional.empty(),
+      Path.class
+    );
+
+  private static final QParameterNamed1<Path> CAPTURE =
+    new QParameterNamed1<>(
+      "--capture",
+      List.of(),
+      new QConstant("The capture file to inspect."),
+      Optional.empty(),
+      Path.class
+    );
+
+  private static final QParameterNamed1<String> PROTOCOL =
+    new QParameterNamed1<>(
+      "--protocol",
+      List.of(),
+      new QConstant(
+        "The protocol of the captured messages (such as x.y:Protocol)."),
+      Optional.empty(),
+      String.class
+    );
+
+  private static final QParameterNamed1<Long> PROTOCOL_VERSION =
+    new QParameterNamed1<>(
+      "--protocol-version",
+      List.of(),
+      new QConstant("The protocol version of the captured messages."),
+      Optional.empty(),
+      Long.class
+    );
+
+  private static final QParameterNamed0N<String> MESSAGE_TYPES =
+    new QParameterNamed0N<>(
+      "--message-type",
+      List.of(),
+      new QConstant(
+        "Show only messages of the given type(s) (all types if omitted)."),
+      List.of(),
+      String.class
+    );
+
+  private static final QParameterNamed1<Integer> THREADS =
+    new QParameterNamed1<>(
+      "--threads",
+      List.of(),
+      new QConstant("The number of threads used to decode messages."),
+      Optional.of(Integer.valueOf(1)),
+      Integer.class
+    );
+
+  private static final QParameterNamed1<String> STRATEGY =
+    new QParameterNamed1<>(
+      "--strategy",
+      List.of(),
+      new QConstant(
+        "The codec strategy used to decode messages (interpreted, bytecode)."),
+      Optional.of("bytecode"),
+      String.class
+    );
+
+  private static final QParameterNamed1<String> FORMAT =
+    new QParameterNamed1<>(
+      "--format",
+      List.of(),
+      new QConstant("The output format (text, json)."),
+      Optional.of("text"),
+      String.class
+    );
+
+  /**
+   * Construct a command.
+   */
+
+  public CBCommandInspect()
+  {
+
+  }
+
+  @Override
+  public List<QParameterNamedType<?>> onListNamedParameters()
+  {
+    return Stream.concat(
+      Stream.of(
+        FILES,
+        INCLUDES,
+        NO_CORE,
+        CACHE_DIRECTORY,
+        CAPTURE,
+        PROTOCOL,
+        PROTOCOL_VERSION,
+        MESSAGE_TYPES,
+        THREADS,
+        STRATEGY,
+        FORMAT
+      ),
+      QLogback.parameters().stream()
+    ).toList();
+  }
+
+  private static CBDynamicCodecStrategy parseStrategy(
+    final String text)
+  {
+    return switch (text.toLowerCase(Locale.ROOT)) {
+      case "interpreted" -> CBDynamicCodecStrategy.INTERPRETED;
+      case "bytecode" -> CBDynamicCodecStrategy.BYTECODE;
+      default -> throw new IllegalArgumentException(String.format(
+        "Unrecognized strategy '%s' (must be one of: interpreted, bytecode)",
+        text)
+      );
+    };
+  }
+
+  private static boolean parseFormatIsJSON(
+    final String text)
+  {
+    return switch (text.toLowerCase(Locale.ROOT)) {
+      case "text" -> false;
+      case "json" -> true;
+      default -> throw new IllegalArgumentException(String.format(
+        "Unrecognized format '%s' (must be one of: text, json)",
+        text)
+      );
+    };
+  }
+
+  private static CBPackageType findPackage(
+    final List<CBPackageType> packages,
+    final String name)
+  {
+    for (final var pack : packages) {
+      if (pack.name().equals(name)) {
+        return pack;
+      }
+    }
+    throw new IllegalArgumentException(String.format(
+      "No package named %s was compiled",
+      name)
+    );
+  }
+
+  @Override
+  public QCommandStatus onExecute(
+    final QCommandContextType context)
+    throws Exception
+  {
+    QLogback.configure(context);
+
+    final var strategy =
+      parseStrategy(context.parameterValue(STRATEGY));
+    final var json =
+      parseFormatIsJSON(context.parameterValue(FORMAT));
+
+    final var protocolName =
+      context.<String>parameterValue(PROTOCOL);
+    final var separator =
+      protocolName.lastIndexOf(':');
+    if (separator <= 0 || separator == protocolName.length() - 1) {
+      throw new IllegalArgumentException(String.format(
+        "Protocol '%s' must be of the form package:Protocol",
+        protocolName)
+      );
+    }
+
+    final var compilers =
+      CBServices.findService(CBSchemaCompilerFactoryType.class);
+
+    final var compileFiles =
+      context.parameterValues(FILES)
+        .stream()
+        .map(Path::toAbsolutePath)
+        .collect(Collectors.toList());
+
+    final var includeDirectories =
+      context.parameterValues(INCLUDES)
+        .stream()
+        .map(Path::toAbsolutePath)
+        .collect(Collectors.toList());
+
+    final var configuration =
+      new CBSchemaCompilerConfiguration(
+        includeDirectories,
+        compileFiles,
+        context.parameterValue(CACHE_DIRECTORY)
+          .map(Path::toAbsolutePath),
+        CBSchemaCompilerInstrumentationType.NONE
+      );
+
+    final var compiler =
+      compilers.createCompiler(configuration);
+
+    if (!context.<Boolean>parameterValue(NO_CORE).booleanValue()) {
+      final var loader = compiler.loader();
+      loader.register(CBCore.get());
+      loader.register(CBTime.get());
+    }
+
+    final CBSchemaCompilation compilation;
+    try {
+      compilation = compiler.execute();
+    } catch (final CBSchemaCompilerException e) {
+      return QCommandStatus.FAILURE;
+    }
+
+    final var pack =
+      findPackage(
+        compilation.compiledPackages(),
+        protocolName.substring(0, separator)
+      );
+
+    final var codec =
+      new CBDynamicCompiler(strategy)
+        .protocolCodecFor(
+          pack,
+          protocolName.substring(separator + 1),
+          BigInteger.valueOf(
+            context.<Long>parameterValue(PROTOCOL_VERSION).longValue())
+        );
+
+    final var inspector =
+      new CBInspector(new CBInspectorConfiguration(
+        codec,
+        new HashSet<>(context.parameterValues(MESSAGE_TYPES)),
+        context.<Integer>parameterValue(THREADS).intValue(),
+        json,
+        CBInspector.DEFAULT_WINDOW_SIZE
+      ));
+
+    final var output =
+      new BufferedWriter(new OutputStreamWriter(System.out, UTF_8), 65536);
+    final var summary =
+      inspector.run(context.parameterValue(CAPTURE), output);
+
+    LOG.info(
+      "{} frames, {} shown, {} filtered, {} failed",
+      Long.valueOf(summary.frames()),
+      Long.valueOf(summary.shown()),
+      Long.valueOf(summary.filtered()),
+      Long.valueOf(summary.failed())
+    );
+
+    if (summary.failed() > 0L) {
+      return QCommandStatus.FAILURE;
+    }
+    return QCommandStatus.SUCCESS;
+  }
+
+  @Override
+  public QCommandMetadata metadata()
+  {
+    return new QCommandMetadata(
+      "inspect",
+      new QConstant("Decode and display the messages in a capture file."),
+      Optional.empty()
+    );
+  }
+}
@@ -0,0 +1,371 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.cedarbridge.cmdline.internal;
+
+import com.io7m.cedarbridge.codegen.api.CBCodeGeneratorConfiguration;
+import com.io7m.cedarbridge.codegen.api.CBCodeGeneratorException;
+import com.io7m.cedarbridge.codegen.api.CBCodeGeneratorType;
+import com.io7m.cedarbridge.codegen.api.CBCodeGenerators;
+import com.io7m.cedarbridge.schema.compiled.CBPackageType;
+import com.io7m.cedarbridge.schema.compiler.api.CBSchemaCompilerException;
+import com.io7m.cedarbridge.schema.compiler.api.CBSchemaCompilerFactoryType;
+import com.io7m.cedarbridge.schema.core_types.CBCore;
+import com.io7m.cedarbridge.schema.time.CBTime;
+import com.io7m.quarrel.core.QCommandContextType;
+import com.io7m.quarrel.core.QCommandMetadata;
+import com.io7m.quarrel.core.QCommandStatus;
+import com.io7m.quarrel.core.QCommandType;
+import com.io7m.quarrel.core.QParameterNamed01;
+import com.io7m.quarrel.core.QParameterNamed0N;
+import com.io7m.quarrel.core.QParameterNamed1;
+import com.io7m.quarrel.core.QParameterNamedType;
+import com.io7m.quarrel.core.QStringType.QConstant;
+import com.io7m.quarrel.ext.logback.QLogback;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+/**
+ * The "watch" command.
+ */
+
+public final class CBCommandWatch implements QCommandType
+{
+  private static final Logger LOG =
+    LoggerFactory.getLogger(CBCommandWatch.class);
+
+  /*
+   * Editors frequently produce several events for a single save; events
+   * arriving within this window are handled as a single change.
+   */
+
+  private static final long SETTLE_MILLISECONDS = 25L;
+
+  private static final QParameterNamed0N<Path> FILES =
+    new QParameterNamed0N<>(
+      "--file",
+      List.of(),
+      new QConstant("The file(s) to compile."),
+      List.of(),
+      Path.class
+    );
+
+  private static final QParameterNamed0N<Path> INCLUDES =
+    new QParameterNamed0N<>(
+      "--include",
+      List.of(),
+      new QConstant("The directories containing source files."),
+      List.of(),
+      Path.class
+    );
+
+  private static final QParameterNamed1<Boolean> NO_CORE =
+    new QParameterNamed1<>(
+      "--no-core",
+      List.of(),
+      new QConstant(
+        "Disable registration of the core com.io7m.cedarbridge packages."),
+      Optional.of(Boolean.FALSE),
+      Boolean.class
+    );
+
+  private static final QParameterNamed1<Path> OUTPUT_DIRECTORY =
+    new QParameterNamed1<>(
+      "--output-directory",
+      List.of(),
+      new QConstant("The output directory containing generated files."),
+      Optional.empty(),
+      Path.class
+    );
+
+  private static final QParameterNamed1<String> LANGUAGE =
+    new QParameterNamed1<>(
+      "--language",
+      List.of(),
+      new QConstant("The language name used to select a code generator."),
+      Optional.empty(),
+      String.class
+    );
+
+  private static final QParameterNamed01<Path> CACHE_DIRECTORY =
+    new QParameterNamed01<>(
+      "--cache-directory",
+      List.of(),
+      new QConstant("The directory used to cache compiled imported packages."),
+      Optional.empty(),
+      Path.class
+    );
+
+  /**
+   * Construct a command.
+   */
+
+  public CBCommandWatch()
+  {
+
+  }
+
+  @Override
+  public List<QParameterNamedType<?>> onListNamedParameters()
+  {
+    return Stream.concat(
+      Stream.of(
+        FILES,
+        INCLUDES,
+        NO_CORE,
+        OUTPUT_DIRECTORY,
+        LANGUAGE,
+        CACHE_DIRECTORY,
+        CBGeneratorOptions.GENERATOR_OPTION
+      ),
+      QLogback.parameters().stream()
+    ).toList();
+  }
+
+  @Override
+  public QCommandStatus onExecute(
+    final QCommandContextType context)
+    throws Exception
+  {
+    QLogback.configure(context);
+
+    final var codeGenerators =
+      new CBCodeGenerators();
+    final var compilers =
+      CBServices.findService(CBSchemaCompilerFactoryType.class);
+
+    final var languageName =
+      context.parameterValue(LANGUAGE);
+
+    final var codeGeneratorFactory =
+      codeGenerators.findByLanguageName(languageName)
+        .orElseThrow(() -> new IllegalArgumentException(String.format(
+          "No code generator available for the language '%s'",
+          languageName)
+        ));
+
+    final var codeGenerator =
+      codeGeneratorFactory.createGenerator(
+        new CBCodeGeneratorConfiguration(
+          context.parameterValue(OUTPUT_DIRECTORY),
+          CBGeneratorOptions.parse(
+            context.parameterValues(CBGeneratorOptions.GENERATOR_OPTION))
+        )
+      );
+
+    final var compileFiles =
+      context.parameterValues(FILES)
+        .stream()
+        .map(Path::toAbsolutePath)
+        .collect(Collectors.toList());
+
+    final var includeDirectories =
+      context.parameterValues(INCLUDES)
+        .stream()
+        .map(Path::toAbsolutePath)
+        .collect(Collectors.toList());
+
+    final List<CBPackageType> registered;
+    if (context.<Boolean>parameterValue(NO_CORE).booleanValue()) {
+      registered = List.of();
+    } else {
+      registered = List.of(CBCore.get(), CBTime.get());
+    }
+
+    final var watcher =
+      new CBWatcher(
+        compilers,
+        includeDirectories,
+        compileFiles,
+        registered,
+        context.parameterValue(CACHE_DIRECTORY)
+          .map(Path::toAbsolutePath)
+      );
+
+    try (var watchService = FileSystems.getDefault().newWatchService()) {
+      final var keys = new HashMap<WatchKey, Path>();
+      for (final var include : watcher.includes()) {
+        registerRecursively(watchService, keys, include);
+      }
+      for (final var file : watcher.files()) {
+        registerDirectory(watchService, keys, file.getParent());
+      }
+
+      runCycle(codeGenerator, watcher, Optional.empty());
+      LOG.info("watching for changes");
+
+      while (true) {
+        final var changed = waitForChanges(watchService, keys);
+        runCycle(codeGenerator, watcher, changed);
+      }
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return QCommandStatus.SUCCESS;
+    }
+  }
+
+  private static void runCycle(
+    final CBCodeGeneratorType codeGenerator,
+    final CBWatcher watcher,
+    final Optional<Set<Path>> changed)
+  {
+    final var timeThen = System.nanoTime();
+
+    final List<CBPackageType> compiled;
+    try {
+      if (changed.isPresent()) {
+        compiled = watcher.recompile(changed.get());
+      } else {
+        compiled = watcher.compileAll();
+      }
+    } catch (final CBSchemaCompilerException e) {
+      LOG.error("compilation failed");
+      return;
+    }
+
+    for (final var pack : compiled) {
+      try {
+        for (final var file : codeGenerator.execute(pack).createdFiles()) {
+          LOG.debug("create {}", file);
+        }
+      } catch (final CBCodeGeneratorException e) {
+        LOG.error("code generation failed for {}: {}", pack.name(), e.getMessage());
+        return;
+      }
+    }
+
+    final var timeNow = System.nanoTime();
+    LOG.info(
+      "compiled {} package(s) in {}ms",
+      Integer.valueOf(compiled.size()),
+      Long.valueOf(TimeUnit.NANOSECONDS.toMillis(timeNow - timeThen))
+    );
+  }
+
+  /**
+   * Wait for changes to source files. If the watch service lost events,
+   * an empty value is returned and everything must be recompiled.
+   */
+
+  private static Optional<Set<Path>> waitForChanges(
+    final WatchService watchService,
+    final Map<WatchKey, Path> keys)
+    throws InterruptedException, IOException
+  {
+    final var changed = new HashSet<Path>();
+
+    while (changed.isEmpty()) {
+      var key = watchService.take();
+      while (key != null) {
+        final var directory = keys.get(key);
+        for (final var event : key.pollEvents()) {
+          if (event.kind() == OVERFLOW || directory == null) {
+            LOG.debug("event overflow");
+            key.reset();
+            return Optional.empty();
+          }
+
+          final var path = directory.resolve((Path) event.context());
+          if (event.kind() == ENTRY_CREATE && Files.isDirectory(path)) {
+            registerRecursively(watchService, keys, path);
+            continue;
+          }
+          if (path.getFileName().toString().endsWith(".cbs")) {
+            changed.add(path);
+          }
+        }
+
+        if (!key.reset()) {
+          keys.remove(key);
+        }
+        key = watchService.poll(SETTLE_MILLISECONDS, TimeUnit.MILLISECONDS);
+      }
+    }
+    return Optional.of(changed);
+  }
+
+  private static void registerRecursively(
+    final WatchService watchService,
+    final Map<WatchKey, Path> keys,
+    final Path directory)
+    throws IOException
+  {
+    if (!Files.isDirectory(directory)) {
+      return;
+    }
+
+    try (var stream = Files.walk(directory)) {
+      final var directories =
+        stream.filter(Files::isDirectory).toList();
+      for (final var subdirectory : directories) {
+        registerDirectory(watchService, keys, subdirectory);
+      }
+    }
+  }
+
+  private static void registerDirectory(
+    final WatchService watchService,
+    final Map<WatchKey, Path> keys,
+    final Path directory)
+    throws IOException
+  {
+    if (keys.containsValue(directory)) {
+      return;
+    }
+
+    LOG.debug("watch {}", directory);
+    keys.put(
+      directory.register(
+        watchService,
+        ENTRY_CREATE,
+        ENTRY_MODIFY,
+        ENTRY_DELETE),
+      directory
+    );
+  }
+
+  @Override
+  public QCommandMetadata metadata()
+  {
+    return new QCommandMetadata(
+      "watch",
+      new QConstant(
+        "Compile schema files, and recompile them when files change."),
+      Optional.empty()
+    );
+  }
+}
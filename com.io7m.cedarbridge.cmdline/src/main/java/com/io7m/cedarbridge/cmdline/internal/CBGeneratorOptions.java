@@ -0,0 +1,78 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.cedarbridge.cmdline.internal;
+
+import com.io7m.quarrel.core.QParameterNamed0N;
+import com.io7m.quarrel.core.QStringType.QConstant;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Functions to handle code generator options.
+ */
+
+public final class CBGeneratorOptions
+{
+  /**
+   * The parameter used to pass options to code generators.
+   */
+
+  public static final QParameterNamed0N<String> GENERATOR_OPTION =
+    new QParameterNamed0N<>(
+      "--generator-option",
+      List.of(),
+      new QConstant(
+        "An option passed to the code generator, in the form key=value."),
+      List.of(),
+      String.class
+    );
+
+  private CBGeneratorOptions()
+  {
+
+  }
+
+  /**
+   * Parse a list of {@code key=value} options.
+   *
+   * @param options The options
+   *
+   * @return The parsed options
+   *
+   * @throws IllegalArgumentException On malformed options
+   */
+
+  public static Map<String, String> parse(
+    final List<String> options)
+  {
+    final var results = new HashMap<String, String>();
+    for (final var option : options) {
+      final var index = option.indexOf('=');
+      if (index <= 0) {
+        throw new IllegalArgumentException(String.format(
+          "Generator option '%s' must be of the form key=value",
+          option)
+        );
+      }
+      results.put(option.substring(0, index), option.substring(index + 1));
+    }
+    return Map.copyOf(results);
+  }
+}
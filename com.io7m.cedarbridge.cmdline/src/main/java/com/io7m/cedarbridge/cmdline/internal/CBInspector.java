@@ -0,0 +1,482 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.cedarbridge.cmdline.internal;
+
+import com.io7m.cedarbridge.runtime.api.CBSerializationContextByteBuffer;
+import com.io7m.cedarbridge.runtime.dynamic.CBDynamicProtocolCodec;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static java.nio.channels.FileChannel.MapMode.READ_ONLY;
+import static java.nio.file.StandardOpenOption.READ;
+
+/**
+ * <p>An inspector for captures of protocol messages.</p>
+ *
+ * <p>A capture is a sequence of frames, each consisting of an unsigned
+ * 32-bit big-endian payload size followed by a payload holding one message
+ * encoded with a versioned protocol serializer. The capture is mapped into
+ * memory one window at a time, and frames are decoded and written out in
+ * fixed-size batches, so the memory used does not depend on the size of the
+ * capture. Frames are independent of each other, so the frames of a batch
+ * may be decoded in parallel; they are always written out in capture
+ * order.</p>
+ *
+ * <p>A frame that cannot be decoded is reported and skipped. A capture that
+ * ends part-way through a frame is reported and ends the inspection.</p>
+ */
+
+public final class CBInspector
+{
+  /**
+   * The default size of the window through which a capture is mapped.
+   */
+
+  public static final int DEFAULT_WINDOW_SIZE = 64 * 1024 * 1024;
+
+  private static final int BATCH_PER_THREAD = 256;
+
+  private final CBInspectorConfiguration configuration;
+  private final boolean[] selected;
+  private final boolean filtering;
+
+  /**
+   * Create an inspector.
+   *
+   * @param inConfiguration The configuration
+   */
+
+  public CBInspector(
+    final CBInspectorConfiguration inConfiguration)
+  {
+    this.configuration =
+      Objects.requireNonNull(inConfiguration, "configuration");
+
+    final var codecs =
+      inConfiguration.codec().messageCodecs();
+    final var types =
+      inConfiguration.messageTypes();
+
+    this.filtering = !types.isEmpty();
+    this.selected = new boolean[codecs.size()];
+    for (int index = 0; index < this.selected.length; ++index) {
+      final var name = codecs.get(index).type();
+      final var simple = name.substring(name.lastIndexOf(':') + 1);
+      this.selected[index] =
+        !this.filtering || types.contains(name) || types.contains(simple);
+    }
+  }
+
+  /**
+   * The configuration of an inspector.
+   *
+   * @param codec        The codec for the protocol version of the capture
+   * @param messageTypes The message types to show, either fully qualified
+   *                     or unqualified; all types are shown if empty
+   * @param threads      The number of threads used to decode frames
+   * @param json         {@code true} if frames are written as JSON
+   * @param windowSize   The size in octets of the mapped window
+   */
+
+  public record CBInspectorConfiguration(
+    CBDynamicProtocolCodec codec,
+    Set<String> messageTypes,
+    int threads,
+    boolean json,
+    int windowSize)
+  {
+    /**
+     * The configuration of an inspector.
+     *
+     * @param codec        The codec for the protocol version of the capture
+     * @param messageTypes The message types to show, either fully qualified
+     *                     or unqualified; all types are shown if empty
+     * @param threads      The number of threads used to decode frames
+     * @param json         {@code true} if frames are written as JSON
+     * @param windowSize   The size in octets of the mapped window
+     */
+
+    public CBInspectorConfiguration
+    {
+      Objects.requireNonNull(codec, "codec");
+      messageTypes = Set.copyOf(messageTypes);
+
+      if (threads <= 0) {
+        throw new IllegalArgumentException(String.format(
+          "Thread count %d must be positive",
+          Integer.valueOf(threads))
+        );
+      }
+      if (windowSize < 4) {
+        throw new IllegalArgumentException(String.format(
+          "Window size %d must be at least 4",
+          Integer.valueOf(windowSize))
+        );
+      }
+    }
+  }
+
+  /**
+   * The totals for an inspected capture.
+   *
+   * @param frames   The number of frames read
+   * @param shown    The number of frames decoded and written
+   * @param filtered The number of frames skipped due to their message type
+   * @param failed   The number of frames that could not be decoded,
+   *                 including a truncated final frame
+   */
+
+  public record CBInspectorSummary(
+    long frames,
+    long shown,
+    long filtered,
+    long failed)
+  {
+
+  }
+
+  private record Frame(
+    long index,
+    long offset,
+    ByteBuffer data)
+  {
+
+  }
+
+  private record Line(
+    String text,
+    boolean failed)
+  {
+
+  }
+
+  private static final class Totals
+  {
+    private long frames;
+    private long shown;
+    private long filtered;
+    private long failed;
+
+    Totals()
+    {
+
+    }
+  }
+
+  /**
+   * Inspect a capture.
+   *
+   * @param file   The capture file
+   * @param output The output, to which one line is written per frame
+   *
+   * @return The totals for the capture
+   *
+   * @throws IOException On I/O errors
+   */
+
+  public CBInspectorSummary run(
+    final Path file,
+    final Writer output)
+    throws IOException
+  {
+    Objects.requireNonNull(file, "file");
+    Objects.requireNonNull(output, "output");
+
+    final var threads = this.configuration.threads();
+    final var batchSize = threads * BATCH_PER_THREAD;
+    final var totals = new Totals();
+
+    try (var channel = FileChannel.open(file, READ)) {
+      final var window =
+        new Window(channel, this.configuration.windowSize());
+      final var size =
+        window.fileSize;
+      final ExecutorService executor =
+        threads > 1 ? Executors.newFixedThreadPool(threads) : null;
+
+      try {
+        final var batch = new ArrayList<Frame>(batchSize);
+        String truncated = null;
+        var offset = 0L;
+
+        while (offset < size) {
+          if (size - offset < 4L) {
+            truncated = "Truncated frame size (%d octets remaining)"
+              .formatted(Long.valueOf(size - offset));
+            break;
+          }
+
+          final var length =
+            Integer.toUnsignedLong(window.slice(offset, 4).getInt(0));
+          if (length > size - offset - 4L) {
+            truncated = "Truncated frame (size %d, %d octets remaining)"
+              .formatted(
+                Long.valueOf(length),
+                Long.valueOf(size - offset - 4L));
+            break;
+          }
+          if (length > Integer.MAX_VALUE) {
+            truncated = "Frame size %d is too large"
+              .formatted(Long.valueOf(length));
+            break;
+          }
+
+          batch.add(new Frame(
+            totals.frames,
+            offset,
+            window.slice(offset + 4L, (int) length)
+          ));
+          ++totals.frames;
+          offset += 4L + length;
+
+          if (batch.size() == batchSize) {
+            this.flush(executor, batch, output, totals);
+            batch.clear();
+          }
+        }
+
+        this.flush(executor, batch, output, totals);
+
+        if (truncated != null) {
+          ++totals.failed;
+          output.write(this.formatError(totals.frames, offset, truncated));
+          output.write('\n');
+        }
+      } finally {
+        if (executor != null) {
+          executor.shutdownNow();
+        }
+      }
+    }
+
+    output.flush();
+    return new CBInspectorSummary(
+      totals.frames,
+      totals.shown,
+      totals.filtered,
+      totals.failed
+    );
+  }
+
+  private void flush(
+    final ExecutorService executor,
+    final List<Frame> batch,
+    final Writer output,
+    final Totals totals)
+    throws IOException
+  {
+    if (batch.isEmpty()) {
+      return;
+    }
+
+    final List<Line> lines;
+    if (executor == null) {
+      lines = this.decodeAll(batch);
+    } else {
+      lines = this.decodeAllParallel(executor, batch);
+    }
+
+    for (final var line : lines) {
+      if (line == null) {
+        ++totals.filtered;
+        continue;
+      }
+      if (line.failed()) {
+        ++totals.failed;
+      } else {
+        ++totals.shown;
+      }
+      output.write(line.text());
+      output.write('\n');
+    }
+  }
+
+  private List<Line> decodeAllParallel(
+    final ExecutorService executor,
+    final List<Frame> batch)
+    throws IOException
+  {
+    final var threads = this.configuration.threads();
+    final var chunk = (batch.size() + threads - 1) / threads;
+    final var futures = new ArrayList<Future<List<Line>>>(threads);
+
+    for (int start = 0; start < batch.size(); start += chunk) {
+      final var part =
+        batch.subList(start, Math.min(batch.size(), start + chunk));
+      futures.add(executor.submit(() -> this.decodeAll(part)));
+    }
+
+    final var lines = new ArrayList<Line>(batch.size());
+    for (final var future : futures) {
+      try {
+        lines.addAll(future.get());
+      } catch (final InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IOException(e);
+      } catch (final ExecutionException e) {
+        if (e.getCause() instanceof RuntimeException ex) {
+          throw ex;
+        }
+        throw new IOException(e.getCause());
+      }
+    }
+    return lines;
+  }
+
+  private List<Line> decodeAll(
+    final List<Frame> frames)
+  {
+    final var lines = new ArrayList<Line>(frames.size());
+    for (final var frame : frames) {
+      lines.add(this.decode(frame));
+    }
+    return lines;
+  }
+
+  private Line decode(
+    final Frame frame)
+  {
+    final var context =
+      CBSerializationContextByteBuffer.create(frame.data());
+
+    try {
+      if (this.filtering) {
+        final var index = context.readVariantIndex();
+        if (index >= 0 && index < this.selected.length) {
+          if (!this.selected[index]) {
+            return null;
+          }
+        }
+        context.setPosition(0);
+      }
+
+      final var message =
+        this.configuration.codec().deserialize(context);
+
+      if (context.remaining() != 0) {
+        throw new IOException(
+          "%d unread octets follow the %s message".formatted(
+            Integer.valueOf(context.remaining()),
+            message.type())
+        );
+      }
+
+      final var size = frame.data().capacity();
+      final String text;
+      if (this.configuration.json()) {
+        text = CBInspectorOutput.formatJSON(
+          frame.index(), frame.offset(), size, message);
+      } else {
+        text = CBInspectorOutput.formatText(
+          frame.index(), frame.offset(), size, message);
+      }
+      return new Line(text, false);
+    } catch (final IOException e) {
+      return new Line(
+        this.formatError(frame.index(), frame.offset(), e.getMessage()),
+        true
+      );
+    } catch (final RuntimeException e) {
+      /*
+       * Codecs may reject values with unchecked exceptions (the time types
+       * raise DateTimeException for out-of-range fields, for example). Such
+       * frames are reported and skipped like any other undecodable frame.
+       */
+
+      return new Line(
+        this.formatError(
+          frame.index(),
+          frame.offset(),
+          Objects.requireNonNullElse(e.getMessage(), e.getClass().getName())
+        ),
+        true
+      );
+    }
+  }
+
+  private String formatError(
+    final long index,
+    final long offset,
+    final String message)
+  {
+    final var text =
+      Objects.requireNonNullElse(message, "Unknown error");
+
+    if (this.configuration.json()) {
+      return CBInspectorOutput.formatJSONError(index, offset, text);
+    }
+    return CBInspectorOutput.formatTextError(index, offset, text);
+  }
+
+  /**
+   * A window through which a file is mapped. The window is remapped when
+   * a requested region does not lie entirely within it, and is large enough
+   * to hold any single frame.
+   */
+
+  private static final class Window
+  {
+    private final FileChannel channel;
+    private final int windowSize;
+    private final long fileSize;
+    private MappedByteBuffer buffer;
+    private long base;
+
+    Window(
+      final FileChannel inChannel,
+      final int inWindowSize)
+      throws IOException
+    {
+      this.channel = inChannel;
+      this.windowSize = inWindowSize;
+      this.fileSize = inChannel.size();
+    }
+
+    ByteBuffer slice(
+      final long offset,
+      final int length)
+      throws IOException
+    {
+      if (this.buffer == null
+        || offset < this.base
+        || offset + length > this.base + this.buffer.capacity()) {
+        final var mapSize =
+          Math.min(
+            (long) Math.max(this.windowSize, length),
+            this.fileSize - offset
+          );
+        this.buffer = this.channel.map(READ_ONLY, offset, mapSize);
+        this.base = offset;
+      }
+      return this.buffer.slice((int) (offset - this.base), length);
+    }
+  }
+}
@@ -0,0 +1,324 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.cedarbridge.cmdline.internal;
+
+import com.io7m.cedarbridge.runtime.api.CBBooleanType;
+import com.io7m.cedarbridge.runtime.api.CBByteArray;
+import com.io7m.cedarbridge.runtime.api.CBFloat16;
+import com.io7m.cedarbridge.runtime.api.CBFloat32;
+import com.io7m.cedarbridge.runtime.api.CBFloat64;
+import com.io7m.cedarbridge.runtime.api.CBIntegerType;
+import com.io7m.cedarbridge.runtime.api.CBList;
+import com.io7m.cedarbridge.runtime.api.CBMap;
+import com.io7m.cedarbridge.runtime.api.CBNone;
+import com.io7m.cedarbridge.runtime.api.CBSerializableType;
+import com.io7m.cedarbridge.runtime.api.CBSome;
+import com.io7m.cedarbridge.runtime.api.CBString;
+import com.io7m.cedarbridge.runtime.dynamic.CBDynamicField;
+import com.io7m.cedarbridge.runtime.dynamic.CBDynamicRecord;
+import com.io7m.cedarbridge.runtime.dynamic.CBDynamicValueType;
+import com.io7m.cedarbridge.runtime.dynamic.CBDynamicVariant;
+
+import java.util.HexFormat;
+import java.util.List;
+
+import static com.io7m.cedarbridge.cmdline.internal.CBBenchmarkOutput.jsonString;
+
+/**
+ * <p>Functions to display inspected frames.</p>
+ *
+ * <p>The text form of a frame is a single line holding the frame index,
+ * the offset of the frame in the capture, the message type, and the message.
+ * The JSON form of a frame is a single line holding one JSON object, so
+ * that a capture produces a stream of JSON lines.</p>
+ */
+
+public final class CBInspectorOutput
+{
+  private CBInspectorOutput()
+  {
+
+  }
+
+  private static String hex(
+    final CBByteArray value)
+  {
+    final var data = value.value().duplicate();
+    final var bytes = new byte[data.remaining()];
+    data.get(bytes);
+    return HexFormat.of().formatHex(bytes);
+  }
+
+  /**
+   * Format a decoded frame as text.
+   *
+   * @param index   The frame index
+   * @param offset  The offset of the frame in the capture
+   * @param size    The size of the frame payload
+   * @param message The message
+   *
+   * @return A line of text
+   */
+
+  public static String formatText(
+    final long index,
+    final long offset,
+    final int size,
+    final CBDynamicValueType message)
+  {
+    final var b = new StringBuilder(128);
+    b.append(index);
+    b.append(' ');
+    b.append(offset);
+    b.append(' ');
+    b.append(message.type());
+    b.append(' ');
+    text(b, message);
+    return b.toString();
+  }
+
+  /**
+   * Format a frame that could not be decoded as text.
+   *
+   * @param index   The frame index
+   * @param offset  The offset of the frame in the capture
+   * @param message The error message
+   *
+   * @return A line of text
+   */
+
+  public static String formatTextError(
+    final long index,
+    final long offset,
+    final String message)
+  {
+    return "%d %d error: %s".formatted(
+      Long.valueOf(index),
+      Long.valueOf(offset),
+      message
+    );
+  }
+
+  private static void textFields(
+    final StringBuilder b,
+    final List<CBDynamicField> fields)
+  {
+    b.append('{');
+    for (int index = 0; index < fields.size(); ++index) {
+      if (index > 0) {
+        b.append(", ");
+      }
+      final var field = fields.get(index);
+      b.append(field.name());
+      b.append('=');
+      text(b, field.value());
+    }
+    b.append('}');
+  }
+
+  private static void text(
+    final StringBuilder b,
+    final CBSerializableType value)
+  {
+    if (value instanceof CBDynamicRecord r) {
+      textFields(b, r.fields());
+    } else if (value instanceof CBDynamicVariant v) {
+      b.append(v.caseName());
+      textFields(b, v.fields());
+    } else if (value instanceof CBString s) {
+      b.append(jsonString(s.value()));
+    } else if (value instanceof CBBooleanType x) {
+      b.append(x.asBoolean());
+    } else if (value instanceof CBByteArray x) {
+      b.append("0x");
+      b.append(hex(x));
+    } else if (value instanceof CBNone<?>) {
+      b.append("none");
+    } else if (value instanceof CBSome<?> x) {
+      b.append("some(");
+      text(b, x.value());
+      b.append(')');
+    } else if (value instanceof CBList<?> x) {
+      b.append('[');
+      final var values = x.values();
+      for (int index = 0; index < values.size(); ++index) {
+        if (index > 0) {
+          b.append(", ");
+        }
+        text(b, values.get(index));
+      }
+      b.append(']');
+    } else if (value instanceof CBMap<?, ?> x) {
+      b.append('{');
+      var first = true;
+      for (final var entry : x.values().entrySet()) {
+        if (!first) {
+          b.append(", ");
+        }
+        first = false;
+        text(b, entry.getKey());
+        b.append(": ");
+        text(b, entry.getValue());
+      }
+      b.append('}');
+    } else {
+      b.append(String.format("%s", value));
+    }
+  }
+
+  /**
+   * Format a decoded frame as a line of JSON.
+   *
+   * @param index   The frame index
+   * @param offset  The offset of the frame in the capture
+   * @param size    The size of the frame payload
+   * @param message The message
+   *
+   * @return A line of JSON
+   */
+
+  public static String formatJSON(
+    final long index,
+    final long offset,
+    final int size,
+    final CBDynamicValueType message)
+  {
+    final var b = new StringBuilder(128);
+    b.append("{\"index\":").append(index);
+    b.append(",\"offset\":").append(offset);
+    b.append(",\"size\":").append(size);
+    b.append(",\"type\":").append(jsonString(message.type()));
+    b.append(",\"value\":");
+    json(b, message);
+    b.append('}');
+    return b.toString();
+  }
+
+  /**
+   * Format a frame that could not be decoded as a line of JSON.
+   *
+   * @param index   The frame index
+   * @param offset  The offset of the frame in the capture
+   * @param message The error message
+   *
+   * @return A line of JSON
+   */
+
+  public static String formatJSONError(
+    final long index,
+    final long offset,
+    final String message)
+  {
+    final var b = new StringBuilder(128);
+    b.append("{\"index\":").append(index);
+    b.append(",\"offset\":").append(offset);
+    b.append(",\"error\":").append(jsonString(message));
+    b.append('}');
+    return b.toString();
+  }
+
+  private static void jsonFields(
+    final StringBuilder b,
+    final List<CBDynamicField> fields)
+  {
+    b.append('{');
+    for (int index = 0; index < fields.size(); ++index) {
+      if (index > 0) {
+        b.append(',');
+      }
+      final var field = fields.get(index);
+      b.append(jsonString(field.name()));
+      b.append(':');
+      json(b, field.value());
+    }
+    b.append('}');
+  }
+
+  private static void json(
+    final StringBuilder b,
+    final CBSerializableType value)
+  {
+    if (value instanceof CBDynamicRecord r) {
+      jsonFields(b, r.fields());
+    } else if (value instanceof CBDynamicVariant v) {
+      b.append("{\"case\":");
+      b.append(jsonString(v.caseName()));
+      b.append(",\"fields\":");
+      jsonFields(b, v.fields());
+      b.append('}');
+    } else if (value instanceof CBString s) {
+      b.append(jsonString(s.value()));
+    } else if (value instanceof CBBooleanType x) {
+      b.append(x.asBoolean());
+    } else if (value instanceof CBIntegerType x) {
+      b.append(String.format("%s", x));
+    } else if (value instanceof CBFloat16 x) {
+      jsonFloat(b, x.value());
+    } else if (value instanceof CBFloat32 x) {
+      jsonFloat(b, x.value());
+    } else if (value instanceof CBFloat64 x) {
+      jsonFloat(b, x.value());
+    } else if (value instanceof CBByteArray x) {
+      b.append('"');
+      b.append(hex(x));
+      b.append('"');
+    } else if (value instanceof CBNone<?>) {
+      b.append("null");
+    } else if (value instanceof CBSome<?> x) {
+      json(b, x.value());
+    } else if (value instanceof CBList<?> x) {
+      b.append('[');
+      final var values = x.values();
+      for (int index = 0; index < values.size(); ++index) {
+        if (index > 0) {
+          b.append(',');
+        }
+        json(b, values.get(index));
+      }
+      b.append(']');
+    } else if (value instanceof CBMap<?, ?> x) {
+      b.append('[');
+      var first = true;
+      for (final var entry : x.values().entrySet()) {
+        if (!first) {
+          b.append(',');
+        }
+        first = false;
+        b.append("{\"key\":");
+        json(b, entry.getKey());
+        b.append(",\"value\":");
+        json(b, entry.getValue());
+        b.append('}');
+      }
+      b.append(']');
+    } else {
+      b.append(jsonString(String.format("%s", value)));
+    }
+  }
+
+  private static void jsonFloat(
+    final StringBuilder b,
+    final double x)
+  {
+    if (Double.isNaN(x) || Double.isInfinite(x)) {
+      b.append("null");
+    } else {
+      b.append(x);
+    }
+  }
+}
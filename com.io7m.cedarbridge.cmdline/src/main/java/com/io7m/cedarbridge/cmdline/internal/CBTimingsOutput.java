@@ -0,0 +1,68 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.cedarbridge.cmdline.internal;
+
+import com.io7m.cedarbridge.schema.compiler.api.CBSchemaCompilerTimings;
+
+import java.time.Duration;
+import java.util.Locale;
+
+/**
+ * Functions to display compiler timings.
+ */
+
+public final class CBTimingsOutput
+{
+  private CBTimingsOutput()
+  {
+
+  }
+
+  /**
+   * Print the given timings to the standard output.
+   *
+   * @param timings The timings
+   */
+
+  public static void show(
+    final CBSchemaCompilerTimings timings)
+  {
+    for (final var line : timings.formatTable()) {
+      System.out.println(line);
+    }
+  }
+
+  /**
+   * Print the time taken to generate code to the standard output.
+   *
+   * @param packages The number of packages for which code was generated
+   * @param duration The time taken
+   */
+
+  public static void showCodeGeneration(
+    final int packages,
+    final Duration duration)
+  {
+    System.out.printf(
+      Locale.ROOT,
+      "code generation: %d package(s) in %.3f ms%n",
+      Integer.valueOf(packages),
+      Double.valueOf((double) duration.toNanos() / 1_000_000.0)
+    );
+  }
+}
@@ -0,0 +1,291 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.cedarbridge.cmdline.internal;
+
+import com.io7m.cedarbridge.schema.compiled.CBPackageType;
+import com.io7m.cedarbridge.schema.compiler.api.CBSchemaCompilerConfiguration;
+import com.io7m.cedarbridge.schema.compiler.api.CBSchemaCompilerException;
+import com.io7m.cedarbridge.schema.compiler.api.CBSchemaCompilerFactoryType;
+import com.io7m.cedarbridge.schema.loader.api.CBLoaderType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * <p>A watcher that keeps compiled packages in memory and incrementally
+ * recompiles packages when their source files change.</p>
+ *
+ * <p>When a source file changes, the package it defines is discarded along
+ * with every package that (transitively) imports it. All other packages are
+ * registered with the loader of the new compiler as-is, and so are not
+ * parsed, bound, or type-checked again.</p>
+ */
+
+public final class CBWatcher
+{
+  private static final Logger LOG =
+    LoggerFactory.getLogger(CBWatcher.class);
+
+  private final CBSchemaCompilerFactoryType compilers;
+  private final List<Path> includes;
+  private final List<Path> files;
+  private final List<CBPackageType> registered;
+  private final Optional<Path> cacheDirectory;
+  private final Map<String, CBPackageType> packages;
+  private final Map<Path, String> packageSources;
+  private boolean compiledSuccessfully;
+
+  /**
+   * A watcher that keeps compiled packages in memory.
+   *
+   * @param inCompilers      The schema compilers
+   * @param inIncludes       The include directories
+   * @param inFiles          The files to compile
+   * @param inRegistered     The packages that are always registered with
+   *                         the loader (such as the core packages)
+   * @param inCacheDirectory The package cache directory, if any
+   */
+
+  public CBWatcher(
+    final CBSchemaCompilerFactoryType inCompilers,
+    final List<Path> inIncludes,
+    final List<Path> inFiles,
+    final List<CBPackageType> inRegistered,
+    final Optional<Path> inCacheDirectory)
+  {
+    this.compilers =
+      Objects.requireNonNull(inCompilers, "compilers");
+    this.includes =
+      inIncludes.stream().map(CBWatcher::normalize).toList();
+    this.files =
+      inFiles.stream().map(CBWatcher::normalize).toList();
+    this.registered =
+      List.copyOf(inRegistered);
+    this.cacheDirectory =
+      Objects.requireNonNull(inCacheDirectory, "cacheDirectory");
+
+    this.packages = new HashMap<>();
+    this.packageSources = new HashMap<>();
+    this.compiledSuccessfully = false;
+  }
+
+  private static Path normalize(
+    final Path path)
+  {
+    return path.toAbsolutePath().normalize();
+  }
+
+  /**
+   * @return The include directories
+   */
+
+  public List<Path> includes()
+  {
+    return this.includes;
+  }
+
+  /**
+   * @return The files to compile
+   */
+
+  public List<Path> files()
+  {
+    return this.files;
+  }
+
+  /**
+   * @return A read-only view of the packages currently held in memory
+   */
+
+  public Map<String, CBPackageType> packages()
+  {
+    return Map.copyOf(this.packages);
+  }
+
+  /**
+   * Discard all state and compile everything.
+   *
+   * @return The packages compiled from the files to compile
+   *
+   * @throws CBSchemaCompilerException On compilation errors
+   */
+
+  public List<CBPackageType> compileAll()
+    throws CBSchemaCompilerException
+  {
+    this.packages.clear();
+    this.packageSources.clear();
+    return this.compile(this.files);
+  }
+
+  /**
+   * Recompile the packages affected by changes to the given files.
+   *
+   * @param changed The changed files
+   *
+   * @return The packages compiled from the files to compile
+   *
+   * @throws CBSchemaCompilerException On compilation errors
+   */
+
+  public List<CBPackageType> recompile(
+    final Collection<Path> changed)
+    throws CBSchemaCompilerException
+  {
+    Objects.requireNonNull(changed, "changed");
+
+    /*
+     * If the last compilation failed, the set of known packages might be
+     * incomplete (a missing import might have just been created, for
+     * example), so start again from scratch.
+     */
+
+    if (!this.compiledSuccessfully) {
+      return this.compileAll();
+    }
+
+    final var dirty = new HashSet<String>();
+    final var compileFiles = new ArrayList<Path>();
+    for (final var path : changed) {
+      final var normal = normalize(path);
+      final var name = this.packageSources.get(normal);
+      if (name != null) {
+        dirty.add(name);
+      }
+    }
+
+    this.addDependents(dirty);
+
+    for (final var file : this.files) {
+      final var name = this.packageSources.get(file);
+      if (name == null || dirty.contains(name)) {
+        compileFiles.add(file);
+      }
+    }
+
+    LOG.debug("dirty packages: {}", dirty);
+    for (final var name : dirty) {
+      this.packages.remove(name);
+    }
+    this.packageSources.values().removeIf(dirty::contains);
+
+    if (compileFiles.isEmpty()) {
+      return List.of();
+    }
+    return this.compile(compileFiles);
+  }
+
+  private void addDependents(
+    final Set<String> dirty)
+  {
+    final var reverse = new HashMap<String, Set<String>>();
+    for (final var pack : this.packages.values()) {
+      for (final var imported : pack.imports()) {
+        reverse.computeIfAbsent(imported.name(), k -> new HashSet<>())
+          .add(pack.name());
+      }
+    }
+
+    final var queue = new LinkedList<>(dirty);
+    while (!queue.isEmpty()) {
+      final var name = queue.pop();
+      for (final var dependent : reverse.getOrDefault(name, Set.of())) {
+        if (dirty.add(dependent)) {
+          queue.push(dependent);
+        }
+      }
+    }
+  }
+
+  private List<CBPackageType> compile(
+    final List<Path> compileFiles)
+    throws CBSchemaCompilerException
+  {
+    this.compiledSuccessfully = false;
+
+    final var configuration =
+      new CBSchemaCompilerConfiguration(
+        this.includes,
+        compileFiles,
+        this.cacheDirectory
+      );
+
+    final var compiler = this.compilers.createCompiler(configuration);
+    final var loader = compiler.loader();
+    for (final var pack : this.registered) {
+      loader.register(pack);
+    }
+    for (final var pack : this.packages.values()) {
+      loader.register(pack);
+    }
+
+    final var compilation = compiler.execute();
+    for (final var entry : compilation.compiledPackagesByFile().entrySet()) {
+      this.packageSources.put(entry.getKey(), entry.getValue().name());
+    }
+    for (final var pack : compilation.compiledPackages()) {
+      this.remember(loader, pack);
+    }
+
+    this.compiledSuccessfully = true;
+    return compilation.compiledPackages();
+  }
+
+  private void remember(
+    final CBLoaderType loader,
+    final CBPackageType pack)
+  {
+    final var name = pack.name();
+    if (this.isRegistered(name)) {
+      return;
+    }
+
+    this.packages.put(name, pack);
+    if (!this.packageSources.containsValue(name)) {
+      loader.findSourceFile(name)
+        .ifPresent(path -> this.packageSources.put(path, name));
+    }
+
+    for (final var imported : pack.imports()) {
+      if (!this.packages.containsKey(imported.name())) {
+        this.remember(loader, imported);
+      }
+    }
+  }
+
+  private boolean isRegistered(
+    final String name)
+  {
+    for (final var pack : this.registered) {
+      if (Objects.equals(pack.name(), name)) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
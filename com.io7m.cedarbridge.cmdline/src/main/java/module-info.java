@@ -25,6 +25,7 @@ module com.io7m.cedarbridge.cmdline
 
   requires com.io7m.cedarbridge.bridgedoc.api;
   requires com.io7m.cedarbridge.codegen.api;
+  requires com.io7m.cedarbridge.runtime.dynamic;
   requires com.io7m.cedarbridge.schema.compiler.api;
   requires com.io7m.cedarbridge.schema.core_types;
   requires com.io7m.cedarbridge.schema.loader.api;
@@ -33,6 +34,7 @@ module com.io7m.cedarbridge.cmdline
 
   requires com.io7m.quarrel.core;
   requires com.io7m.quarrel.ext.logback;
+  requires jdk.management;
   requires org.slf4j;
 
   uses com.io7m.cedarbridge.schema.compiler.api.CBSchemaCompilerFactoryType;
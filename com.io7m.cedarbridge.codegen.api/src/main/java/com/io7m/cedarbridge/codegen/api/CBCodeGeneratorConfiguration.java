@@ -17,23 +17,66 @@
 package com.io7m.cedarbridge.codegen.api;
 
 import java.nio.file.Path;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
 
 /**
  * Configuration information for code generators.
  *
  * @param outputDirectory The directory to which code is written
+ * @param options         Generator-specific options
  */
 public record CBCodeGeneratorConfiguration(
-  Path outputDirectory)
+  Path outputDirectory,
+  Map<String, String> options)
 {
   /**
    * Configuration information for code generators.
    *
    * @param outputDirectory The directory to which code is written
+   * @param options         Generator-specific options
    */
   public CBCodeGeneratorConfiguration
   {
     Objects.requireNonNull(outputDirectory, "outputDirectory");
+    options = Map.copyOf(options);
+  }
+
+  /**
+   * Configuration information for code generators.
+   *
+   * @param outputDirectory The directory to which code is written
+   */
+  public CBCodeGeneratorConfiguration(
+    final Path outputDirectory)
+  {
+    this(outputDirectory, Map.of());
+  }
+
+  /**
+   * @param name The option name
+   *
+   * @return The value of the given option, if one was provided
+   */
+  public Optional<String> option(
+    final String name)
+  {
+    return Optional.ofNullable(this.options.get(name));
+  }
+
+  /**
+   * @param name The option name
+   *
+   * @return {@code true} if the given option is present and set to
+   * {@code true}
+   */
+  public boolean optionEnabled(
+    final String name)
+  {
+    return this.option(name)
+      .map(Boolean::parseBoolean)
+      .orElse(Boolean.FALSE)
+      .booleanValue();
   }
 }
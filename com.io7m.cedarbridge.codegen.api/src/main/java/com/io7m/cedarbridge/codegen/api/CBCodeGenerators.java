@@ -92,7 +92,10 @@ public final class CBCodeGenerators implements CBCodeGeneratorDirectoryType
   private static CBSPICodeGeneratorConfiguration convertConfiguration(
     final CBCodeGeneratorConfiguration configuration)
   {
-    return new CBSPICodeGeneratorConfiguration(configuration.outputDirectory());
+    return new CBSPICodeGeneratorConfiguration(
+      configuration.outputDirectory(),
+      configuration.options()
+    );
   }
 
   @Override
@@ -16,6 +16,7 @@
 
 package com.io7m.cedarbridge.codegen.javastatic.internal;
 
+import com.io7m.cedarbridge.codegen.javastatic.internal.generics.CBGenericSerializerMethodDirection;
 import com.io7m.cedarbridge.codegen.javastatic.internal.generics.CBGenericSerializerMethodRefNamed;
 import com.io7m.cedarbridge.codegen.javastatic.internal.generics.CBGenericSerializerMethodRefParameter;
 import com.io7m.cedarbridge.codegen.javastatic.internal.generics.CBGenericSerializerMethodRefType;
@@ -29,15 +30,22 @@ import com.io7m.cedarbridge.runtime.api.CBSerializableType;
 import com.io7m.cedarbridge.runtime.api.CBSerializationContextType;
 import com.io7m.cedarbridge.runtime.api.CBSerializeType;
 import com.io7m.cedarbridge.runtime.api.CBSerializerMethod;
+import com.io7m.cedarbridge.runtime.api.CBSkipType;
+import com.io7m.cedarbridge.runtime.api.CBSkipperMethod;
+import com.io7m.cedarbridge.runtime.api.CBValidateType;
+import com.io7m.cedarbridge.runtime.api.CBValidatorMethod;
 import com.io7m.cedarbridge.schema.compiled.CBFieldType;
 import com.io7m.cedarbridge.schema.compiled.CBProtocolVersionDeclarationType;
 import com.io7m.cedarbridge.schema.compiled.CBRecordType;
 import com.io7m.cedarbridge.schema.compiled.CBTypeDeclarationType;
+import com.io7m.cedarbridge.schema.compiled.CBTypeExpressionType;
 import com.io7m.cedarbridge.schema.compiled.CBTypeParameterType;
 import com.io7m.cedarbridge.schema.compiled.CBVariantCaseType;
 import com.io7m.cedarbridge.schema.compiled.CBVariantType;
+import com.io7m.jodist.AnnotationSpec;
 import com.io7m.jodist.ClassName;
 import com.io7m.jodist.CodeBlock;
+import com.io7m.jodist.FieldSpec;
 import com.io7m.jodist.JavaFile;
 import com.io7m.jodist.MethodSpec;
 import com.io7m.jodist.ParameterSpec;
@@ -45,15 +53,20 @@ import com.io7m.jodist.ParameterizedTypeName;
 import com.io7m.jodist.TypeName;
 import com.io7m.jodist.TypeSpec;
 import com.io7m.jodist.TypeVariableName;
+import com.io7m.jodist.WildcardTypeName;
 import com.io7m.junreachable.UnreachableCodeException;
 
 import java.io.IOException;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.OptionalInt;
+import java.util.OptionalLong;
+import java.util.Set;
 
 import static com.io7m.cedarbridge.codegen.javastatic.internal.CBCGJavaTypeNames.dataClassNameOf;
 import static com.io7m.cedarbridge.codegen.javastatic.internal.CBCGJavaTypeNames.dataClassNameOfCase;
@@ -62,8 +75,14 @@ import static com.io7m.cedarbridge.codegen.javastatic.internal.CBCGJavaTypeNames
 import static com.io7m.cedarbridge.codegen.javastatic.internal.CBCGJavaTypeNames.fieldAccessorName;
 import static com.io7m.cedarbridge.codegen.javastatic.internal.CBCGJavaTypeNames.typeParameterDeserializeMethodName;
 import static com.io7m.cedarbridge.codegen.javastatic.internal.CBCGJavaTypeNames.typeParameterSerializeMethodName;
+import static com.io7m.cedarbridge.codegen.javastatic.internal.CBCGJavaTypeNames.typeParameterSkipMethodName;
+import static com.io7m.cedarbridge.codegen.javastatic.internal.CBCGJavaTypeNames.typeParameterValidateMethodName;
 import static com.io7m.cedarbridge.codegen.javastatic.internal.generics.CBGenericSerializerMethodDirection.DESERIALIZE;
 import static com.io7m.cedarbridge.codegen.javastatic.internal.generics.CBGenericSerializerMethodDirection.SERIALIZE;
+import static com.io7m.cedarbridge.codegen.javastatic.internal.generics.CBGenericSerializerMethodDirection.SKIP;
+import static com.io7m.cedarbridge.codegen.javastatic.internal.generics.CBGenericSerializerMethodDirection.VALIDATE;
+import static com.io7m.cedarbridge.schema.compiled.CBTypeExpressionType.CBTypeExprApplicationType;
+import static com.io7m.cedarbridge.schema.compiled.CBTypeExpressionType.CBTypeExprNamedType;
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static javax.lang.model.element.Modifier.FINAL;
 import static javax.lang.model.element.Modifier.PUBLIC;
@@ -77,6 +96,15 @@ import static javax.lang.model.element.Modifier.STATIC;
 public final class CBCGDataClassGenerator
   implements CBCGJavaClassGeneratorType<CBTypeDeclarationType>
 {
+  /**
+   * The name of the generator option that names a concrete {@code final}
+   * serialization context class. If present, {@code serialize} and
+   * {@code deserialize} overloads are generated that accept that class
+   * directly, so that calls made on the context are not interface calls.
+   */
+
+  public static final String OPTION_CONTEXT_CLASS = "contextClass";
+
   /**
    * A generator of Java data classes for types.
    */
@@ -88,7 +116,8 @@ public final class CBCGDataClassGenerator
 
   private static TypeSpec makeVariant(
     final CBCGJavaNamePool names,
-    final CBVariantType type)
+    final CBVariantType type,
+    final Optional<ClassName> contextClass)
   {
     final var className =
       dataClassNameOf(type);
@@ -111,6 +140,13 @@ public final class CBCGDataClassGenerator
 
     containerBuilder.addTypeVariables(typeVariables);
 
+    final var encodedSize = type.encodedSizeIfFixed();
+    if (encodedSize.isPresent()) {
+      containerBuilder.addField(
+        createEncodedSizeField(encodedSize.getAsLong())
+      );
+    }
+
     final var protocols =
       type.owner().protocolVersionsForType(type);
 
@@ -143,9 +179,11 @@ public final class CBCGDataClassGenerator
           caseClassType,
           Optional.of(superInterface),
           OptionalInt.of(variantIndex),
+          OptionalLong.empty(),
           caseV.fields(),
           typeParameters,
-          protocols
+          protocols,
+          contextClass
         );
 
       containerBuilder.addType(innerClass);
@@ -158,7 +196,8 @@ public final class CBCGDataClassGenerator
         className,
         typeName,
         typeParameters,
-        type.cases()
+        type.cases(),
+        Optional.empty()
       )
     );
     containerBuilder.addMethod(
@@ -167,6 +206,45 @@ public final class CBCGDataClassGenerator
         className,
         typeName,
         typeParameters,
+        type.cases(),
+        Optional.empty()
+      )
+    );
+    if (contextClass.isPresent()) {
+      containerBuilder.addMethod(
+        createVariantSerializeMethod(
+          names,
+          className,
+          typeName,
+          typeParameters,
+          type.cases(),
+          contextClass
+        )
+      );
+      containerBuilder.addMethod(
+        createVariantDeserializeMethod(
+          names,
+          className,
+          typeName,
+          typeParameters,
+          type.cases(),
+          contextClass
+        )
+      );
+    }
+    containerBuilder.addMethod(
+      createVariantValidateOrSkipMethod(
+        VALIDATE,
+        className,
+        typeParameters,
+        type.cases()
+      )
+    );
+    containerBuilder.addMethod(
+      createVariantValidateOrSkipMethod(
+        SKIP,
+        className,
+        typeParameters,
         type.cases()
       )
     );
@@ -198,15 +276,18 @@ public final class CBCGDataClassGenerator
     final ClassName className,
     final TypeName typeName,
     final List<CBTypeParameterType> parameters,
-    final List<CBVariantCaseType> cases)
+    final List<CBVariantCaseType> cases,
+    final Optional<ClassName> contextClass)
   {
     final var builder = MethodSpec.methodBuilder("deserialize");
     builder.addModifiers(STATIC, PUBLIC);
-    builder.addAnnotation(CBDeserializerMethod.class);
+    if (contextClass.isEmpty()) {
+      builder.addAnnotation(CBDeserializerMethod.class);
+    }
     builder.addException(IOException.class);
     builder.returns(typeName);
     builder.addParameter(
-      TypeName.get(CBSerializationContextType.class),
+      contextTypeOf(contextClass),
       "$context",
       FINAL
     );
@@ -299,19 +380,104 @@ public final class CBCGDataClassGenerator
     return builder.build();
   }
 
+  private static MethodSpec createVariantValidateOrSkipMethod(
+    final CBGenericSerializerMethodDirection direction,
+    final ClassName className,
+    final List<CBTypeParameterType> parameters,
+    final List<CBVariantCaseType> cases)
+  {
+    final var methodName = methodNameOf(direction);
+    final var builder =
+      createValidateOrSkipMethodBuilder(direction, parameters);
+
+    final var functionParameters =
+      parameters.stream()
+        .map(p -> typeParameterMethodName(direction, p))
+        .map(n -> CodeBlock.of("$L", n))
+        .collect(CodeBlock.joining(","));
+
+    /*
+     * Read the variant index, and switch on it. Call the necessary
+     * validate or skip function for each case.
+     */
+
+    builder.addStatement(
+      "final var $L = $L.readVariantIndex()",
+      "$i",
+      "$context"
+    );
+
+    final var switchStatement =
+      builder.beginControlFlow("switch ($L)", "$i");
+
+    for (int index = 0; index < cases.size(); ++index) {
+      final var caseV = cases.get(index);
+      final var switchCase =
+        switchStatement.beginControlFlow(
+          "case $L:",
+          Integer.valueOf(index)
+        );
+
+      if (parameters.isEmpty()) {
+        switchCase.addStatement(
+          "$T.$L($L)",
+          dataClassNameOfCase(caseV),
+          methodName,
+          "$context"
+        );
+      } else {
+        switchCase.addStatement(
+          "$T.$L($L, $L)",
+          dataClassNameOfCase(caseV),
+          methodName,
+          "$context",
+          functionParameters
+        );
+      }
+
+      switchCase.addStatement("return");
+      switchCase.endControlFlow();
+    }
+
+    {
+      final var defaultCase =
+        switchStatement.beginControlFlow("default: ");
+
+      defaultCase.addStatement(
+        "throw $L.errorUnrecognizedVariantIndex($T.class, $L)",
+        "$context",
+        className,
+        "$i"
+      );
+      defaultCase.endControlFlow();
+    }
+
+    switchStatement.endControlFlow();
+
+    /*
+     * Generate JavaDoc for the method.
+     */
+
+    generateValidateOrSkipJavadoc(direction, className, parameters, builder);
+    return builder.build();
+  }
+
   private static MethodSpec createVariantSerializeMethod(
     final CBCGJavaNamePool names,
     final ClassName className,
     final TypeName typeName,
     final List<CBTypeParameterType> parameters,
-    final List<CBVariantCaseType> cases)
+    final List<CBVariantCaseType> cases,
+    final Optional<ClassName> contextClass)
   {
     final var builder = MethodSpec.methodBuilder("serialize");
     builder.addModifiers(STATIC, PUBLIC);
-    builder.addAnnotation(CBSerializerMethod.class);
+    if (contextClass.isEmpty()) {
+      builder.addAnnotation(CBSerializerMethod.class);
+    }
     builder.addException(IOException.class);
     builder.addParameter(
-      TypeName.get(CBSerializationContextType.class),
+      contextTypeOf(contextClass),
       "$context",
       FINAL
     );
@@ -401,7 +567,8 @@ public final class CBCGDataClassGenerator
 
   private static TypeSpec makeRecord(
     final CBCGJavaNamePool names,
-    final CBRecordType type)
+    final CBRecordType type,
+    final Optional<ClassName> contextClass)
   {
     final var protocols =
       type.owner().protocolVersionsForType(type);
@@ -413,9 +580,11 @@ public final class CBCGDataClassGenerator
       dataTypeNameOf(type),
       Optional.empty(),
       OptionalInt.empty(),
+      type.encodedSizeIfFixed(),
       type.fields(),
       type.parameters(),
-      protocols
+      protocols,
+      contextClass
     );
   }
 
@@ -426,9 +595,11 @@ public final class CBCGDataClassGenerator
     final TypeName dataTypeName,
     final Optional<TypeName> containerInterface,
     final OptionalInt variantIndex,
+    final OptionalLong encodedSize,
     final List<CBFieldType> fieldList,
     final List<CBTypeParameterType> parameters,
-    final List<CBProtocolVersionDeclarationType> protocols)
+    final List<CBProtocolVersionDeclarationType> protocols,
+    final Optional<ClassName> contextClass)
   {
     final var fields =
       fieldList
@@ -458,6 +629,14 @@ public final class CBCGDataClassGenerator
     classBuilder.addRecordComponents(fields);
     classBuilder.compactConstructor(createCompactConstructor(fields));
 
+    if (encodedSize.isPresent()) {
+      classBuilder.addField(createEncodedSizeField(encodedSize.getAsLong()));
+    }
+    if (fieldList.isEmpty()) {
+      classBuilder.addField(
+        createInstanceField(className, typeVariables.size()));
+    }
+
     classBuilder.addMethod(
       createRecordlikeSerializeMethod(
         names,
@@ -465,7 +644,8 @@ public final class CBCGDataClassGenerator
         dataTypeName,
         variantIndex,
         parameters,
-        fieldList)
+        fieldList,
+        Optional.empty())
     );
     classBuilder.addMethod(
       createRecordlikeDeserializeMethod(
@@ -473,6 +653,44 @@ public final class CBCGDataClassGenerator
         className,
         dataTypeName,
         parameters,
+        fieldList,
+        Optional.empty())
+    );
+    if (contextClass.isPresent()) {
+      classBuilder.addMethod(
+        createRecordlikeSerializeMethod(
+          names,
+          className,
+          dataTypeName,
+          variantIndex,
+          parameters,
+          fieldList,
+          contextClass)
+      );
+      classBuilder.addMethod(
+        createRecordlikeDeserializeMethod(
+          names,
+          className,
+          dataTypeName,
+          parameters,
+          fieldList,
+          contextClass)
+      );
+    }
+    classBuilder.addMethod(
+      createRecordlikeValidateOrSkipMethod(
+        VALIDATE,
+        names,
+        className,
+        parameters,
+        fieldList)
+    );
+    classBuilder.addMethod(
+      createRecordlikeValidateOrSkipMethod(
+        SKIP,
+        names,
+        className,
+        parameters,
         fieldList)
     );
 
@@ -511,16 +729,19 @@ public final class CBCGDataClassGenerator
     final ClassName className,
     final TypeName typeName,
     final List<CBTypeParameterType> parameters,
-    final List<CBFieldType> fields)
+    final List<CBFieldType> fields,
+    final Optional<ClassName> contextClass)
   {
     final var builder = MethodSpec.methodBuilder("deserialize");
     builder.addModifiers(STATIC, PUBLIC);
-    builder.addAnnotation(CBDeserializerMethod.class);
+    if (contextClass.isEmpty()) {
+      builder.addAnnotation(CBDeserializerMethod.class);
+    }
     builder.addException(IOException.class);
     builder.returns(typeName);
 
     builder.addParameter(
-      TypeName.get(CBSerializationContextType.class),
+      contextTypeOf(contextClass),
       "$context",
       FINAL
     );
@@ -549,6 +770,26 @@ public final class CBCGDataClassGenerator
      * type. Type applications are eta-expanded into local lambda expressions.
      */
 
+    /*
+     * Types with no fields have exactly one value, and so the shared instance
+     * is returned rather than allocating a new one.
+     */
+
+    if (fields.isEmpty()) {
+      if (parameters.isEmpty()) {
+        builder.addStatement("return INSTANCE");
+      } else {
+        builder.addAnnotation(
+          AnnotationSpec.builder(SuppressWarnings.class)
+            .addMember("value", "$S", "unchecked")
+            .build()
+        );
+        builder.addStatement("return ($T) INSTANCE", typeName);
+      }
+      generateDeserializerJavadoc(className, parameters, builder);
+      return builder.build();
+    }
+
     final var fieldMethodRefs = new ArrayList<FieldSerializeMethodReference>();
     for (final var field : fields) {
       fieldMethodRefs.add(buildDeserializeMethodRefFor(names, field));
@@ -622,21 +863,278 @@ public final class CBCGDataClassGenerator
     }
   }
 
+  private static MethodSpec.Builder createValidateOrSkipMethodBuilder(
+    final CBGenericSerializerMethodDirection direction,
+    final List<CBTypeParameterType> parameters)
+  {
+    final var builder = MethodSpec.methodBuilder(methodNameOf(direction));
+    builder.addModifiers(STATIC, PUBLIC);
+    builder.addException(IOException.class);
+
+    final Class<?> functionType;
+    switch (direction) {
+      case VALIDATE -> {
+        builder.addAnnotation(CBValidatorMethod.class);
+        functionType = CBValidateType.class;
+      }
+      case SKIP -> {
+        builder.addAnnotation(CBSkipperMethod.class);
+        functionType = CBSkipType.class;
+      }
+      default -> throw new UnreachableCodeException();
+    }
+
+    builder.addParameter(
+      TypeName.get(CBSerializationContextType.class),
+      "$context",
+      FINAL
+    );
+
+    /*
+     * Validate and skip methods have one extra parameter for each type
+     * parameter present on the type.
+     */
+
+    for (final var parameter : parameters) {
+      builder.addTypeVariable(
+        TypeVariableName.get(parameter.name(), CBSerializableType.class)
+      );
+      builder.addParameter(
+        ParameterizedTypeName.get(
+          ClassName.get(functionType),
+          TypeVariableName.get(parameter.name())
+        ),
+        typeParameterMethodName(direction, parameter),
+        FINAL
+      );
+    }
+    return builder;
+  }
+
+  private static String methodNameOf(
+    final CBGenericSerializerMethodDirection direction)
+  {
+    return switch (direction) {
+      case VALIDATE -> "validate";
+      case SKIP -> "skip";
+      case SERIALIZE -> "serialize";
+      case DESERIALIZE -> "deserialize";
+    };
+  }
+
+  private static String typeParameterMethodName(
+    final CBGenericSerializerMethodDirection direction,
+    final CBTypeParameterType parameter)
+  {
+    return switch (direction) {
+      case VALIDATE -> typeParameterValidateMethodName(parameter);
+      case SKIP -> typeParameterSkipMethodName(parameter);
+      case SERIALIZE -> typeParameterSerializeMethodName(parameter);
+      case DESERIALIZE -> typeParameterDeserializeMethodName(parameter);
+    };
+  }
+
+  private static MethodSpec createRecordlikeValidateOrSkipMethod(
+    final CBGenericSerializerMethodDirection direction,
+    final CBCGJavaNamePool names,
+    final ClassName className,
+    final List<CBTypeParameterType> parameters,
+    final List<CBFieldType> fields)
+  {
+    final var builder =
+      createValidateOrSkipMethodBuilder(direction, parameters);
+
+    /*
+     * Build a set of references to validate() or skip() methods for each
+     * field type. Fields that are skipped as bytes do not need skip() methods.
+     * Type applications are eta-expanded into local lambda expressions.
+     */
+
+    final var fieldMethodRefs = new ArrayList<FieldSerializeMethodReference>();
+    for (final var field : fields) {
+      if (direction == VALIDATE || !isSkippedAsBytes(field)) {
+        fieldMethodRefs.add(
+          buildValidateOrSkipMethodRefFor(direction, names, field)
+        );
+      }
+    }
+
+    /*
+     * Write out all the required lambda expressions, if any.
+     */
+
+    for (final var fieldRef : fieldMethodRefs) {
+      if (!fieldRef.lambas.isEmpty()) {
+        builder.addComment(
+          "// Lambda expressions for field %s".formatted(fieldRef.field.name())
+        );
+        for (final var lambda : fieldRef.lambas) {
+          builder.addStatement(lambda);
+        }
+      }
+    }
+
+    /*
+     * Generate the calls to validate() or skip() methods (or local lambda
+     * expressions). When skipping, runs of adjacent fields with fixed
+     * encoded sizes and no variants are skipped with a single skipBytes()
+     * call.
+     */
+
+    switch (direction) {
+      case VALIDATE -> {
+        builder.addComment("Validation calls in field order.");
+        for (final var fieldRef : fieldMethodRefs) {
+          callValidateOrSkipMethod(direction, builder, fieldRef);
+        }
+      }
+      case SKIP -> {
+        builder.addComment("Skip calls in field order.");
+
+        final var fieldRefs = fieldMethodRefs.iterator();
+        var fixedSize = 0L;
+        for (final var field : fields) {
+          if (isSkippedAsBytes(field)) {
+            fixedSize = Math.addExact(
+              fixedSize,
+              field.type().encodedSizeIfFixed().getAsLong()
+            );
+          } else {
+            callSkipBytes(builder, fixedSize);
+            fixedSize = 0L;
+            callValidateOrSkipMethod(direction, builder, fieldRefs.next());
+          }
+        }
+        callSkipBytes(builder, fixedSize);
+      }
+      default -> throw new UnreachableCodeException();
+    }
+
+    generateValidateOrSkipJavadoc(direction, className, parameters, builder);
+    return builder.build();
+  }
+
+  private static boolean isSkippedAsBytes(
+    final CBFieldType field)
+  {
+    return isSkippedAsBytes(field.type());
+  }
+
+  /*
+   * Values of a type with a fixed encoded size can be skipped with a single
+   * jump, unless the type contains a variant, the index of which must still
+   * be read so that invalid indices are reported.
+   */
+
+  static boolean isSkippedAsBytes(
+    final CBTypeExpressionType type)
+  {
+    return type.encodedSizeIfFixed().isPresent()
+           && !containsVariant(new HashSet<>(), type);
+  }
+
+  private static boolean containsVariant(
+    final Set<CBTypeDeclarationType> visited,
+    final CBTypeExpressionType type)
+  {
+    if (type instanceof CBTypeExprApplicationType application) {
+      if (containsVariant(visited, application.target())) {
+        return true;
+      }
+      for (final var argument : application.arguments()) {
+        if (containsVariant(visited, argument)) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    if (type instanceof CBTypeExprNamedType named) {
+      final var declaration = named.declaration();
+      if (declaration instanceof CBVariantType) {
+        return true;
+      }
+      if (declaration instanceof CBRecordType record && visited.add(record)) {
+        for (final var field : record.fields()) {
+          if (containsVariant(visited, field.type())) {
+            return true;
+          }
+        }
+      }
+      return false;
+    }
+
+    return false;
+  }
+
+  private static void generateValidateOrSkipJavadoc(
+    final CBGenericSerializerMethodDirection direction,
+    final ClassName typeName,
+    final List<CBTypeParameterType> parameters,
+    final MethodSpec.Builder builder)
+  {
+    final String summary;
+    final String functionDescription;
+    final String fieldDescription;
+    switch (direction) {
+      case VALIDATE -> {
+        summary = "Validate a serialized value";
+        functionDescription = "A validator";
+        fieldDescription = "validated";
+      }
+      case SKIP -> {
+        summary = "Skip over a serialized value";
+        functionDescription = "A skip function";
+        fieldDescription = "skipped";
+      }
+      default -> throw new UnreachableCodeException();
+    }
+
+    /*
+     * Generate JavaDoc for the method.
+     */
+
+    builder.addJavadoc(
+      "$L of type $T without deserializing it.\n",
+      summary,
+      typeName
+    );
+    builder.addJavadoc("@param $L The serialization context.\n", "$context");
+
+    for (final var parameter : parameters) {
+      final var name = typeParameterMethodName(direction, parameter);
+      builder.addJavadoc(
+        "@param $L $L for values of type $T.\n",
+        name,
+        functionDescription,
+        TypeVariableName.get(parameter.name())
+      );
+      builder.addJavadoc(
+        "@param <$L> The type of one or more $L fields.\n",
+        TypeVariableName.get(parameter.name()),
+        fieldDescription
+      );
+    }
+  }
+
   private static MethodSpec createRecordlikeSerializeMethod(
     final CBCGJavaNamePool names,
     final ClassName className,
     final TypeName typeName,
     final OptionalInt variantIndex,
     final List<CBTypeParameterType> parameters,
-    final List<CBFieldType> fields)
+    final List<CBFieldType> fields,
+    final Optional<ClassName> contextClass)
   {
     final var builder = MethodSpec.methodBuilder("serialize");
     builder.addModifiers(STATIC, PUBLIC);
-    builder.addAnnotation(CBSerializerMethod.class);
+    if (contextClass.isEmpty()) {
+      builder.addAnnotation(CBSerializerMethod.class);
+    }
     builder.addException(IOException.class);
 
     builder.addParameter(
-      TypeName.get(CBSerializationContextType.class),
+      contextTypeOf(contextClass),
       "$context",
       FINAL
     );
@@ -731,7 +1229,7 @@ public final class CBCGDataClassGenerator
     }
   }
 
-  private static FieldSerializeMethodReference buildDeserializeMethodRefFor(
+  static FieldSerializeMethodReference buildDeserializeMethodRefFor(
     final CBCGJavaNamePool names,
     final CBFieldType field)
   {
@@ -765,6 +1263,43 @@ public final class CBCGDataClassGenerator
     throw new UnreachableCodeException();
   }
 
+  static FieldSerializeMethodReference buildValidateOrSkipMethodRefFor(
+    final CBGenericSerializerMethodDirection direction,
+    final CBCGJavaNamePool names,
+    final CBFieldType field)
+  {
+    final var type =
+      field.type();
+    final var ref =
+      new CBGenericSerializerMethodRefs(names, type, direction)
+        .build();
+
+    if (ref instanceof CBGenericSerializerMethodRefNamed named) {
+      return new FieldSerializeMethodReference(field, named, List.of());
+    }
+
+    if (ref instanceof CBGenericSerializerMethodRefParameter parameter) {
+      return new FieldSerializeMethodReference(field, parameter, List.of());
+    }
+
+    if (ref instanceof CBGenericSerializerMethodRefViaLambda lambda) {
+      final var lambdaRefs =
+        CBGenericSerializerMethodRefs.findLambdasInDeclarationOrder(lambda);
+      final var lambdaBlocks =
+        new ArrayList<CodeBlock>(lambdaRefs.size());
+
+      while (!lambdaRefs.isEmpty()) {
+        lambdaBlocks.add(
+          buildValidateOrSkipLambda(direction, lambdaRefs.pop())
+        );
+      }
+
+      return new FieldSerializeMethodReference(field, lambda, lambdaBlocks);
+    }
+
+    throw new UnreachableCodeException();
+  }
+
   private static FieldSerializeMethodReference buildSerializeMethodRefFor(
     final CBCGJavaNamePool names,
     final CBFieldType field)
@@ -860,7 +1395,7 @@ public final class CBCGDataClassGenerator
     }
   }
 
-  private static String callDeserializeMethod(
+  static String callDeserializeMethod(
     final MethodSpec.Builder builder,
     final CBCGJavaNamePool names,
     final FieldSerializeMethodReference fieldRef)
@@ -921,6 +1456,82 @@ public final class CBCGDataClassGenerator
     }
   }
 
+  static void callSkipBytes(
+    final MethodSpec.Builder builder,
+    final long size)
+  {
+    if (size > 0L) {
+      builder.addStatement("$L.skipBytes($LL)", "$context", Long.valueOf(size));
+    }
+  }
+
+  static void callValidateOrSkipMethod(
+    final CBGenericSerializerMethodDirection direction,
+    final MethodSpec.Builder builder,
+    final FieldSerializeMethodReference fieldRef)
+  {
+    /*
+     * Skip calls do not record the field names with begin() and end();
+     * they are intended to be as cheap as possible.
+     */
+
+    final var field = fieldRef.field;
+    final var recordPath = direction == VALIDATE;
+    if (recordPath) {
+      builder.addStatement(
+        "$L.begin($S)",
+        "$context",
+        field.name()
+      );
+    }
+
+    try {
+      final var ref = fieldRef.reference;
+      if (ref instanceof CBGenericSerializerMethodRefNamed named) {
+        builder.addStatement(
+          "$T.$L($L)",
+          dataClassNameOf(named.type().declaration()),
+          methodNameOf(direction),
+          "$context"
+        );
+        return;
+      }
+
+      if (ref instanceof CBGenericSerializerMethodRefParameter parameter) {
+        final var name =
+          typeParameterMethodName(
+            direction,
+            parameter.type().parameter());
+
+        builder.addStatement(
+          "$L.execute($L)",
+          name,
+          "$context"
+        );
+        return;
+      }
+
+      if (ref instanceof CBGenericSerializerMethodRefViaLambda lambda) {
+        builder.addStatement(
+          "$L.execute($L)",
+          lambda.lambdaName(),
+          "$context"
+        );
+        return;
+      }
+
+      throw new UnreachableCodeException();
+    } finally {
+      if (recordPath) {
+        builder.addStatement(
+          "$L.end($S)",
+          "$context",
+          field.name()
+        );
+      }
+    }
+  }
+
   private static CodeBlock buildDeserializationLambda(
     final CBGenericSerializerMethodRefViaLambda lambda)
   {
@@ -978,6 +1589,97 @@ public final class CBCGDataClassGenerator
     return builder.build();
   }
 
+  private static CodeBlock buildValidateOrSkipLambda(
+    final CBGenericSerializerMethodDirection direction,
+    final CBGenericSerializerMethodRefViaLambda lambda)
+  {
+    final var builder = CodeBlock.builder();
+
+    /*
+     * Type applications with a fixed encoded size and no variants are
+     * skipped with a fixed-size skip function. This allows, for example, lists of such
+     * values to be skipped with a single jump.
+     */
+
+    if (direction == SKIP && isSkippedAsBytes(lambda.type())) {
+      builder.add(
+        "final $T $L = $T.fixed($LL)",
+        lambda.lambdaType(),
+        lambda.lambdaName(),
+        CBSkipType.class,
+        Long.valueOf(lambda.type().encodedSizeIfFixed().getAsLong())
+      );
+      return builder.build();
+    }
+
+    builder.add(
+      "final $T $L = ($T $L) -> {\n",
+      lambda.lambdaType(),
+      lambda.lambdaName(),
+      CBSerializationContextType.class,
+      lambda.lambdaContextName()
+    );
+    builder.indent();
+
+    final var targetType =
+      lambda.lambdaTarget();
+    final var targetArgs =
+      lambda.lambdaTargetRefs();
+
+    final var arguments = new ArrayList<String>();
+    for (final var targetArg : targetArgs) {
+      if (targetArg instanceof CBGenericSerializerMethodRefParameter p) {
+        arguments.add(
+          typeParameterMethodName(
+            direction,
+            p.type().parameter())
+        );
+      } else if (targetArg instanceof CBGenericSerializerMethodRefNamed n) {
+        arguments.add(buildValidateOrSkipReference(direction, n));
+      } else if (targetArg instanceof CBGenericSerializerMethodRefViaLambda l) {
+        arguments.add(l.lambdaName());
+      }
+    }
+
+    builder.add(
+      "$T.$L($L, ",
+      dataClassNameOf(targetType.declaration()),
+      methodNameOf(direction),
+      lambda.lambdaContextName()
+    );
+
+    final var argumentCount = arguments.size();
+    for (int index = 0; index < argumentCount; ++index) {
+      if (index + 1 < argumentCount) {
+        builder.add("$L,", arguments.get(index));
+      } else {
+        builder.add("$L", arguments.get(index));
+      }
+    }
+
+    builder.add(");\n");
+    builder.unindent();
+    builder.add("}");
+    return builder.build();
+  }
+
+  private static String buildValidateOrSkipReference(
+    final CBGenericSerializerMethodDirection direction,
+    final CBGenericSerializerMethodRefNamed named)
+  {
+    final var type = named.type();
+    if (direction == SKIP && isSkippedAsBytes(type)) {
+      return "%s.fixed(%dL)".formatted(
+        CBSkipType.class.getCanonicalName(),
+        Long.valueOf(type.encodedSizeIfFixed().getAsLong())
+      );
+    }
+    return "%s::%s".formatted(
+      dataClassNameOf(type.declaration()),
+      methodNameOf(direction)
+    );
+  }
+
   private static CodeBlock buildSerializationLambda(
     final CBGenericSerializerMethodRefViaLambda lambda)
   {
@@ -1038,6 +1740,93 @@ public final class CBCGDataClassGenerator
     return builder.build();
   }
 
+  private static FieldSpec createEncodedSizeField(
+    final long size)
+  {
+    final var builder =
+      FieldSpec.builder(
+        long.class,
+        "ENCODED_SIZE",
+        PUBLIC,
+        STATIC,
+        FINAL
+      );
+
+    builder.initializer("$LL", Long.valueOf(size));
+    builder.addJavadoc(
+      "The size in octets of every serialized value of this type.\n"
+    );
+    return builder.build();
+  }
+
+  private static FieldSpec createInstanceField(
+    final ClassName className,
+    final int typeParameterCount)
+  {
+    final TypeName fieldType;
+    if (typeParameterCount == 0) {
+      fieldType = className;
+    } else {
+      final var arguments = new TypeName[typeParameterCount];
+      Arrays.fill(arguments, WildcardTypeName.subtypeOf(Object.class));
+      fieldType = ParameterizedTypeName.get(className, arguments);
+    }
+
+    final var builder =
+      FieldSpec.builder(
+        fieldType,
+        "INSTANCE",
+        PUBLIC,
+        STATIC,
+        FINAL
+      );
+
+    if (typeParameterCount == 0) {
+      builder.initializer("new $T()", className);
+    } else {
+      builder.initializer("new $T<>()", className);
+    }
+    builder.addJavadoc(
+      "The value returned by {@code deserialize}. The type has no fields, "
+        + "and so all of its values are equal.\n"
+    );
+    return builder.build();
+  }
+
+  /**
+   * @param configuration The generator configuration
+   *
+   * @return The concrete context class named by
+   * {@link #OPTION_CONTEXT_CLASS}, if one was provided
+   *
+   * @throws CBSPICodeGeneratorException If the name is not a valid class name
+   */
+
+  static Optional<ClassName> contextClassOf(
+    final CBSPICodeGeneratorConfiguration configuration)
+    throws CBSPICodeGeneratorException
+  {
+    final var name = configuration.option(OPTION_CONTEXT_CLASS);
+    if (name.isEmpty()) {
+      return Optional.empty();
+    }
+
+    try {
+      return Optional.of(ClassName.bestGuess(name.get()));
+    } catch (final IllegalArgumentException e) {
+      throw new CBSPICodeGeneratorException(e);
+    }
+  }
+
+  static TypeName contextTypeOf(
+    final Optional<ClassName> contextClass)
+  {
+    if (contextClass.isPresent()) {
+      return contextClass.get();
+    }
+    return TypeName.get(CBSerializationContextType.class);
+  }
+
   private static MethodSpec createCompactConstructor(
     final List<ParameterSpec> fields)
   {
@@ -1080,11 +1869,12 @@ public final class CBCGDataClassGenerator
 
     final var names = new CBCGJavaNamePool();
     final var pack = type.owner();
+    final var contextClass = contextClassOf(configuration);
     final TypeSpec classDefinition;
     if (type instanceof CBRecordType r) {
-      classDefinition = makeRecord(names, r);
+      classDefinition = makeRecord(names, r, contextClass);
     } else if (type instanceof CBVariantType v) {
-      classDefinition = makeVariant(names, v);
+      classDefinition = makeVariant(names, v, contextClass);
     } else {
       throw new UnreachableCodeException();
     }
@@ -1100,7 +1890,7 @@ public final class CBCGDataClassGenerator
     }
   }
 
-  private record FieldSerializeMethodReference(
+  record FieldSerializeMethodReference(
     CBFieldType field,
     CBGenericSerializerMethodRefType reference,
     List<CodeBlock> lambas)
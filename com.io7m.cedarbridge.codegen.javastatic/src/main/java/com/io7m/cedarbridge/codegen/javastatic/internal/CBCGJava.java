@@ -21,6 +21,7 @@ import com.io7m.cedarbridge.codegen.spi.CBSPICodeGeneratorException;
 import com.io7m.cedarbridge.codegen.spi.CBSPICodeGeneratorResult;
 import com.io7m.cedarbridge.codegen.spi.CBSPICodeGeneratorType;
 import com.io7m.cedarbridge.schema.compiled.CBPackageType;
+import com.io7m.cedarbridge.schema.compiled.CBRecordType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -80,6 +81,17 @@ public final class CBCGJava implements CBSPICodeGeneratorType
 
       LOG.debug("generate: {}", wroteData);
       createdFiles.add(wroteData);
+
+      if (this.configuration.optionEnabled(CBCGViewClassGenerator.OPTION_VIEWS)
+          && type instanceof CBRecordType record
+          && CBCGViewClassGenerator.supports(record)) {
+        final var wroteView =
+          new CBCGViewClassGenerator()
+            .execute(this.configuration, pack.name(), record);
+
+        LOG.debug("generate: {}", wroteView);
+        createdFiles.add(wroteView);
+      }
     }
   }
 
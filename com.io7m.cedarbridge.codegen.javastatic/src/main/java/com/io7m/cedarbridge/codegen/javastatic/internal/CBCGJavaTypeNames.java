@@ -317,6 +317,35 @@ public final class CBCGJavaTypeNames
     return "$deserialize%s".formatted(parameter.name());
   }
 
+  /**
+   * Generate the name used for the validation function for a given type
+   * parameter.
+   *
+   * @param parameter The parameter
+   *
+   * @return The name
+   */
+
+  public static String typeParameterValidateMethodName(
+    final CBTypeParameterType parameter)
+  {
+    return "$validate%s".formatted(parameter.name());
+  }
+
+  /**
+   * Generate the name used for the skip function for a given type parameter.
+   *
+   * @param parameter The parameter
+   *
+   * @return The name
+   */
+
+  public static String typeParameterSkipMethodName(
+    final CBTypeParameterType parameter)
+  {
+    return "$skip%s".formatted(parameter.name());
+  }
+
   /**
    * Generate the name used for the serializer for a versioned protocol.
    *
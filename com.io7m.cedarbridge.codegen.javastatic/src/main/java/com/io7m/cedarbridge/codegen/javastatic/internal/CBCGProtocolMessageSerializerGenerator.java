@@ -35,6 +35,7 @@ import java.io.IOException;
 import java.math.BigInteger;
 import java.nio.file.Path;
 import java.util.Objects;
+import java.util.Optional;
 
 import static com.io7m.cedarbridge.codegen.javastatic.internal.CBCGJavaTypeNames.protoVersionedInterfaceNameOf;
 import static com.io7m.cedarbridge.codegen.javastatic.internal.CBCGJavaTypeNames.protoVersionedSerializerNameOf;
@@ -97,8 +98,13 @@ public final class CBCGProtocolMessageSerializerGenerator
     classBuilder.addField(createVersionField(proto));
     classBuilder.addMethod(createVersionMethod());
     classBuilder.addMethod(createMessageClassMethod(messageClassName));
-    classBuilder.addMethod(createSerializeMethod(messageClassName));
-    classBuilder.addMethod(createDeserializeMethod(messageClassName));
+    final var contextClass =
+      CBCGDataClassGenerator.contextClassOf(configuration);
+
+    classBuilder.addMethod(
+      createSerializeMethod(messageClassName, contextClass));
+    classBuilder.addMethod(
+      createDeserializeMethod(messageClassName, contextClass));
 
     final var classDefinition =
       classBuilder.build();
@@ -163,7 +169,8 @@ public final class CBCGProtocolMessageSerializerGenerator
   }
 
   private static MethodSpec createDeserializeMethod(
-    final ClassName className)
+    final ClassName className,
+    final Optional<ClassName> contextClass)
   {
     final var builder = MethodSpec.methodBuilder("deserialize");
     builder.addModifiers(PUBLIC);
@@ -176,6 +183,27 @@ public final class CBCGProtocolMessageSerializerGenerator
       "$context",
       FINAL
     );
+
+    /*
+     * If a concrete context class was specified, check for it once here
+     * so that every nested call can use the specialized methods.
+     */
+
+    if (contextClass.isPresent()) {
+      builder.beginControlFlow(
+        "if ($L instanceof $T $L)",
+        "$context",
+        contextClass.get(),
+        "$c"
+      );
+      builder.addStatement(
+        "return $T.deserialize($L)",
+        className,
+        "$c"
+      );
+      builder.endControlFlow();
+    }
+
     builder.addStatement(
       "return $T.deserialize($L)",
       className,
@@ -185,7 +213,8 @@ public final class CBCGProtocolMessageSerializerGenerator
   }
 
   private static MethodSpec createSerializeMethod(
-    final ClassName className)
+    final ClassName className,
+    final Optional<ClassName> contextClass)
   {
     final var builder = MethodSpec.methodBuilder("serialize");
     builder.addModifiers(PUBLIC);
@@ -202,6 +231,24 @@ public final class CBCGProtocolMessageSerializerGenerator
       "$x",
       FINAL
     );
+
+    if (contextClass.isPresent()) {
+      builder.beginControlFlow(
+        "if ($L instanceof $T $L)",
+        "$context",
+        contextClass.get(),
+        "$c"
+      );
+      builder.addStatement(
+        "$T.serialize($L, $L)",
+        className,
+        "$c",
+        "$x"
+      );
+      builder.addStatement("return");
+      builder.endControlFlow();
+    }
+
     builder.addStatement(
       "$T.serialize($L, $L)",
       className,
@@ -21,6 +21,8 @@ import com.io7m.cedarbridge.codegen.spi.CBSPICodeGeneratorException;
 import com.io7m.cedarbridge.runtime.api.CBDeserializerMethod;
 import com.io7m.cedarbridge.runtime.api.CBSerializationContextType;
 import com.io7m.cedarbridge.runtime.api.CBSerializerMethod;
+import com.io7m.cedarbridge.runtime.api.CBSkipperMethod;
+import com.io7m.cedarbridge.runtime.api.CBValidatorMethod;
 import com.io7m.cedarbridge.schema.compiled.CBProtocolVersionDeclarationType;
 import com.io7m.cedarbridge.schema.compiled.CBVariantType;
 import com.io7m.jodist.ClassName;
@@ -35,6 +37,7 @@ import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.Objects;
+import java.util.Optional;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static javax.lang.model.element.Modifier.FINAL;
@@ -110,9 +113,22 @@ public final class CBCGProtocolVersionedInterfaceGenerator
     directTypes.sort(Comparator.comparing(TypeName::toString));
     allTypes.sort(Comparator.comparing(TypeName::toString));
 
+    final var contextClass =
+      CBCGDataClassGenerator.contextClassOf(configuration);
+
     classBuilder.addPermittedSubclasses(allTypes);
-    classBuilder.addMethod(createSerializeMethod(className, directTypes));
-    classBuilder.addMethod(createDeserializeMethod(className, directTypes));
+    classBuilder.addMethod(
+      createSerializeMethod(className, directTypes, Optional.empty()));
+    classBuilder.addMethod(
+      createDeserializeMethod(className, directTypes, Optional.empty()));
+    if (contextClass.isPresent()) {
+      classBuilder.addMethod(
+        createSerializeMethod(className, directTypes, contextClass));
+      classBuilder.addMethod(
+        createDeserializeMethod(className, directTypes, contextClass));
+    }
+    classBuilder.addMethod(createValidateMethod(className, directTypes));
+    classBuilder.addMethod(createSkipMethod(className, directTypes));
 
     final var classDefinition = classBuilder.build();
 
@@ -129,15 +145,18 @@ public final class CBCGProtocolVersionedInterfaceGenerator
 
   private static MethodSpec createDeserializeMethod(
     final ClassName className,
-    final ArrayList<TypeName> types)
+    final ArrayList<TypeName> types,
+    final Optional<ClassName> contextClass)
   {
     final var builder = MethodSpec.methodBuilder("deserialize");
     builder.addModifiers(STATIC, PUBLIC);
-    builder.addAnnotation(CBDeserializerMethod.class);
+    if (contextClass.isEmpty()) {
+      builder.addAnnotation(CBDeserializerMethod.class);
+    }
     builder.addException(IOException.class);
     builder.returns(className);
     builder.addParameter(
-      TypeName.get(CBSerializationContextType.class),
+      CBCGDataClassGenerator.contextTypeOf(contextClass),
       "$context",
       FINAL
     );
@@ -197,19 +216,166 @@ public final class CBCGProtocolVersionedInterfaceGenerator
     return builder.build();
   }
 
-  private static MethodSpec createSerializeMethod(
+  private static MethodSpec createValidateMethod(
     final ClassName className,
     final ArrayList<TypeName> types)
   {
-    final var builder = MethodSpec.methodBuilder("serialize");
+    final var builder = MethodSpec.methodBuilder("validate");
+    builder.addModifiers(STATIC, PUBLIC);
+    builder.addAnnotation(CBValidatorMethod.class);
+    builder.addException(IOException.class);
+    builder.addParameter(
+      TypeName.get(CBSerializationContextType.class),
+      "$context",
+      FINAL
+    );
+
+    /*
+     * Read the variant index, and switch on it. Call the necessary
+     * validator function for each case.
+     */
+
+    builder.addStatement(
+      "final var $L = $L.readVariantIndex()",
+      "$i",
+      "$context"
+    );
+
+    final var switchStatement =
+      builder.beginControlFlow("switch ($L)", "$i");
+
+    for (int index = 0; index < types.size(); ++index) {
+      final var type = types.get(index);
+      final var switchCase =
+        switchStatement.beginControlFlow(
+          "case $L:",
+          Integer.valueOf(index)
+        );
+
+      switchCase.addStatement(
+        "$T.validate($L)",
+        type,
+        "$context"
+      );
+      switchCase.addStatement("return");
+      switchCase.endControlFlow();
+    }
+
+    {
+      final var defaultCase =
+        switchStatement.beginControlFlow("default: ");
+
+      defaultCase.addStatement(
+        "throw $L.errorUnrecognizedVariantIndex($T.class, $L)",
+        "$context",
+        className,
+        "$i"
+      );
+      defaultCase.endControlFlow();
+    }
+
+    switchStatement.endControlFlow();
+
+    /*
+     * Generate JavaDoc for the method.
+     */
+
+    builder.addJavadoc(
+      "Validate a serialized value of type $T without deserializing it.\n",
+      className
+    );
+    builder.addJavadoc("@param $L The serialization context.\n", "$context");
+    return builder.build();
+  }
+
+  private static MethodSpec createSkipMethod(
+    final ClassName className,
+    final ArrayList<TypeName> types)
+  {
+    final var builder = MethodSpec.methodBuilder("skip");
     builder.addModifiers(STATIC, PUBLIC);
-    builder.addAnnotation(CBSerializerMethod.class);
+    builder.addAnnotation(CBSkipperMethod.class);
     builder.addException(IOException.class);
     builder.addParameter(
       TypeName.get(CBSerializationContextType.class),
       "$context",
       FINAL
     );
+
+    /*
+     * Read the variant index, and switch on it. Call the necessary
+     * skip function for each case.
+     */
+
+    builder.addStatement(
+      "final var $L = $L.readVariantIndex()",
+      "$i",
+      "$context"
+    );
+
+    final var switchStatement =
+      builder.beginControlFlow("switch ($L)", "$i");
+
+    for (int index = 0; index < types.size(); ++index) {
+      final var type = types.get(index);
+      final var switchCase =
+        switchStatement.beginControlFlow(
+          "case $L:",
+          Integer.valueOf(index)
+        );
+
+      switchCase.addStatement(
+        "$T.skip($L)",
+        type,
+        "$context"
+      );
+      switchCase.addStatement("return");
+      switchCase.endControlFlow();
+    }
+
+    {
+      final var defaultCase =
+        switchStatement.beginControlFlow("default: ");
+
+      defaultCase.addStatement(
+        "throw $L.errorUnrecognizedVariantIndex($T.class, $L)",
+        "$context",
+        className,
+        "$i"
+      );
+      defaultCase.endControlFlow();
+    }
+
+    switchStatement.endControlFlow();
+
+    /*
+     * Generate JavaDoc for the method.
+     */
+
+    builder.addJavadoc(
+      "Skip over a serialized value of type $T without deserializing it.\n",
+      className
+    );
+    builder.addJavadoc("@param $L The serialization context.\n", "$context");
+    return builder.build();
+  }
+
+  private static MethodSpec createSerializeMethod(
+    final ClassName className,
+    final ArrayList<TypeName> types,
+    final Optional<ClassName> contextClass)
+  {
+    final var builder = MethodSpec.methodBuilder("serialize");
+    builder.addModifiers(STATIC, PUBLIC);
+    if (contextClass.isEmpty()) {
+      builder.addAnnotation(CBSerializerMethod.class);
+    }
+    builder.addException(IOException.class);
+    builder.addParameter(
+      CBCGDataClassGenerator.contextTypeOf(contextClass),
+      "$context",
+      FINAL
+    );
     builder.addParameter(
       className,
       "$x",
@@ -0,0 +1,483 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.cedarbridge.codegen.javastatic.internal;
+
+import com.io7m.cedarbridge.codegen.spi.CBSPICodeGeneratorConfiguration;
+import com.io7m.cedarbridge.codegen.spi.CBSPICodeGeneratorException;
+import com.io7m.cedarbridge.runtime.api.CBSerializationContextByteBuffer;
+import com.io7m.cedarbridge.schema.compiled.CBFieldType;
+import com.io7m.cedarbridge.schema.compiled.CBRecordType;
+import com.io7m.jodist.ClassName;
+import com.io7m.jodist.FieldSpec;
+import com.io7m.jodist.JavaFile;
+import com.io7m.jodist.MethodSpec;
+import com.io7m.jodist.TypeSpec;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Objects;
+
+import static com.io7m.cedarbridge.codegen.javastatic.internal.CBCGDataClassGenerator.buildDeserializeMethodRefFor;
+import static com.io7m.cedarbridge.codegen.javastatic.internal.CBCGDataClassGenerator.buildValidateOrSkipMethodRefFor;
+import static com.io7m.cedarbridge.codegen.javastatic.internal.CBCGDataClassGenerator.callDeserializeMethod;
+import static com.io7m.cedarbridge.codegen.javastatic.internal.CBCGDataClassGenerator.callSkipBytes;
+import static com.io7m.cedarbridge.codegen.javastatic.internal.CBCGDataClassGenerator.callValidateOrSkipMethod;
+import static com.io7m.cedarbridge.codegen.javastatic.internal.CBCGDataClassGenerator.isSkippedAsBytes;
+import static com.io7m.cedarbridge.codegen.javastatic.internal.CBCGJavaTypeNames.dataClassNameOf;
+import static com.io7m.cedarbridge.codegen.javastatic.internal.CBCGJavaTypeNames.fieldAccessorName;
+import static com.io7m.cedarbridge.codegen.javastatic.internal.generics.CBGenericSerializerMethodDirection.SKIP;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static javax.lang.model.element.Modifier.FINAL;
+import static javax.lang.model.element.Modifier.PRIVATE;
+import static javax.lang.model.element.Modifier.PUBLIC;
+import static javax.lang.model.element.Modifier.STATIC;
+
+/**
+ * <p>A generator of flyweight view classes for record types.</p>
+ *
+ * <p>A view class reads individual fields directly from a serialized record
+ * held in a {@link ByteBuffer} without deserializing the entire record. Fields
+ * in the prefix of the record that consists entirely of fields with fixed
+ * encoded sizes are read from constant offsets. The offsets of all other
+ * fields are discovered by skipping over the preceding fields on first
+ * access, and are then cached.</p>
+ *
+ * <p>Views are only generated for records that do not have type
+ * parameters.</p>
+ */
+
+public final class CBCGViewClassGenerator
+  implements CBCGJavaClassGeneratorType<CBRecordType>
+{
+  /**
+   * The name of the generator option that enables view classes.
+   */
+
+  public static final String OPTION_VIEWS = "views";
+
+  /**
+   * A generator of flyweight view classes for record types.
+   */
+
+  public CBCGViewClassGenerator()
+  {
+
+  }
+
+  /**
+   * @param type The record type
+   *
+   * @return {@code true} if a view can be generated for the given type
+   */
+
+  public static boolean supports(
+    final CBRecordType type)
+  {
+    return type.parameters().isEmpty();
+  }
+
+  /**
+   * @param type The record type
+   *
+   * @return The name of the view class for the given type
+   */
+
+  public static ClassName viewClassNameOf(
+    final CBRecordType type)
+  {
+    final var dataName = dataClassNameOf(type);
+    return ClassName.get(
+      dataName.packageName(),
+      dataName.simpleName() + "View"
+    );
+  }
+
+  private static int fixedPrefixOf(
+    final List<CBFieldType> fields)
+  {
+    var count = 0;
+    for (final var field : fields) {
+      if (field.type().encodedSizeIfFixed().isEmpty()) {
+        break;
+      }
+      ++count;
+    }
+    return count;
+  }
+
+  private static int fixedOffsetOf(
+    final List<CBFieldType> fields,
+    final int index)
+  {
+    var offset = 0L;
+    for (int f = 0; f < index; ++f) {
+      offset = Math.addExact(
+        offset,
+        fields.get(f).type().encodedSizeIfFixed().orElseThrow()
+      );
+    }
+    return Math.toIntExact(offset);
+  }
+
+  private static TypeSpec makeView(
+    final CBRecordType type)
+  {
+    final var className =
+      viewClassNameOf(type);
+    final var dataName =
+      dataClassNameOf(type);
+    final var fields =
+      type.fields();
+    final var prefix =
+      fixedPrefixOf(fields);
+
+    final var classBuilder = TypeSpec.classBuilder(className);
+    classBuilder.addModifiers(PUBLIC, FINAL);
+    classBuilder.addJavadoc(
+      "A flyweight view over a serialized value of type {@link $T}.\n",
+      dataName
+    );
+    classBuilder.addJavadoc(
+      "Views are mutable and must not be shared between threads.\n"
+    );
+
+    classBuilder.addField(
+      FieldSpec.builder(
+        CBSerializationContextByteBuffer.class,
+        "$context",
+        PRIVATE,
+        FINAL
+      ).build()
+    );
+    classBuilder.addField(
+      FieldSpec.builder(int.class, "$base", PRIVATE, FINAL)
+        .build()
+    );
+
+    if (prefix < fields.size()) {
+      classBuilder.addField(
+        FieldSpec.builder(int[].class, "$offsets", PRIVATE, FINAL)
+          .build()
+      );
+      classBuilder.addField(
+        FieldSpec.builder(int.class, "$known", PRIVATE)
+          .build()
+      );
+    }
+
+    classBuilder.addMethod(createConstructor(fields, prefix));
+    classBuilder.addMethod(createOfMethod(className));
+    classBuilder.addMethod(createOfOffsetMethod(className));
+
+    if (prefix < fields.size()) {
+      classBuilder.addMethod(createOffsetOfMethod(fields, prefix));
+    }
+
+    for (int index = 0; index < fields.size(); ++index) {
+      classBuilder.addMethod(createAccessor(fields, prefix, index));
+    }
+
+    classBuilder.addMethod(createEncodedSizeMethod(fields, prefix));
+    classBuilder.addMethod(createMaterializeMethod(dataName));
+    return classBuilder.build();
+  }
+
+  private static MethodSpec createConstructor(
+    final List<CBFieldType> fields,
+    final int prefix)
+  {
+    final var builder = MethodSpec.constructorBuilder();
+    builder.addModifiers(PRIVATE);
+    builder.addParameter(ByteBuffer.class, "$buffer", FINAL);
+    builder.addParameter(int.class, "$offset", FINAL);
+
+    builder.addStatement(
+      "this.$L = $T.create($L)",
+      "$context",
+      CBSerializationContextByteBuffer.class,
+      "$buffer"
+    );
+    builder.addStatement("this.$L.setPosition($L)", "$context", "$offset");
+    builder.addStatement("this.$L = $L", "$base", "$offset");
+
+    if (prefix < fields.size()) {
+      builder.addStatement(
+        "this.$L = new int[$L]",
+        "$offsets",
+        Integer.valueOf(fields.size() + 1)
+      );
+      builder.addStatement(
+        "this.$L[$L] = $L + $L",
+        "$offsets",
+        Integer.valueOf(prefix),
+        "$offset",
+        Integer.valueOf(fixedOffsetOf(fields, prefix))
+      );
+      builder.addStatement("this.$L = $L", "$known", Integer.valueOf(prefix));
+    }
+    return builder.build();
+  }
+
+  private static MethodSpec createOfMethod(
+    final ClassName className)
+  {
+    final var builder = MethodSpec.methodBuilder("of");
+    builder.addModifiers(PUBLIC, STATIC);
+    builder.returns(className);
+    builder.addParameter(ByteBuffer.class, "$buffer", FINAL);
+    builder.addStatement(
+      "return new $T($L, $L.position())",
+      className,
+      "$buffer",
+      "$buffer"
+    );
+    builder.addJavadoc(
+      "Create a view over the value starting at the buffer's position.\n"
+    );
+    builder.addJavadoc("@param $L The buffer\n", "$buffer");
+    builder.addJavadoc("@return A view\n");
+    return builder.build();
+  }
+
+  private static MethodSpec createOfOffsetMethod(
+    final ClassName className)
+  {
+    final var builder = MethodSpec.methodBuilder("of");
+    builder.addModifiers(PUBLIC, STATIC);
+    builder.returns(className);
+    builder.addParameter(ByteBuffer.class, "$buffer", FINAL);
+    builder.addParameter(int.class, "$offset", FINAL);
+    builder.addStatement(
+      "return new $T($L, $L)",
+      className,
+      "$buffer",
+      "$offset"
+    );
+    builder.addJavadoc(
+      "Create a view over the value starting at the given offset.\n"
+    );
+    builder.addJavadoc("@param $L The buffer\n", "$buffer");
+    builder.addJavadoc("@param $L The offset of the value\n", "$offset");
+    builder.addJavadoc("@return A view\n");
+    return builder.build();
+  }
+
+  private static MethodSpec createOffsetOfMethod(
+    final List<CBFieldType> fields,
+    final int prefix)
+  {
+    final var names = new CBCGJavaNamePool();
+    final var builder = MethodSpec.methodBuilder("$offsetOf");
+    builder.addModifiers(PRIVATE);
+    builder.addException(IOException.class);
+    builder.returns(int.class);
+    builder.addParameter(int.class, "$index", FINAL);
+
+    /*
+     * Offsets are discovered by skipping one field at a time, starting from
+     * the highest offset known so far.
+     */
+
+    builder.addStatement("final var $L = this.$L", "$context", "$context");
+    builder.beginControlFlow("while (this.$L < $L)", "$known", "$index");
+    builder.addStatement(
+      "$L.setPosition(this.$L[this.$L])",
+      "$context",
+      "$offsets",
+      "$known"
+    );
+    builder.beginControlFlow("switch (this.$L)", "$known");
+
+    for (int index = prefix; index < fields.size(); ++index) {
+      final var field = fields.get(index);
+      builder.beginControlFlow("case $L ->", Integer.valueOf(index));
+
+      final var type = field.type();
+      if (isSkippedAsBytes(type)) {
+        callSkipBytes(builder, type.encodedSizeIfFixed().getAsLong());
+      } else {
+        final var fieldRef =
+          buildValidateOrSkipMethodRefFor(SKIP, names, field);
+        for (final var lambda : fieldRef.lambas()) {
+          builder.addStatement(lambda);
+        }
+        callValidateOrSkipMethod(SKIP, builder, fieldRef);
+      }
+      builder.endControlFlow();
+    }
+
+    builder.addStatement(
+      "default -> throw new $T()",
+      IllegalStateException.class
+    );
+    builder.endControlFlow();
+    builder.addStatement("++this.$L", "$known");
+    builder.addStatement(
+      "this.$L[this.$L] = $L.position()",
+      "$offsets",
+      "$known",
+      "$context"
+    );
+    builder.endControlFlow();
+    builder.addStatement("return this.$L[$L]", "$offsets", "$index");
+    return builder.build();
+  }
+
+  private static void positionAt(
+    final MethodSpec.Builder builder,
+    final List<CBFieldType> fields,
+    final int prefix,
+    final int index)
+  {
+    if (index <= prefix) {
+      builder.addStatement(
+        "$L.setPosition(this.$L + $L)",
+        "$context",
+        "$base",
+        Integer.valueOf(fixedOffsetOf(fields, index))
+      );
+    } else {
+      builder.addStatement(
+        "$L.setPosition(this.$L($L))",
+        "$context",
+        "$offsetOf",
+        Integer.valueOf(index)
+      );
+    }
+  }
+
+  private static MethodSpec createAccessor(
+    final List<CBFieldType> fields,
+    final int prefix,
+    final int index)
+  {
+    final var names = new CBCGJavaNamePool();
+    final var field = fields.get(index);
+    final var accessorName = fieldAccessorName(field.name());
+
+    final var builder = MethodSpec.methodBuilder(accessorName);
+    builder.addModifiers(PUBLIC);
+    builder.addException(IOException.class);
+    builder.returns(
+      CBCGJavaTypeExpressions.evaluateTypeExpression(field.type())
+    );
+
+    final var fieldRef = buildDeserializeMethodRefFor(names, field);
+    builder.addStatement("final var $L = this.$L", "$context", "$context");
+    positionAt(builder, fields, prefix, index);
+
+    for (final var lambda : fieldRef.lambas()) {
+      builder.addStatement(lambda);
+    }
+
+    final var result = callDeserializeMethod(builder, names, fieldRef);
+    builder.addStatement("return $L", result);
+
+    final var doc = field.documentation();
+    if (!doc.isEmpty()) {
+      builder.addJavadoc("$L\n", String.join(" ", doc));
+    }
+    builder.addJavadoc("@return The value of field {@code $L}\n", field.name());
+    builder.addJavadoc("@throws $T On I/O errors\n", IOException.class);
+    return builder.build();
+  }
+
+  private static MethodSpec createEncodedSizeMethod(
+    final List<CBFieldType> fields,
+    final int prefix)
+  {
+    final var builder = MethodSpec.methodBuilder("encodedSize");
+    builder.addModifiers(PUBLIC);
+    builder.addException(IOException.class);
+    builder.returns(int.class);
+
+    if (prefix < fields.size()) {
+      builder.addStatement(
+        "return this.$L($L) - this.$L",
+        "$offsetOf",
+        Integer.valueOf(fields.size()),
+        "$base"
+      );
+    } else {
+      builder.addStatement(
+        "return $L",
+        Integer.valueOf(fixedOffsetOf(fields, fields.size()))
+      );
+    }
+
+    builder.addJavadoc("@return The size in octets of the serialized value\n");
+    builder.addJavadoc("@throws $T On I/O errors\n", IOException.class);
+    return builder.build();
+  }
+
+  private static MethodSpec createMaterializeMethod(
+    final ClassName dataName)
+  {
+    final var builder = MethodSpec.methodBuilder("materialize");
+    builder.addModifiers(PUBLIC);
+    builder.addException(IOException.class);
+    builder.returns(dataName);
+    builder.addStatement("this.$L.setPosition(this.$L)", "$context", "$base");
+    builder.addStatement(
+      "return $T.deserialize(this.$L)",
+      dataName,
+      "$context"
+    );
+
+    builder.addJavadoc("Deserialize the entire value.\n");
+    builder.addJavadoc("@return A value of type {@link $T}\n", dataName);
+    builder.addJavadoc("@throws $T On I/O errors\n", IOException.class);
+    return builder.build();
+  }
+
+  @Override
+  public Path execute(
+    final CBSPICodeGeneratorConfiguration configuration,
+    final String packageName,
+    final CBRecordType type)
+    throws CBSPICodeGeneratorException
+  {
+    Objects.requireNonNull(configuration, "configuration");
+    Objects.requireNonNull(packageName, "packageName");
+    Objects.requireNonNull(type, "type");
+
+    final var pack = type.owner();
+    final var viewName = viewClassNameOf(type);
+    if (pack.types().containsKey(viewName.simpleName())) {
+      throw new CBSPICodeGeneratorException(
+        new IllegalArgumentException(String.format(
+          "The view class %s would conflict with the type %s",
+          viewName,
+          viewName.simpleName()
+        ))
+      );
+    }
+
+    final var javaFile =
+      JavaFile.builder(pack.name(), makeView(type))
+        .build();
+
+    try {
+      return javaFile.writeToPath(configuration.outputDirectory(), UTF_8);
+    } catch (final IOException e) {
+      throw new CBSPICodeGeneratorException(e);
+    }
+  }
+}
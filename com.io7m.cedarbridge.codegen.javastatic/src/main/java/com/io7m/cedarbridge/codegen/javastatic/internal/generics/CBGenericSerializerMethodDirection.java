@@ -33,5 +33,17 @@ public enum CBGenericSerializerMethodDirection
    * Methods that deserialize values.
    */
 
-  DESERIALIZE
+  DESERIALIZE,
+
+  /**
+   * Methods that validate serialized values.
+   */
+
+  VALIDATE,
+
+  /**
+   * Methods that skip serialized values.
+   */
+
+  SKIP
 }
@@ -21,6 +21,8 @@ import com.io7m.cedarbridge.codegen.javastatic.internal.CBCGJavaNamePool;
 import com.io7m.cedarbridge.codegen.javastatic.internal.CBCGJavaTypeExpressions;
 import com.io7m.cedarbridge.runtime.api.CBDeserializeType;
 import com.io7m.cedarbridge.runtime.api.CBSerializeType;
+import com.io7m.cedarbridge.runtime.api.CBSkipType;
+import com.io7m.cedarbridge.runtime.api.CBValidateType;
 import com.io7m.cedarbridge.schema.compiled.CBTypeExpressionType;
 import com.io7m.jodist.ClassName;
 import com.io7m.jodist.ParameterizedTypeName;
@@ -104,6 +106,18 @@ public final class CBGenericSerializerMethodRefs
               lambdaReturnType
             );
           }
+          case VALIDATE -> {
+            yield ParameterizedTypeName.get(
+              ClassName.get(CBValidateType.class),
+              lambdaReturnType
+            );
+          }
+          case SKIP -> {
+            yield ParameterizedTypeName.get(
+              ClassName.get(CBSkipType.class),
+              lambdaReturnType
+            );
+          }
         };
 
       final var lambdaName =
@@ -16,6 +16,8 @@
 
 package com.io7m.cedarbridge.examples.chat;
 
+import com.io7m.cedarbridge.examples.generic.CBExSharedMessage;
+
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
@@ -51,9 +53,15 @@ public final class CBExChat
   private void broadcast(
     final CBExChatMessageType message)
   {
+    /*
+     * The same shared message is queued for every session, so that it is
+     * serialized once rather than once per recipient.
+     */
+
+    final var shared = new CBExSharedMessage<>(message);
     synchronized (this.sessionsLock) {
       for (final var session : this.sessions.values()) {
-        session.queue.add(message);
+        session.queue.add(shared);
       }
     }
   }
@@ -112,7 +120,8 @@ public final class CBExChat
   {
     private final CBExChat chat;
     private final String user;
-    private final ConcurrentLinkedQueue<CBExChatMessageType> queue;
+    private final ConcurrentLinkedQueue<CBExSharedMessage<CBExChatMessageType>>
+      queue;
 
     Session(
       final CBExChat inChat,
@@ -138,7 +147,7 @@ public final class CBExChat
      * @return An event
      */
 
-    public Optional<CBExChatMessageType> takeEvent()
+    public Optional<CBExSharedMessage<CBExChatMessageType>> takeEvent()
     {
       return Optional.ofNullable(this.queue.poll());
     }
@@ -19,8 +19,11 @@ package com.io7m.cedarbridge.examples.generic;
 import com.io7m.cedarbridge.runtime.api.CBProtocolMessageType;
 import com.io7m.cedarbridge.runtime.api.CBProtocolMessageVersionedSerializerType;
 import com.io7m.cedarbridge.runtime.api.CBProtocolType;
+import com.io7m.cedarbridge.runtime.container_protocol.CBContainerProtocolAvailable;
 import com.io7m.cedarbridge.runtime.container_protocol.CBContainerProtocolMessages;
+import com.io7m.cedarbridge.runtime.container_protocol.CBContainerProtocolResponse;
 import com.io7m.cedarbridge.runtime.container_protocol.CBContainerProtocolUse;
+import com.io7m.cedarbridge.runtime.container_protocol.CBFrameCompression;
 import com.io7m.jbssio.vanilla.BSSReaders;
 import com.io7m.jbssio.vanilla.BSSWriters;
 import org.slf4j.Logger;
@@ -31,13 +34,16 @@ import java.io.EOFException;
 import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.net.Socket;
+import java.nio.ByteBuffer;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
 import static com.io7m.cedarbridge.examples.generic.CBExClient.State.STATE_DONE;
 import static com.io7m.cedarbridge.examples.generic.CBExClient.State.STATE_INITIAL;
 import static com.io7m.cedarbridge.examples.generic.CBExClient.State.STATE_RUNNING;
+import static com.io7m.cedarbridge.runtime.container_protocol.CBContainerProtocolCompression.DEFLATE;
 
 /**
  * A basic TCP client. The client read and writes
@@ -59,6 +65,8 @@ public final class CBExClient<M, P extends CBProtocolMessageType>
   private final CBProtocolType<P> protocols;
   private final CBExMessageTranslatorDirectory<M, P> translators;
   private final CBExClientCoreType<M> core;
+  private final CBExClientConfiguration configuration;
+  private volatile Optional<CBContainerProtocolUse> reusableUse;
   private volatile CBExClient.State state;
 
   /**
@@ -74,6 +82,44 @@ public final class CBExClient<M, P extends CBProtocolMessageType>
     final CBExMessageTranslatorDirectory<M, P> inTranslators,
     final CBExClientCoreType<M> inCore)
   {
+    this(
+      inProtocols,
+      inTranslators,
+      inCore,
+      CBExClientConfiguration.defaults()
+    );
+  }
+
+  /**
+   * Construct a client.
+   *
+   * <p>If the configuration provides a {@code Use} message, the client sends
+   * it immediately upon connecting and then starts the client core without
+   * waiting for the server's {@code Available} and {@code Response}
+   * messages. Those messages are checked before the first application
+   * message is read; if the server rejected the {@code Use} message, the
+   * first read fails.</p>
+   *
+   * <p>If the configuration provides a compression threshold, and the
+   * server offers compression, the client negotiates DEFLATE frame
+   * compression using container protocol version 2.</p>
+   *
+   * @param inCore          A supplier of client cores
+   * @param inProtocols     The protocol
+   * @param inTranslators   A translator directory
+   * @param inConfiguration The client configuration
+   */
+
+  public CBExClient(
+    final CBProtocolType<P> inProtocols,
+    final CBExMessageTranslatorDirectory<M, P> inTranslators,
+    final CBExClientCoreType<M> inCore,
+    final CBExClientConfiguration inConfiguration)
+  {
+    this.configuration =
+      Objects.requireNonNull(inConfiguration, "configuration");
+    this.reusableUse =
+      Optional.empty();
     this.protocols =
       Objects.requireNonNull(inProtocols, "protocols");
     this.translators =
@@ -128,6 +174,12 @@ public final class CBExClient<M, P extends CBProtocolMessageType>
 
       LOG.info("[{}] connected", socket.getRemoteSocketAddress());
 
+      final var pipelinedUse = this.configuration.pipelinedUse();
+      if (pipelinedUse.isPresent()) {
+        this.executePipelined(socket, pipelinedUse.get());
+        return;
+      }
+
       final var input =
         socket.getInputStream();
       final var output =
@@ -184,15 +236,22 @@ public final class CBExClient<M, P extends CBProtocolMessageType>
         Long.valueOf(interHighest)
       );
 
-      output.write(
-        CBContainerProtocolMessages.serializeUseAsBytes(
-          new CBContainerProtocolUse(
-            1L,
-            peerSupportedId,
-            interHighest
-          )
-        )
-      );
+      final var threshold =
+        this.configuration.compressionThreshold();
+      final CBContainerProtocolUse use;
+      if (threshold.isPresent() && available.isCompressionSupported(DEFLATE)) {
+        use = new CBContainerProtocolUse(
+          2L,
+          peerSupportedId,
+          interHighest,
+          DEFLATE,
+          threshold.getAsLong()
+        );
+      } else {
+        use = new CBContainerProtocolUse(1L, peerSupportedId, interHighest);
+      }
+
+      output.write(CBContainerProtocolMessages.serializeUseAsBytes(use));
 
       final var responseBuffer =
         input.readNBytes(CBContainerProtocolMessages.sizeResponse());
@@ -204,6 +263,10 @@ public final class CBExClient<M, P extends CBProtocolMessageType>
         return;
       }
 
+      if (available.isPipelinedUseSupported()) {
+        this.reusableUse = Optional.of(use);
+      }
+
       socket.setSoTimeout(10);
 
       final CBProtocolMessageVersionedSerializerType<P> protocol =
@@ -218,7 +281,9 @@ public final class CBExClient<M, P extends CBProtocolMessageType>
           new BSSWriters(),
           socket,
           this.translators.get(interHighest),
-          protocol
+          protocol,
+          Optional.empty(),
+          CBFrameCompression.forUse(use)
         );
 
       this.core.execute(exSocket);
@@ -229,6 +294,55 @@ public final class CBExClient<M, P extends CBProtocolMessageType>
     }
   }
 
+  private void executePipelined(
+    final Socket socket,
+    final CBContainerProtocolUse use)
+    throws IOException
+  {
+    final var version =
+      use.applicationProtocolVersion();
+
+    final CBProtocolMessageVersionedSerializerType<P> protocol =
+      this.protocols.serializerForProtocolVersion(version)
+        .orElseThrow(() -> {
+          return new IllegalStateException("Missing protocol version!");
+        });
+
+    LOG.debug(
+      "pipelining protocol {} version {}",
+      use.applicationProtocolId(),
+      Long.valueOf(version)
+    );
+
+    socket.getOutputStream()
+      .write(CBContainerProtocolMessages.serializeUseAsBytes(use));
+    socket.setSoTimeout(10);
+
+    final var exSocket =
+      new CBExSocket<>(
+        new BSSReaders(),
+        new BSSWriters(),
+        socket,
+        this.translators.get(version),
+        protocol,
+        Optional.of(new PipelinedPreamble(use)),
+        CBFrameCompression.forUse(use)
+      );
+
+    this.core.execute(exSocket);
+  }
+
+  /**
+   * @return A {@code Use} message that may be pipelined on a subsequent
+   * connection to the same server, if the server advertised support for
+   * pipelining and accepted the message
+   */
+
+  public Optional<CBContainerProtocolUse> reusableUse()
+  {
+    return this.reusableUse;
+  }
+
   /**
    * @return {@code true} if the client has finished executing
    */
@@ -238,6 +352,59 @@ public final class CBExClient<M, P extends CBProtocolMessageType>
     return this.state == STATE_DONE;
   }
 
+  private final class PipelinedPreamble implements CBExPreambleType
+  {
+    private final CBContainerProtocolUse use;
+
+    PipelinedPreamble(
+      final CBContainerProtocolUse inUse)
+    {
+      this.use = Objects.requireNonNull(inUse, "use");
+    }
+
+    @Override
+    public int size()
+    {
+      return CBContainerProtocolMessages.sizeAvailable()
+             + CBContainerProtocolMessages.sizeResponse();
+    }
+
+    @Override
+    public void check(
+      final byte[] data)
+      throws IOException
+    {
+      final var availableSize =
+        CBContainerProtocolMessages.sizeAvailable();
+      final var responseSize =
+        CBContainerProtocolMessages.sizeResponse();
+
+      final CBContainerProtocolAvailable available;
+      final CBContainerProtocolResponse response;
+      try {
+        available = CBContainerProtocolMessages.parseAvailable(
+          ByteBuffer.wrap(data, 0, availableSize).slice());
+        response = CBContainerProtocolMessages.parseResponse(
+          ByteBuffer.wrap(data, availableSize, responseSize).slice());
+      } catch (final IllegalArgumentException e) {
+        throw new IOException(e);
+      }
+
+      if (!response.ok()) {
+        CBExClient.this.reusableUse = Optional.empty();
+        throw new IOException(
+          "Protocol cannot be used: %s".formatted(response.message())
+        );
+      }
+
+      if (available.isPipelinedUseSupported()) {
+        CBExClient.this.reusableUse = Optional.of(this.use);
+      } else {
+        CBExClient.this.reusableUse = Optional.empty();
+      }
+    }
+  }
+
   enum State
   {
     STATE_INITIAL,
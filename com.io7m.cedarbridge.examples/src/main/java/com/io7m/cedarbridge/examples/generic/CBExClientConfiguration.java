@@ -0,0 +1,68 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.cedarbridge.examples.generic;
+
+import com.io7m.cedarbridge.runtime.container_protocol.CBContainerProtocolUse;
+
+import java.util.Objects;
+import java.util.Optional;
+import java.util.OptionalLong;
+
+/**
+ * The configuration of a client.
+ *
+ * @param pipelinedUse         The {@code Use} message to send immediately
+ *                             upon connecting, if any (typically one obtained
+ *                             from {@link CBExClient#reusableUse()} on an
+ *                             earlier connection to the same server)
+ * @param compressionThreshold The size in octets below which frames are not
+ *                             compressed, or nothing if frame compression
+ *                             should not be requested
+ */
+
+public record CBExClientConfiguration(
+  Optional<CBContainerProtocolUse> pipelinedUse,
+  OptionalLong compressionThreshold)
+{
+  /**
+   * The configuration of a client.
+   *
+   * @param pipelinedUse         The {@code Use} message to send immediately
+   *                             upon connecting, if any (typically one
+   *                             obtained from {@link CBExClient#reusableUse()}
+   *                             on an earlier connection to the same server)
+   * @param compressionThreshold The size in octets below which frames are not
+   *                             compressed, or nothing if frame compression
+   *                             should not be requested
+   */
+
+  public CBExClientConfiguration
+  {
+    Objects.requireNonNull(pipelinedUse, "pipelinedUse");
+    Objects.requireNonNull(compressionThreshold, "compressionThreshold");
+  }
+
+  /**
+   * @return A configuration that neither pipelines nor compresses
+   */
+
+  public static CBExClientConfiguration defaults()
+  {
+    return new CBExClientConfiguration(Optional.empty(), OptionalLong.empty());
+  }
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.cedarbridge.examples.generic;
+
+import java.io.IOException;
+
+/**
+ * Data that must be read from a socket, and checked, before any application
+ * messages can be read. This is used when a client pipelines its version
+ * negotiation: the server's negotiation messages arrive on the socket ahead
+ * of the first application message.
+ */
+
+public interface CBExPreambleType
+{
+  /**
+   * @return The exact size of the preamble in octets
+   */
+
+  int size();
+
+  /**
+   * Check the preamble.
+   *
+   * @param data The preamble data
+   *
+   * @throws IOException If the preamble is unacceptable
+   */
+
+  void check(byte[] data)
+    throws IOException;
+}
@@ -22,15 +22,22 @@ import com.io7m.cedarbridge.runtime.api.CBProtocolType;
 import com.io7m.cedarbridge.runtime.container_protocol.CBContainerProtocolAvailable;
 import com.io7m.cedarbridge.runtime.container_protocol.CBContainerProtocolMessages;
 import com.io7m.cedarbridge.runtime.container_protocol.CBContainerProtocolResponse;
+import com.io7m.cedarbridge.runtime.container_protocol.CBFrameCompression;
 import com.io7m.jbssio.vanilla.BSSReaders;
 import com.io7m.jbssio.vanilla.BSSWriters;
 import org.slf4j.Logger;
 
 import java.io.Closeable;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.Socket;
 import java.net.SocketAddress;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
 import java.util.Objects;
+import java.util.Optional;
+
+import static com.io7m.cedarbridge.runtime.container_protocol.CBContainerProtocolCompression.DEFLATE;
 
 /**
  * A client on the server. The clients read and writes messages of type
@@ -115,16 +122,28 @@ public final class CBExServerClient<M, P extends CBProtocolMessageType>
         CBContainerProtocolMessages.serializeAvailableAsBytes(
           new CBContainerProtocolAvailable(
             1L,
-            1L,
+            2L,
             this.protocols.protocolId(),
             this.protocols.protocolVersions().first().longValueExact(),
-            this.protocols.protocolVersions().last().longValueExact()
+            this.protocols.protocolVersions().last().longValueExact(),
+            CBContainerProtocolAvailable.FLAG_PIPELINED_USE,
+            DEFLATE.flag()
           )
         )
       );
 
-      final var useBuffer =
+      final var usePrefix =
         input.readNBytes(CBContainerProtocolMessages.sizeUse());
+      final var useSize =
+        CBContainerProtocolMessages.sizeUse(
+          CBContainerProtocolMessages.parseUseContainerProtocolVersion(
+            usePrefix)
+        );
+      final var useBuffer =
+        ByteBuffer.allocate(useSize)
+          .put(usePrefix)
+          .put(input.readNBytes(useSize - usePrefix.length))
+          .flip();
       final var useMessage =
         CBContainerProtocolMessages.parseUse(useBuffer);
 
@@ -134,6 +153,20 @@ public final class CBExServerClient<M, P extends CBProtocolMessageType>
       final CBProtocolMessageVersionedSerializerType<P> protocol;
 
       try {
+        final var containerVersion = useMessage.containerProtocolVersion();
+        if (containerVersion != 1L && containerVersion != 2L) {
+          throw new IllegalArgumentException(
+            "Unsupported container protocol version."
+          );
+        }
+        if (!Objects.equals(
+          useMessage.applicationProtocolId(),
+          this.protocols.protocolId())) {
+          throw new IllegalArgumentException(
+            "Unsupported application protocol."
+          );
+        }
+
         protocol =
           this.protocols.serializerForProtocolVersion(versionUsed)
           .orElseThrow(() -> {
@@ -147,7 +180,7 @@ public final class CBExServerClient<M, P extends CBProtocolMessageType>
             new CBContainerProtocolResponse(false, e.getMessage())
           )
         );
-        this.socket.close();
+        this.closeAfterRejection(input);
         return;
       }
 
@@ -157,6 +190,12 @@ public final class CBExServerClient<M, P extends CBProtocolMessageType>
         useMessage.applicationProtocolId(),
         Long.valueOf(versionUsed)
       );
+      this.logger.debug(
+        "[{}] client compression {} threshold {}",
+        this.clientAddress,
+        useMessage.compression(),
+        Long.valueOf(useMessage.compressionThreshold())
+      );
 
       output.write(
         CBContainerProtocolMessages.serializeResponseAsBytes(
@@ -172,7 +211,9 @@ public final class CBExServerClient<M, P extends CBProtocolMessageType>
           new BSSWriters(),
           this.socket,
           this.translators.get(versionUsed),
-          protocol
+          protocol,
+          Optional.empty(),
+          CBFrameCompression.forUse(useMessage)
         );
 
       this.core.execute(exSocket);
@@ -180,4 +221,34 @@ public final class CBExServerClient<M, P extends CBProtocolMessageType>
       this.logger.info("[{}] client disconnect", this.clientAddress);
     }
   }
+
+  /**
+   * A client that pipelined its version negotiation may already have sent
+   * application messages. Closing a socket with unread input causes the
+   * connection to be reset, which can discard the rejection response before
+   * the client reads it, so a bounded amount of input is drained first.
+   */
+
+  private void closeAfterRejection(
+    final InputStream input)
+    throws IOException
+  {
+    try {
+      this.socket.shutdownOutput();
+      this.socket.setSoTimeout(1_000);
+      final var discard = new byte[1024];
+      var remaining = 65536;
+      while (remaining > 0) {
+        final var r = input.read(discard);
+        if (r == -1) {
+          break;
+        }
+        remaining -= r;
+      }
+    } catch (final SocketTimeoutException e) {
+      // The client did not close the connection; give up.
+    } finally {
+      this.socket.close();
+    }
+  }
 }
@@ -0,0 +1,110 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.cedarbridge.examples.generic;
+
+import com.io7m.cedarbridge.runtime.api.CBPreEncodedFrame;
+import com.io7m.cedarbridge.runtime.container_protocol.CBContainerProtocolCompression;
+
+import java.math.BigInteger;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A message that is sent to many sockets. The message is encoded at most
+ * once per protocol version, and the resulting frame is shared between all
+ * sockets that speak that version. Likewise, the frame is compressed at most
+ * once per protocol version and compression setting.
+ *
+ * @param <M> The application-level message types
+ */
+
+public final class CBExSharedMessage<M>
+{
+  private final M message;
+  private final ConcurrentHashMap<BigInteger, Optional<CBPreEncodedFrame>> frames;
+  private final ConcurrentHashMap<CompressionKey, Optional<byte[]>> compressed;
+
+  /**
+   * A message that is sent to many sockets.
+   *
+   * @param inMessage The message
+   */
+
+  public CBExSharedMessage(
+    final M inMessage)
+  {
+    this.message =
+      Objects.requireNonNull(inMessage, "message");
+    this.frames =
+      new ConcurrentHashMap<>(1);
+    this.compressed =
+      new ConcurrentHashMap<>(1);
+  }
+
+  /**
+   * @return The message
+   */
+
+  public M message()
+  {
+    return this.message;
+  }
+
+  Optional<CBPreEncodedFrame> frameFor(
+    final CBExSocket<M, ?> socket)
+  {
+    return this.frames.computeIfAbsent(
+      socket.protocolVersion(),
+      v -> socket.encode(this.message)
+    );
+  }
+
+  Optional<byte[]> compressedFor(
+    final CBExSocket<M, ?> socket,
+    final CBPreEncodedFrame frame)
+  {
+    if (!socket.compressionEnabled()) {
+      return Optional.empty();
+    }
+
+    final var compression = socket.compression();
+    return this.compressed.computeIfAbsent(
+      new CompressionKey(
+        socket.protocolVersion(),
+        compression.algorithm(),
+        compression.threshold()
+      ),
+      k -> socket.compress(frame)
+    );
+  }
+
+  private record CompressionKey(
+    BigInteger version,
+    CBContainerProtocolCompression algorithm,
+    long threshold)
+  {
+
+  }
+
+  @Override
+  public String toString()
+  {
+    return this.message.toString();
+  }
+}
@@ -16,13 +16,15 @@
 
 package com.io7m.cedarbridge.examples.generic;
 
+import com.io7m.cedarbridge.runtime.api.CBPreEncodedFrame;
 import com.io7m.cedarbridge.runtime.api.CBProtocolMessageType;
 import com.io7m.cedarbridge.runtime.api.CBProtocolMessageVersionedSerializerType;
-import com.io7m.cedarbridge.runtime.api.CBSerializationContextSize;
+import com.io7m.cedarbridge.runtime.api.CBStringCache;
+import com.io7m.cedarbridge.runtime.bssio.CBPreEncodedFrames;
 import com.io7m.cedarbridge.runtime.bssio.CBSerializationContextBSSIO;
+import com.io7m.cedarbridge.runtime.container_protocol.CBFrameCompression;
 import com.io7m.jbssio.api.BSSReaderProviderType;
 import com.io7m.jbssio.api.BSSWriterProviderType;
-import com.io7m.junreachable.UnreachableCodeException;
 
 import java.io.BufferedOutputStream;
 import java.io.ByteArrayOutputStream;
@@ -30,6 +32,8 @@ import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigInteger;
 import java.net.Socket;
 import java.net.SocketTimeoutException;
 import java.nio.ByteBuffer;
@@ -37,6 +41,9 @@ import java.nio.ByteOrder;
 import java.util.Objects;
 import java.util.Optional;
 
+import static com.io7m.cedarbridge.runtime.container_protocol.CBContainerProtocolCompression.NONE;
+import static com.io7m.cedarbridge.runtime.container_protocol.CBFrameCompression.DEFAULT_MAXIMUM_SIZE;
+
 /**
  * A socket abstraction that reads and writes messages of type {@code M},
  * converting them to messages of type {@code P} for transfer on the wire.
@@ -47,6 +54,16 @@ import java.util.Optional;
 
 public final class CBExSocket<M, P extends CBProtocolMessageType>
 {
+  private static final int COMPRESSED_BIT = 0x8000_0000;
+
+  /*
+   * User names and other short strings recur in almost every message, so
+   * a single cache is shared between all sockets.
+   */
+
+  private static final CBStringCache STRINGS =
+    CBStringCache.create(1024, 64);
+
   private final BSSReaderProviderType readers;
   private final BSSWriterProviderType writers;
   private final Socket socket;
@@ -56,6 +73,7 @@ public final class CBExSocket<M, P extends CBProtocolMessageType>
   private final CBProtocolMessageVersionedSerializerType<P> serializer;
   private final ByteBuffer writeSizeBuffer;
   private final byte[] writeSizeData;
+  private final CBFrameCompression compression;
   private volatile ReadStateType<M> readState;
 
   /**
@@ -78,6 +96,53 @@ public final class CBExSocket<M, P extends CBProtocolMessageType>
     final CBProtocolMessageVersionedSerializerType<P> inSerializer)
     throws IOException
   {
+    this(
+      inReaders,
+      inWriters,
+      inSocket,
+      inTranslator,
+      inSerializer,
+      Optional.empty(),
+      new CBFrameCompression(NONE, 0L, DEFAULT_MAXIMUM_SIZE)
+    );
+  }
+
+  /**
+   * Construct a socket. If a preamble is provided, it is read and checked
+   * before the first message is read. Messages may be written before the
+   * preamble has been read.
+   *
+   * <p>If a compression algorithm was negotiated, the high bit of each
+   * frame's size indicates that the frame payload is compressed. Frames are
+   * only compressed if they are at least as large as the negotiated
+   * threshold, and if compression actually makes them smaller.</p>
+   *
+   * @param inReaders     A provider of binary I/O readers
+   * @param inWriters     A provider of binary I/O writers
+   * @param inSocket      The underlying socket
+   * @param inTranslator  A message translater from {@code M} to {@code P}
+   * @param inSerializer  A message serializer from {@code P} to bytes
+   * @param inPreamble    The preamble, if any
+   * @param inCompression The negotiated frame compression
+   *
+   * @throws IOException On I/O errors
+   */
+
+  public CBExSocket(
+    final BSSReaderProviderType inReaders,
+    final BSSWriterProviderType inWriters,
+    final Socket inSocket,
+    final CBExMessageTranslatorType<M, P> inTranslator,
+    final CBProtocolMessageVersionedSerializerType<P> inSerializer,
+    final Optional<CBExPreambleType> inPreamble,
+    final CBFrameCompression inCompression)
+    throws IOException
+  {
+    Objects.requireNonNull(inPreamble, "preamble");
+
+    this.compression =
+      Objects.requireNonNull(inCompression, "compression");
+
     this.readers =
       Objects.requireNonNull(inReaders, "readers");
     this.writers =
@@ -99,8 +164,13 @@ public final class CBExSocket<M, P extends CBProtocolMessageType>
       this.socket.getInputStream();
     this.outputStream =
       this.socket.getOutputStream();
-    this.readState =
-      new ReadStateGettingSize<>(this);
+    if (inPreamble.isPresent()) {
+      this.readState =
+        new ReadStateGettingPreamble<>(this, inPreamble.get());
+    } else {
+      this.readState =
+        new ReadStateGettingSize<>(this);
+    }
   }
 
   /**
@@ -196,6 +266,39 @@ public final class CBExSocket<M, P extends CBProtocolMessageType>
     }
   }
 
+  /**
+   * @return The version of the protocol spoken on this socket
+   */
+
+  public BigInteger protocolVersion()
+  {
+    return this.serializer.version();
+  }
+
+  /**
+   * Encode a message for this socket's protocol version, without writing
+   * it. The resulting frame can be written to any socket speaking the same
+   * protocol version.
+   *
+   * @param message A message
+   *
+   * @return The encoded message, or nothing if the message has no wire
+   * representation in this protocol version
+   */
+
+  public Optional<CBPreEncodedFrame> encode(
+    final M message)
+  {
+    return this.translator.toWire(message).map(serialized -> {
+      try {
+        return CBPreEncodedFrames.encode(
+          this.writers, this.serializer, serialized);
+      } catch (final IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    });
+  }
+
   /**
    * Perform a blocking write of a message from the socket.
    *
@@ -208,37 +311,184 @@ public final class CBExSocket<M, P extends CBProtocolMessageType>
     final M message)
     throws IOException
   {
-    final var serializedOpt = this.translator.toWire(message);
-    if (serializedOpt.isPresent()) {
-      final var serialized = serializedOpt.get();
+    final Optional<CBPreEncodedFrame> frame;
+    try {
+      frame = this.encode(message);
+    } catch (final UncheckedIOException e) {
+      throw e.getCause();
+    }
+    if (frame.isPresent()) {
+      this.writeFrame(frame.get());
+    }
+  }
 
-      final var sizeContext = new CBSerializationContextSize();
-      try {
-        this.serializer.serialize(sizeContext, serialized);
-      } catch (final IOException e) {
-        throw new UnreachableCodeException(e);
+  /**
+   * Perform a blocking write of a message that is shared between many
+   * sockets. The message is only encoded if no other socket speaking the
+   * same protocol version has already encoded it, and is only compressed if
+   * no other socket speaking the same protocol version with the same
+   * compression settings has already compressed it.
+   *
+   * @param message A message
+   *
+   * @throws IOException On I/O errors
+   */
+
+  public void write(
+    final CBExSharedMessage<M> message)
+    throws IOException
+  {
+    final Optional<CBPreEncodedFrame> frame;
+    final Optional<byte[]> compressed;
+    try {
+      frame = message.frameFor(this);
+      if (frame.isEmpty()) {
+        return;
       }
+      compressed = message.compressedFor(this, frame.get());
+    } catch (final UncheckedIOException e) {
+      throw e.getCause();
+    }
 
-      this.writeSizeBuffer.putInt(0, (int) sizeContext.size());
+    if (compressed.isPresent()) {
+      this.writeCompressed(compressed.get());
+    } else {
+      this.writeUncompressed(frame.get());
+    }
+  }
 
-      final var buffered = new BufferedOutputStream(this.outputStream);
-      buffered.write(this.writeSizeData);
-      final var writeContext =
-        CBSerializationContextBSSIO.createFromOutputStream(
-          this.writers, buffered
-        );
+  /**
+   * Perform a blocking write of an already-encoded message.
+   *
+   * @param frame The encoded message
+   *
+   * @throws IOException On I/O errors
+   */
+
+  public void writeFrame(
+    final CBPreEncodedFrame frame)
+    throws IOException
+  {
+    Objects.requireNonNull(frame, "frame");
 
-      this.serializer.serialize(writeContext, serialized);
-      buffered.flush();
+    final var compressed = this.compress(frame);
+    if (compressed.isPresent()) {
+      this.writeCompressed(compressed.get());
+    } else {
+      this.writeUncompressed(frame);
     }
   }
 
+  /**
+   * Compress a frame according to this socket's negotiated compression.
+   *
+   * @param frame The encoded message
+   *
+   * @return The compressed payload, or nothing if the frame should be sent
+   * uncompressed
+   */
+
+  Optional<byte[]> compress(
+    final CBPreEncodedFrame frame)
+  {
+    if (!this.compressionEnabled()
+        || frame.size() < this.compression.threshold()) {
+      return Optional.empty();
+    }
+
+    final var source = frame.buffer();
+    final var data = new byte[source.remaining()];
+    source.get(data);
+    return this.compression.compress(data, 0, data.length);
+  }
+
+  private void writeCompressed(
+    final byte[] payload)
+    throws IOException
+  {
+    this.writeSizeBuffer.putInt(0, payload.length | COMPRESSED_BIT);
+
+    final var buffered = new BufferedOutputStream(this.outputStream);
+    buffered.write(this.writeSizeData);
+    buffered.write(payload);
+    buffered.flush();
+  }
+
+  private void writeUncompressed(
+    final CBPreEncodedFrame frame)
+    throws IOException
+  {
+    this.writeSizeBuffer.putInt(0, frame.size());
+
+    final var buffered = new BufferedOutputStream(this.outputStream);
+    buffered.write(this.writeSizeData);
+    frame.writeTo(buffered);
+    buffered.flush();
+  }
+
+  CBFrameCompression compression()
+  {
+    return this.compression;
+  }
+
+  boolean compressionEnabled()
+  {
+    return this.compression.algorithm() != NONE;
+  }
+
   private interface ReadStateType<M>
   {
     Optional<M> read()
       throws IOException;
   }
 
+  private static final class ReadStateGettingPreamble<M, P extends CBProtocolMessageType>
+    implements ReadStateType<M>
+  {
+    private final CBExSocket<M, P> socket;
+    private final CBExPreambleType preamble;
+    private final byte[] data;
+    private int position;
+
+    ReadStateGettingPreamble(
+      final CBExSocket<M, P> inSocket,
+      final CBExPreambleType inPreamble)
+    {
+      this.socket = inSocket;
+      this.preamble = inPreamble;
+      this.data = new byte[inPreamble.size()];
+      this.position = 0;
+    }
+
+    @Override
+    public Optional<M> read()
+      throws IOException
+    {
+      final int bytesRead;
+      try {
+        bytesRead = this.socket.inputStream.read(
+          this.data,
+          this.position,
+          this.data.length - this.position
+        );
+      } catch (final SocketTimeoutException e) {
+        return Optional.empty();
+      }
+
+      if (bytesRead == -1) {
+        throw new EOFException();
+      }
+
+      this.position += bytesRead;
+      if (this.position == this.data.length) {
+        this.preamble.check(this.data);
+        this.socket.readState = new ReadStateGettingSize<>(this.socket);
+        return this.socket.readState.read();
+      }
+      return Optional.empty();
+    }
+  }
+
   private static final class ReadStateGettingSize<M, P extends CBProtocolMessageType>
     implements ReadStateType<M>
   {
@@ -276,8 +526,14 @@ public final class CBExSocket<M, P extends CBProtocolMessageType>
             .order(ByteOrder.BIG_ENDIAN);
         final var size =
           sizeData.getInt();
+        final var compressed =
+          this.socket.compressionEnabled() && (size & COMPRESSED_BIT) != 0;
         this.socket.readState =
-          new ReadStateGettingData<>(this.socket, size);
+          new ReadStateGettingData<>(
+            this.socket,
+            size & ~(compressed ? COMPRESSED_BIT : 0),
+            compressed
+          );
         return this.socket.readState.read();
       }
 
@@ -293,15 +549,18 @@ public final class CBExSocket<M, P extends CBProtocolMessageType>
   {
     private final CBExSocket<M, P> socket;
     private final int expectedSize;
+    private final boolean compressed;
     private final ByteArrayOutputStream dataBuffer;
     private final byte[] dataChunk;
 
     ReadStateGettingData(
       final CBExSocket<M, P> inSocket,
-      final int inExpectedSize)
+      final int inExpectedSize,
+      final boolean inCompressed)
     {
       this.socket = inSocket;
       this.expectedSize = inExpectedSize;
+      this.compressed = inCompressed;
       this.dataBuffer = new ByteArrayOutputStream();
       this.dataChunk = new byte[1024];
     }
@@ -335,10 +594,16 @@ public final class CBExSocket<M, P extends CBProtocolMessageType>
     private Optional<M> deserialize()
       throws IOException
     {
+      var data = this.dataBuffer.toByteArray();
+      if (this.compressed) {
+        data = this.socket.compression.decompress(data, 0, data.length);
+      }
+
       final var context =
         CBSerializationContextBSSIO.createFromByteArray(
           this.socket.readers,
-          this.dataBuffer.toByteArray()
+          data,
+          STRINGS
         );
 
       final var serialized = this.socket.serializer.deserialize(context);
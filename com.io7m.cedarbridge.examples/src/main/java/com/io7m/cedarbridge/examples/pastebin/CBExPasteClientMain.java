@@ -17,10 +17,13 @@
 package com.io7m.cedarbridge.examples.pastebin;
 
 import com.io7m.cedarbridge.examples.generic.CBExClient;
+import com.io7m.cedarbridge.examples.generic.CBExClientConfiguration;
 import com.io7m.cedarbridge.examples.generic.CBExClientCoreType;
 import com.io7m.cedarbridge.examples.generic.CBExMessageTranslatorDirectory;
 
 import java.util.Objects;
+import java.util.Optional;
+import java.util.OptionalLong;
 
 /**
  * The main pastebin client entry point.
@@ -58,7 +61,11 @@ public final class CBExPasteClientMain
 
     translators.addTranslator(1L, new CBExPasteMessagesV1());
 
-    try (var client = new CBExClient<>(protocol, translators, core)) {
+    final var configuration =
+      new CBExClientConfiguration(Optional.empty(), OptionalLong.of(256L));
+
+    try (var client =
+           new CBExClient<>(protocol, translators, core, configuration)) {
       client.start();
       while (!client.isDone()) {
         try {
@@ -19,9 +19,12 @@ package com.io7m.cedarbridge.maven_plugin;
 import com.io7m.cedarbridge.codegen.api.CBCodeGeneratorConfiguration;
 import com.io7m.cedarbridge.codegen.api.CBCodeGeneratorException;
 import com.io7m.cedarbridge.codegen.api.CBCodeGenerators;
+import com.io7m.cedarbridge.schema.compiler.api.CBSchemaCompilation;
 import com.io7m.cedarbridge.schema.compiler.api.CBSchemaCompilerConfiguration;
 import com.io7m.cedarbridge.schema.compiler.api.CBSchemaCompilerException;
 import com.io7m.cedarbridge.schema.compiler.api.CBSchemaCompilerFactoryType;
+import com.io7m.cedarbridge.schema.compiler.api.CBSchemaCompilerInstrumentationType;
+import com.io7m.cedarbridge.schema.compiler.api.CBSchemaCompilerTimings;
 import com.io7m.cedarbridge.schema.compiler.internal.CBServices;
 import com.io7m.cedarbridge.schema.core_types.CBCore;
 import com.io7m.cedarbridge.schema.time.CBTime;
@@ -33,6 +36,9 @@ import org.apache.maven.plugins.annotations.Parameter;
 
 import java.nio.file.Path;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 import static org.apache.maven.plugins.annotations.LifecyclePhase.GENERATE_SOURCES;
@@ -75,6 +81,26 @@ public final class CBCompileMojo extends AbstractMojo
   )
   private String languageName;
 
+  @Parameter(
+    name = "cacheDirectory",
+    required = false
+  )
+  private String cacheDirectory;
+
+  @Parameter(
+    name = "timings",
+    required = false,
+    property = "cedarbridge.timings",
+    defaultValue = "false"
+  )
+  private boolean timings;
+
+  @Parameter(
+    name = "generatorOptions",
+    required = false
+  )
+  private Map<String, String> generatorOptions = Map.of();
+
   @Parameter(
     required = false,
     name = "skip",
@@ -124,10 +150,19 @@ public final class CBCompileMojo extends AbstractMojo
         .map(Path::toAbsolutePath)
         .collect(Collectors.toList());
 
+    final var timingsCollected =
+      new CBSchemaCompilerTimings();
+
     final var configuration =
       new CBSchemaCompilerConfiguration(
         includeDirectories,
-        compileFiles
+        compileFiles,
+        Optional.ofNullable(this.cacheDirectory)
+          .map(Path::of)
+          .map(Path::toAbsolutePath),
+        this.timings
+          ? timingsCollected
+          : CBSchemaCompilerInstrumentationType.NONE
       );
 
     try {
@@ -140,15 +175,26 @@ public final class CBCompileMojo extends AbstractMojo
         loader.register(CBTime.get());
       }
 
-      final var compilation =
-        compiler.execute();
+      final CBSchemaCompilation compilation;
+      try {
+        compilation = compiler.execute();
+      } finally {
+        if (this.timings) {
+          timingsCollected.formatTable()
+            .forEach(line -> this.getLog().info(line));
+        }
+      }
 
       final var codeGeneratorConfiguration =
-        new CBCodeGeneratorConfiguration(Path.of(this.outputDirectory));
+        new CBCodeGeneratorConfiguration(
+          Path.of(this.outputDirectory),
+          this.generatorOptions
+        );
 
       final var codeGenerator =
         codeGeneratorFactory.createGenerator(codeGeneratorConfiguration);
 
+      final var timeThen = System.nanoTime();
       for (final var packV : compilation.compiledPackages()) {
         final var result = codeGenerator.execute(packV);
         final var created = result.createdFiles();
@@ -160,6 +206,16 @@ public final class CBCompileMojo extends AbstractMojo
           "Must have created at least one file."
         );
       }
+      final var timeNow = System.nanoTime();
+
+      if (this.timings) {
+        this.getLog().info(
+          "code generation: %d package(s) in %d ms".formatted(
+            Integer.valueOf(compilation.compiledPackages().size()),
+            Long.valueOf(TimeUnit.NANOSECONDS.toMillis(timeNow - timeThen))
+          )
+        );
+      }
     } catch (final CBSchemaCompilerException | CBCodeGeneratorException e) {
       throw new MojoExecutionException(e);
     }
@@ -44,7 +44,7 @@ public sealed interface CBBooleanType
   static CBBooleanType fromBoolean(
     final boolean b)
   {
-    return b ? new CBTrue() : new CBFalse();
+    return b ? CBTrue.INSTANCE : CBFalse.INSTANCE;
   }
 
   /**
@@ -97,4 +97,46 @@ public sealed interface CBBooleanType
       default -> throw context.errorUnrecognizedVariantIndex(CBBooleanType.class, index);
     };
   }
+
+  /**
+   * Validate a serialized value without deserializing it.
+   *
+   * @param context The serialization context
+   *
+   * @throws IOException On errors
+   */
+
+  @CBValidatorMethod
+  static void validate(
+    final CBSerializationContextType context)
+    throws IOException
+  {
+    final var index = context.readVariantIndex();
+    switch (index) {
+      case CBTrue.VARIANT_INDEX -> CBTrue.validate(context);
+      case CBFalse.VARIANT_INDEX -> CBFalse.validate(context);
+      default -> throw context.errorUnrecognizedVariantIndex(CBBooleanType.class, index);
+    }
+  }
+
+  /**
+   * Skip over a serialized value without deserializing it.
+   *
+   * @param context The serialization context
+   *
+   * @throws IOException On errors
+   */
+
+  @CBSkipperMethod
+  static void skip(
+    final CBSerializationContextType context)
+    throws IOException
+  {
+    final var index = context.readVariantIndex();
+    switch (index) {
+      case CBTrue.VARIANT_INDEX -> CBTrue.skip(context);
+      case CBFalse.VARIANT_INDEX -> CBFalse.skip(context);
+      default -> throw context.errorUnrecognizedVariantIndex(CBBooleanType.class, index);
+    }
+  }
 }
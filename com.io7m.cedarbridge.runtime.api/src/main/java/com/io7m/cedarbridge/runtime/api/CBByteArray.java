@@ -76,4 +76,36 @@ public record CBByteArray(ByteBuffer value)
   {
     return new CBByteArray(context.readByteArray());
   }
+
+  /**
+   * Validate a serialized value without deserializing it.
+   *
+   * @param context The serialization context
+   *
+   * @throws IOException On errors
+   */
+
+  @CBValidatorMethod
+  public static void validate(
+    final CBSerializationContextType context)
+    throws IOException
+  {
+    context.validateByteArray();
+  }
+
+  /**
+   * Skip over a serialized value without deserializing it.
+   *
+   * @param context The serialization context
+   *
+   * @throws IOException On errors
+   */
+
+  @CBSkipperMethod
+  public static void skip(
+    final CBSerializationContextType context)
+    throws IOException
+  {
+    CBSkipping.lengthPrefixed(context);
+  }
 }
@@ -0,0 +1,61 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.cedarbridge.runtime.api;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Standard byte array allocators.
+ */
+
+public final class CBByteArrayAllocators
+{
+  private static final CBByteArrayAllocatorType HEAP =
+    ByteBuffer::allocate;
+
+  private static final CBByteArrayAllocatorType DIRECT =
+    ByteBuffer::allocateDirect;
+
+  private CBByteArrayAllocators()
+  {
+
+  }
+
+  /**
+   * @return An allocator that allocates byte arrays on the Java heap
+   */
+
+  public static CBByteArrayAllocatorType heap()
+  {
+    return HEAP;
+  }
+
+  /**
+   * An allocator that allocates each byte array in a separate direct
+   * (off-heap) buffer. Direct buffers are relatively expensive to allocate,
+   * and so applications that deserialize many byte arrays should prefer
+   * a {@link CBByteArrayArena}.
+   *
+   * @return An allocator that allocates byte arrays off-heap
+   */
+
+  public static CBByteArrayAllocatorType direct()
+  {
+    return DIRECT;
+  }
+}
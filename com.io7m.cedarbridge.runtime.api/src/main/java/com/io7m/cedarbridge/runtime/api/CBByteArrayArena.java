@@ -0,0 +1,161 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.cedarbridge.runtime.api;
+
+import java.nio.ByteBuffer;
+
+/**
+ * <p>An arena that allocates byte arrays off-heap by carving slices out of
+ * large direct buffers ("chunks"). Byte arrays larger than the chunk size
+ * are allocated in buffers of their own.</p>
+ *
+ * <p>A <i>confined</i> arena may only be used by the thread that created it;
+ * using it from any other thread raises {@link WrongThreadException}. A
+ * <i>shared</i> arena may be used by any number of threads.</p>
+ *
+ * <p>Closing an arena prevents any further allocations. Buffers that have
+ * already been allocated remain valid, and their memory is released when
+ * they become unreachable.</p>
+ */
+
+public final class CBByteArrayArena
+  implements CBByteArrayAllocatorType, AutoCloseable
+{
+  private final Thread owner;
+  private final int chunkSize;
+  private ByteBuffer chunk;
+  private boolean closed;
+
+  private CBByteArrayArena(
+    final Thread inOwner,
+    final int inChunkSize)
+  {
+    if (inChunkSize <= 0) {
+      throw new IllegalArgumentException(String.format(
+        "Chunk size %d must be positive",
+        Integer.valueOf(inChunkSize))
+      );
+    }
+
+    this.owner = inOwner;
+    this.chunkSize = inChunkSize;
+    this.chunk = ByteBuffer.allocateDirect(0);
+  }
+
+  /**
+   * Create an arena that may only be used by the current thread.
+   *
+   * @param chunkSize The size of the chunks allocated by the arena
+   *
+   * @return A confined arena
+   */
+
+  public static CBByteArrayArena createConfined(
+    final int chunkSize)
+  {
+    return new CBByteArrayArena(Thread.currentThread(), chunkSize);
+  }
+
+  /**
+   * Create an arena that may be used by any thread.
+   *
+   * @param chunkSize The size of the chunks allocated by the arena
+   *
+   * @return A shared arena
+   */
+
+  public static CBByteArrayArena createShared(
+    final int chunkSize)
+  {
+    return new CBByteArrayArena(null, chunkSize);
+  }
+
+  /**
+   * @return {@code true} if the arena may only be used by a single thread
+   */
+
+  public boolean isConfined()
+  {
+    return this.owner != null;
+  }
+
+  private void checkOwner()
+  {
+    if (this.owner != null && this.owner != Thread.currentThread()) {
+      throw new WrongThreadException(
+        "Arena is confined to thread '%s'".formatted(this.owner.getName())
+      );
+    }
+  }
+
+  @Override
+  public ByteBuffer allocate(
+    final int size)
+  {
+    this.checkOwner();
+
+    if (size < 0) {
+      throw new IllegalArgumentException(String.format(
+        "Size %d must be non-negative",
+        Integer.valueOf(size))
+      );
+    }
+
+    /*
+     * Confined arenas are only ever accessed by their owner, and so do
+     * not need to pay for locking.
+     */
+
+    if (this.owner != null) {
+      return this.allocateUnlocked(size);
+    }
+    synchronized (this) {
+      return this.allocateUnlocked(size);
+    }
+  }
+
+  private ByteBuffer allocateUnlocked(
+    final int size)
+  {
+    if (this.closed) {
+      throw new IllegalStateException("Arena is closed.");
+    }
+    if (size > this.chunkSize) {
+      return ByteBuffer.allocateDirect(size);
+    }
+    if (size > this.chunk.remaining()) {
+      this.chunk = ByteBuffer.allocateDirect(this.chunkSize);
+    }
+
+    final var position = this.chunk.position();
+    final var result = this.chunk.slice(position, size);
+    this.chunk.position(position + size);
+    return result;
+  }
+
+  @Override
+  public void close()
+  {
+    this.checkOwner();
+
+    synchronized (this) {
+      this.closed = true;
+      this.chunk = ByteBuffer.allocateDirect(0);
+    }
+  }
+}
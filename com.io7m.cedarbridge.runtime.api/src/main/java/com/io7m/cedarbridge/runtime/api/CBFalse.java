@@ -33,6 +33,12 @@ public record CBFalse()
 
   static final int VARIANT_INDEX = 0;
 
+  /**
+   * The value returned by {@link #deserialize(CBSerializationContextType)}.
+   */
+
+  public static final CBFalse INSTANCE = new CBFalse();
+
   /**
    * Serialize the given value.
    *
@@ -82,6 +88,38 @@ public record CBFalse()
     final CBSerializationContextType context)
     throws IOException
   {
-    return new CBFalse();
+    return INSTANCE;
+  }
+
+  /**
+   * Validate a serialized value without deserializing it.
+   *
+   * @param context The serialization context
+   *
+   * @throws IOException On errors
+   */
+
+  @CBValidatorMethod
+  public static void validate(
+    final CBSerializationContextType context)
+    throws IOException
+  {
+
+  }
+
+  /**
+   * Skip over a serialized value without deserializing it.
+   *
+   * @param context The serialization context
+   *
+   * @throws IOException On errors
+   */
+
+  @CBSkipperMethod
+  public static void skip(
+    final CBSerializationContextType context)
+    throws IOException
+  {
+
   }
 }
@@ -80,4 +80,36 @@ public record CBFloat16(double value)
   {
     return new CBFloat16(context.readF16());
   }
+
+  /**
+   * Validate a serialized value without deserializing it.
+   *
+   * @param context The serialization context
+   *
+   * @throws IOException On errors
+   */
+
+  @CBValidatorMethod
+  public static void validate(
+    final CBSerializationContextType context)
+    throws IOException
+  {
+    context.readF16();
+  }
+
+  /**
+   * Skip over a serialized value without deserializing it.
+   *
+   * @param context The serialization context
+   *
+   * @throws IOException On errors
+   */
+
+  @CBSkipperMethod
+  public static void skip(
+    final CBSerializationContextType context)
+    throws IOException
+  {
+    CBSkipping.fixed(context, 2L);
+  }
 }
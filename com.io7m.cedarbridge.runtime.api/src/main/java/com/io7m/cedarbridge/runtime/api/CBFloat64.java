@@ -80,4 +80,36 @@ public record CBFloat64(double value)
   {
     return new CBFloat64(context.readF64());
   }
+
+  /**
+   * Validate a serialized value without deserializing it.
+   *
+   * @param context The serialization context
+   *
+   * @throws IOException On errors
+   */
+
+  @CBValidatorMethod
+  public static void validate(
+    final CBSerializationContextType context)
+    throws IOException
+  {
+    context.readF64();
+  }
+
+  /**
+   * Skip over a serialized value without deserializing it.
+   *
+   * @param context The serialization context
+   *
+   * @throws IOException On errors
+   */
+
+  @CBSkipperMethod
+  public static void skip(
+    final CBSerializationContextType context)
+    throws IOException
+  {
+    CBSkipping.fixed(context, 8L);
+  }
 }
@@ -142,4 +142,134 @@ public record CBList<T extends CBSerializableType>(List<T> values)
       context.end("items");
     }
   }
+
+  /**
+   * Validate a serialized list value without deserializing it.
+   *
+   * @param context The serialization context
+   * @param ft      A validator for {@code T}
+   * @param <T>     The type of list values
+   *
+   * @throws IOException On errors
+   */
+
+  @CBValidatorMethod
+  public static <T extends CBSerializableType> void validate(
+    final CBSerializationContextType context,
+    final CBValidateType<T> ft)
+    throws IOException
+  {
+    context.begin("items");
+
+    try {
+      final var count = context.readSequenceLength();
+      for (int index = 0; index < count; ++index) {
+        context.begin("item", index);
+        try {
+          ft.execute(context);
+        } finally {
+          context.end("item", index);
+        }
+      }
+    } finally {
+      context.end("items");
+    }
+  }
+
+  /**
+   * Skip over a serialized list value without deserializing it. If
+   * {@code ft} reports a fixed size, the elements are skipped in a single
+   * jump.
+   *
+   * @param context The serialization context
+   * @param ft      A skip function for {@code T}
+   * @param <T>     The type of list values
+   *
+   * @throws IOException On errors
+   */
+
+  @CBSkipperMethod
+  public static <T extends CBSerializableType> void skip(
+    final CBSerializationContextType context,
+    final CBSkipType<T> ft)
+    throws IOException
+  {
+    final var count = context.readSequenceLength();
+    if (count <= 0) {
+      return;
+    }
+    skipElements(context, count, ft);
+  }
+
+  /**
+   * Deserialize the element at {@code index} from a serialized list value,
+   * skipping all other elements. If {@code fs} reports a fixed size, the
+   * elements before and after the chosen element are each skipped in a
+   * single jump, making access to any element a constant-time operation.
+   *
+   * @param context The serialization context
+   * @param index   The index of the element
+   * @param fs      A skip function for {@code T}
+   * @param ft      A deserializer for {@code T}
+   * @param <T>     The type of list values
+   *
+   * @return The element at {@code index}
+   *
+   * @throws IOException On errors, or if {@code index} is out of range
+   */
+
+  public static <T extends CBSerializableType> T deserializeElement(
+    final CBSerializationContextType context,
+    final int index,
+    final CBSkipType<T> fs,
+    final CBDeserializeType<T> ft)
+    throws IOException
+  {
+    context.begin("items");
+
+    try {
+      final var count = context.readSequenceLength();
+      if (index < 0 || index >= count) {
+        throw context.errorInvalidValue(
+          CBList.class,
+          String.format(
+            "Index %d is out of range for a list of size %d",
+            Integer.valueOf(index),
+            Integer.valueOf(count))
+        );
+      }
+
+      skipElements(context, index, fs);
+
+      final T item;
+      context.begin("item", index);
+      try {
+        item = ft.execute(context);
+      } finally {
+        context.end("item", index);
+      }
+
+      skipElements(context, count - (index + 1), fs);
+      return item;
+    } finally {
+      context.end("items");
+    }
+  }
+
+  private static <T extends CBSerializableType> void skipElements(
+    final CBSerializationContextType context,
+    final int count,
+    final CBSkipType<T> fs)
+    throws IOException
+  {
+    final var size = fs.fixedSize();
+    if (size.isPresent()) {
+      CBSkipping.fixedRun(context, count, size.getAsLong());
+      return;
+    }
+
+    for (int index = 0; index < count; ++index) {
+      fs.execute(context);
+    }
+  }
 }
@@ -136,4 +136,76 @@ public record CBMap<K extends CBSerializableType, V extends CBSerializableType>(
       context.end("entries");
     }
   }
+
+  /**
+   * Validate a serialized map value without deserializing it.
+   *
+   * @param context The serialization context
+   * @param fk      A validator for {@code K}
+   * @param fv      A validator for {@code V}
+   * @param <K>     The type of keys
+   * @param <V>     The type of values
+   *
+   * @throws IOException On errors
+   */
+
+  @CBValidatorMethod
+  public static <K extends CBSerializableType, V extends CBSerializableType> void validate(
+    final CBSerializationContextType context,
+    final CBValidateType<K> fk,
+    final CBValidateType<V> fv)
+    throws IOException
+  {
+    context.begin("entries");
+    try {
+      final var count = context.readSequenceLength();
+      for (int index = 0; index < count; ++index) {
+        fk.execute(context);
+        fv.execute(context);
+      }
+    } finally {
+      context.end("entries");
+    }
+  }
+
+  /**
+   * Skip over a serialized map value without deserializing it. If both
+   * {@code fk} and {@code fv} report a fixed size, the entries are skipped
+   * in a single jump.
+   *
+   * @param context The serialization context
+   * @param fk      A skip function for {@code K}
+   * @param fv      A skip function for {@code V}
+   * @param <K>     The type of keys
+   * @param <V>     The type of values
+   *
+   * @throws IOException On errors
+   */
+
+  @CBSkipperMethod
+  public static <K extends CBSerializableType, V extends CBSerializableType> void skip(
+    final CBSerializationContextType context,
+    final CBSkipType<K> fk,
+    final CBSkipType<V> fv)
+    throws IOException
+  {
+    final var count = context.readSequenceLength();
+    if (count <= 0) {
+      return;
+    }
+
+    final var sizeK = fk.fixedSize();
+    final var sizeV = fv.fixedSize();
+    if (sizeK.isPresent() && sizeV.isPresent()) {
+      final var entrySize =
+        Math.addExact(sizeK.getAsLong(), sizeV.getAsLong());
+      CBSkipping.fixedRun(context, count, entrySize);
+      return;
+    }
+
+    for (int index = 0; index < count; ++index) {
+      fk.execute(context);
+      fv.execute(context);
+    }
+  }
 }
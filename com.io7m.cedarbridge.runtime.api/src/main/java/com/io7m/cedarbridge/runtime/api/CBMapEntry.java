@@ -121,4 +121,60 @@ public record CBMapEntry<K extends CBSerializableType, V extends CBSerializableT
     }
     return new CBMapEntry<>(k, v);
   }
+
+  /**
+   * Validate a serialized map entry without deserializing it.
+   *
+   * @param context The serialization context
+   * @param fk      A validator for {@code K}
+   * @param fv      A validator for {@code V}
+   * @param <K>     The type of keys
+   * @param <V>     The type of values
+   *
+   * @throws IOException On errors
+   */
+
+  @CBValidatorMethod
+  public static <K extends CBSerializableType, V extends CBSerializableType> void validate(
+    final CBSerializationContextType context,
+    final CBValidateType<K> fk,
+    final CBValidateType<V> fv)
+    throws IOException
+  {
+    context.begin("key");
+    try {
+      fk.execute(context);
+    } finally {
+      context.end("key");
+    }
+    context.begin("value");
+    try {
+      fv.execute(context);
+    } finally {
+      context.end("value");
+    }
+  }
+
+  /**
+   * Skip over a serialized map entry without deserializing it.
+   *
+   * @param context The serialization context
+   * @param fk      A skip function for {@code K}
+   * @param fv      A skip function for {@code V}
+   * @param <K>     The type of keys
+   * @param <V>     The type of values
+   *
+   * @throws IOException On errors
+   */
+
+  @CBSkipperMethod
+  public static <K extends CBSerializableType, V extends CBSerializableType> void skip(
+    final CBSerializationContextType context,
+    final CBSkipType<K> fk,
+    final CBSkipType<V> fv)
+    throws IOException
+  {
+    fk.execute(context);
+    fv.execute(context);
+  }
 }
@@ -36,6 +36,23 @@ public record CBNone<T extends CBSerializableType>()
 
   static final int VARIANT_INDEX = 0;
 
+  private static final CBNone<?> INSTANCE = new CBNone<>();
+
+  /**
+   * Obtain the shared None value. As the case has no fields, every value
+   * of it is equal, and so deserializing it allocates nothing.
+   *
+   * @param <T> The type of values
+   *
+   * @return The None value
+   */
+
+  @SuppressWarnings("unchecked")
+  public static <T extends CBSerializableType> CBNone<T> none()
+  {
+    return (CBNone<T>) INSTANCE;
+  }
+
   @Override
   public void formatTo(
     final Formatter formatter,
@@ -89,6 +106,44 @@ public record CBNone<T extends CBSerializableType>()
     final CBDeserializeType<T> ft)
     throws IOException
   {
-    return new CBNone<>();
+    return none();
+  }
+
+  /**
+   * Validate a serialized value without deserializing it.
+   *
+   * @param context The serialization context
+   * @param ft      A validator for {@code T}
+   * @param <T>     The type of optional values
+   *
+   * @throws IOException On errors
+   */
+
+  @CBValidatorMethod
+  public static <T extends CBSerializableType> void validate(
+    final CBSerializationContextType context,
+    final CBValidateType<T> ft)
+    throws IOException
+  {
+
+  }
+
+  /**
+   * Skip over a serialized value without deserializing it.
+   *
+   * @param context The serialization context
+   * @param ft      A skip function for {@code T}
+   * @param <T>     The type of optional values
+   *
+   * @throws IOException On errors
+   */
+
+  @CBSkipperMethod
+  public static <T extends CBSerializableType> void skip(
+    final CBSerializationContextType context,
+    final CBSkipType<T> ft)
+    throws IOException
+  {
+
   }
 }
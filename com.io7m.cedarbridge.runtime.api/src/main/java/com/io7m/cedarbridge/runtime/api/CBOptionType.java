@@ -48,7 +48,7 @@ public sealed interface CBOptionType<T extends CBSerializableType>
   static <T extends CBSerializableType> CBOptionType<T> fromOptional(
     final Optional<T> opt)
   {
-    return opt.isPresent() ? new CBSome<>(opt.get()) : new CBNone<>();
+    return opt.isPresent() ? new CBSome<>(opt.get()) : CBNone.none();
   }
 
   /**
@@ -104,4 +104,52 @@ public sealed interface CBOptionType<T extends CBSerializableType>
       default -> throw context.errorUnrecognizedVariantIndex(CBOptionType.class, index);
     };
   }
+
+  /**
+   * Validate a serialized value without deserializing it.
+   *
+   * @param context The serialization context
+   * @param <T>     The type of optional values
+   * @param fv      A validator for {@code T}
+   *
+   * @throws IOException On errors
+   */
+
+  @CBValidatorMethod
+  static <T extends CBSerializableType> void validate(
+    final CBSerializationContextType context,
+    final CBValidateType<T> fv)
+    throws IOException
+  {
+    final var index = context.readVariantIndex();
+    switch (index) {
+      case CBSome.VARIANT_INDEX -> CBSome.validate(context, fv);
+      case CBNone.VARIANT_INDEX -> CBNone.validate(context, fv);
+      default -> throw context.errorUnrecognizedVariantIndex(CBOptionType.class, index);
+    }
+  }
+
+  /**
+   * Skip over a serialized value without deserializing it.
+   *
+   * @param context The serialization context
+   * @param <T>     The type of optional values
+   * @param fv      A skip function for {@code T}
+   *
+   * @throws IOException On errors
+   */
+
+  @CBSkipperMethod
+  static <T extends CBSerializableType> void skip(
+    final CBSerializationContextType context,
+    final CBSkipType<T> fv)
+    throws IOException
+  {
+    final var index = context.readVariantIndex();
+    switch (index) {
+      case CBSome.VARIANT_INDEX -> CBSome.skip(context, fv);
+      case CBNone.VARIANT_INDEX -> CBNone.skip(context, fv);
+      default -> throw context.errorUnrecognizedVariantIndex(CBOptionType.class, index);
+    }
+  }
 }
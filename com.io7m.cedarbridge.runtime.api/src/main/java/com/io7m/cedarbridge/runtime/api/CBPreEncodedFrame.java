@@ -0,0 +1,115 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.cedarbridge.runtime.api;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Objects;
+
+/**
+ * <p>An immutable, already-serialized message.</p>
+ *
+ * <p>A frame is produced once (typically by serializing a protocol message)
+ * and can then be written to any number of connections without being
+ * serialized again. The encoded bytes are shared; {@link #buffer()} returns
+ * a new read-only view with its own position and limit on each call, so
+ * views may be handed to NIO channels concurrently.</p>
+ */
+
+public final class CBPreEncodedFrame
+{
+  private final byte[] data;
+  private final ByteBuffer view;
+
+  private CBPreEncodedFrame(
+    final byte[] inData)
+  {
+    this.data = Objects.requireNonNull(inData, "data");
+    this.view = ByteBuffer.wrap(this.data).asReadOnlyBuffer();
+  }
+
+  /**
+   * Create a frame from a copy of the given bytes.
+   *
+   * @param data The encoded message
+   *
+   * @return A frame
+   */
+
+  public static CBPreEncodedFrame copyOf(
+    final byte[] data)
+  {
+    return new CBPreEncodedFrame(data.clone());
+  }
+
+  /**
+   * Create a frame that takes ownership of the given bytes. The array must
+   * not be modified after this method is called.
+   *
+   * @param data The encoded message
+   *
+   * @return A frame
+   */
+
+  public static CBPreEncodedFrame ofOwned(
+    final byte[] data)
+  {
+    return new CBPreEncodedFrame(data);
+  }
+
+  /**
+   * @return The size of the encoded message in octets
+   */
+
+  public int size()
+  {
+    return this.data.length;
+  }
+
+  /**
+   * @return A new read-only view of the encoded message, positioned at the
+   * start of the message
+   */
+
+  public ByteBuffer buffer()
+  {
+    return this.view.duplicate();
+  }
+
+  /**
+   * Write the encoded message to the given stream.
+   *
+   * @param output The output stream
+   *
+   * @throws IOException On I/O errors
+   */
+
+  public void writeTo(
+    final OutputStream output)
+    throws IOException
+  {
+    output.write(this.data);
+  }
+
+  @Override
+  public String toString()
+  {
+    return String.format("[CBPreEncodedFrame %d]", this.data.length);
+  }
+}
@@ -0,0 +1,627 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.cedarbridge.runtime.api;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Objects;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * <p>A serialization context that reads and writes values directly from and
+ * to a {@link ByteBuffer}.</p>
+ *
+ * <p>The context operates on a big-endian duplicate of the given buffer, and
+ * so the position, limit, and byte order of the original buffer are not
+ * affected. The position of the context within the buffer can be read and
+ * set explicitly, allowing for random access to encoded values.</p>
+ *
+ * <p>Deserialized byte arrays are allocated using a
+ * {@link CBByteArrayAllocatorType}. Both the buffer and the byte arrays may
+ * be direct (off-heap) buffers.</p>
+ *
+ * <p>If the context is given a {@link CBStringCache}, deserialized strings
+ * are looked up in the cache directly from the encoded bytes in the buffer,
+ * and repeated strings are returned without allocation.</p>
+ */
+
+public final class CBSerializationContextByteBuffer
+  implements CBSerializationContextType
+{
+  private final ByteBuffer buffer;
+  private final CBByteArrayAllocatorType allocator;
+  private final CBStringCache strings;
+  private final ArrayList<String> nameStack;
+  private boolean exhausted;
+
+  private CBSerializationContextByteBuffer(
+    final ByteBuffer inBuffer,
+    final CBByteArrayAllocatorType inAllocator,
+    final CBStringCache inStrings)
+  {
+    this.buffer =
+      Objects.requireNonNull(inBuffer, "buffer")
+        .duplicate()
+        .order(ByteOrder.BIG_ENDIAN);
+    this.allocator =
+      Objects.requireNonNull(inAllocator, "allocator");
+    this.strings =
+      inStrings;
+    this.nameStack =
+      new ArrayList<>(32);
+  }
+
+  /**
+   * Create a context based on the given buffer. The context begins at the
+   * current position of the buffer. Byte arrays are allocated on the heap.
+   *
+   * @param buffer The buffer
+   *
+   * @return A context
+   */
+
+  public static CBSerializationContextByteBuffer create(
+    final ByteBuffer buffer)
+  {
+    return create(buffer, CBByteArrayAllocators.heap());
+  }
+
+  /**
+   * Create a context based on the given buffer. The context begins at the
+   * current position of the buffer.
+   *
+   * @param buffer    The buffer
+   * @param allocator The allocator used for deserialized byte arrays
+   *
+   * @return A context
+   */
+
+  public static CBSerializationContextByteBuffer create(
+    final ByteBuffer buffer,
+    final CBByteArrayAllocatorType allocator)
+  {
+    return new CBSerializationContextByteBuffer(buffer, allocator, null);
+  }
+
+  /**
+   * Create a context based on the given buffer. The context begins at the
+   * current position of the buffer.
+   *
+   * @param buffer    The buffer
+   * @param allocator The allocator used for deserialized byte arrays
+   * @param strings   The cache used for deserialized strings
+   *
+   * @return A context
+   */
+
+  public static CBSerializationContextByteBuffer create(
+    final ByteBuffer buffer,
+    final CBByteArrayAllocatorType allocator,
+    final CBStringCache strings)
+  {
+    return new CBSerializationContextByteBuffer(
+      buffer,
+      allocator,
+      Objects.requireNonNull(strings, "strings")
+    );
+  }
+
+  /**
+   * @return The current position of the context within the buffer
+   */
+
+  public int position()
+  {
+    return this.buffer.position();
+  }
+
+  /**
+   * Set the current position of the context within the buffer.
+   *
+   * @param position The new position
+   *
+   * @throws IllegalArgumentException If the position is outside of the buffer
+   */
+
+  public void setPosition(
+    final int position)
+  {
+    if (position < 0 || position > this.buffer.limit()) {
+      throw new IllegalArgumentException(String.format(
+        "Position %d must be in the range [0, %d]",
+        Integer.valueOf(position),
+        Integer.valueOf(this.buffer.limit()))
+      );
+    }
+    this.buffer.position(position);
+  }
+
+  /**
+   * @return The number of bytes remaining in the buffer
+   */
+
+  public int remaining()
+  {
+    return this.buffer.remaining();
+  }
+
+  /**
+   * @return {@code true} if an operation has failed because too few bytes
+   * remained in the buffer
+   */
+
+  public boolean isExhausted()
+  {
+    return this.exhausted;
+  }
+
+  private String accessPath()
+  {
+    return String.join(".", this.nameStack);
+  }
+
+  private CBSerializationException errorShort(
+    final long wanted)
+  {
+    this.exhausted = true;
+
+    final var offset = Integer.toUnsignedLong(this.buffer.position());
+    return new CBSerializationException(
+      "@0x%s: Buffer too short (wanted %s bytes, %d remaining)"
+        .formatted(
+          Long.toUnsignedString(offset, 16),
+          Long.toUnsignedString(wanted),
+          Integer.valueOf(this.buffer.remaining())),
+      offset,
+      this.accessPath()
+    );
+  }
+
+  private void check(
+    final long size)
+    throws CBSerializationException
+  {
+    if (Long.compareUnsigned(size, this.buffer.remaining()) > 0) {
+      throw this.errorShort(size);
+    }
+  }
+
+  @Override
+  public int readSequenceLength()
+    throws IOException
+  {
+    this.check(4L);
+    return this.buffer.getInt();
+  }
+
+  @Override
+  public int readVariantIndex()
+    throws IOException
+  {
+    this.check(4L);
+    return this.buffer.getInt();
+  }
+
+  @Override
+  public long readS64()
+    throws IOException
+  {
+    this.check(8L);
+    return this.buffer.getLong();
+  }
+
+  @Override
+  public int readS32()
+    throws IOException
+  {
+    this.check(4L);
+    return this.buffer.getInt();
+  }
+
+  @Override
+  public int readS16()
+    throws IOException
+  {
+    this.check(2L);
+    return this.buffer.getShort();
+  }
+
+  @Override
+  public int readS8()
+    throws IOException
+  {
+    this.check(1L);
+    return this.buffer.get();
+  }
+
+  @Override
+  public long readU64()
+    throws IOException
+  {
+    this.check(8L);
+    return this.buffer.getLong();
+  }
+
+  @Override
+  public long readU32()
+    throws IOException
+  {
+    this.check(4L);
+    return Integer.toUnsignedLong(this.buffer.getInt());
+  }
+
+  @Override
+  public int readU16()
+    throws IOException
+  {
+    this.check(2L);
+    return Short.toUnsignedInt(this.buffer.getShort());
+  }
+
+  @Override
+  public int readU8()
+    throws IOException
+  {
+    this.check(1L);
+    return Byte.toUnsignedInt(this.buffer.get());
+  }
+
+  @Override
+  public double readF64()
+    throws IOException
+  {
+    this.check(8L);
+    return this.buffer.getDouble();
+  }
+
+  @Override
+  public double readF32()
+    throws IOException
+  {
+    this.check(4L);
+    return this.buffer.getFloat();
+  }
+
+  @Override
+  public double readF16()
+    throws IOException
+  {
+    this.check(2L);
+    return Float.float16ToFloat(this.buffer.getShort());
+  }
+
+  @Override
+  public ByteBuffer readByteArray()
+    throws IOException
+  {
+    final var length = this.readU32();
+    this.check(length);
+
+    final var position = this.buffer.position();
+    final var size = (int) length;
+    final var result = this.allocator.allocate(size);
+    result.put(0, this.buffer, position, size);
+    this.buffer.position(position + size);
+    return result;
+  }
+
+  @Override
+  public String readUTF8()
+    throws IOException
+  {
+    final var length = this.readU32();
+    this.check(length);
+    this.checkUTF8(this.buffer.position(), (int) length);
+    final var bytes = new byte[(int) length];
+    this.buffer.get(bytes);
+    return new String(bytes, UTF_8);
+  }
+
+  private void checkUTF8(
+    final int position,
+    final int size)
+    throws CBSerializationException
+  {
+    final var malformed = CBUTF8.findMalformed(this.buffer, position, size);
+    if (malformed != -1) {
+      final var offset = Integer.toUnsignedLong(position + malformed);
+      throw new CBSerializationException(
+        "@0x%s: Malformed UTF-8 sequence"
+          .formatted(Long.toUnsignedString(offset, 16)),
+        offset,
+        this.accessPath()
+      );
+    }
+  }
+
+  @Override
+  public CBString readString()
+    throws IOException
+  {
+    if (this.strings == null) {
+      return new CBString(this.readUTF8());
+    }
+
+    final var length = this.readU32();
+    this.check(length);
+
+    final var position = this.buffer.position();
+    final var size = (int) length;
+    this.checkUTF8(position, size);
+    final var result = this.strings.get(this.buffer, position, size);
+    this.buffer.position(position + size);
+    return result;
+  }
+
+  @Override
+  public void validateByteArray()
+    throws IOException
+  {
+    this.skipBytes(this.readU32());
+  }
+
+  @Override
+  public void validateUTF8()
+    throws IOException
+  {
+    final var length = this.readU32();
+    this.check(length);
+
+    final var start = this.buffer.position();
+    this.checkUTF8(start, (int) length);
+    this.buffer.position(start + (int) length);
+  }
+
+  @Override
+  public void skipBytes(
+    final long size)
+    throws IOException
+  {
+    this.check(size);
+    this.buffer.position(this.buffer.position() + (int) size);
+  }
+
+  @Override
+  public void flush()
+  {
+
+  }
+
+  @Override
+  public void writeSequenceLength(
+    final int size)
+    throws IOException
+  {
+    this.check(4L);
+    this.buffer.putInt(size);
+  }
+
+  @Override
+  public void writeVariantIndex(
+    final int x)
+    throws IOException
+  {
+    this.check(4L);
+    this.buffer.putInt(x);
+  }
+
+  @Override
+  public void writeS64(
+    final long x)
+    throws IOException
+  {
+    this.check(8L);
+    this.buffer.putLong(x);
+  }
+
+  @Override
+  public void writeS32(
+    final long x)
+    throws IOException
+  {
+    this.check(4L);
+    this.buffer.putInt((int) x);
+  }
+
+  @Override
+  public void writeS16(
+    final long x)
+    throws IOException
+  {
+    this.check(2L);
+    this.buffer.putShort((short) x);
+  }
+
+  @Override
+  public void writeS8(
+    final long x)
+    throws IOException
+  {
+    this.check(1L);
+    this.buffer.put((byte) x);
+  }
+
+  @Override
+  public void writeU64(
+    final long x)
+    throws IOException
+  {
+    this.check(8L);
+    this.buffer.putLong(x);
+  }
+
+  @Override
+  public void writeU32(
+    final long x)
+    throws IOException
+  {
+    this.check(4L);
+    this.buffer.putInt((int) x);
+  }
+
+  @Override
+  public void writeU16(
+    final long x)
+    throws IOException
+  {
+    this.check(2L);
+    this.buffer.putShort((short) x);
+  }
+
+  @Override
+  public void writeU8(
+    final long x)
+    throws IOException
+  {
+    this.check(1L);
+    this.buffer.put((byte) x);
+  }
+
+  @Override
+  public void writeF64(
+    final double x)
+    throws IOException
+  {
+    this.check(8L);
+    this.buffer.putDouble(x);
+  }
+
+  @Override
+  public void writeF32(
+    final double x)
+    throws IOException
+  {
+    this.check(4L);
+    this.buffer.putFloat((float) x);
+  }
+
+  @Override
+  public void writeF16(
+    final double x)
+    throws IOException
+  {
+    this.check(2L);
+    this.buffer.putShort(Float.floatToFloat16((float) x));
+  }
+
+  @Override
+  public void writeByteArray(
+    final ByteBuffer x)
+    throws IOException
+  {
+    final var size = x.remaining();
+    this.check(4L + Integer.toUnsignedLong(size));
+    this.buffer.putInt(size);
+    this.buffer.put(x.duplicate());
+  }
+
+  @Override
+  public void writeUTF8(
+    final String x)
+    throws IOException
+  {
+    final var bytes = x.getBytes(UTF_8);
+    this.check(4L + Integer.toUnsignedLong(bytes.length));
+    this.buffer.putInt(bytes.length);
+    this.buffer.put(bytes);
+  }
+
+  @Override
+  public void begin(
+    final String item)
+  {
+    this.nameStack.add(item);
+  }
+
+  @Override
+  public void begin(
+    final String item,
+    final int index)
+  {
+    this.nameStack.add(item);
+  }
+
+  @Override
+  public void end(
+    final String item)
+  {
+    this.nameStack.remove(this.nameStack.size() - 1);
+  }
+
+  @Override
+  public void end(
+    final String item,
+    final int index)
+  {
+    this.nameStack.remove(this.nameStack.size() - 1);
+  }
+
+  @Override
+  public IOException errorUnrecognizedVariantIndex(
+    final Class<?> readerClass,
+    final int index)
+  {
+    final var offset = Integer.toUnsignedLong(this.buffer.position());
+    return new CBSerializationException(
+      "@0x%s: %s: Unrecognized variant index: %d"
+        .formatted(
+          Long.toUnsignedString(offset, 16),
+          readerClass.getSimpleName(),
+          Integer.valueOf(index)),
+      offset,
+      this.accessPath()
+    );
+  }
+
+  @Override
+  public IOException errorUnrecognizedVariantCaseClass(
+    final Class<?> writerClass,
+    final Class<?> clazz)
+  {
+    final var offset = Integer.toUnsignedLong(this.buffer.position());
+    return new CBSerializationException(
+      "@0x%s: %s: Unrecognized variant case class: %s"
+        .formatted(
+          Long.toUnsignedString(offset, 16),
+          writerClass.getSimpleName(),
+          clazz),
+      offset,
+      this.accessPath()
+    );
+  }
+
+  @Override
+  public IOException errorInvalidValue(
+    final Class<?> readerClass,
+    final String message)
+  {
+    final var offset = Integer.toUnsignedLong(this.buffer.position());
+    return new CBSerializationException(
+      "@0x%s: %s: %s"
+        .formatted(
+          Long.toUnsignedString(offset, 16),
+          readerClass.getSimpleName(),
+          message),
+      offset,
+      this.accessPath()
+    );
+  }
+}
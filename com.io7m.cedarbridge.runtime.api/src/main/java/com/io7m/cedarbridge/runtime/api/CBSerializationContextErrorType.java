@@ -49,4 +49,17 @@ public interface CBSerializationContextErrorType
   IOException errorUnrecognizedVariantCaseClass(
     Class<?> writer,
     Class<?> clazz);
+
+  /**
+   * A value was read that is not valid for its type.
+   *
+   * @param reader  The class attempting the read
+   * @param message A description of the problem
+   *
+   * @return An exception detailing the errors
+   */
+
+  IOException errorInvalidValue(
+    Class<?> reader,
+    String message);
 }
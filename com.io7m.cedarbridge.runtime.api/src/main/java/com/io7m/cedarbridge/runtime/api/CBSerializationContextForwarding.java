@@ -0,0 +1,369 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.cedarbridge.runtime.api;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Objects;
+
+/**
+ * A serialization context that forwards all operations to another context.
+ * Subclasses override the operations that they wish to decorate.
+ */
+
+public abstract class CBSerializationContextForwarding
+  implements CBSerializationContextType
+{
+  private final CBSerializationContextType delegate;
+
+  /**
+   * Construct a context.
+   *
+   * @param inDelegate The context to which operations are forwarded
+   */
+
+  protected CBSerializationContextForwarding(
+    final CBSerializationContextType inDelegate)
+  {
+    this.delegate = Objects.requireNonNull(inDelegate, "delegate");
+  }
+
+  /**
+   * @return The context to which operations are forwarded
+   */
+
+  protected final CBSerializationContextType delegate()
+  {
+    return this.delegate;
+  }
+
+  @Override
+  public int readSequenceLength()
+    throws IOException
+  {
+    return this.delegate.readSequenceLength();
+  }
+
+  @Override
+  public int readVariantIndex()
+    throws IOException
+  {
+    return this.delegate.readVariantIndex();
+  }
+
+  @Override
+  public long readS64()
+    throws IOException
+  {
+    return this.delegate.readS64();
+  }
+
+  @Override
+  public int readS32()
+    throws IOException
+  {
+    return this.delegate.readS32();
+  }
+
+  @Override
+  public int readS16()
+    throws IOException
+  {
+    return this.delegate.readS16();
+  }
+
+  @Override
+  public int readS8()
+    throws IOException
+  {
+    return this.delegate.readS8();
+  }
+
+  @Override
+  public long readU64()
+    throws IOException
+  {
+    return this.delegate.readU64();
+  }
+
+  @Override
+  public long readU32()
+    throws IOException
+  {
+    return this.delegate.readU32();
+  }
+
+  @Override
+  public int readU16()
+    throws IOException
+  {
+    return this.delegate.readU16();
+  }
+
+  @Override
+  public int readU8()
+    throws IOException
+  {
+    return this.delegate.readU8();
+  }
+
+  @Override
+  public double readF64()
+    throws IOException
+  {
+    return this.delegate.readF64();
+  }
+
+  @Override
+  public double readF32()
+    throws IOException
+  {
+    return this.delegate.readF32();
+  }
+
+  @Override
+  public double readF16()
+    throws IOException
+  {
+    return this.delegate.readF16();
+  }
+
+  @Override
+  public ByteBuffer readByteArray()
+    throws IOException
+  {
+    return this.delegate.readByteArray();
+  }
+
+  @Override
+  public String readUTF8()
+    throws IOException
+  {
+    return this.delegate.readUTF8();
+  }
+
+  @Override
+  public CBString readString()
+    throws IOException
+  {
+    return this.delegate.readString();
+  }
+
+  @Override
+  public void validateByteArray()
+    throws IOException
+  {
+    this.delegate.validateByteArray();
+  }
+
+  @Override
+  public void validateUTF8()
+    throws IOException
+  {
+    this.delegate.validateUTF8();
+  }
+
+  @Override
+  public void skipBytes(
+    final long size)
+    throws IOException
+  {
+    this.delegate.skipBytes(size);
+  }
+
+  @Override
+  public void flush()
+    throws IOException
+  {
+    this.delegate.flush();
+  }
+
+  @Override
+  public void writeSequenceLength(
+    final int size)
+    throws IOException
+  {
+    this.delegate.writeSequenceLength(size);
+  }
+
+  @Override
+  public void writeVariantIndex(
+    final int x)
+    throws IOException
+  {
+    this.delegate.writeVariantIndex(x);
+  }
+
+  @Override
+  public void writeS64(
+    final long x)
+    throws IOException
+  {
+    this.delegate.writeS64(x);
+  }
+
+  @Override
+  public void writeS32(
+    final long x)
+    throws IOException
+  {
+    this.delegate.writeS32(x);
+  }
+
+  @Override
+  public void writeS16(
+    final long x)
+    throws IOException
+  {
+    this.delegate.writeS16(x);
+  }
+
+  @Override
+  public void writeS8(
+    final long x)
+    throws IOException
+  {
+    this.delegate.writeS8(x);
+  }
+
+  @Override
+  public void writeU64(
+    final long x)
+    throws IOException
+  {
+    this.delegate.writeU64(x);
+  }
+
+  @Override
+  public void writeU32(
+    final long x)
+    throws IOException
+  {
+    this.delegate.writeU32(x);
+  }
+
+  @Override
+  public void writeU16(
+    final long x)
+    throws IOException
+  {
+    this.delegate.writeU16(x);
+  }
+
+  @Override
+  public void writeU8(
+    final long x)
+    throws IOException
+  {
+    this.delegate.writeU8(x);
+  }
+
+  @Override
+  public void writeF64(
+    final double x)
+    throws IOException
+  {
+    this.delegate.writeF64(x);
+  }
+
+  @Override
+  public void writeF32(
+    final double x)
+    throws IOException
+  {
+    this.delegate.writeF32(x);
+  }
+
+  @Override
+  public void writeF16(
+    final double x)
+    throws IOException
+  {
+    this.delegate.writeF16(x);
+  }
+
+  @Override
+  public void writeByteArray(
+    final ByteBuffer x)
+    throws IOException
+  {
+    this.delegate.writeByteArray(x);
+  }
+
+  @Override
+  public void writeUTF8(
+    final String x)
+    throws IOException
+  {
+    this.delegate.writeUTF8(x);
+  }
+
+  @Override
+  public void begin(
+    final String item)
+  {
+    this.delegate.begin(item);
+  }
+
+  @Override
+  public void begin(
+    final String item,
+    final int index)
+  {
+    this.delegate.begin(item, index);
+  }
+
+  @Override
+  public void end(
+    final String item)
+  {
+    this.delegate.end(item);
+  }
+
+  @Override
+  public void end(
+    final String item,
+    final int index)
+  {
+    this.delegate.end(item, index);
+  }
+
+  @Override
+  public IOException errorUnrecognizedVariantIndex(
+    final Class<?> reader,
+    final int index)
+  {
+    return this.delegate.errorUnrecognizedVariantIndex(reader, index);
+  }
+
+  @Override
+  public IOException errorUnrecognizedVariantCaseClass(
+    final Class<?> writer,
+    final Class<?> clazz)
+  {
+    return this.delegate.errorUnrecognizedVariantCaseClass(writer, clazz);
+  }
+
+  @Override
+  public IOException errorInvalidValue(
+    final Class<?> reader,
+    final String message)
+  {
+    return this.delegate.errorInvalidValue(reader, message);
+  }
+}
@@ -189,4 +189,51 @@ public interface CBSerializationContextInputType
 
   String readUTF8()
     throws IOException;
+
+  /**
+   * Read a UTF-8 string. Contexts may return the same instance for equal
+   * strings, rather than a new instance for each.
+   *
+   * @return The value
+   *
+   * @throws IOException On I/O errors
+   *
+   * @see CBStringCache
+   */
+
+  default CBString readString()
+    throws IOException
+  {
+    return new CBString(this.readUTF8());
+  }
+
+  /**
+   * Check and step over a byte array without retaining its contents.
+   *
+   * @throws IOException On I/O errors
+   */
+
+  void validateByteArray()
+    throws IOException;
+
+  /**
+   * Check that the next value is a well-formed UTF-8 string, and step over
+   * it without constructing a string.
+   *
+   * @throws IOException On I/O errors, or if the string is malformed
+   */
+
+  void validateUTF8()
+    throws IOException;
+
+  /**
+   * Skip over the given number of octets without interpreting them.
+   *
+   * @param size The number of octets
+   *
+   * @throws IOException On I/O errors
+   */
+
+  void skipBytes(long size)
+    throws IOException;
 }
@@ -148,6 +148,25 @@ public final class CBSerializationContextSize
     throw new UnsupportedOperationException();
   }
 
+  @Override
+  public void validateByteArray()
+  {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public void validateUTF8()
+  {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public void skipBytes(
+    final long size)
+  {
+    throw new UnsupportedOperationException();
+  }
+
   @Override
   public void flush()
   {
@@ -317,4 +336,16 @@ public final class CBSerializationContextSize
       ""
     );
   }
+
+  @Override
+  public IOException errorInvalidValue(
+    final Class<?> readerClass,
+    final String message)
+  {
+    return new CBSerializationException(
+      "%s: %s".formatted(readerClass.getSimpleName(), message),
+      0L,
+      ""
+    );
+  }
 }
@@ -0,0 +1,62 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.cedarbridge.runtime.api;
+
+import java.io.IOException;
+import java.util.OptionalLong;
+
+/**
+ * A skip function for values of a fixed encoded size.
+ *
+ * @param <T> The type of skipped values
+ */
+
+final class CBSkipFixed<T extends CBSerializableType>
+  implements CBSkipType<T>
+{
+  private final long size;
+  private final OptionalLong fixedSize;
+
+  CBSkipFixed(
+    final long inSize)
+  {
+    if (inSize < 0L) {
+      throw new IllegalArgumentException(
+        String.format(
+          "Size %d must be non-negative",
+          Long.valueOf(inSize))
+      );
+    }
+    this.size = inSize;
+    this.fixedSize = OptionalLong.of(inSize);
+  }
+
+  @Override
+  public void execute(
+    final CBSerializationContextType context)
+    throws IOException
+  {
+    CBSkipping.fixed(context, this.size);
+  }
+
+  @Override
+  public OptionalLong fixedSize()
+  {
+    return this.fixedSize;
+  }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.cedarbridge.runtime.api;
+
+import java.io.IOException;
+import java.util.OptionalLong;
+
+/**
+ * A function that can skip over a serialized value without deserializing it.
+ *
+ * @param <T> The type of skipped values
+ *
+ * @see CBSkipperMethod
+ */
+
+public interface CBSkipType<T extends CBSerializableType>
+{
+  /**
+   * Execute skipping.
+   *
+   * @param context The serialization context
+   *
+   * @throws IOException On errors
+   */
+
+  void execute(CBSerializationContextType context)
+    throws IOException;
+
+  /**
+   * The encoded size of every value of type {@code T}, if all values have
+   * the same encoded size. Containers use this to skip runs of values in a
+   * single jump.
+   *
+   * @return The fixed encoded size, if any
+   */
+
+  default OptionalLong fixedSize()
+  {
+    return OptionalLong.empty();
+  }
+
+  /**
+   * A skip function for values that are always encoded in exactly
+   * {@code size} octets.
+   *
+   * @param size The encoded size
+   * @param <T>  The type of skipped values
+   *
+   * @return A skip function
+   */
+
+  static <T extends CBSerializableType> CBSkipType<T> fixed(
+    final long size)
+  {
+    return new CBSkipFixed<>(size);
+  }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.cedarbridge.runtime.api;
+
+import java.io.IOException;
+
+/**
+ * Functions shared by the skip methods of the runtime types.
+ */
+
+final class CBSkipping
+{
+  private CBSkipping()
+  {
+
+  }
+
+  /**
+   * Skip a value that is encoded in exactly {@code size} octets.
+   *
+   * @param context The serialization context
+   * @param size    The encoded size
+   *
+   * @throws IOException On errors
+   */
+
+  static void fixed(
+    final CBSerializationContextType context,
+    final long size)
+    throws IOException
+  {
+    context.skipBytes(size);
+  }
+
+  /**
+   * Skip {@code count} values that are each encoded in exactly {@code size}
+   * octets, in a single jump.
+   *
+   * @param context The serialization context
+   * @param count   The number of values
+   * @param size    The encoded size of each value
+   *
+   * @throws IOException On errors
+   */
+
+  static void fixedRun(
+    final CBSerializationContextType context,
+    final int count,
+    final long size)
+    throws IOException
+  {
+    context.skipBytes(Math.multiplyExact((long) count, size));
+  }
+
+  /**
+   * Skip a value that is encoded as a 32-bit length followed by that many
+   * octets.
+   *
+   * @param context The serialization context
+   *
+   * @throws IOException On errors
+   */
+
+  static void lengthPrefixed(
+    final CBSerializationContextType context)
+    throws IOException
+  {
+    context.skipBytes(context.readU32());
+  }
+}
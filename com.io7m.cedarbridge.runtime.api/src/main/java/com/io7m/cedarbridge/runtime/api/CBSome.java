@@ -104,4 +104,42 @@ public record CBSome<T extends CBSerializableType>(T value)
   {
     return new CBSome<>(ft.execute(context));
   }
+
+  /**
+   * Validate a serialized value without deserializing it.
+   *
+   * @param context The serialization context
+   * @param ft      A validator for {@code T}
+   * @param <T>     The type of optional values
+   *
+   * @throws IOException On errors
+   */
+
+  @CBValidatorMethod
+  public static <T extends CBSerializableType> void validate(
+    final CBSerializationContextType context,
+    final CBValidateType<T> ft)
+    throws IOException
+  {
+    ft.execute(context);
+  }
+
+  /**
+   * Skip over a serialized value without deserializing it.
+   *
+   * @param context The serialization context
+   * @param ft      A skip function for {@code T}
+   * @param <T>     The type of optional values
+   *
+   * @throws IOException On errors
+   */
+
+  @CBSkipperMethod
+  public static <T extends CBSerializableType> void skip(
+    final CBSerializationContextType context,
+    final CBSkipType<T> ft)
+    throws IOException
+  {
+    ft.execute(context);
+  }
 }
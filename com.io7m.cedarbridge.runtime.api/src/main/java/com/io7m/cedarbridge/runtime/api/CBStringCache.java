@@ -0,0 +1,224 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.cedarbridge.runtime.api;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Objects;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * <p>A bounded cache of deserialized strings, used to return canonical
+ * {@link CBString} instances for frequently repeated values instead of
+ * allocating new ones for each occurrence.</p>
+ *
+ * <p>The cache is a direct-mapped table: the hash of the encoded UTF-8 bytes
+ * of a string, computed before any string is constructed, selects exactly
+ * one slot. A hit requires the bytes in the slot to match exactly, and
+ * returns the cached instance without allocating. A miss decodes the string
+ * and replaces whatever the slot held, so eviction costs nothing beyond the
+ * store itself, and the cache never holds more than its capacity. Strings
+ * longer than the maximum length are never cached.</p>
+ *
+ * <p>Slots hold immutable entries, so a cache may be shared by contexts on
+ * any number of threads; concurrent misses on the same slot simply replace
+ * one another.</p>
+ *
+ * @see CBSerializationContextByteBuffer#create(ByteBuffer,
+ * CBByteArrayAllocatorType, CBStringCache)
+ */
+
+public final class CBStringCache
+{
+  private static final int MAXIMUM_CAPACITY = 1 << 30;
+
+  private final Entry[] entries;
+  private final int mask;
+  private final int maximumLength;
+
+  private record Entry(
+    int hash,
+    byte[] bytes,
+    CBString value)
+  {
+
+  }
+
+  private CBStringCache(
+    final int inCapacity,
+    final int inMaximumLength)
+  {
+    if (inCapacity <= 0 || inCapacity > MAXIMUM_CAPACITY) {
+      throw new IllegalArgumentException(String.format(
+        "Capacity %d must be in the range [1, %d]",
+        Integer.valueOf(inCapacity),
+        Integer.valueOf(MAXIMUM_CAPACITY))
+      );
+    }
+    if (inMaximumLength < 0) {
+      throw new IllegalArgumentException(String.format(
+        "Maximum length %d must be non-negative",
+        Integer.valueOf(inMaximumLength))
+      );
+    }
+
+    final var size =
+      Integer.highestOneBit(inCapacity) == inCapacity
+        ? inCapacity
+        : Integer.highestOneBit(inCapacity) << 1;
+
+    this.entries = new Entry[size];
+    this.mask = size - 1;
+    this.maximumLength = inMaximumLength;
+  }
+
+  /**
+   * Create a cache.
+   *
+   * @param capacity      The number of slots, rounded up to a power of two
+   * @param maximumLength The maximum length in octets of cached strings
+   *
+   * @return A cache
+   */
+
+  public static CBStringCache create(
+    final int capacity,
+    final int maximumLength)
+  {
+    return new CBStringCache(capacity, maximumLength);
+  }
+
+  /**
+   * @return The number of slots in the cache
+   */
+
+  public int capacity()
+  {
+    return this.entries.length;
+  }
+
+  /**
+   * @return The maximum length in octets of cached strings
+   */
+
+  public int maximumLength()
+  {
+    return this.maximumLength;
+  }
+
+  /**
+   * Decode the UTF-8 string held in {@code buffer} at the given absolute
+   * position, returning a cached instance if one exists. The position and
+   * limit of the buffer are not changed.
+   *
+   * @param buffer   The buffer
+   * @param position The absolute position of the first octet
+   * @param length   The length in octets
+   *
+   * @return A string
+   */
+
+  public CBString get(
+    final ByteBuffer buffer,
+    final int position,
+    final int length)
+  {
+    Objects.requireNonNull(buffer, "buffer");
+
+    if (length > this.maximumLength) {
+      return new CBString(decode(buffer, position, length));
+    }
+
+    final var hash = hash(buffer, position, length);
+    final var slot = hash & this.mask;
+    final var entry = this.entries[slot];
+    if (entry != null
+      && entry.hash == hash
+      && matches(entry.bytes, buffer, position, length)) {
+      return entry.value;
+    }
+
+    final var bytes = new byte[length];
+    buffer.get(position, bytes);
+    final var value = new CBString(new String(bytes, UTF_8));
+    this.entries[slot] = new Entry(hash, bytes, value);
+    return value;
+  }
+
+  /**
+   * Remove all cached strings.
+   */
+
+  public void clear()
+  {
+    Arrays.fill(this.entries, null);
+  }
+
+  private static int hash(
+    final ByteBuffer buffer,
+    final int position,
+    final int length)
+  {
+    var hash = length;
+    if (buffer.hasArray()) {
+      final var array = buffer.array();
+      final var start = buffer.arrayOffset() + position;
+      for (int index = 0; index < length; ++index) {
+        hash = 31 * hash + array[start + index];
+      }
+    } else {
+      for (int index = 0; index < length; ++index) {
+        hash = 31 * hash + buffer.get(position + index);
+      }
+    }
+    return hash ^ (hash >>> 16);
+  }
+
+  private static boolean matches(
+    final byte[] bytes,
+    final ByteBuffer buffer,
+    final int position,
+    final int length)
+  {
+    if (bytes.length != length) {
+      return false;
+    }
+    if (buffer.hasArray()) {
+      final var start = buffer.arrayOffset() + position;
+      return Arrays.equals(
+        bytes, 0, length, buffer.array(), start, start + length);
+    }
+    for (int index = 0; index < length; ++index) {
+      if (bytes[index] != buffer.get(position + index)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static String decode(
+    final ByteBuffer buffer,
+    final int position,
+    final int length)
+  {
+    final var bytes = new byte[length];
+    buffer.get(position, bytes);
+    return new String(bytes, UTF_8);
+  }
+}
@@ -33,6 +33,12 @@ public record CBTrue()
 
   static final int VARIANT_INDEX = 1;
 
+  /**
+   * The value returned by {@link #deserialize(CBSerializationContextType)}.
+   */
+
+  public static final CBTrue INSTANCE = new CBTrue();
+
   /**
    * Serialize the given value.
    *
@@ -82,6 +88,38 @@ public record CBTrue()
     final CBSerializationContextType context)
     throws IOException
   {
-    return new CBTrue();
+    return INSTANCE;
+  }
+
+  /**
+   * Validate a serialized value without deserializing it.
+   *
+   * @param context The serialization context
+   *
+   * @throws IOException On errors
+   */
+
+  @CBValidatorMethod
+  public static void validate(
+    final CBSerializationContextType context)
+    throws IOException
+  {
+
+  }
+
+  /**
+   * Skip over a serialized value without deserializing it.
+   *
+   * @param context The serialization context
+   *
+   * @throws IOException On errors
+   */
+
+  @CBSkipperMethod
+  public static void skip(
+    final CBSerializationContextType context)
+    throws IOException
+  {
+
   }
 }
@@ -104,4 +104,42 @@ public record CBURI(URI value)
       throw new IOException(e);
     }
   }
+
+  /**
+   * Validate a serialized value without deserializing it. Unlike most
+   * validator methods, this method must construct a URI in order to check
+   * the syntax of the string.
+   *
+   * @param context The serialization context
+   *
+   * @throws IOException On errors
+   */
+
+  @CBValidatorMethod
+  public static void validate(
+    final CBSerializationContextType context)
+    throws IOException
+  {
+    try {
+      new URI(context.readUTF8());
+    } catch (final URISyntaxException e) {
+      throw new IOException(e);
+    }
+  }
+
+  /**
+   * Skip over a serialized value without deserializing it.
+   *
+   * @param context The serialization context
+   *
+   * @throws IOException On errors
+   */
+
+  @CBSkipperMethod
+  public static void skip(
+    final CBSerializationContextType context)
+    throws IOException
+  {
+    CBSkipping.lengthPrefixed(context);
+  }
 }
@@ -0,0 +1,158 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.cedarbridge.runtime.api;
+
+import java.nio.ByteBuffer;
+import java.util.Objects;
+
+/**
+ * <p>Functions to check that octets form well-formed UTF-8.</p>
+ *
+ * <p>Octets are checked against the well-formed UTF-8 byte sequences given
+ * in table 3-7 of the Unicode standard. Overlong encodings, surrogates, and
+ * code points above U+10FFFF are rejected, exactly as the JDK decoder
+ * rejects them when configured to report malformed input. Octets that pass
+ * the check therefore decode losslessly with {@code new String(bytes,
+ * UTF_8)}.</p>
+ *
+ * <p>The check is a small state machine whose state is a single
+ * {@code int}, so that octets can be checked one at a time as they are
+ * read from a stream without allocating.</p>
+ */
+
+public final class CBUTF8
+{
+  /**
+   * The state at the start of a string, and after each complete character.
+   */
+
+  public static final int START = (0xBF << 16) | (0x80 << 8);
+
+  /**
+   * The state after a malformed sequence has been encountered.
+   */
+
+  public static final int MALFORMED = -1;
+
+  private CBUTF8()
+  {
+
+  }
+
+  /**
+   * Feed an octet to the state machine.
+   *
+   * @param state The current state
+   * @param octet The octet, as an unsigned value in {@code [0, 255]}
+   *
+   * @return The new state, or {@link #MALFORMED}
+   */
+
+  public static int step(
+    final int state,
+    final int octet)
+  {
+    final var expected = state & 0xff;
+    if (expected == 0) {
+      if (octet <= 0x7F) {
+        return START;
+      }
+      if (octet >= 0xC2 && octet <= 0xDF) {
+        return state(1, 0x80, 0xBF);
+      }
+      if (octet == 0xE0) {
+        return state(2, 0xA0, 0xBF);
+      }
+      if (octet == 0xED) {
+        return state(2, 0x80, 0x9F);
+      }
+      if (octet >= 0xE1 && octet <= 0xEF) {
+        return state(2, 0x80, 0xBF);
+      }
+      if (octet == 0xF0) {
+        return state(3, 0x90, 0xBF);
+      }
+      if (octet == 0xF4) {
+        return state(3, 0x80, 0x8F);
+      }
+      if (octet >= 0xF1 && octet <= 0xF3) {
+        return state(3, 0x80, 0xBF);
+      }
+      return MALFORMED;
+    }
+
+    final var lower = (state >>> 8) & 0xff;
+    final var upper = (state >>> 16) & 0xff;
+    if (octet < lower || octet > upper) {
+      return MALFORMED;
+    }
+    return state(expected - 1, 0x80, 0xBF);
+  }
+
+  /**
+   * @param state The current state
+   *
+   * @return {@code true} if the state is not within a multi-octet sequence
+   */
+
+  public static boolean isComplete(
+    final int state)
+  {
+    return state == START;
+  }
+
+  /**
+   * Check the octets of {@code buffer} in the range
+   * {@code [position, position + length)}. The position and limit of the
+   * buffer are not changed.
+   *
+   * @param buffer   The buffer
+   * @param position The absolute position of the first octet
+   * @param length   The number of octets
+   *
+   * @return The offset relative to {@code position} of the octet at which
+   * the octets were found to be malformed, {@code length} if the octets end
+   * within a multi-octet sequence, or {@code -1} if the octets are
+   * well-formed
+   */
+
+  public static int findMalformed(
+    final ByteBuffer buffer,
+    final int position,
+    final int length)
+  {
+    Objects.requireNonNull(buffer, "buffer");
+
+    var state = START;
+    for (int index = 0; index < length; ++index) {
+      state = step(state, buffer.get(position + index) & 0xff);
+      if (state == MALFORMED) {
+        return index;
+      }
+    }
+    return isComplete(state) ? -1 : length;
+  }
+
+  private static int state(
+    final int expected,
+    final int lower,
+    final int upper)
+  {
+    return (upper << 16) | (lower << 8) | expected;
+  }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.cedarbridge.runtime.bssio;
+
+import com.io7m.cedarbridge.runtime.api.CBPreEncodedFrame;
+import com.io7m.cedarbridge.runtime.api.CBProtocolMessageSerializerType;
+import com.io7m.cedarbridge.runtime.api.CBProtocolMessageType;
+import com.io7m.cedarbridge.runtime.api.CBSerializationContextSize;
+import com.io7m.jbssio.api.BSSWriterProviderType;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Objects;
+
+/**
+ * Functions to produce pre-encoded frames.
+ */
+
+public final class CBPreEncodedFrames
+{
+  private CBPreEncodedFrames()
+  {
+
+  }
+
+  /**
+   * Serialize a message once, producing a frame that can be written to
+   * any number of connections. The message is sized first so that it is
+   * encoded directly into an array of exactly the right length.
+   *
+   * @param writers    A provider of binary writers
+   * @param serializer The message serializer
+   * @param message    The message
+   * @param <T>        The type of message
+   *
+   * @return The encoded frame
+   *
+   * @throws IOException On serialization errors
+   */
+
+  public static <T extends CBProtocolMessageType> CBPreEncodedFrame encode(
+    final BSSWriterProviderType writers,
+    final CBProtocolMessageSerializerType<T> serializer,
+    final T message)
+    throws IOException
+  {
+    Objects.requireNonNull(writers, "writers");
+    Objects.requireNonNull(serializer, "serializer");
+    Objects.requireNonNull(message, "message");
+
+    final var sizeContext = new CBSerializationContextSize();
+    serializer.serialize(sizeContext, message);
+
+    final var size = sizeContext.size();
+    if (size > Integer.MAX_VALUE - 8) {
+      throw new IOException(
+        "Message size %d is too large to pre-encode".formatted(
+          Long.valueOf(size))
+      );
+    }
+
+    final var output = new ExactOutputStream(new byte[(int) size]);
+    final var context =
+      CBSerializationContextBSSIO.createFromOutputStream(writers, output);
+    serializer.serialize(context, message);
+    context.flush();
+
+    if (output.position != output.data.length) {
+      throw new IOException(
+        "Message encoded to %d octets, but was sized as %d octets".formatted(
+          Integer.valueOf(output.position),
+          Integer.valueOf(output.data.length))
+      );
+    }
+    return CBPreEncodedFrame.ofOwned(output.data);
+  }
+
+  private static final class ExactOutputStream extends OutputStream
+  {
+    private final byte[] data;
+    private int position;
+
+    ExactOutputStream(
+      final byte[] inData)
+    {
+      this.data = inData;
+      this.position = 0;
+    }
+
+    @Override
+    public void write(
+      final int b)
+      throws IOException
+    {
+      this.checkSpace(1);
+      this.data[this.position] = (byte) b;
+      ++this.position;
+    }
+
+    @Override
+    public void write(
+      final byte[] b,
+      final int off,
+      final int len)
+      throws IOException
+    {
+      Objects.checkFromIndexSize(off, len, b.length);
+      this.checkSpace(len);
+      System.arraycopy(b, off, this.data, this.position, len);
+      this.position += len;
+    }
+
+    private void checkSpace(
+      final int count)
+      throws IOException
+    {
+      if (this.data.length - this.position < count) {
+        throw new IOException(
+          "Message encoded to more octets than the %d octets it was sized as"
+            .formatted(Integer.valueOf(this.data.length))
+        );
+      }
+    }
+  }
+}
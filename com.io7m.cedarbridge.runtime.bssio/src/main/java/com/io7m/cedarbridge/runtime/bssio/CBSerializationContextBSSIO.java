@@ -19,6 +19,9 @@ package com.io7m.cedarbridge.runtime.bssio;
 import com.io7m.cedarbridge.runtime.api.CBSerializationContextFlushOperationType;
 import com.io7m.cedarbridge.runtime.api.CBSerializationContextType;
 import com.io7m.cedarbridge.runtime.api.CBSerializationException;
+import com.io7m.cedarbridge.runtime.api.CBString;
+import com.io7m.cedarbridge.runtime.api.CBStringCache;
+import com.io7m.cedarbridge.runtime.api.CBUTF8;
 import com.io7m.jbssio.api.BSSReaderProviderType;
 import com.io7m.jbssio.api.BSSReaderSequentialType;
 import com.io7m.jbssio.api.BSSReaderSequentialUnsupported;
@@ -41,7 +44,12 @@ import java.util.OptionalLong;
 import static java.nio.charset.StandardCharsets.UTF_8;
 
 /**
- * A serialization context based on {@code jbssio}.
+ * <p>A serialization context based on {@code jbssio}.</p>
+ *
+ * <p>If a context reading from a byte array is given a
+ * {@link CBStringCache}, deserialized strings are looked up in the cache
+ * directly from the encoded bytes in the array, and repeated strings are
+ * returned without allocation.</p>
  */
 
 public final class CBSerializationContextBSSIO
@@ -51,6 +59,8 @@ public final class CBSerializationContextBSSIO
   private final BSSWriterSequentialType writerRoot;
   private final BSSReaderSequentialType readerRoot;
   private final CBSerializationContextFlushOperationType flushOp;
+  private final ByteBuffer source;
+  private final CBStringCache strings;
   private BSSReaderSequentialType reader;
   private BSSWriterSequentialType writer;
 
@@ -58,6 +68,16 @@ public final class CBSerializationContextBSSIO
     final BSSReaderSequentialType inReader,
     final BSSWriterSequentialType inWriter,
     final CBSerializationContextFlushOperationType inFlushOp)
+  {
+    this(inReader, inWriter, inFlushOp, null, null);
+  }
+
+  private CBSerializationContextBSSIO(
+    final BSSReaderSequentialType inReader,
+    final BSSWriterSequentialType inWriter,
+    final CBSerializationContextFlushOperationType inFlushOp,
+    final ByteBuffer inSource,
+    final CBStringCache inStrings)
   {
     this.writerRoot =
       Objects.requireNonNull(inWriter, "writer");
@@ -71,6 +91,10 @@ public final class CBSerializationContextBSSIO
       this.readerRoot;
     this.nameStack =
       new ArrayList<>(32);
+    this.source =
+      inSource;
+    this.strings =
+      inStrings;
   }
 
   /**
@@ -161,6 +185,37 @@ public final class CBSerializationContextBSSIO
   public static CBSerializationContextType createFromByteArray(
     final BSSReaderProviderType readers,
     final byte[] bytes)
+  {
+    return createFromByteArrayWith(readers, bytes, null);
+  }
+
+  /**
+   * Create a context based on the readers and byte array. Deserialized
+   * strings are looked up in the given cache.
+   *
+   * @param readers The reader provider
+   * @param bytes   The byte array
+   * @param strings The cache used for deserialized strings
+   *
+   * @return A context
+   */
+
+  public static CBSerializationContextType createFromByteArray(
+    final BSSReaderProviderType readers,
+    final byte[] bytes,
+    final CBStringCache strings)
+  {
+    return createFromByteArrayWith(
+      readers,
+      bytes,
+      Objects.requireNonNull(strings, "strings")
+    );
+  }
+
+  private static CBSerializationContextType createFromByteArrayWith(
+    final BSSReaderProviderType readers,
+    final byte[] bytes,
+    final CBStringCache strings)
   {
     try {
       return new CBSerializationContextBSSIO(
@@ -173,7 +228,9 @@ public final class CBSerializationContextBSSIO
         new BSSWriterSequentialUnsupported(),
         () -> {
 
-        }
+        },
+        ByteBuffer.wrap(bytes).asReadOnlyBuffer(),
+        strings
       );
     } catch (final IOException e) {
       throw new UncheckedIOException(e);
@@ -383,19 +440,144 @@ public final class CBSerializationContextBSSIO
   public String readUTF8()
     throws IOException
   {
+    /*
+     * Strings are decoded strictly: octets that validateUTF8() would reject
+     * are rejected here too, rather than being replaced.
+     */
+
+    final long length;
     try {
-      final var length = this.reader.readU32BE();
-      try (var output = new ByteArrayOutputStream()) {
-        for (long index = 0L; Long.compareUnsigned(index, length) < 0; ++index) {
-          output.write(this.reader.readS8());
+      length = this.reader.readU32BE();
+    } catch (final IOException e) {
+      throw this.errorReadIO(e);
+    }
+
+    try (var output = new ByteArrayOutputStream()) {
+      var state = CBUTF8.START;
+      for (long index = 0L; Long.compareUnsigned(index, length) < 0; ++index) {
+        final int b;
+        try {
+          b = this.reader.readU8();
+        } catch (final IOException e) {
+          throw this.errorReadIO(e);
         }
-        return output.toString(UTF_8);
+
+        state = CBUTF8.step(state, b);
+        if (state == CBUTF8.MALFORMED) {
+          throw this.errorMalformedUTF8();
+        }
+        output.write(b);
+      }
+
+      if (!CBUTF8.isComplete(state)) {
+        throw this.errorMalformedUTF8();
+      }
+      return output.toString(UTF_8);
+    }
+  }
+
+  @Override
+  public CBString readString()
+    throws IOException
+  {
+    if (this.strings == null) {
+      return new CBString(this.readUTF8());
+    }
+
+    /*
+     * The reader is positioned directly over the source array, so the
+     * string can be looked up in place once the reader has stepped over
+     * it. Stepping over it first also checks that the string is in bounds.
+     */
+
+    try {
+      final var length = this.reader.readU32BE();
+      final var position = this.reader.offsetCurrentAbsolute();
+      this.reader.skip(length);
+
+      final var malformed =
+        CBUTF8.findMalformed(this.source, (int) position, (int) length);
+      if (malformed != -1) {
+        throw this.errorMalformedUTF8(position + malformed);
       }
+      return this.strings.get(this.source, (int) position, (int) length);
+    } catch (final CBSerializationException e) {
+      throw e;
+    } catch (final IOException e) {
+      throw this.errorReadIO(e);
+    }
+  }
+
+  @Override
+  public void validateByteArray()
+    throws IOException
+  {
+    try {
+      this.reader.skip(this.reader.readU32BE());
+    } catch (final IOException e) {
+      throw this.errorReadIO(e);
+    }
+  }
+
+  @Override
+  public void skipBytes(
+    final long size)
+    throws IOException
+  {
+    try {
+      this.reader.skip(size);
     } catch (final IOException e) {
       throw this.errorReadIO(e);
     }
   }
 
+  @Override
+  public void validateUTF8()
+    throws IOException
+  {
+    final long length;
+    try {
+      length = this.reader.readU32BE();
+    } catch (final IOException e) {
+      throw this.errorReadIO(e);
+    }
+
+    var state = CBUTF8.START;
+    for (long index = 0L; Long.compareUnsigned(index, length) < 0; ++index) {
+      final int b;
+      try {
+        b = this.reader.readU8();
+      } catch (final IOException e) {
+        throw this.errorReadIO(e);
+      }
+
+      state = CBUTF8.step(state, b);
+      if (state == CBUTF8.MALFORMED) {
+        throw this.errorMalformedUTF8();
+      }
+    }
+
+    if (!CBUTF8.isComplete(state)) {
+      throw this.errorMalformedUTF8();
+    }
+  }
+
+  private CBSerializationException errorMalformedUTF8()
+  {
+    return this.errorMalformedUTF8(this.reader.offsetCurrentAbsolute());
+  }
+
+  private CBSerializationException errorMalformedUTF8(
+    final long offset)
+  {
+    return new CBSerializationException(
+      "@0x%s: Malformed UTF-8 sequence"
+        .formatted(Long.toUnsignedString(offset, 16)),
+      offset,
+      this.accessPath()
+    );
+  }
+
   @Override
   public void flush()
     throws IOException
@@ -552,8 +734,24 @@ public final class CBSerializationContextBSSIO
     throws IOException
   {
     try {
-      final var bytes = x.array();
-      this.writer.writeU32BE(Integer.toUnsignedLong(bytes.length));
+      /*
+       * The remaining octets of the buffer are written, as with every other
+       * context. The backing array is only used directly when it holds
+       * exactly those octets.
+       */
+
+      final var size = x.remaining();
+      final byte[] bytes;
+      if (x.hasArray()
+        && x.arrayOffset() == 0
+        && x.position() == 0
+        && x.array().length == size) {
+        bytes = x.array();
+      } else {
+        bytes = new byte[size];
+        x.duplicate().get(bytes);
+      }
+      this.writer.writeU32BE(Integer.toUnsignedLong(size));
       this.writer.writeBytes(bytes);
     } catch (final IOException e) {
       throw this.errorWriteIO(e);
@@ -637,4 +835,21 @@ public final class CBSerializationContextBSSIO
       this.accessPath()
     );
   }
+
+  @Override
+  public IOException errorInvalidValue(
+    final Class<?> readerClass,
+    final String message)
+  {
+    final var offset = this.reader.offsetCurrentAbsolute();
+    return new CBSerializationException(
+      "@0x%s: %s: %s"
+        .formatted(
+          Long.toUnsignedString(offset, 16),
+          readerClass.getSimpleName(),
+          message),
+      offset,
+      this.accessPath()
+    );
+  }
 }
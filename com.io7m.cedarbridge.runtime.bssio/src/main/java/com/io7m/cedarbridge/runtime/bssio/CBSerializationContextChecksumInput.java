@@ -0,0 +1,197 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.cedarbridge.runtime.bssio;
+
+import com.io7m.cedarbridge.runtime.api.CBSerializationContextForwarding;
+import com.io7m.jbssio.api.BSSReaderProviderType;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Objects;
+import java.util.zip.CRC32C;
+
+/**
+ * <p>A serialization context that computes a CRC32C checksum of the data it
+ * reads, and verifies it against checksums written by
+ * {@link CBSerializationContextChecksumOutput}.</p>
+ *
+ * <p>Octets are fed to the checksum as they are read from the underlying
+ * stream, so frames are verified without being buffered in full. As a
+ * consequence, the values read from a corrupted frame are only known to be
+ * corrupt once {@link #verifyChecksum()} has been called; callers must not
+ * act upon them before then.</p>
+ */
+
+public final class CBSerializationContextChecksumInput
+  extends CBSerializationContextForwarding
+{
+  private final ChecksumInputStream stream;
+
+  private CBSerializationContextChecksumInput(
+    final ChecksumInputStream inStream,
+    final BSSReaderProviderType readers)
+  {
+    super(CBSerializationContextBSSIO.createFromInputStream(readers, inStream));
+    this.stream = inStream;
+  }
+
+  /**
+   * Create a context based on the input stream.
+   *
+   * @param readers The readers
+   * @param stream  The input stream
+   *
+   * @return A context
+   */
+
+  public static CBSerializationContextChecksumInput createFromInputStream(
+    final BSSReaderProviderType readers,
+    final InputStream stream)
+  {
+    Objects.requireNonNull(readers, "readers");
+    Objects.requireNonNull(stream, "stream");
+
+    return new CBSerializationContextChecksumInput(
+      new ChecksumInputStream(stream),
+      readers
+    );
+  }
+
+  /**
+   * @return The checksum of the data read since the last checksum was
+   * verified
+   */
+
+  public long checksum()
+  {
+    return this.stream.checksum.getValue();
+  }
+
+  /**
+   * Read a checksum and compare it to the checksum of the data read since
+   * the last checksum was verified, and reset the checksum.
+   *
+   * @throws IOException On I/O errors, or if the checksums do not match
+   */
+
+  public void verifyChecksum()
+    throws IOException
+  {
+    /*
+     * The checksum is read through the wrapped context so that the offsets
+     * it reports for subsequent frames remain correct. Reading it feeds the
+     * checksum octets to the running checksum, which is reset afterwards.
+     */
+
+    final var expected = this.stream.checksum.getValue();
+    this.begin("checksum");
+    try {
+      final var received = this.readU32();
+      if (received != expected) {
+        throw this.errorInvalidValue(
+          CBSerializationContextChecksumInput.class,
+          "Checksum mismatch (expected 0x%s, received 0x%s)".formatted(
+            Long.toUnsignedString(expected, 16),
+            Long.toUnsignedString(received, 16)
+          )
+        );
+      }
+    } finally {
+      this.end("checksum");
+      this.stream.checksum.reset();
+    }
+  }
+
+  private static final class ChecksumInputStream
+    extends FilterInputStream
+  {
+    private final CRC32C checksum;
+    private final byte[] skipBuffer;
+
+    ChecksumInputStream(
+      final InputStream inInput)
+    {
+      super(inInput);
+      this.checksum = new CRC32C();
+      this.skipBuffer = new byte[512];
+    }
+
+    @Override
+    public int read()
+      throws IOException
+    {
+      final var b = this.in.read();
+      if (b != -1) {
+        this.checksum.update(b);
+      }
+      return b;
+    }
+
+    @Override
+    public int read(
+      final byte[] b,
+      final int off,
+      final int len)
+      throws IOException
+    {
+      final var r = this.in.read(b, off, len);
+      if (r > 0) {
+        this.checksum.update(b, off, r);
+      }
+      return r;
+    }
+
+    @Override
+    public long skip(
+      final long n)
+      throws IOException
+    {
+      var remaining = n;
+      while (remaining > 0L) {
+        final var size = (int) Math.min(remaining, this.skipBuffer.length);
+        final var r = this.read(this.skipBuffer, 0, size);
+        if (r == -1) {
+          break;
+        }
+        remaining -= r;
+      }
+      return n - remaining;
+    }
+
+    @Override
+    public boolean markSupported()
+    {
+      return false;
+    }
+
+    @Override
+    public synchronized void mark(
+      final int readlimit)
+    {
+
+    }
+
+    @Override
+    public synchronized void reset()
+      throws IOException
+    {
+      throw new IOException("mark/reset not supported");
+    }
+  }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.cedarbridge.runtime.bssio;
+
+import com.io7m.cedarbridge.runtime.api.CBSerializationContextForwarding;
+import com.io7m.jbssio.api.BSSWriterProviderType;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Objects;
+import java.util.zip.CRC32C;
+
+/**
+ * <p>A serialization context that computes a CRC32C checksum of the data it
+ * writes. Every range of octets written to the underlying stream is fed to
+ * the checksum as it is written, so no second pass over the data is
+ * required.</p>
+ *
+ * <p>Calling {@link #writeChecksum()} writes the checksum of all data
+ * written since the previous checksum (or since the context was created) as
+ * an unsigned 32-bit big-endian integer, and then resets the checksum. The
+ * checksum octets are not themselves included in any checksum. Data written
+ * in this manner can be read with
+ * {@link CBSerializationContextChecksumInput}.</p>
+ */
+
+public final class CBSerializationContextChecksumOutput
+  extends CBSerializationContextForwarding
+{
+  private final ChecksumOutputStream stream;
+
+  private CBSerializationContextChecksumOutput(
+    final ChecksumOutputStream inStream,
+    final BSSWriterProviderType writers)
+  {
+    super(
+      CBSerializationContextBSSIO.createFromOutputStream(writers, inStream));
+    this.stream = inStream;
+  }
+
+  /**
+   * Create a context based on the output stream.
+   *
+   * @param writers The writers
+   * @param stream  The output stream
+   *
+   * @return A context
+   */
+
+  public static CBSerializationContextChecksumOutput createFromOutputStream(
+    final BSSWriterProviderType writers,
+    final OutputStream stream)
+  {
+    Objects.requireNonNull(writers, "writers");
+    Objects.requireNonNull(stream, "stream");
+
+    return new CBSerializationContextChecksumOutput(
+      new ChecksumOutputStream(stream),
+      writers
+    );
+  }
+
+  /**
+   * @return The checksum of the data written since the last checksum was
+   * written
+   *
+   * @throws IOException On I/O errors
+   */
+
+  public long checksum()
+    throws IOException
+  {
+    this.flush();
+    return this.stream.checksum.getValue();
+  }
+
+  /**
+   * Write the checksum of the data written since the last checksum was
+   * written, and reset the checksum.
+   *
+   * @return The checksum that was written
+   *
+   * @throws IOException On I/O errors
+   */
+
+  public long writeChecksum()
+    throws IOException
+  {
+    this.flush();
+
+    /*
+     * The checksum is written through the wrapped context so that the
+     * offsets it reports for subsequent frames remain correct.
+     */
+
+    final var value = this.stream.checksum.getValue();
+    this.writeU32(value);
+    this.flush();
+
+    this.stream.checksum.reset();
+    return value;
+  }
+
+  private static final class ChecksumOutputStream
+    extends FilterOutputStream
+  {
+    private final CRC32C checksum;
+
+    ChecksumOutputStream(
+      final OutputStream inOutput)
+    {
+      super(inOutput);
+      this.checksum = new CRC32C();
+    }
+
+    @Override
+    public void write(
+      final int b)
+      throws IOException
+    {
+      this.out.write(b);
+      this.checksum.update(b);
+    }
+
+    @Override
+    public void write(
+      final byte[] b,
+      final int off,
+      final int len)
+      throws IOException
+    {
+      this.out.write(b, off, len);
+      this.checksum.update(b, off, len);
+    }
+  }
+}
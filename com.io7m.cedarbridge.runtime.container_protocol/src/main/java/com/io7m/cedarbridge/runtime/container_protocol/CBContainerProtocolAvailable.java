@@ -33,6 +33,9 @@ import java.util.UUID;
  *                                          protocol version
  * @param applicationProtocolMaximumVersion The maximum supported application
  *                                          protocol version
+ * @param flags                             The feature flags
+ * @param compressionAlgorithms             The set of supported frame
+ *                                          compression algorithm flags
  */
 
 public record CBContainerProtocolAvailable(
@@ -40,8 +43,20 @@ public record CBContainerProtocolAvailable(
   long containerProtocolMaximumVersion,
   UUID applicationProtocolId,
   long applicationProtocolMinimumVersion,
-  long applicationProtocolMaximumVersion)
+  long applicationProtocolMaximumVersion,
+  long flags,
+  long compressionAlgorithms)
 {
+  /**
+   * The flag that indicates that the server accepts a pipelined
+   * {@link CBContainerProtocolUse} message. A client that has seen this
+   * flag may, on subsequent connections, send its {@code Use} message and
+   * its first application messages without waiting for the
+   * {@code Available} and {@code Response} messages.
+   */
+
+  public static final long FLAG_PIPELINED_USE = 0x1L;
+
   /**
    * An availability message, typically presented by a server, that announces
    * the available application protocol ID and version, and the version of the
@@ -56,12 +71,28 @@ public record CBContainerProtocolAvailable(
    *                                          protocol version
    * @param applicationProtocolMaximumVersion The maximum supported application
    *                                          protocol version
+   * @param flags                             The feature flags
+   * @param compressionAlgorithms             The set of supported frame
+   *                                          compression algorithm flags
    */
 
   public CBContainerProtocolAvailable
   {
     Objects.requireNonNull(applicationProtocolId, "applicationProtocolId");
 
+    if (Long.compareUnsigned(flags, 0xffff_ffffL) > 0) {
+      throw new IllegalArgumentException(String.format(
+        "Flags 0x%s must fit in 32 bits",
+        Long.toUnsignedString(flags, 16)
+      ));
+    }
+    if (Long.compareUnsigned(compressionAlgorithms, 0xffff_ffffL) > 0) {
+      throw new IllegalArgumentException(String.format(
+        "Compression algorithms 0x%s must fit in 32 bits",
+        Long.toUnsignedString(compressionAlgorithms, 16)
+      ));
+    }
+
     final var cpvMin = containerProtocolMinimumVersion;
     final var cpvMax = containerProtocolMaximumVersion;
     if (Long.compareUnsigned(cpvMin, cpvMax) > 0) {
@@ -82,4 +113,104 @@ public record CBContainerProtocolAvailable(
       ));
     }
   }
+
+  /**
+   * An availability message with no feature flags set.
+   *
+   * @param containerProtocolMinimumVersion   The minimum supported container
+   *                                          protocol version
+   * @param containerProtocolMaximumVersion   The maximum supported container
+   *                                          protocol version
+   * @param applicationProtocolId             The application protocol ID
+   * @param applicationProtocolMinimumVersion The minimum supported application
+   *                                          protocol version
+   * @param applicationProtocolMaximumVersion The maximum supported application
+   *                                          protocol version
+   */
+
+  public CBContainerProtocolAvailable(
+    final long containerProtocolMinimumVersion,
+    final long containerProtocolMaximumVersion,
+    final UUID applicationProtocolId,
+    final long applicationProtocolMinimumVersion,
+    final long applicationProtocolMaximumVersion)
+  {
+    this(
+      containerProtocolMinimumVersion,
+      containerProtocolMaximumVersion,
+      applicationProtocolId,
+      applicationProtocolMinimumVersion,
+      applicationProtocolMaximumVersion,
+      0L,
+      0L
+    );
+  }
+
+  /**
+   * An availability message that does not offer frame compression.
+   *
+   * @param containerProtocolMinimumVersion   The minimum supported container
+   *                                          protocol version
+   * @param containerProtocolMaximumVersion   The maximum supported container
+   *                                          protocol version
+   * @param applicationProtocolId             The application protocol ID
+   * @param applicationProtocolMinimumVersion The minimum supported application
+   *                                          protocol version
+   * @param applicationProtocolMaximumVersion The maximum supported application
+   *                                          protocol version
+   * @param flags                             The feature flags
+   */
+
+  public CBContainerProtocolAvailable(
+    final long containerProtocolMinimumVersion,
+    final long containerProtocolMaximumVersion,
+    final UUID applicationProtocolId,
+    final long applicationProtocolMinimumVersion,
+    final long applicationProtocolMaximumVersion,
+    final long flags)
+  {
+    this(
+      containerProtocolMinimumVersion,
+      containerProtocolMaximumVersion,
+      applicationProtocolId,
+      applicationProtocolMinimumVersion,
+      applicationProtocolMaximumVersion,
+      flags,
+      0L
+    );
+  }
+
+  /**
+   * @return {@code true} if the server accepts a pipelined {@code Use}
+   *
+   * @see #FLAG_PIPELINED_USE
+   */
+
+  public boolean isPipelinedUseSupported()
+  {
+    return (this.flags & FLAG_PIPELINED_USE) == FLAG_PIPELINED_USE;
+  }
+
+  /**
+   * Compression can only be selected by a client using container protocol
+   * version 2 or later, so a server that offers compression must also
+   * support that version.
+   *
+   * @param compression The compression algorithm
+   *
+   * @return {@code true} if the server accepts the given algorithm
+   */
+
+  public boolean isCompressionSupported(
+    final CBContainerProtocolCompression compression)
+  {
+    if (compression == CBContainerProtocolCompression.NONE) {
+      return true;
+    }
+    if (Long.compareUnsigned(this.containerProtocolMaximumVersion, 2L) < 0) {
+      return false;
+    }
+    final var flag = compression.flag();
+    return (this.compressionAlgorithms & flag) == flag;
+  }
 }
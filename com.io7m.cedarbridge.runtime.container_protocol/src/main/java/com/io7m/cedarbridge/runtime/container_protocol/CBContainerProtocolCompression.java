@@ -0,0 +1,91 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.cedarbridge.runtime.container_protocol;
+
+/**
+ * The frame compression algorithms that may be negotiated using the
+ * container protocol.
+ */
+
+public enum CBContainerProtocolCompression
+{
+  /**
+   * Frames are not compressed.
+   */
+
+  NONE(0, 0x0L),
+
+  /**
+   * Frames larger than the negotiated threshold may be compressed with
+   * DEFLATE (RFC 1951), using a zlib (RFC 1950) wrapper.
+   */
+
+  DEFLATE(1, 0x1L);
+
+  private final int code;
+  private final long flag;
+
+  CBContainerProtocolCompression(
+    final int inCode,
+    final long inFlag)
+  {
+    this.code = inCode;
+    this.flag = inFlag;
+  }
+
+  /**
+   * @return The value used to identify the algorithm in a {@code Use}
+   * message
+   */
+
+  public int code()
+  {
+    return this.code;
+  }
+
+  /**
+   * @return The bit used to advertise the algorithm in an
+   * {@code Available} message
+   */
+
+  public long flag()
+  {
+    return this.flag;
+  }
+
+  /**
+   * @param code The algorithm code
+   *
+   * @return The algorithm with the given code
+   *
+   * @throws IllegalArgumentException If the code is not recognized
+   */
+
+  public static CBContainerProtocolCompression ofCode(
+    final int code)
+  {
+    return switch (code) {
+      case 0 -> NONE;
+      case 1 -> DEFLATE;
+      default -> throw new IllegalArgumentException(
+        "Unrecognized compression algorithm %s".formatted(
+          Integer.toUnsignedString(code))
+      );
+    };
+  }
+}
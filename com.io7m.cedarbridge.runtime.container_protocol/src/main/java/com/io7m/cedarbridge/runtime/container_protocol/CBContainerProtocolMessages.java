@@ -81,9 +81,9 @@ public final class CBContainerProtocolMessages
 
     final var containerMin = data.getInt();
     final var containerMax = data.getInt();
-    final var reserved0 = data.getInt();
+    final var flags = data.getInt();
 
-    final var reserved1 = data.getInt();
+    final var compression = data.getInt();
     final var reserved2 = data.getInt();
     final var reserved3 = data.getInt();
     final var reserved4 = data.getInt();
@@ -100,7 +100,9 @@ public final class CBContainerProtocolMessages
       Integer.toUnsignedLong(containerMax),
       appId,
       appMin,
-      appMax
+      appMax,
+      Integer.toUnsignedLong(flags),
+      Integer.toUnsignedLong(compression)
     );
   }
 
@@ -139,13 +141,62 @@ public final class CBContainerProtocolMessages
     final var appId = new UUID(appIdHigh, appIdLow);
     final var appV = data.getLong();
 
+    final var containerVersion = Integer.toUnsignedLong(containerV);
+    if (Long.compareUnsigned(containerVersion, 2L) < 0) {
+      return new CBContainerProtocolUse(containerVersion, appId, appV);
+    }
+
+    final var compression = data.getInt();
+    final var threshold = data.getInt();
+    final var reserved0 = data.getLong();
+    final var reserved1 = data.getLong();
+    final var reserved2 = data.getLong();
+
     return new CBContainerProtocolUse(
-      Integer.toUnsignedLong(containerV),
+      containerVersion,
       appId,
-      appV
+      appV,
+      CBContainerProtocolCompression.ofCode(compression),
+      Integer.toUnsignedLong(threshold)
     );
   }
 
+  /**
+   * Determine the container protocol version of a "use" message from its
+   * first {@link #sizeUse()} octets, so that the remainder of the message
+   * (if any) can be read.
+   *
+   * @param data The message data
+   *
+   * @return The container protocol version
+   *
+   * @see #sizeUse(long)
+   */
+
+  public static long parseUseContainerProtocolVersion(
+    final byte[] data)
+  {
+    final var buffer = ByteBuffer.wrap(data);
+    buffer.order(BIG_ENDIAN);
+
+    final var code = buffer.getInt();
+    if (code != 0x43420001) {
+      final var lineSeparator = System.lineSeparator();
+      throw new IllegalArgumentException(
+        new StringBuilder(128)
+          .append("Invalid command number.")
+          .append(lineSeparator)
+          .append("  Expected: 0x43420001")
+          .append(lineSeparator)
+          .append("  Received: 0x")
+          .append(Integer.toUnsignedString(code, 16))
+          .append(lineSeparator)
+          .toString()
+      );
+    }
+    return Integer.toUnsignedLong(buffer.getInt());
+  }
+
   /**
    * Parse a "use" message.
    *
@@ -191,6 +242,21 @@ public final class CBContainerProtocolMessages
 
     final var ok = data.getInt() == 1;
     final var length = data.getInt();
+    if (length < 0 || length > data.remaining()) {
+      final var lineSeparator = System.lineSeparator();
+      throw new IllegalArgumentException(
+        new StringBuilder(128)
+          .append("Invalid message length.")
+          .append(lineSeparator)
+          .append("  Length: ")
+          .append(Integer.toUnsignedString(length))
+          .append(lineSeparator)
+          .append("  Remaining: ")
+          .append(data.remaining())
+          .append(lineSeparator)
+          .toString()
+      );
+    }
 
     final String text;
     try (var output = new ByteArrayOutputStream()) {
@@ -284,14 +350,23 @@ public final class CBContainerProtocolMessages
   public static ByteBuffer serializeUse(
     final CBContainerProtocolUse message)
   {
-    final var buffer = ByteBuffer.allocate(sizeUse());
+    final var containerVersion = message.containerProtocolVersion();
+    final var buffer = ByteBuffer.allocate(sizeUse(containerVersion));
     buffer.order(BIG_ENDIAN);
     buffer.putInt(0x43420001);
-    buffer.putInt(Math.toIntExact(message.containerProtocolVersion()));
+    buffer.putInt(Math.toIntExact(containerVersion));
     buffer.putLong(message.applicationProtocolId().getMostSignificantBits());
     buffer.putLong(message.applicationProtocolId().getLeastSignificantBits());
     buffer.putLong(message.applicationProtocolVersion());
 
+    if (Long.compareUnsigned(containerVersion, 2L) >= 0) {
+      buffer.putInt(message.compression().code());
+      buffer.putInt((int) message.compressionThreshold());
+      buffer.putLong(0L);
+      buffer.putLong(0L);
+      buffer.putLong(0L);
+    }
+
     if (buffer.remaining() != 0) {
       throw new IllegalStateException("Buffer has remaining space");
     }
@@ -315,7 +390,8 @@ public final class CBContainerProtocolMessages
   }
 
   /**
-   * @return The size of a "use" message
+   * @return The size of a "use" message in container protocol version 1,
+   * and the size of the common prefix of "use" messages in all versions
    */
 
   public static int sizeUse()
@@ -323,6 +399,22 @@ public final class CBContainerProtocolMessages
     return 32;
   }
 
+  /**
+   * @param containerProtocolVersion The container protocol version
+   *
+   * @return The size of a "use" message in the given container protocol
+   * version
+   */
+
+  public static int sizeUse(
+    final long containerProtocolVersion)
+  {
+    if (Long.compareUnsigned(containerProtocolVersion, 2L) >= 0) {
+      return 64;
+    }
+    return 32;
+  }
+
   /**
    * Serialize an "available" message.
    *
@@ -339,9 +431,9 @@ public final class CBContainerProtocolMessages
     buffer.putInt(0x43420000);
     buffer.putInt(Math.toIntExact(message.containerProtocolMinimumVersion()));
     buffer.putInt(Math.toIntExact(message.containerProtocolMaximumVersion()));
-    buffer.putInt(0);
+    buffer.putInt((int) message.flags());
 
-    buffer.putInt(0);
+    buffer.putInt((int) message.compressionAlgorithms());
     buffer.putInt(0);
     buffer.putInt(0);
     buffer.putInt(0);
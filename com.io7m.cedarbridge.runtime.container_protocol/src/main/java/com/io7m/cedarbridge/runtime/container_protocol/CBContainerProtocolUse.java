@@ -26,12 +26,19 @@ import java.util.UUID;
  *                                   used
  * @param applicationProtocolVersion The application protocol version that will
  *                                   be used
+ * @param compression                The frame compression algorithm that will
+ *                                   be used (container protocol version 2 and
+ *                                   later)
+ * @param compressionThreshold       The size in octets below which frames will
+ *                                   not be compressed
  */
 
 public record CBContainerProtocolUse(
   long containerProtocolVersion,
   UUID applicationProtocolId,
-  long applicationProtocolVersion)
+  long applicationProtocolVersion,
+  CBContainerProtocolCompression compression,
+  long compressionThreshold)
 {
   /**
    * @param containerProtocolVersion   The container protocol version that will
@@ -40,10 +47,56 @@ public record CBContainerProtocolUse(
    *                                   used
    * @param applicationProtocolVersion The application protocol version that
    *                                   will be used
+   * @param compression                The frame compression algorithm that
+   *                                   will be used (container protocol version
+   *                                   2 and later)
+   * @param compressionThreshold       The size in octets below which frames
+   *                                   will not be compressed
    */
 
   public CBContainerProtocolUse
   {
     Objects.requireNonNull(applicationProtocolId, "applicationProtocolId");
+    Objects.requireNonNull(compression, "compression");
+
+    if (Long.compareUnsigned(compressionThreshold, 0xffff_ffffL) > 0) {
+      throw new IllegalArgumentException(String.format(
+        "Compression threshold %s must fit in 32 bits",
+        Long.toUnsignedString(compressionThreshold)
+      ));
+    }
+
+    if (Long.compareUnsigned(containerProtocolVersion, 2L) < 0) {
+      if (compression != CBContainerProtocolCompression.NONE
+          || compressionThreshold != 0L) {
+        throw new IllegalArgumentException(String.format(
+          "Container protocol version %s cannot select compression",
+          Long.toUnsignedString(containerProtocolVersion)
+        ));
+      }
+    }
+  }
+
+  /**
+   * @param containerProtocolVersion   The container protocol version that will
+   *                                   be used
+   * @param applicationProtocolId      The application protocol ID that will be
+   *                                   used
+   * @param applicationProtocolVersion The application protocol version that
+   *                                   will be used
+   */
+
+  public CBContainerProtocolUse(
+    final long containerProtocolVersion,
+    final UUID applicationProtocolId,
+    final long applicationProtocolVersion)
+  {
+    this(
+      containerProtocolVersion,
+      applicationProtocolId,
+      applicationProtocolVersion,
+      CBContainerProtocolCompression.NONE,
+      0L
+    );
   }
 }
@@ -0,0 +1,296 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.cedarbridge.runtime.container_protocol;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * <p>Compression of frame payloads, as negotiated with a
+ * {@link CBContainerProtocolUse} message.</p>
+ *
+ * <p>A compressed payload consists of the unsigned 32-bit big-endian size of
+ * the uncompressed payload, followed by the compressed data. How a
+ * compressed payload is distinguished from an uncompressed one is up to the
+ * framing used by the application.</p>
+ *
+ * <p>{@link Deflater} and {@link Inflater} instances hold native memory and
+ * are expensive to create, so a bounded number of them are pooled and
+ * shared between all instances of this class.</p>
+ */
+
+public final class CBFrameCompression
+{
+  /**
+   * The default maximum size of a decompressed payload.
+   */
+
+  public static final int DEFAULT_MAXIMUM_SIZE = 16 * 1024 * 1024;
+
+  private static final int POOL_SIZE = 32;
+
+  private static final ArrayBlockingQueue<Deflater> DEFLATERS =
+    new ArrayBlockingQueue<>(POOL_SIZE);
+  private static final ArrayBlockingQueue<Inflater> INFLATERS =
+    new ArrayBlockingQueue<>(POOL_SIZE);
+
+  private final CBContainerProtocolCompression algorithm;
+  private final long threshold;
+  private final int maximumSize;
+
+  /**
+   * Create a frame compressor.
+   *
+   * @param inAlgorithm   The compression algorithm
+   * @param inThreshold   The size in octets below which payloads are not
+   *                      compressed
+   * @param inMaximumSize The maximum size of a decompressed payload
+   */
+
+  public CBFrameCompression(
+    final CBContainerProtocolCompression inAlgorithm,
+    final long inThreshold,
+    final int inMaximumSize)
+  {
+    this.algorithm =
+      Objects.requireNonNull(inAlgorithm, "algorithm");
+    this.threshold =
+      inThreshold;
+    this.maximumSize =
+      inMaximumSize;
+
+    if (inThreshold < 0L) {
+      throw new IllegalArgumentException("Threshold must be non-negative");
+    }
+    if (inMaximumSize < 0) {
+      throw new IllegalArgumentException("Maximum size must be non-negative");
+    }
+  }
+
+  /**
+   * Create a frame compressor for the compression negotiated in the given
+   * message.
+   *
+   * @param use The negotiated "use" message
+   *
+   * @return A frame compressor
+   */
+
+  public static CBFrameCompression forUse(
+    final CBContainerProtocolUse use)
+  {
+    return new CBFrameCompression(
+      use.compression(),
+      use.compressionThreshold(),
+      DEFAULT_MAXIMUM_SIZE
+    );
+  }
+
+  /**
+   * @return The compression algorithm
+   */
+
+  public CBContainerProtocolCompression algorithm()
+  {
+    return this.algorithm;
+  }
+
+  /**
+   * @return The size in octets below which payloads are not compressed
+   */
+
+  public long threshold()
+  {
+    return this.threshold;
+  }
+
+  /**
+   * Compress the given payload. Nothing is returned if compression is
+   * disabled, if the payload is smaller than the threshold, or if the
+   * compressed payload would not be smaller than the original.
+   *
+   * @param data   The payload array
+   * @param offset The offset of the payload
+   * @param length The length of the payload
+   *
+   * @return The compressed payload, if worthwhile
+   */
+
+  public Optional<byte[]> compress(
+    final byte[] data,
+    final int offset,
+    final int length)
+  {
+    Objects.checkFromIndexSize(offset, length, data.length);
+
+    if (this.algorithm == CBContainerProtocolCompression.NONE) {
+      return Optional.empty();
+    }
+    if (length < Math.max(this.threshold, 8L)) {
+      return Optional.empty();
+    }
+
+    final var deflater = takeDeflater();
+    try {
+      deflater.setInput(data, offset, length);
+      deflater.finish();
+
+      /*
+       * The output is only useful if it is smaller than the input, so the
+       * output buffer is never allowed to grow beyond that.
+       */
+
+      final var output = new byte[length];
+      var position = 4;
+      while (!deflater.finished()) {
+        if (position == output.length) {
+          return Optional.empty();
+        }
+        position += deflater.deflate(
+          output, position, output.length - position);
+      }
+
+      output[0] = (byte) (length >>> 24);
+      output[1] = (byte) (length >>> 16);
+      output[2] = (byte) (length >>> 8);
+      output[3] = (byte) length;
+      return Optional.of(Arrays.copyOf(output, position));
+    } finally {
+      returnDeflater(deflater);
+    }
+  }
+
+  /**
+   * Decompress the given payload.
+   *
+   * @param data   The payload array
+   * @param offset The offset of the payload
+   * @param length The length of the payload
+   *
+   * @return The decompressed payload
+   *
+   * @throws IOException If the payload is malformed or too large
+   */
+
+  public byte[] decompress(
+    final byte[] data,
+    final int offset,
+    final int length)
+    throws IOException
+  {
+    Objects.checkFromIndexSize(offset, length, data.length);
+
+    if (this.algorithm == CBContainerProtocolCompression.NONE) {
+      throw new IOException("Compression was not negotiated.");
+    }
+    if (length < 4) {
+      throw new IOException("Compressed payload is truncated.");
+    }
+
+    final var size =
+      ((data[offset] & 0xffL) << 24)
+      | ((data[offset + 1] & 0xffL) << 16)
+      | ((data[offset + 2] & 0xffL) << 8)
+      | (data[offset + 3] & 0xffL);
+
+    if (size > this.maximumSize) {
+      throw new IOException(
+        "Decompressed payload size %d exceeds the maximum %d".formatted(
+          Long.valueOf(size),
+          Integer.valueOf(this.maximumSize))
+      );
+    }
+
+    final var output = new byte[(int) size];
+    final var inflater = takeInflater();
+    try {
+      inflater.setInput(data, offset + 4, length - 4);
+
+      var position = 0;
+      while (!inflater.finished()) {
+        if (position == output.length) {
+          throw new IOException(
+            "Compressed payload is larger than its declared size %d"
+              .formatted(Long.valueOf(size))
+          );
+        }
+        final var count =
+          inflater.inflate(output, position, output.length - position);
+        if (count == 0
+            && (inflater.needsInput() || inflater.needsDictionary())) {
+          throw new IOException("Compressed payload is truncated.");
+        }
+        position += count;
+      }
+
+      if (position != output.length) {
+        throw new IOException(
+          "Compressed payload size %d does not match its declared size %d"
+            .formatted(Integer.valueOf(position), Long.valueOf(size))
+        );
+      }
+      return output;
+    } catch (final DataFormatException e) {
+      throw new IOException(e);
+    } finally {
+      returnInflater(inflater);
+    }
+  }
+
+  private static Deflater takeDeflater()
+  {
+    final var deflater = DEFLATERS.poll();
+    if (deflater != null) {
+      return deflater;
+    }
+    return new Deflater(Deflater.DEFAULT_COMPRESSION);
+  }
+
+  private static void returnDeflater(
+    final Deflater deflater)
+  {
+    deflater.reset();
+    if (!DEFLATERS.offer(deflater)) {
+      deflater.end();
+    }
+  }
+
+  private static Inflater takeInflater()
+  {
+    final var inflater = INFLATERS.poll();
+    if (inflater != null) {
+      return inflater;
+    }
+    return new Inflater();
+  }
+
+  private static void returnInflater(
+    final Inflater inflater)
+  {
+    inflater.reset();
+    if (!INFLATERS.offer(inflater)) {
+      inflater.end();
+    }
+  }
+}
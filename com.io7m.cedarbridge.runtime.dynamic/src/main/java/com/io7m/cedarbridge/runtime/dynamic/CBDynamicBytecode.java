@@ -0,0 +1,434 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.cedarbridge.runtime.dynamic;
+
+import com.io7m.cedarbridge.runtime.api.CBSerializableType;
+import com.io7m.cedarbridge.runtime.api.CBSerializationContextType;
+import com.io7m.cedarbridge.runtime.dynamic.CBDynamicSteps.Fields;
+import com.io7m.cedarbridge.runtime.dynamic.CBDynamicSteps.Scalar;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+
+import static com.io7m.cedarbridge.runtime.dynamic.CBDynamicClassWriter.ACC_FINAL;
+import static com.io7m.cedarbridge.runtime.dynamic.CBDynamicClassWriter.ACC_PRIVATE;
+import static com.io7m.cedarbridge.runtime.dynamic.CBDynamicClassWriter.ACC_PUBLIC;
+
+/**
+ * <p>A generator of JVM bytecode for field sequences.</p>
+ *
+ * <p>Each field sequence is compiled to a hidden class whose
+ * {@code read} and {@code write} methods are unrolled into straight-line
+ * code, in the same shape as the code produced by the Java code generator:
+ * each field is bracketed by {@code begin} and {@code end} calls, field
+ * names are constants, and scalar fields call the static
+ * {@code serialize} and {@code deserialize} methods of their runtime
+ * classes directly. Fields of any other type call their pre-resolved
+ * steps, each held in its own final field so that every call site sees a
+ * single receiver type.</p>
+ *
+ * <p>Hidden classes are not referenced by their defining class loader, and
+ * are therefore unloaded once the codecs that use them are no longer
+ * reachable.</p>
+ */
+
+final class CBDynamicBytecode
+{
+  private static final MethodHandles.Lookup LOOKUP =
+    MethodHandles.lookup();
+
+  private static final String PACKAGE =
+    "com/io7m/cedarbridge/runtime/dynamic/";
+  private static final String OBJECT =
+    "java/lang/Object";
+  private static final String LIST =
+    internalName(List.class);
+  private static final String CONTEXT =
+    internalName(CBSerializationContextType.class);
+  private static final String SERIALIZABLE =
+    internalName(CBSerializableType.class);
+  private static final String STEP =
+    internalName(CBDynamicStepType.class);
+  private static final String STEPS =
+    internalName(CBDynamicSteps.class);
+  private static final String FIELD =
+    internalName(CBDynamicField.class);
+  private static final String FIELDS =
+    internalName(CBDynamicFieldsType.class);
+  private static final String VALUE =
+    internalName(CBDynamicValueType.class);
+
+  private static final String STEP_DESCRIPTOR =
+    "L%s;".formatted(STEP);
+  private static final String STRING_TO_VOID =
+    "(Ljava/lang/String;)V";
+
+  private CBDynamicBytecode()
+  {
+
+  }
+
+  private static String internalName(
+    final Class<?> clazz)
+  {
+    return clazz.getName().replace('.', '/');
+  }
+
+  private static String descriptorOf(
+    final Class<?> clazz)
+  {
+    return "L%s;".formatted(internalName(clazz));
+  }
+
+  /**
+   * Generate a hidden class that reads and writes the given fields.
+   *
+   * @param owner  The name of the type or case that owns the fields
+   * @param fields The fields
+   *
+   * @return The generated fields, or {@code fields} if the field sequence
+   * is too large to be expressed as a single JVM method
+   */
+
+  static CBDynamicFieldsType generate(
+    final String owner,
+    final Fields fields)
+  {
+    Objects.requireNonNull(owner, "owner");
+    Objects.requireNonNull(fields, "fields");
+
+    final var names = fields.names();
+    final var steps = fields.steps();
+    final var scalars = new ScalarMethods[steps.length];
+    for (int index = 0; index < steps.length; ++index) {
+      scalars[index] = scalarMethods(steps[index]).orElse(null);
+    }
+
+    final var className =
+      PACKAGE + "CBDynamicFields_" + owner.replaceAll("[^A-Za-z0-9]", "_");
+
+    final byte[] classBytes;
+    try {
+      final var writer =
+        new CBDynamicClassWriter(className, OBJECT, FIELDS);
+      generateFields(writer, scalars);
+      generateConstructor(writer, className, scalars);
+      generateRead(writer, className, names, scalars);
+      generateWrite(writer, className, names, scalars);
+      classBytes = writer.toByteArray();
+    } catch (final IllegalStateException e) {
+      return fields;
+    }
+
+    try {
+      final var lookup =
+        LOOKUP.defineHiddenClass(classBytes, true);
+      final var constructor =
+        lookup.findConstructor(
+          lookup.lookupClass(),
+          MethodType.methodType(void.class, CBDynamicStepType[].class)
+        );
+      return (CBDynamicFieldsType) constructor.invoke(steps);
+    } catch (final Throwable e) {
+      throw new IllegalStateException(
+        "Failed to define a codec class for %s".formatted(owner), e);
+    }
+  }
+
+  private static void generateFields(
+    final CBDynamicClassWriter writer,
+    final ScalarMethods[] scalars)
+  {
+    for (int index = 0; index < scalars.length; ++index) {
+      if (scalars[index] == null) {
+        writer.field(
+          ACC_PRIVATE | ACC_FINAL,
+          stepField(index),
+          STEP_DESCRIPTOR
+        );
+      }
+    }
+  }
+
+  private static String stepField(
+    final int index)
+  {
+    return "step" + index;
+  }
+
+  private static void generateConstructor(
+    final CBDynamicClassWriter writer,
+    final String className,
+    final ScalarMethods[] scalars)
+  {
+    final var code =
+      writer.method(
+        ACC_PUBLIC,
+        "<init>",
+        "([%s)V".formatted(STEP_DESCRIPTOR),
+        2
+      );
+
+    code.aload(0)
+      .invokespecial(OBJECT, "<init>", "()V");
+
+    for (int index = 0; index < scalars.length; ++index) {
+      if (scalars[index] == null) {
+        code.aload(0)
+          .aload(1)
+          .iconst(index)
+          .aaload()
+          .putfield(className, stepField(index), STEP_DESCRIPTOR);
+      }
+    }
+
+    code.vreturn()
+      .finish();
+  }
+
+  /*
+   * CBDynamicField[] read(CBSerializationContextType context)
+   *
+   * Local 0: this, local 1: context, local 2: the resulting array.
+   */
+
+  private static void generateRead(
+    final CBDynamicClassWriter writer,
+    final String className,
+    final String[] names,
+    final ScalarMethods[] scalars)
+  {
+    final var code =
+      writer.method(
+        ACC_PUBLIC,
+        "read",
+        "(L%s;)[L%s;".formatted(CONTEXT, FIELD),
+        3
+      );
+
+    code.iconst(names.length)
+      .anewarray(FIELD)
+      .astore(2);
+
+    for (int index = 0; index < names.length; ++index) {
+      final var name = names[index];
+      final var scalar = scalars[index];
+
+      code.aload(1)
+        .ldcString(name)
+        .invokeinterface(CONTEXT, "begin", STRING_TO_VOID);
+
+      code.aload(2)
+        .iconst(index)
+        .anew(FIELD)
+        .dup()
+        .ldcString(name);
+
+      if (scalar != null) {
+        code.aload(1)
+          .invokestatic(
+            scalar.owner,
+            "deserialize",
+            "(L%s;)%s".formatted(
+              CONTEXT,
+              descriptorOf(scalar.deserialize.getReturnType())),
+            scalar.ownerIsInterface
+          );
+      } else {
+        code.aload(0)
+          .getfield(className, stepField(index), STEP_DESCRIPTOR)
+          .aload(1)
+          .invokeinterface(
+            STEP,
+            "execute",
+            "(L%s;)L%s;".formatted(CONTEXT, SERIALIZABLE)
+          );
+      }
+
+      code.invokespecial(
+          FIELD,
+          "<init>",
+          "(Ljava/lang/String;L%s;)V".formatted(SERIALIZABLE))
+        .aastore();
+
+      code.aload(1)
+        .ldcString(name)
+        .invokeinterface(CONTEXT, "end", STRING_TO_VOID);
+    }
+
+    code.aload(2)
+      .areturn()
+      .finish();
+  }
+
+  /*
+   * void write(CBSerializationContextType context, CBDynamicValueType value)
+   *
+   * Local 0: this, local 1: context, local 2: value, local 3: field list.
+   */
+
+  private static void generateWrite(
+    final CBDynamicClassWriter writer,
+    final String className,
+    final String[] names,
+    final ScalarMethods[] scalars)
+  {
+    final var code =
+      writer.method(
+        ACC_PUBLIC,
+        "write",
+        "(L%s;L%s;)V".formatted(CONTEXT, VALUE),
+        4
+      );
+
+    code.aload(1)
+      .aload(2)
+      .iconst(names.length)
+      .invokestatic(
+        STEPS,
+        "checkFields",
+        "(L%s;L%s;I)L%s;".formatted(CONTEXT, VALUE, LIST),
+        false)
+      .astore(3);
+
+    for (int index = 0; index < names.length; ++index) {
+      final var name = names[index];
+      final var scalar = scalars[index];
+
+      code.aload(1)
+        .ldcString(name)
+        .invokeinterface(CONTEXT, "begin", STRING_TO_VOID);
+
+      if (scalar != null) {
+        final var parameter =
+          scalar.serialize.getParameterTypes()[1];
+
+        code.aload(1)
+          .aload(1);
+        loadFieldValue(code, index);
+        code.ldcClass(scalar.owner)
+          .invokestatic(
+            STEPS,
+            "checkValue",
+            "(L%s;L%s;Ljava/lang/Class;)L%s;".formatted(
+              CONTEXT, SERIALIZABLE, OBJECT),
+            false)
+          .checkcast(internalName(parameter))
+          .invokestatic(
+            scalar.owner,
+            "serialize",
+            "(L%s;%s)V".formatted(CONTEXT, descriptorOf(parameter)),
+            scalar.ownerIsInterface
+          );
+      } else {
+        code.aload(0)
+          .getfield(className, stepField(index), STEP_DESCRIPTOR)
+          .aload(1);
+        loadFieldValue(code, index);
+        code.invokeinterface(
+          STEP,
+          "execute",
+          "(L%s;L%s;)V".formatted(CONTEXT, SERIALIZABLE)
+        );
+      }
+
+      code.aload(1)
+        .ldcString(name)
+        .invokeinterface(CONTEXT, "end", STRING_TO_VOID);
+    }
+
+    code.vreturn()
+      .finish();
+  }
+
+  private static void loadFieldValue(
+    final CBDynamicClassWriter.Code code,
+    final int index)
+  {
+    code.aload(3)
+      .iconst(index)
+      .invokeinterface(LIST, "get", "(I)L%s;".formatted(OBJECT))
+      .checkcast(FIELD)
+      .invokevirtual(FIELD, "value", "()L%s;".formatted(SERIALIZABLE));
+  }
+
+  /**
+   * Find the static methods that a scalar step delegates to, if the step is
+   * a scalar step whose runtime class declares them.
+   */
+
+  private static Optional<ScalarMethods> scalarMethods(
+    final CBDynamicStepType step)
+  {
+    if (!(step instanceof Scalar<?> scalar)) {
+      return Optional.empty();
+    }
+
+    final var clazz = scalar.clazz();
+    final var methods =
+      Arrays.stream(clazz.getDeclaredMethods())
+        .filter(m -> Modifier.isStatic(m.getModifiers()))
+        .filter(m -> Modifier.isPublic(m.getModifiers()))
+        .toList();
+
+    final var deserialize =
+      methods.stream()
+        .filter(m -> "deserialize".equals(m.getName()))
+        .filter(m -> m.getParameterCount() == 1)
+        .filter(m -> m.getParameterTypes()[0]
+          == CBSerializationContextType.class)
+        .filter(m -> clazz.isAssignableFrom(m.getReturnType()))
+        .findFirst();
+
+    final var serialize =
+      methods.stream()
+        .filter(m -> "serialize".equals(m.getName()))
+        .filter(m -> m.getParameterCount() == 2)
+        .filter(m -> m.getParameterTypes()[0]
+          == CBSerializationContextType.class)
+        .filter(m -> m.getParameterTypes()[1].isAssignableFrom(clazz))
+        .filter(m -> m.getReturnType() == void.class)
+        .findFirst();
+
+    if (deserialize.isEmpty() || serialize.isEmpty()) {
+      return Optional.empty();
+    }
+
+    return Optional.of(new ScalarMethods(
+      internalName(clazz),
+      clazz.isInterface(),
+      deserialize.get(),
+      serialize.get()
+    ));
+  }
+
+  private record ScalarMethods(
+    String owner,
+    boolean ownerIsInterface,
+    Method deserialize,
+    Method serialize)
+  {
+
+  }
+}
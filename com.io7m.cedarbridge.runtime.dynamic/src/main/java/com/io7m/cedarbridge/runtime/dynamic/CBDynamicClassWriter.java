@@ -0,0 +1,637 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.cedarbridge.runtime.dynamic;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * <p>A minimal writer of JVM class files.</p>
+ *
+ * <p>The writer supports exactly what the codec generator needs: final
+ * classes with reference-typed fields, and methods consisting of
+ * straight-line code. Because methods never branch and have no exception
+ * handlers, no stack map frames are required. The operand stack depth is
+ * tracked as instructions are emitted.</p>
+ */
+
+final class CBDynamicClassWriter
+{
+  static final int ACC_PUBLIC = 0x0001;
+  static final int ACC_PRIVATE = 0x0002;
+  static final int ACC_FINAL = 0x0010;
+  static final int ACC_SUPER = 0x0020;
+
+  private static final int CLASS_FILE_MAJOR = 61;
+
+  private static final int CONSTANT_UTF8 = 1;
+  private static final int CONSTANT_INTEGER = 3;
+  private static final int CONSTANT_CLASS = 7;
+  private static final int CONSTANT_STRING = 8;
+  private static final int CONSTANT_FIELDREF = 9;
+  private static final int CONSTANT_METHODREF = 10;
+  private static final int CONSTANT_INTERFACE_METHODREF = 11;
+  private static final int CONSTANT_NAME_AND_TYPE = 12;
+
+  private final ByteArrayOutputStream poolBytes;
+  private final DataOutputStream pool;
+  private final Map<String, Integer> poolIndices;
+  private final List<byte[]> fields;
+  private final List<byte[]> methods;
+  private final int thisClass;
+  private final int superClass;
+  private final int[] interfaces;
+  private int poolCount;
+
+  /**
+   * Create a writer for a final class.
+   *
+   * @param name       The internal name of the class
+   * @param superName  The internal name of the superclass
+   * @param interfaces The internal names of the implemented interfaces
+   */
+
+  CBDynamicClassWriter(
+    final String name,
+    final String superName,
+    final String... interfaces)
+  {
+    Objects.requireNonNull(name, "name");
+    Objects.requireNonNull(superName, "superName");
+    Objects.requireNonNull(interfaces, "interfaces");
+
+    this.poolBytes = new ByteArrayOutputStream();
+    this.pool = new DataOutputStream(this.poolBytes);
+    this.poolIndices = new HashMap<>();
+    this.fields = new ArrayList<>();
+    this.methods = new ArrayList<>();
+    this.poolCount = 1;
+    this.thisClass = this.constantClass(name);
+    this.superClass = this.constantClass(superName);
+    this.interfaces = new int[interfaces.length];
+    for (int index = 0; index < interfaces.length; ++index) {
+      this.interfaces[index] = this.constantClass(interfaces[index]);
+    }
+  }
+
+  private int constant(
+    final String key,
+    final PoolEntryWriterType writer)
+  {
+    final var existing = this.poolIndices.get(key);
+    if (existing != null) {
+      return existing.intValue();
+    }
+
+    if (this.poolCount >= 0xffff) {
+      throw new IllegalStateException("Constant pool is full");
+    }
+
+    try {
+      writer.write(this.pool);
+    } catch (final IOException e) {
+      throw new UncheckedIOException(e);
+    }
+
+    final var index = this.poolCount;
+    ++this.poolCount;
+    this.poolIndices.put(key, Integer.valueOf(index));
+    return index;
+  }
+
+  private int constantUTF8(
+    final String text)
+  {
+    return this.constant("U" + text, out -> {
+      out.writeByte(CONSTANT_UTF8);
+      out.writeUTF(text);
+    });
+  }
+
+  int constantClass(
+    final String name)
+  {
+    final var nameIndex = this.constantUTF8(name);
+    return this.constant("C" + name, out -> {
+      out.writeByte(CONSTANT_CLASS);
+      out.writeShort(nameIndex);
+    });
+  }
+
+  private int constantString(
+    final String text)
+  {
+    final var textIndex = this.constantUTF8(text);
+    return this.constant("S" + text, out -> {
+      out.writeByte(CONSTANT_STRING);
+      out.writeShort(textIndex);
+    });
+  }
+
+  private int constantInteger(
+    final int value)
+  {
+    return this.constant("I" + value, out -> {
+      out.writeByte(CONSTANT_INTEGER);
+      out.writeInt(value);
+    });
+  }
+
+  private int constantNameAndType(
+    final String name,
+    final String descriptor)
+  {
+    final var nameIndex = this.constantUTF8(name);
+    final var descriptorIndex = this.constantUTF8(descriptor);
+    return this.constant("N" + name + " " + descriptor, out -> {
+      out.writeByte(CONSTANT_NAME_AND_TYPE);
+      out.writeShort(nameIndex);
+      out.writeShort(descriptorIndex);
+    });
+  }
+
+  private int constantMember(
+    final int tag,
+    final String owner,
+    final String name,
+    final String descriptor)
+  {
+    final var ownerIndex = this.constantClass(owner);
+    final var typeIndex = this.constantNameAndType(name, descriptor);
+    return this.constant(
+      "M" + tag + " " + owner + " " + name + " " + descriptor,
+      out -> {
+        out.writeByte(tag);
+        out.writeShort(ownerIndex);
+        out.writeShort(typeIndex);
+      });
+  }
+
+  /**
+   * Declare a field.
+   *
+   * @param access     The access flags
+   * @param name       The field name
+   * @param descriptor The field descriptor
+   */
+
+  void field(
+    final int access,
+    final String name,
+    final String descriptor)
+  {
+    final var bytes = new ByteArrayOutputStream();
+    try (var out = new DataOutputStream(bytes)) {
+      out.writeShort(access);
+      out.writeShort(this.constantUTF8(name));
+      out.writeShort(this.constantUTF8(descriptor));
+      out.writeShort(0);
+    } catch (final IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    this.fields.add(bytes.toByteArray());
+  }
+
+  /**
+   * Start a method. The method is added to the class when
+   * {@link Code#finish()} is called.
+   *
+   * @param access     The access flags
+   * @param name       The method name
+   * @param descriptor The method descriptor
+   * @param locals     The number of local variable slots
+   *
+   * @return The method body
+   */
+
+  Code method(
+    final int access,
+    final String name,
+    final String descriptor,
+    final int locals)
+  {
+    return new Code(access, name, descriptor, locals);
+  }
+
+  /**
+   * @return The complete class file
+   */
+
+  byte[] toByteArray()
+  {
+    final var bytes = new ByteArrayOutputStream();
+    try (var out = new DataOutputStream(bytes)) {
+      out.writeInt(0xcafebabe);
+      out.writeShort(0);
+      out.writeShort(CLASS_FILE_MAJOR);
+      out.writeShort(this.poolCount);
+      this.pool.flush();
+      this.poolBytes.writeTo(out);
+      out.writeShort(ACC_FINAL | ACC_SUPER);
+      out.writeShort(this.thisClass);
+      out.writeShort(this.superClass);
+      out.writeShort(this.interfaces.length);
+      for (final var index : this.interfaces) {
+        out.writeShort(index);
+      }
+      out.writeShort(this.fields.size());
+      for (final var field : this.fields) {
+        out.write(field);
+      }
+      out.writeShort(this.methods.size());
+      for (final var method : this.methods) {
+        out.write(method);
+      }
+      out.writeShort(0);
+    } catch (final IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return bytes.toByteArray();
+  }
+
+  private static int slotsOf(
+    final char descriptor)
+  {
+    return switch (descriptor) {
+      case 'V' -> 0;
+      case 'J', 'D' -> 2;
+      default -> 1;
+    };
+  }
+
+  /**
+   * @param descriptor A method descriptor
+   *
+   * @return The number of stack slots taken by the method arguments
+   */
+
+  private static int argumentSlots(
+    final String descriptor)
+  {
+    var slots = 0;
+    var index = 1;
+    while (descriptor.charAt(index) != ')') {
+      final var c = descriptor.charAt(index);
+      if (c == 'L') {
+        index = descriptor.indexOf(';', index) + 1;
+        ++slots;
+      } else if (c == '[') {
+        while (descriptor.charAt(index) == '[') {
+          ++index;
+        }
+        if (descriptor.charAt(index) == 'L') {
+          index = descriptor.indexOf(';', index);
+        }
+        ++index;
+        ++slots;
+      } else {
+        slots += slotsOf(c);
+        ++index;
+      }
+    }
+    return slots;
+  }
+
+  private static int returnSlots(
+    final String descriptor)
+  {
+    return slotsOf(descriptor.charAt(descriptor.indexOf(')') + 1));
+  }
+
+  private interface PoolEntryWriterType
+  {
+    void write(DataOutputStream output)
+      throws IOException;
+  }
+
+  /**
+   * The body of a method.
+   */
+
+  final class Code
+  {
+    private final int access;
+    private final String name;
+    private final String descriptor;
+    private final int locals;
+    private final ByteArrayOutputStream code;
+    private int stack;
+    private int maxStack;
+
+    private Code(
+      final int inAccess,
+      final String inName,
+      final String inDescriptor,
+      final int inLocals)
+    {
+      this.access = inAccess;
+      this.name = Objects.requireNonNull(inName, "name");
+      this.descriptor = Objects.requireNonNull(inDescriptor, "descriptor");
+      this.locals = inLocals;
+      this.code = new ByteArrayOutputStream();
+    }
+
+    private void op(
+      final int opcode,
+      final int stackDelta)
+    {
+      this.code.write(opcode);
+      this.stack += stackDelta;
+      this.maxStack = Math.max(this.maxStack, this.stack);
+    }
+
+    private void u1(
+      final int value)
+    {
+      this.code.write(value);
+    }
+
+    private void u2(
+      final int value)
+    {
+      this.code.write(value >>> 8);
+      this.code.write(value);
+    }
+
+    Code aload(
+      final int slot)
+    {
+      if (slot <= 3) {
+        this.op(0x2a + slot, 1);
+      } else {
+        this.op(0x19, 1);
+        this.u1(slot);
+      }
+      return this;
+    }
+
+    Code astore(
+      final int slot)
+    {
+      if (slot <= 3) {
+        this.op(0x4b + slot, -1);
+      } else {
+        this.op(0x3a, -1);
+        this.u1(slot);
+      }
+      return this;
+    }
+
+    Code iconst(
+      final int value)
+    {
+      if (value >= -1 && value <= 5) {
+        this.op(0x03 + value, 1);
+      } else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+        this.op(0x10, 1);
+        this.u1(value);
+      } else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+        this.op(0x11, 1);
+        this.u2(value);
+      } else {
+        this.ldc(CBDynamicClassWriter.this.constantInteger(value));
+      }
+      return this;
+    }
+
+    private void ldc(
+      final int index)
+    {
+      if (index <= 0xff) {
+        this.op(0x12, 1);
+        this.u1(index);
+      } else {
+        this.op(0x13, 1);
+        this.u2(index);
+      }
+    }
+
+    Code ldcString(
+      final String text)
+    {
+      this.ldc(CBDynamicClassWriter.this.constantString(text));
+      return this;
+    }
+
+    Code ldcClass(
+      final String className)
+    {
+      this.ldc(CBDynamicClassWriter.this.constantClass(className));
+      return this;
+    }
+
+    Code dup()
+    {
+      this.op(0x59, 1);
+      return this;
+    }
+
+    Code aaload()
+    {
+      this.op(0x32, -1);
+      return this;
+    }
+
+    Code aastore()
+    {
+      this.op(0x53, -3);
+      return this;
+    }
+
+    Code anewarray(
+      final String className)
+    {
+      this.op(0xbd, 0);
+      this.u2(CBDynamicClassWriter.this.constantClass(className));
+      return this;
+    }
+
+    Code anew(
+      final String className)
+    {
+      this.op(0xbb, 1);
+      this.u2(CBDynamicClassWriter.this.constantClass(className));
+      return this;
+    }
+
+    Code checkcast(
+      final String className)
+    {
+      this.op(0xc0, 0);
+      this.u2(CBDynamicClassWriter.this.constantClass(className));
+      return this;
+    }
+
+    Code getfield(
+      final String owner,
+      final String fieldName,
+      final String fieldDescriptor)
+    {
+      this.op(0xb4, slotsOf(fieldDescriptor.charAt(0)) - 1);
+      this.u2(CBDynamicClassWriter.this.constantMember(
+        CONSTANT_FIELDREF, owner, fieldName, fieldDescriptor));
+      return this;
+    }
+
+    Code putfield(
+      final String owner,
+      final String fieldName,
+      final String fieldDescriptor)
+    {
+      this.op(0xb5, -slotsOf(fieldDescriptor.charAt(0)) - 1);
+      this.u2(CBDynamicClassWriter.this.constantMember(
+        CONSTANT_FIELDREF, owner, fieldName, fieldDescriptor));
+      return this;
+    }
+
+    private void invoke(
+      final int opcode,
+      final int tag,
+      final String owner,
+      final String methodName,
+      final String methodDescriptor,
+      final boolean hasReceiver)
+    {
+      final var delta =
+        returnSlots(methodDescriptor)
+        - argumentSlots(methodDescriptor)
+        - (hasReceiver ? 1 : 0);
+
+      this.op(opcode, delta);
+      this.u2(CBDynamicClassWriter.this.constantMember(
+        tag, owner, methodName, methodDescriptor));
+    }
+
+    Code invokevirtual(
+      final String owner,
+      final String methodName,
+      final String methodDescriptor)
+    {
+      this.invoke(
+        0xb6,
+        CONSTANT_METHODREF,
+        owner,
+        methodName,
+        methodDescriptor,
+        true);
+      return this;
+    }
+
+    Code invokespecial(
+      final String owner,
+      final String methodName,
+      final String methodDescriptor)
+    {
+      this.invoke(
+        0xb7,
+        CONSTANT_METHODREF,
+        owner,
+        methodName,
+        methodDescriptor,
+        true);
+      return this;
+    }
+
+    Code invokestatic(
+      final String owner,
+      final String methodName,
+      final String methodDescriptor,
+      final boolean ownerIsInterface)
+    {
+      this.invoke(
+        0xb8,
+        ownerIsInterface ? CONSTANT_INTERFACE_METHODREF : CONSTANT_METHODREF,
+        owner,
+        methodName,
+        methodDescriptor,
+        false);
+      return this;
+    }
+
+    Code invokeinterface(
+      final String owner,
+      final String methodName,
+      final String methodDescriptor)
+    {
+      this.invoke(
+        0xb9,
+        CONSTANT_INTERFACE_METHODREF,
+        owner,
+        methodName,
+        methodDescriptor,
+        true);
+      this.u1(argumentSlots(methodDescriptor) + 1);
+      this.u1(0);
+      return this;
+    }
+
+    Code areturn()
+    {
+      this.op(0xb0, -1);
+      return this;
+    }
+
+    Code vreturn()
+    {
+      this.op(0xb1, 0);
+      return this;
+    }
+
+    /**
+     * Add the method to the class.
+     *
+     * @throws IllegalStateException If the method is too large
+     */
+
+    void finish()
+    {
+      final var owner = CBDynamicClassWriter.this;
+      final var codeBytes = this.code.toByteArray();
+      if (codeBytes.length > 0xffff) {
+        throw new IllegalStateException(
+          "Method %s is too large".formatted(this.name));
+      }
+
+      final var bytes = new ByteArrayOutputStream();
+      try (var out = new DataOutputStream(bytes)) {
+        out.writeShort(this.access);
+        out.writeShort(owner.constantUTF8(this.name));
+        out.writeShort(owner.constantUTF8(this.descriptor));
+        out.writeShort(1);
+        out.writeShort(owner.constantUTF8("Code"));
+        out.writeInt(12 + codeBytes.length);
+        out.writeShort(this.maxStack);
+        out.writeShort(this.locals);
+        out.writeInt(codeBytes.length);
+        out.write(codeBytes);
+        out.writeShort(0);
+        out.writeShort(0);
+      } catch (final IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      owner.methods.add(bytes.toByteArray());
+    }
+  }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.cedarbridge.runtime.dynamic;
+
+import com.io7m.cedarbridge.runtime.api.CBDeserializeType;
+import com.io7m.cedarbridge.runtime.api.CBSerializableType;
+import com.io7m.cedarbridge.runtime.api.CBSerializationContextType;
+import com.io7m.cedarbridge.runtime.api.CBSerializeType;
+
+import java.io.IOException;
+import java.util.Objects;
+
+/**
+ * <p>A compiled codec for a single fully applied type.</p>
+ *
+ * <p>Values of records and variants are read and written as
+ * {@link CBDynamicValueType} values, and values of external types as the
+ * usual runtime classes. Codecs are immutable and may be shared between
+ * threads.</p>
+ *
+ * @see CBDynamicCompiler
+ */
+
+public final class CBDynamicCodec
+  implements CBDeserializeType<CBSerializableType>,
+  CBSerializeType<CBSerializableType>
+{
+  private final String type;
+  private final CBDynamicStepType step;
+
+  CBDynamicCodec(
+    final String inType,
+    final CBDynamicStepType inStep)
+  {
+    this.type = Objects.requireNonNull(inType, "type");
+    this.step = Objects.requireNonNull(inStep, "step");
+  }
+
+  /**
+   * @return The type expression for which this codec was compiled, such as
+   * {@code (com.io7m.cedarbridge:List com.io7m.example:Point)}
+   */
+
+  public String type()
+  {
+    return this.type;
+  }
+
+  CBDynamicStepType step()
+  {
+    return this.step;
+  }
+
+  /**
+   * Deserialize a value.
+   *
+   * @param context The serialization context
+   *
+   * @return The value
+   *
+   * @throws IOException On errors
+   */
+
+  @Override
+  public CBSerializableType execute(
+    final CBSerializationContextType context)
+    throws IOException
+  {
+    return this.step.execute(context);
+  }
+
+  /**
+   * Serialize a value.
+   *
+   * @param context The serialization context
+   * @param x       The value
+   *
+   * @throws IOException On errors, or if the value does not have the
+   *                     expected type
+   */
+
+  @Override
+  public void execute(
+    final CBSerializationContextType context,
+    final CBSerializableType x)
+    throws IOException
+  {
+    this.step.execute(context, x);
+  }
+
+  @Override
+  public String toString()
+  {
+    return "[CBDynamicCodec %s]".formatted(this.type);
+  }
+}
@@ -0,0 +1,571 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.cedarbridge.runtime.dynamic;
+
+import com.io7m.cedarbridge.runtime.api.CBBooleanType;
+import com.io7m.cedarbridge.runtime.api.CBByteArray;
+import com.io7m.cedarbridge.runtime.api.CBFloat16;
+import com.io7m.cedarbridge.runtime.api.CBFloat32;
+import com.io7m.cedarbridge.runtime.api.CBFloat64;
+import com.io7m.cedarbridge.runtime.api.CBIntegerSigned16;
+import com.io7m.cedarbridge.runtime.api.CBIntegerSigned32;
+import com.io7m.cedarbridge.runtime.api.CBIntegerSigned64;
+import com.io7m.cedarbridge.runtime.api.CBIntegerSigned8;
+import com.io7m.cedarbridge.runtime.api.CBIntegerUnsigned16;
+import com.io7m.cedarbridge.runtime.api.CBIntegerUnsigned32;
+import com.io7m.cedarbridge.runtime.api.CBIntegerUnsigned64;
+import com.io7m.cedarbridge.runtime.api.CBIntegerUnsigned8;
+import com.io7m.cedarbridge.runtime.api.CBString;
+import com.io7m.cedarbridge.runtime.api.CBURI;
+import com.io7m.cedarbridge.runtime.api.CBUUID;
+import com.io7m.cedarbridge.runtime.dynamic.CBDynamicSteps.Fields;
+import com.io7m.cedarbridge.runtime.dynamic.CBDynamicSteps.RecordStep;
+import com.io7m.cedarbridge.runtime.dynamic.CBDynamicSteps.VariantStep;
+import com.io7m.cedarbridge.runtime.time.CBDuration;
+import com.io7m.cedarbridge.runtime.time.CBLocalDate;
+import com.io7m.cedarbridge.runtime.time.CBLocalDateTime;
+import com.io7m.cedarbridge.runtime.time.CBLocalTime;
+import com.io7m.cedarbridge.runtime.time.CBOffsetDateTime;
+import com.io7m.cedarbridge.runtime.time.CBZoneOffset;
+import com.io7m.cedarbridge.schema.compiled.CBExternalName;
+import com.io7m.cedarbridge.schema.compiled.CBFieldType;
+import com.io7m.cedarbridge.schema.compiled.CBPackageType;
+import com.io7m.cedarbridge.schema.compiled.CBProtocolVersionDeclarationType;
+import com.io7m.cedarbridge.schema.compiled.CBRecordType;
+import com.io7m.cedarbridge.schema.compiled.CBTypeDeclarationType;
+import com.io7m.cedarbridge.schema.compiled.CBTypeExpressionType;
+import com.io7m.cedarbridge.schema.compiled.CBTypeExpressionType.CBTypeExprApplicationType;
+import com.io7m.cedarbridge.schema.compiled.CBTypeExpressionType.CBTypeExprNamedType;
+import com.io7m.cedarbridge.schema.compiled.CBTypeExpressionType.CBTypeExprParameterType;
+import com.io7m.cedarbridge.schema.compiled.CBTypeParameterType;
+import com.io7m.cedarbridge.schema.compiled.CBVariantType;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+/**
+ * <p>A compiler that turns schema types into codecs without generating any
+ * code.</p>
+ *
+ * <p>Each fully applied type (such as {@code (List Point)}) is compiled
+ * once into a tree of steps in which all fields, cases, type arguments, and
+ * external types have already been resolved, and the result is cached for
+ * the lifetime of the compiler. Recursive types are supported.</p>
+ *
+ * <p>The external types of the core and time packages are supported. Other
+ * external types have no known encoding and are rejected.</p>
+ *
+ * <p>The fields of records and variant cases are either interpreted, or
+ * compiled to JVM bytecode, according to the {@link CBDynamicCodecStrategy}
+ * given to the compiler.</p>
+ */
+
+public final class CBDynamicCompiler
+{
+  private static final String RUNTIME_API =
+    "com.io7m.cedarbridge.runtime.api";
+  private static final String RUNTIME_TIME =
+    "com.io7m.cedarbridge.runtime.time";
+
+  private static final Map<CBExternalName, CBDynamicStepType> SCALARS =
+    Map.ofEntries(
+      scalar(RUNTIME_API, "CBIntegerUnsigned8",
+             CBDynamicSteps.scalar(
+               CBIntegerUnsigned8.class,
+               CBIntegerUnsigned8::deserialize,
+               CBIntegerUnsigned8::serialize)),
+      scalar(RUNTIME_API, "CBIntegerUnsigned16",
+             CBDynamicSteps.scalar(
+               CBIntegerUnsigned16.class,
+               CBIntegerUnsigned16::deserialize,
+               CBIntegerUnsigned16::serialize)),
+      scalar(RUNTIME_API, "CBIntegerUnsigned32",
+             CBDynamicSteps.scalar(
+               CBIntegerUnsigned32.class,
+               CBIntegerUnsigned32::deserialize,
+               CBIntegerUnsigned32::serialize)),
+      scalar(RUNTIME_API, "CBIntegerUnsigned64",
+             CBDynamicSteps.scalar(
+               CBIntegerUnsigned64.class,
+               CBIntegerUnsigned64::deserialize,
+               CBIntegerUnsigned64::serialize)),
+      scalar(RUNTIME_API, "CBIntegerSigned8",
+             CBDynamicSteps.scalar(
+               CBIntegerSigned8.class,
+               CBIntegerSigned8::deserialize,
+               CBIntegerSigned8::serialize)),
+      scalar(RUNTIME_API, "CBIntegerSigned16",
+             CBDynamicSteps.scalar(
+               CBIntegerSigned16.class,
+               CBIntegerSigned16::deserialize,
+               CBIntegerSigned16::serialize)),
+      scalar(RUNTIME_API, "CBIntegerSigned32",
+             CBDynamicSteps.scalar(
+               CBIntegerSigned32.class,
+               CBIntegerSigned32::deserialize,
+               CBIntegerSigned32::serialize)),
+      scalar(RUNTIME_API, "CBIntegerSigned64",
+             CBDynamicSteps.scalar(
+               CBIntegerSigned64.class,
+               CBIntegerSigned64::deserialize,
+               CBIntegerSigned64::serialize)),
+      scalar(RUNTIME_API, "CBFloat16",
+             CBDynamicSteps.scalar(
+               CBFloat16.class,
+               CBFloat16::deserialize,
+               CBFloat16::serialize)),
+      scalar(RUNTIME_API, "CBFloat32",
+             CBDynamicSteps.scalar(
+               CBFloat32.class,
+               CBFloat32::deserialize,
+               CBFloat32::serialize)),
+      scalar(RUNTIME_API, "CBFloat64",
+             CBDynamicSteps.scalar(
+               CBFloat64.class,
+               CBFloat64::deserialize,
+               CBFloat64::serialize)),
+      scalar(RUNTIME_API, "CBString",
+             CBDynamicSteps.scalar(
+               CBString.class,
+               CBString::deserialize,
+               CBString::serialize)),
+      scalar(RUNTIME_API, "CBByteArray",
+             CBDynamicSteps.scalar(
+               CBByteArray.class,
+               CBByteArray::deserialize,
+               CBByteArray::serialize)),
+      scalar(RUNTIME_API, "CBUUID",
+             CBDynamicSteps.scalar(
+               CBUUID.class,
+               CBUUID::deserialize,
+               CBUUID::serialize)),
+      scalar(RUNTIME_API, "CBURI",
+             CBDynamicSteps.scalar(
+               CBURI.class,
+               CBURI::deserialize,
+               CBURI::serialize)),
+      scalar(RUNTIME_API, "CBBooleanType",
+             CBDynamicSteps.scalar(
+               CBBooleanType.class,
+               CBBooleanType::deserialize,
+               CBBooleanType::serialize)),
+      scalar(RUNTIME_TIME, "CBDuration",
+             CBDynamicSteps.scalar(
+               CBDuration.class,
+               CBDuration::deserialize,
+               CBDuration::serialize)),
+      scalar(RUNTIME_TIME, "CBLocalDate",
+             CBDynamicSteps.scalar(
+               CBLocalDate.class,
+               CBLocalDate::deserialize,
+               CBLocalDate::serialize)),
+      scalar(RUNTIME_TIME, "CBLocalDateTime",
+             CBDynamicSteps.scalar(
+               CBLocalDateTime.class,
+               CBLocalDateTime::deserialize,
+               CBLocalDateTime::serialize)),
+      scalar(RUNTIME_TIME, "CBLocalTime",
+             CBDynamicSteps.scalar(
+               CBLocalTime.class,
+               CBLocalTime::deserialize,
+               CBLocalTime::serialize)),
+      scalar(RUNTIME_TIME, "CBOffsetDateTime",
+             CBDynamicSteps.scalar(
+               CBOffsetDateTime.class,
+               CBOffsetDateTime::deserialize,
+               CBOffsetDateTime::serialize)),
+      scalar(RUNTIME_TIME, "CBZoneOffset",
+             CBDynamicSteps.scalar(
+               CBZoneOffset.class,
+               CBZoneOffset::deserialize,
+               CBZoneOffset::serialize))
+    );
+
+  private final CBDynamicCodecStrategy strategy;
+  private final Map<String, CBDynamicCodec> cache;
+  private final Map<String, CBDynamicCodec> pending;
+
+  /**
+   * Create a compiler with an empty cache that produces interpreted codecs.
+   */
+
+  public CBDynamicCompiler()
+  {
+    this(CBDynamicCodecStrategy.INTERPRETED);
+  }
+
+  /**
+   * Create a compiler with an empty cache.
+   *
+   * @param inStrategy The strategy used by compiled codecs
+   */
+
+  public CBDynamicCompiler(
+    final CBDynamicCodecStrategy inStrategy)
+  {
+    this.strategy = Objects.requireNonNull(inStrategy, "strategy");
+    this.cache = new HashMap<>();
+    this.pending = new HashMap<>();
+  }
+
+  /**
+   * @return The strategy used by compiled codecs
+   */
+
+  public CBDynamicCodecStrategy strategy()
+  {
+    return this.strategy;
+  }
+
+  private static Map.Entry<CBExternalName, CBDynamicStepType> scalar(
+    final String externalPackage,
+    final String externalName,
+    final CBDynamicStepType step)
+  {
+    return Map.entry(new CBExternalName(externalPackage, externalName), step);
+  }
+
+  /**
+   * Compile a codec for a type with no type parameters.
+   *
+   * @param type The type
+   *
+   * @return A codec
+   *
+   * @throws IllegalArgumentException If the type has type parameters, or
+   *                                  refers to an unsupported external type
+   */
+
+  public synchronized CBDynamicCodec codecFor(
+    final CBTypeDeclarationType type)
+  {
+    Objects.requireNonNull(type, "type");
+
+    try {
+      final var codec = this.compileApplication(type, List.of());
+      this.cache.putAll(this.pending);
+      return codec;
+    } finally {
+      this.pending.clear();
+    }
+  }
+
+  /**
+   * Compile a codec for a type expression that refers to no type
+   * parameters.
+   *
+   * @param type The type expression
+   *
+   * @return A codec
+   *
+   * @throws IllegalArgumentException If the type expression is not fully
+   *                                  applied, or refers to an unsupported
+   *                                  external type
+   */
+
+  public synchronized CBDynamicCodec codecFor(
+    final CBTypeExpressionType type)
+  {
+    Objects.requireNonNull(type, "type");
+
+    try {
+      final var codec = this.compileExpression(type, Map.of());
+      this.cache.putAll(this.pending);
+      return codec;
+    } finally {
+      this.pending.clear();
+    }
+  }
+
+  /**
+   * Compile a codec for the messages of the given protocol version.
+   *
+   * @param version The protocol version
+   *
+   * @return A codec
+   *
+   * @throws IllegalArgumentException If a message type refers to an
+   *                                  unsupported external type
+   */
+
+  public synchronized CBDynamicProtocolCodec protocolCodecFor(
+    final CBProtocolVersionDeclarationType version)
+  {
+    Objects.requireNonNull(version, "version");
+
+    final var codecs = new ArrayList<CBDynamicCodec>();
+    try {
+      for (final var type : version.typesInOrder()) {
+        codecs.add(this.compileExpression(type, Map.of()));
+      }
+      this.cache.putAll(this.pending);
+    } finally {
+      this.pending.clear();
+    }
+
+    return new CBDynamicProtocolCodec(
+      version.owner().id(),
+      version.version(),
+      codecs
+    );
+  }
+
+  /**
+   * Compile a codec for the messages of the given protocol version.
+   *
+   * @param pack     The package containing the protocol
+   * @param protocol The name of the protocol
+   * @param version  The protocol version
+   *
+   * @return A codec
+   *
+   * @throws IllegalArgumentException If the protocol or version does not
+   *                                  exist, or a message type refers to an
+   *                                  unsupported external type
+   */
+
+  public CBDynamicProtocolCodec protocolCodecFor(
+    final CBPackageType pack,
+    final String protocol,
+    final BigInteger version)
+  {
+    Objects.requireNonNull(pack, "pack");
+    Objects.requireNonNull(protocol, "protocol");
+    Objects.requireNonNull(version, "version");
+
+    final var declaration = pack.protocols().get(protocol);
+    if (declaration == null) {
+      throw new IllegalArgumentException(String.format(
+        "Package %s has no protocol %s",
+        pack.name(),
+        protocol)
+      );
+    }
+
+    final var versionDeclaration = declaration.versions().get(version);
+    if (versionDeclaration == null) {
+      throw new IllegalArgumentException(String.format(
+        "Protocol %s:%s has no version %s",
+        pack.name(),
+        protocol,
+        version)
+      );
+    }
+    return this.protocolCodecFor(versionDeclaration);
+  }
+
+  private static String nameOf(
+    final CBTypeDeclarationType type)
+  {
+    return "%s:%s".formatted(type.owner().name(), type.name());
+  }
+
+  private CBDynamicCodec compileExpression(
+    final CBTypeExpressionType expression,
+    final Map<CBTypeParameterType, CBDynamicCodec> arguments)
+  {
+    if (expression instanceof CBTypeExprParameterType parameter) {
+      final var argument = arguments.get(parameter.parameter());
+      if (argument == null) {
+        throw new IllegalArgumentException(String.format(
+          "Type parameter %s is not bound to a type",
+          parameter.parameter().name())
+        );
+      }
+      return argument;
+    }
+
+    if (expression instanceof CBTypeExprNamedType named) {
+      return this.compileApplication(named.declaration(), List.of());
+    }
+
+    if (expression instanceof CBTypeExprApplicationType application) {
+      final var compiledArguments =
+        new ArrayList<CBDynamicCodec>(application.arguments().size());
+      for (final var argument : application.arguments()) {
+        compiledArguments.add(this.compileExpression(argument, arguments));
+      }
+      return this.compileApplication(
+        application.target().declaration(),
+        compiledArguments
+      );
+    }
+
+    throw new IllegalStateException(
+      "Unrecognized type expression: %s".formatted(expression));
+  }
+
+  private CBDynamicCodec compileApplication(
+    final CBTypeDeclarationType declaration,
+    final List<CBDynamicCodec> arguments)
+  {
+    if (declaration.arity() != arguments.size()) {
+      throw new IllegalArgumentException(String.format(
+        "Type %s has arity %d but %d arguments were provided",
+        nameOf(declaration),
+        Integer.valueOf(declaration.arity()),
+        Integer.valueOf(arguments.size()))
+      );
+    }
+
+    final var key =
+      arguments.isEmpty()
+        ? nameOf(declaration)
+        : arguments.stream()
+        .map(CBDynamicCodec::type)
+        .collect(Collectors.joining(
+          " ", "(%s ".formatted(nameOf(declaration)), ")"));
+
+    /*
+     * Codecs compiled by the current request are held separately until the
+     * request succeeds, so that a failure cannot leave incomplete steps in
+     * the cache.
+     */
+
+    final var existing = this.cache.get(key);
+    if (existing != null) {
+      return existing;
+    }
+    final var existingPending = this.pending.get(key);
+    if (existingPending != null) {
+      return existingPending;
+    }
+
+    final var external = declaration.external();
+    if (external.isPresent()) {
+      final var codec =
+        new CBDynamicCodec(key, externalStep(external.get(), arguments));
+      this.pending.put(key, codec);
+      return codec;
+    }
+
+    final var bindings = new HashMap<CBTypeParameterType, CBDynamicCodec>();
+    final var parameters = declaration.parameters();
+    for (int index = 0; index < parameters.size(); ++index) {
+      bindings.put(parameters.get(index), arguments.get(index));
+    }
+
+    /*
+     * The step is cached before its fields are compiled, so that recursive
+     * references to the same application resolve to the same step.
+     */
+
+    if (declaration instanceof CBRecordType record) {
+      final var step = new RecordStep(nameOf(declaration));
+      final var codec = new CBDynamicCodec(key, step);
+      this.pending.put(key, codec);
+      step.setFields(
+        this.compileFields(key, record.fields(), bindings));
+      return codec;
+    }
+
+    if (declaration instanceof CBVariantType variant) {
+      final var step = new VariantStep(nameOf(declaration));
+      final var codec = new CBDynamicCodec(key, step);
+      this.pending.put(key, codec);
+
+      final var cases = variant.cases();
+      final var caseNames = new String[cases.size()];
+      final var caseFields = new CBDynamicFieldsType[cases.size()];
+      for (int index = 0; index < cases.size(); ++index) {
+        final var caseV = cases.get(index);
+        caseNames[index] = caseV.name();
+        caseFields[index] =
+          this.compileFields(
+            "%s:%s".formatted(key, caseV.name()),
+            caseV.fields(),
+            bindings
+          );
+      }
+      step.setCases(caseNames, caseFields);
+      return codec;
+    }
+
+    throw new IllegalArgumentException(String.format(
+      "Type %s has no encoding",
+      nameOf(declaration))
+    );
+  }
+
+  private CBDynamicFieldsType compileFields(
+    final String owner,
+    final List<CBFieldType> fields,
+    final Map<CBTypeParameterType, CBDynamicCodec> bindings)
+  {
+    final var names = new String[fields.size()];
+    final var steps = new CBDynamicStepType[fields.size()];
+    for (int index = 0; index < fields.size(); ++index) {
+      final var field = fields.get(index);
+      names[index] = field.name();
+      steps[index] = this.compileExpression(field.type(), bindings).step();
+    }
+
+    final var interpreted = new Fields(names, steps);
+    return switch (this.strategy) {
+      case INTERPRETED -> interpreted;
+      case BYTECODE -> CBDynamicBytecode.generate(owner, interpreted);
+    };
+  }
+
+  private static CBDynamicStepType externalStep(
+    final CBExternalName name,
+    final List<CBDynamicCodec> arguments)
+  {
+    final var scalar = SCALARS.get(name);
+    if (scalar != null) {
+      return scalar;
+    }
+
+    if (RUNTIME_API.equals(name.externalPackage())) {
+      switch (name.externalName()) {
+        case "CBList" -> {
+          return CBDynamicSteps.list(arguments.get(0).step());
+        }
+        case "CBMap" -> {
+          return CBDynamicSteps.map(
+            arguments.get(0).step(),
+            arguments.get(1).step()
+          );
+        }
+        case "CBMapEntry" -> {
+          return CBDynamicSteps.mapEntry(
+            arguments.get(0).step(),
+            arguments.get(1).step()
+          );
+        }
+        case "CBOptionType" -> {
+          return CBDynamicSteps.option(arguments.get(0).step());
+        }
+        default -> {
+
+        }
+      }
+    }
+
+    throw new IllegalArgumentException(String.format(
+      "External type %s.%s has no known encoding",
+      name.externalPackage(),
+      name.externalName())
+    );
+  }
+}
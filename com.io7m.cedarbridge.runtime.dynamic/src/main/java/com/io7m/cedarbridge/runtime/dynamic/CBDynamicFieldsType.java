@@ -0,0 +1,56 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.cedarbridge.runtime.dynamic;
+
+import com.io7m.cedarbridge.runtime.api.CBSerializationContextType;
+
+import java.io.IOException;
+
+/**
+ * A sequence of named fields, as found in records and variant cases.
+ */
+
+interface CBDynamicFieldsType
+{
+  /**
+   * Read the fields.
+   *
+   * @param context The serialization context
+   *
+   * @return The fields, in declaration order
+   *
+   * @throws IOException On errors
+   */
+
+  CBDynamicField[] read(CBSerializationContextType context)
+    throws IOException;
+
+  /**
+   * Write the fields of the given value.
+   *
+   * @param context The serialization context
+   * @param value   The value
+   *
+   * @throws IOException On errors
+   */
+
+  void write(
+    CBSerializationContextType context,
+    CBDynamicValueType value)
+    throws IOException;
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.cedarbridge.runtime.dynamic;
+
+import com.io7m.cedarbridge.runtime.api.CBProtocolMessageVersionedSerializerType;
+import com.io7m.cedarbridge.runtime.api.CBSerializationContextType;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * <p>A compiled codec for the messages of one version of a protocol.</p>
+ *
+ * <p>Messages are encoded exactly as by the serializers produced by the
+ * code generator: a variant index identifying the message type, followed by
+ * the message itself.</p>
+ *
+ * @see CBDynamicCompiler
+ */
+
+public final class CBDynamicProtocolCodec
+  implements CBProtocolMessageVersionedSerializerType<CBDynamicValueType>
+{
+  private final UUID protocolId;
+  private final BigInteger version;
+  private final List<CBDynamicCodec> messageCodecs;
+  private final CBDynamicStepType[] steps;
+  private final Map<String, Integer> indices;
+
+  CBDynamicProtocolCodec(
+    final UUID inProtocolId,
+    final BigInteger inVersion,
+    final List<CBDynamicCodec> inMessageCodecs)
+  {
+    this.protocolId =
+      Objects.requireNonNull(inProtocolId, "protocolId");
+    this.version =
+      Objects.requireNonNull(inVersion, "version");
+    this.messageCodecs =
+      List.copyOf(inMessageCodecs);
+
+    this.steps = new CBDynamicStepType[this.messageCodecs.size()];
+    final var byType = new HashMap<String, Integer>();
+    for (int index = 0; index < this.steps.length; ++index) {
+      final var codec = this.messageCodecs.get(index);
+      this.steps[index] = codec.step();
+      byType.put(codec.type(), Integer.valueOf(index));
+    }
+    this.indices = Map.copyOf(byType);
+  }
+
+  /**
+   * @return The protocol ID
+   */
+
+  public UUID protocolId()
+  {
+    return this.protocolId;
+  }
+
+  /**
+   * @return The codecs for each message type, in variant index order
+   */
+
+  public List<CBDynamicCodec> messageCodecs()
+  {
+    return this.messageCodecs;
+  }
+
+  @Override
+  public BigInteger version()
+  {
+    return this.version;
+  }
+
+  @Override
+  public Class<CBDynamicValueType> messageClass()
+  {
+    return CBDynamicValueType.class;
+  }
+
+  @Override
+  public void serialize(
+    final CBSerializationContextType context,
+    final CBDynamicValueType message)
+    throws IOException
+  {
+    final var index = this.indices.get(message.type());
+    if (index == null) {
+      throw context.errorInvalidValue(
+        CBDynamicProtocolCodec.class,
+        "Type %s is not a message type of this protocol".formatted(
+          message.type())
+      );
+    }
+
+    final var i = index.intValue();
+    context.writeVariantIndex(i);
+    this.steps[i].execute(context, message);
+  }
+
+  @Override
+  public CBDynamicValueType deserialize(
+    final CBSerializationContextType context)
+    throws IOException
+  {
+    final var index = context.readVariantIndex();
+    if (index < 0 || index >= this.steps.length) {
+      throw context.errorUnrecognizedVariantIndex(
+        CBDynamicProtocolCodec.class, index);
+    }
+    return (CBDynamicValueType) this.steps[index].execute(context);
+  }
+}
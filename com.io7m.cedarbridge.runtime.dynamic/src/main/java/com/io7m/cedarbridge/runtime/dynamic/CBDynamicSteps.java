@@ -0,0 +1,477 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.cedarbridge.runtime.dynamic;
+
+import com.io7m.cedarbridge.runtime.api.CBDeserializeType;
+import com.io7m.cedarbridge.runtime.api.CBList;
+import com.io7m.cedarbridge.runtime.api.CBMap;
+import com.io7m.cedarbridge.runtime.api.CBMapEntry;
+import com.io7m.cedarbridge.runtime.api.CBOptionType;
+import com.io7m.cedarbridge.runtime.api.CBSerializableType;
+import com.io7m.cedarbridge.runtime.api.CBSerializationContextType;
+import com.io7m.cedarbridge.runtime.api.CBSerializeType;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * The steps from which codec plans are built.
+ */
+
+final class CBDynamicSteps
+{
+  private CBDynamicSteps()
+  {
+
+  }
+
+  private static IOException errorWrongValue(
+    final CBSerializationContextType context,
+    final String expected,
+    final CBSerializableType value)
+  {
+    return context.errorInvalidValue(
+      CBDynamicCodec.class,
+      "Expected a value of type %s but received %s".formatted(
+        expected,
+        value.getClass().getName())
+    );
+  }
+
+  /**
+   * Check that the given value is an instance of the given class.
+   *
+   * @param context The serialization context
+   * @param value   The value
+   * @param clazz   The expected class
+   *
+   * @return The value
+   *
+   * @throws IOException If the value is of the wrong class
+   */
+
+  static Object checkValue(
+    final CBSerializationContextType context,
+    final CBSerializableType value,
+    final Class<?> clazz)
+    throws IOException
+  {
+    if (!clazz.isInstance(value)) {
+      throw errorWrongValue(context, clazz.getName(), value);
+    }
+    return value;
+  }
+
+  /**
+   * Check that the given value has the expected number of fields.
+   *
+   * @param context The serialization context
+   * @param value   The value
+   * @param count   The expected number of fields
+   *
+   * @return The fields of the value
+   *
+   * @throws IOException If the value has the wrong number of fields
+   */
+
+  static List<CBDynamicField> checkFields(
+    final CBSerializationContextType context,
+    final CBDynamicValueType value,
+    final int count)
+    throws IOException
+  {
+    final var fields = value.fields();
+    if (fields.size() != count) {
+      throw context.errorInvalidValue(
+        CBDynamicCodec.class,
+        "Expected %d fields but received %d".formatted(
+          Integer.valueOf(count),
+          Integer.valueOf(fields.size()))
+      );
+    }
+    return fields;
+  }
+
+  static <T extends CBSerializableType> CBDynamicStepType scalar(
+    final Class<T> clazz,
+    final CBDeserializeType<T> deserializer,
+    final CBSerializeType<T> serializer)
+  {
+    return new Scalar<>(clazz, deserializer, serializer);
+  }
+
+  static CBDynamicStepType list(
+    final CBDynamicStepType element)
+  {
+    return new ListStep(element);
+  }
+
+  static CBDynamicStepType map(
+    final CBDynamicStepType key,
+    final CBDynamicStepType value)
+  {
+    return new MapStep(key, value);
+  }
+
+  static CBDynamicStepType mapEntry(
+    final CBDynamicStepType key,
+    final CBDynamicStepType value)
+  {
+    return new MapEntryStep(key, value);
+  }
+
+  static CBDynamicStepType option(
+    final CBDynamicStepType value)
+  {
+    return new OptionStep(value);
+  }
+
+  record Scalar<T extends CBSerializableType>(
+    Class<T> clazz,
+    CBDeserializeType<T> deserializer,
+    CBSerializeType<T> serializer)
+    implements CBDynamicStepType
+  {
+    @Override
+    public CBSerializableType execute(
+      final CBSerializationContextType context)
+      throws IOException
+    {
+      return this.deserializer.execute(context);
+    }
+
+    @Override
+    public void execute(
+      final CBSerializationContextType context,
+      final CBSerializableType x)
+      throws IOException
+    {
+      checkValue(context, x, this.clazz);
+      this.serializer.execute(context, this.clazz.cast(x));
+    }
+  }
+
+  private record ListStep(
+    CBDynamicStepType element)
+    implements CBDynamicStepType
+  {
+    @Override
+    public CBSerializableType execute(
+      final CBSerializationContextType context)
+      throws IOException
+    {
+      return CBList.deserialize(context, this.element);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void execute(
+      final CBSerializationContextType context,
+      final CBSerializableType x)
+      throws IOException
+    {
+      if (!(x instanceof CBList<?> list)) {
+        throw errorWrongValue(context, CBList.class.getName(), x);
+      }
+      CBList.serialize(
+        context,
+        (CBList<CBSerializableType>) list,
+        this.element
+      );
+    }
+  }
+
+  private record MapStep(
+    CBDynamicStepType key,
+    CBDynamicStepType value)
+    implements CBDynamicStepType
+  {
+    @Override
+    public CBSerializableType execute(
+      final CBSerializationContextType context)
+      throws IOException
+    {
+      return CBMap.deserialize(context, this.key, this.value);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void execute(
+      final CBSerializationContextType context,
+      final CBSerializableType x)
+      throws IOException
+    {
+      if (!(x instanceof CBMap<?, ?> map)) {
+        throw errorWrongValue(context, CBMap.class.getName(), x);
+      }
+      CBMap.serialize(
+        context,
+        (CBMap<CBSerializableType, CBSerializableType>) map,
+        this.key,
+        this.value
+      );
+    }
+  }
+
+  private record MapEntryStep(
+    CBDynamicStepType key,
+    CBDynamicStepType value)
+    implements CBDynamicStepType
+  {
+    @Override
+    public CBSerializableType execute(
+      final CBSerializationContextType context)
+      throws IOException
+    {
+      return CBMapEntry.deserialize(context, this.key, this.value);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void execute(
+      final CBSerializationContextType context,
+      final CBSerializableType x)
+      throws IOException
+    {
+      if (!(x instanceof CBMapEntry<?, ?> entry)) {
+        throw errorWrongValue(context, CBMapEntry.class.getName(), x);
+      }
+      CBMapEntry.serialize(
+        context,
+        (CBMapEntry<CBSerializableType, CBSerializableType>) entry,
+        this.key,
+        this.value
+      );
+    }
+  }
+
+  private record OptionStep(
+    CBDynamicStepType value)
+    implements CBDynamicStepType
+  {
+    @Override
+    public CBSerializableType execute(
+      final CBSerializationContextType context)
+      throws IOException
+    {
+      return CBOptionType.deserialize(context, this.value);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void execute(
+      final CBSerializationContextType context,
+      final CBSerializableType x)
+      throws IOException
+    {
+      if (!(x instanceof CBOptionType<?> option)) {
+        throw errorWrongValue(context, CBOptionType.class.getName(), x);
+      }
+      CBOptionType.serialize(
+        context,
+        (CBOptionType<CBSerializableType>) option,
+        this.value
+      );
+    }
+  }
+
+  /**
+   * A sequence of named fields that is interpreted field by field.
+   */
+
+  static final class Fields implements CBDynamicFieldsType
+  {
+    private final String[] names;
+    private final CBDynamicStepType[] steps;
+
+    Fields(
+      final String[] inNames,
+      final CBDynamicStepType[] inSteps)
+    {
+      this.names = Objects.requireNonNull(inNames, "names");
+      this.steps = Objects.requireNonNull(inSteps, "steps");
+    }
+
+    String[] names()
+    {
+      return this.names.clone();
+    }
+
+    CBDynamicStepType[] steps()
+    {
+      return this.steps.clone();
+    }
+
+    @Override
+    public CBDynamicField[] read(
+      final CBSerializationContextType context)
+      throws IOException
+    {
+      final var fields = new CBDynamicField[this.steps.length];
+      for (int index = 0; index < this.steps.length; ++index) {
+        final var name = this.names[index];
+        context.begin(name);
+        try {
+          fields[index] =
+            new CBDynamicField(name, this.steps[index].execute(context));
+        } finally {
+          context.end(name);
+        }
+      }
+      return fields;
+    }
+
+    @Override
+    public void write(
+      final CBSerializationContextType context,
+      final CBDynamicValueType value)
+      throws IOException
+    {
+      final var fields = checkFields(context, value, this.steps.length);
+      for (int index = 0; index < this.steps.length; ++index) {
+        final var name = this.names[index];
+        context.begin(name);
+        try {
+          this.steps[index].execute(context, fields.get(index).value());
+        } finally {
+          context.end(name);
+        }
+      }
+    }
+  }
+
+  /**
+   * The step for a record type.
+   */
+
+  static final class RecordStep implements CBDynamicStepType
+  {
+    private final String type;
+    private CBDynamicFieldsType fields;
+
+    RecordStep(
+      final String inType)
+    {
+      this.type = Objects.requireNonNull(inType, "type");
+    }
+
+    void setFields(
+      final CBDynamicFieldsType inFields)
+    {
+      this.fields = Objects.requireNonNull(inFields, "fields");
+    }
+
+    @Override
+    public CBSerializableType execute(
+      final CBSerializationContextType context)
+      throws IOException
+    {
+      return new CBDynamicRecord(
+        this.type,
+        Arrays.asList(this.fields.read(context))
+      );
+    }
+
+    @Override
+    public void execute(
+      final CBSerializationContextType context,
+      final CBSerializableType x)
+      throws IOException
+    {
+      if (!(x instanceof CBDynamicRecord record)
+          || !record.type().equals(this.type)) {
+        throw errorWrongValue(context, this.type, x);
+      }
+      this.fields.write(context, record);
+    }
+  }
+
+  /**
+   * The step for a variant type.
+   */
+
+  static final class VariantStep implements CBDynamicStepType
+  {
+    private final String type;
+    private String[] caseNames;
+    private CBDynamicFieldsType[] cases;
+
+    VariantStep(
+      final String inType)
+    {
+      this.type = Objects.requireNonNull(inType, "type");
+    }
+
+    void setCases(
+      final String[] inCaseNames,
+      final CBDynamicFieldsType[] inCases)
+    {
+      this.caseNames = Objects.requireNonNull(inCaseNames, "caseNames");
+      this.cases = Objects.requireNonNull(inCases, "cases");
+    }
+
+    @Override
+    public CBSerializableType execute(
+      final CBSerializationContextType context)
+      throws IOException
+    {
+      final var index = context.readVariantIndex();
+      if (index < 0 || index >= this.cases.length) {
+        throw context.errorUnrecognizedVariantIndex(
+          CBDynamicVariant.class, index);
+      }
+
+      return new CBDynamicVariant(
+        this.type,
+        this.caseNames[index],
+        index,
+        Arrays.asList(this.cases[index].read(context))
+      );
+    }
+
+    @Override
+    public void execute(
+      final CBSerializationContextType context,
+      final CBSerializableType x)
+      throws IOException
+    {
+      if (!(x instanceof CBDynamicVariant variant)
+          || !variant.type().equals(this.type)) {
+        throw errorWrongValue(context, this.type, x);
+      }
+
+      final var index = variant.caseIndex();
+      if (index < 0
+          || index >= this.cases.length
+          || !this.caseNames[index].equals(variant.caseName())) {
+        throw context.errorInvalidValue(
+          CBDynamicCodec.class,
+          "Type %s has no case %s at index %d".formatted(
+            this.type,
+            variant.caseName(),
+            Integer.valueOf(index))
+        );
+      }
+
+      context.writeVariantIndex(index);
+      this.cases[index].write(context, variant);
+    }
+  }
+}
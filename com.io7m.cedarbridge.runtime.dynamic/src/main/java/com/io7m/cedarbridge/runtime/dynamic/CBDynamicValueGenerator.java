@@ -0,0 +1,505 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.cedarbridge.runtime.dynamic;
+
+import com.io7m.cedarbridge.runtime.api.CBBooleanType;
+import com.io7m.cedarbridge.runtime.api.CBByteArray;
+import com.io7m.cedarbridge.runtime.api.CBFloat16;
+import com.io7m.cedarbridge.runtime.api.CBFloat32;
+import com.io7m.cedarbridge.runtime.api.CBFloat64;
+import com.io7m.cedarbridge.runtime.api.CBIntegerSigned16;
+import com.io7m.cedarbridge.runtime.api.CBIntegerSigned32;
+import com.io7m.cedarbridge.runtime.api.CBIntegerSigned64;
+import com.io7m.cedarbridge.runtime.api.CBIntegerSigned8;
+import com.io7m.cedarbridge.runtime.api.CBIntegerUnsigned16;
+import com.io7m.cedarbridge.runtime.api.CBIntegerUnsigned32;
+import com.io7m.cedarbridge.runtime.api.CBIntegerUnsigned64;
+import com.io7m.cedarbridge.runtime.api.CBIntegerUnsigned8;
+import com.io7m.cedarbridge.runtime.api.CBList;
+import com.io7m.cedarbridge.runtime.api.CBMap;
+import com.io7m.cedarbridge.runtime.api.CBMapEntry;
+import com.io7m.cedarbridge.runtime.api.CBNone;
+import com.io7m.cedarbridge.runtime.api.CBSerializableType;
+import com.io7m.cedarbridge.runtime.api.CBSome;
+import com.io7m.cedarbridge.runtime.api.CBString;
+import com.io7m.cedarbridge.runtime.api.CBURI;
+import com.io7m.cedarbridge.runtime.api.CBUUID;
+import com.io7m.cedarbridge.runtime.time.CBDuration;
+import com.io7m.cedarbridge.runtime.time.CBLocalDate;
+import com.io7m.cedarbridge.runtime.time.CBLocalDateTime;
+import com.io7m.cedarbridge.runtime.time.CBLocalTime;
+import com.io7m.cedarbridge.runtime.time.CBOffsetDateTime;
+import com.io7m.cedarbridge.runtime.time.CBZoneOffset;
+import com.io7m.cedarbridge.schema.compiled.CBExternalName;
+import com.io7m.cedarbridge.schema.compiled.CBFieldType;
+import com.io7m.cedarbridge.schema.compiled.CBRecordType;
+import com.io7m.cedarbridge.schema.compiled.CBTypeDeclarationType;
+import com.io7m.cedarbridge.schema.compiled.CBTypeExpressionType;
+import com.io7m.cedarbridge.schema.compiled.CBTypeExpressionType.CBTypeExprApplicationType;
+import com.io7m.cedarbridge.schema.compiled.CBTypeExpressionType.CBTypeExprNamedType;
+import com.io7m.cedarbridge.schema.compiled.CBTypeExpressionType.CBTypeExprParameterType;
+import com.io7m.cedarbridge.schema.compiled.CBTypeParameterType;
+import com.io7m.cedarbridge.schema.compiled.CBVariantCaseType;
+import com.io7m.cedarbridge.schema.compiled.CBVariantType;
+
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.random.RandomGenerator;
+
+/**
+ * <p>A generator of random, valid values for schema types.</p>
+ *
+ * <p>Generated values use the same representations as
+ * {@link CBDynamicCompiler} codecs, and can therefore be written by them.
+ * Sequences, strings, and byte arrays are kept short. Beyond a maximum
+ * depth, lists and maps are empty, options are empty, and variants choose
+ * the case with the fewest fields, so that values of recursive types
+ * remain finite.</p>
+ */
+
+public final class CBDynamicValueGenerator
+{
+  private static final String RUNTIME_API =
+    "com.io7m.cedarbridge.runtime.api";
+  private static final String RUNTIME_TIME =
+    "com.io7m.cedarbridge.runtime.time";
+
+  private final RandomGenerator random;
+  private final int maximumLength;
+  private final int maximumDepth;
+
+  /**
+   * Create a generator.
+   *
+   * @param inRandom        The source of randomness
+   * @param inMaximumLength The maximum length of sequences, strings, and
+   *                        byte arrays
+   * @param inMaximumDepth  The maximum depth of nested records and variants
+   *                        beyond which values are kept minimal
+   */
+
+  public CBDynamicValueGenerator(
+    final RandomGenerator inRandom,
+    final int inMaximumLength,
+    final int inMaximumDepth)
+  {
+    this.random =
+      Objects.requireNonNull(inRandom, "random");
+
+    if (inMaximumLength < 0) {
+      throw new IllegalArgumentException(String.format(
+        "Maximum length %d must be non-negative",
+        Integer.valueOf(inMaximumLength))
+      );
+    }
+    if (inMaximumDepth < 0) {
+      throw new IllegalArgumentException(String.format(
+        "Maximum depth %d must be non-negative",
+        Integer.valueOf(inMaximumDepth))
+      );
+    }
+
+    this.maximumLength = inMaximumLength;
+    this.maximumDepth = inMaximumDepth;
+  }
+
+  /**
+   * Create a generator with a maximum length of 8 and a maximum depth of 4.
+   *
+   * @param inRandom The source of randomness
+   */
+
+  public CBDynamicValueGenerator(
+    final RandomGenerator inRandom)
+  {
+    this(inRandom, 8, 4);
+  }
+
+  private static String nameOf(
+    final CBTypeDeclarationType type)
+  {
+    return "%s:%s".formatted(type.owner().name(), type.name());
+  }
+
+  /**
+   * Generate a value of a type with no type parameters.
+   *
+   * @param type The type
+   *
+   * @return A value
+   *
+   * @throws IllegalArgumentException If the type has type parameters, or
+   *                                  refers to an unsupported external type
+   */
+
+  public CBSerializableType generate(
+    final CBTypeDeclarationType type)
+  {
+    Objects.requireNonNull(type, "type");
+    return this.generateApplication(type, List.of(), 0);
+  }
+
+  /**
+   * Generate a value of a type expression that refers to no type
+   * parameters.
+   *
+   * @param type The type expression
+   *
+   * @return A value
+   *
+   * @throws IllegalArgumentException If the type expression is not fully
+   *                                  applied, or refers to an unsupported
+   *                                  external type
+   */
+
+  public CBSerializableType generate(
+    final CBTypeExpressionType type)
+  {
+    Objects.requireNonNull(type, "type");
+    return this.generateExpression(type, Map.of(), 0);
+  }
+
+  /*
+   * Type arguments are passed around unevaluated, as a new value must be
+   * generated each time an argument is used.
+   */
+
+  private record Bound(
+    CBTypeExpressionType expression,
+    Map<CBTypeParameterType, Bound> environment)
+  {
+
+  }
+
+  private CBSerializableType generateExpression(
+    final CBTypeExpressionType expression,
+    final Map<CBTypeParameterType, Bound> environment,
+    final int depth)
+  {
+    if (expression instanceof CBTypeExprParameterType parameter) {
+      final var bound = environment.get(parameter.parameter());
+      if (bound == null) {
+        throw new IllegalArgumentException(String.format(
+          "Type parameter %s is not bound to a type",
+          parameter.parameter().name())
+        );
+      }
+      return this.generateExpression(
+        bound.expression, bound.environment, depth);
+    }
+
+    if (expression instanceof CBTypeExprNamedType named) {
+      return this.generateApplication(named.declaration(), List.of(), depth);
+    }
+
+    if (expression instanceof CBTypeExprApplicationType application) {
+      final var arguments =
+        application.arguments()
+          .stream()
+          .map(a -> new Bound(a, environment))
+          .toList();
+      return this.generateApplication(
+        application.target().declaration(),
+        arguments,
+        depth
+      );
+    }
+
+    throw new IllegalStateException(
+      "Unrecognized type expression: %s".formatted(expression));
+  }
+
+  private CBSerializableType generateApplication(
+    final CBTypeDeclarationType declaration,
+    final List<Bound> arguments,
+    final int depth)
+  {
+    if (declaration.arity() != arguments.size()) {
+      throw new IllegalArgumentException(String.format(
+        "Type %s has arity %d but %d arguments were provided",
+        nameOf(declaration),
+        Integer.valueOf(declaration.arity()),
+        Integer.valueOf(arguments.size()))
+      );
+    }
+
+    final var external = declaration.external();
+    if (external.isPresent()) {
+      return this.generateExternal(external.get(), arguments, depth);
+    }
+
+    final var environment = new HashMap<CBTypeParameterType, Bound>();
+    final var parameters = declaration.parameters();
+    for (int index = 0; index < parameters.size(); ++index) {
+      environment.put(parameters.get(index), arguments.get(index));
+    }
+
+    if (declaration instanceof CBRecordType record) {
+      return new CBDynamicRecord(
+        nameOf(declaration),
+        this.generateFields(record.fields(), environment, depth + 1)
+      );
+    }
+
+    if (declaration instanceof CBVariantType variant) {
+      final var cases = variant.cases();
+      if (cases.isEmpty()) {
+        throw new IllegalArgumentException(String.format(
+          "Type %s has no cases",
+          nameOf(declaration))
+        );
+      }
+
+      final CBVariantCaseType caseV;
+      if (depth >= this.maximumDepth) {
+        caseV = cases.stream()
+          .min(Comparator.comparingInt(c -> c.fields().size()))
+          .orElseThrow();
+      } else {
+        caseV = cases.get(this.random.nextInt(cases.size()));
+      }
+
+      return new CBDynamicVariant(
+        nameOf(declaration),
+        caseV.name(),
+        cases.indexOf(caseV),
+        this.generateFields(caseV.fields(), environment, depth + 1)
+      );
+    }
+
+    throw new IllegalArgumentException(String.format(
+      "Type %s has no encoding",
+      nameOf(declaration))
+    );
+  }
+
+  private List<CBDynamicField> generateFields(
+    final List<CBFieldType> fields,
+    final Map<CBTypeParameterType, Bound> environment,
+    final int depth)
+  {
+    final var results = new ArrayList<CBDynamicField>(fields.size());
+    for (final var field : fields) {
+      results.add(new CBDynamicField(
+        field.name(),
+        this.generateExpression(field.type(), environment, depth)
+      ));
+    }
+    return List.copyOf(results);
+  }
+
+  private int length(
+    final int depth)
+  {
+    if (depth >= this.maximumDepth) {
+      return 0;
+    }
+    return this.random.nextInt(this.maximumLength + 1);
+  }
+
+  private CBSerializableType generateArgument(
+    final Bound argument,
+    final int depth)
+  {
+    return this.generateExpression(
+      argument.expression, argument.environment, depth);
+  }
+
+  private CBSerializableType generateExternal(
+    final CBExternalName name,
+    final List<Bound> arguments,
+    final int depth)
+  {
+    if (RUNTIME_API.equals(name.externalPackage())) {
+      return this.generateCore(name, arguments, depth);
+    }
+    if (RUNTIME_TIME.equals(name.externalPackage())) {
+      return this.generateTime(name);
+    }
+    throw errorUnsupported(name);
+  }
+
+  private static IllegalArgumentException errorUnsupported(
+    final CBExternalName name)
+  {
+    return new IllegalArgumentException(String.format(
+      "External type %s.%s has no known encoding",
+      name.externalPackage(),
+      name.externalName())
+    );
+  }
+
+  private CBSerializableType generateCore(
+    final CBExternalName name,
+    final List<Bound> arguments,
+    final int depth)
+  {
+    final var r = this.random;
+    return switch (name.externalName()) {
+      case "CBIntegerUnsigned8" ->
+        new CBIntegerUnsigned8(r.nextInt(0x100));
+      case "CBIntegerUnsigned16" ->
+        new CBIntegerUnsigned16(r.nextInt(0x10000));
+      case "CBIntegerUnsigned32" ->
+        new CBIntegerUnsigned32(r.nextLong(0x1_0000_0000L));
+      case "CBIntegerUnsigned64" ->
+        new CBIntegerUnsigned64(r.nextLong());
+      case "CBIntegerSigned8" ->
+        new CBIntegerSigned8(r.nextInt(-0x80, 0x80));
+      case "CBIntegerSigned16" ->
+        new CBIntegerSigned16(r.nextInt(-0x8000, 0x8000));
+      case "CBIntegerSigned32" ->
+        new CBIntegerSigned32(r.nextInt());
+      case "CBIntegerSigned64" ->
+        new CBIntegerSigned64(r.nextLong());
+      case "CBFloat16" ->
+        new CBFloat16((double) r.nextInt(-2048, 2048) / 4.0);
+      case "CBFloat32" ->
+        new CBFloat32((double) r.nextFloat());
+      case "CBFloat64" ->
+        new CBFloat64(r.nextDouble());
+      case "CBString" ->
+        new CBString(this.string(depth));
+      case "CBByteArray" ->
+        new CBByteArray(this.bytes(depth));
+      case "CBUUID" ->
+        new CBUUID(new UUID(r.nextLong(), r.nextLong()));
+      case "CBURI" ->
+        new CBURI(URI.create("urn:cedarbridge:" + this.string(0)));
+      case "CBBooleanType" ->
+        CBBooleanType.fromBoolean(r.nextBoolean());
+      case "CBList" -> this.list(arguments, depth);
+      case "CBMap" -> this.map(arguments, depth);
+      case "CBMapEntry" -> new CBMapEntry<>(
+        this.generateArgument(arguments.get(0), depth),
+        this.generateArgument(arguments.get(1), depth)
+      );
+      case "CBOptionType" -> {
+        if (depth >= this.maximumDepth || r.nextBoolean()) {
+          yield CBNone.none();
+        }
+        yield new CBSome<>(this.generateArgument(arguments.get(0), depth));
+      }
+      default -> throw errorUnsupported(name);
+    };
+  }
+
+  private CBList<CBSerializableType> list(
+    final List<Bound> arguments,
+    final int depth)
+  {
+    final var size = this.length(depth);
+    final var values = new ArrayList<CBSerializableType>(size);
+    for (int index = 0; index < size; ++index) {
+      values.add(this.generateArgument(arguments.get(0), depth));
+    }
+    return new CBList<>(List.copyOf(values));
+  }
+
+  /*
+   * Keys are generated until the map reaches the chosen size, giving up
+   * after a bounded number of attempts for key types with few values.
+   */
+
+  private CBMap<CBSerializableType, CBSerializableType> map(
+    final List<Bound> arguments,
+    final int depth)
+  {
+    final var size = this.length(depth);
+    final var values =
+      new HashMap<CBSerializableType, CBSerializableType>(size);
+
+    for (int attempt = 0; attempt < size * 4 && values.size() < size;
+         ++attempt) {
+      values.put(
+        this.generateArgument(arguments.get(0), depth),
+        this.generateArgument(arguments.get(1), depth)
+      );
+    }
+    return new CBMap<>(Map.copyOf(values));
+  }
+
+  private String string(
+    final int depth)
+  {
+    final var size = this.length(depth);
+    final var text = new StringBuilder(size);
+    for (int index = 0; index < size; ++index) {
+      text.append((char) this.random.nextInt('a', 'z' + 1));
+    }
+    return text.toString();
+  }
+
+  private ByteBuffer bytes(
+    final int depth)
+  {
+    final var data = new byte[this.length(depth)];
+    this.random.nextBytes(data);
+    return ByteBuffer.wrap(data);
+  }
+
+  private LocalDate localDate()
+  {
+    return LocalDate.ofEpochDay(this.random.nextLong(0L, 100_000L));
+  }
+
+  private LocalTime localTime()
+  {
+    return LocalTime.ofNanoOfDay(
+      this.random.nextLong(LocalTime.MAX.toNanoOfDay()));
+  }
+
+  private ZoneOffset zoneOffset()
+  {
+    return ZoneOffset.ofTotalSeconds(this.random.nextInt(-72, 73) * 900);
+  }
+
+  private CBSerializableType generateTime(
+    final CBExternalName name)
+  {
+    return switch (name.externalName()) {
+      case "CBDuration" -> new CBDuration(
+        Duration.ofSeconds(
+          this.random.nextLong(0L, 1_000_000_000L),
+          this.random.nextLong(1_000_000_000L)));
+      case "CBLocalDate" -> new CBLocalDate(this.localDate());
+      case "CBLocalTime" -> new CBLocalTime(this.localTime());
+      case "CBLocalDateTime" -> new CBLocalDateTime(
+        LocalDateTime.of(this.localDate(), this.localTime()));
+      case "CBOffsetDateTime" -> new CBOffsetDateTime(
+        OffsetDateTime.of(
+          LocalDateTime.of(this.localDate(), this.localTime()),
+          this.zoneOffset()));
+      case "CBZoneOffset" -> new CBZoneOffset(this.zoneOffset());
+      default -> throw errorUnsupported(name);
+    };
+  }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.cedarbridge.runtime.dynamic;
+
+import com.io7m.cedarbridge.runtime.api.CBProtocolMessageType;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * <p>The type of values of schema-declared records and variants, decoded
+ * without generated code.</p>
+ *
+ * <p>Values of external types are represented by the usual runtime classes
+ * ({@link com.io7m.cedarbridge.runtime.api.CBIntegerUnsigned32},
+ * {@link com.io7m.cedarbridge.runtime.api.CBList},
+ * {@link com.io7m.cedarbridge.runtime.api.CBOptionType}, and so on).</p>
+ */
+
+public sealed interface CBDynamicValueType
+  extends CBProtocolMessageType
+  permits CBDynamicRecord, CBDynamicVariant
+{
+  /**
+   * @return The fully qualified name of the declared type, such as
+   * {@code com.io7m.example:Point}
+   */
+
+  String type();
+
+  /**
+   * @return The field values in declaration order
+   */
+
+  List<CBDynamicField> fields();
+
+  /**
+   * Find a field by name.
+   *
+   * @param name The field name
+   *
+   * @return The field, if it exists
+   */
+
+  default Optional<CBDynamicField> field(
+    final String name)
+  {
+    for (final var field : this.fields()) {
+      if (field.name().equals(name)) {
+        return Optional.of(field);
+      }
+    }
+    return Optional.empty();
+  }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.cedarbridge.runtime.journal;
+
+import java.nio.file.Path;
+import java.time.Clock;
+import java.util.Objects;
+
+/**
+ * The configuration of a journal writer.
+ *
+ * @param directory     The directory containing the journal segments
+ * @param segmentSize   The size in octets of each segment file; a segment is
+ *                      rolled over when the next message does not fit
+ * @param indexInterval The approximate number of octets of messages between
+ *                      entries in the sparse offset index of each segment
+ * @param clock         The clock used to timestamp messages
+ */
+
+public record CBJournalConfiguration(
+  Path directory,
+  int segmentSize,
+  int indexInterval,
+  Clock clock)
+{
+  /**
+   * The default segment size.
+   */
+
+  public static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+
+  /**
+   * The default index interval.
+   */
+
+  public static final int DEFAULT_INDEX_INTERVAL = 4096;
+
+  /**
+   * The smallest permitted segment size.
+   */
+
+  public static final int MINIMUM_SEGMENT_SIZE = 4096;
+
+  /**
+   * The configuration of a journal writer.
+   *
+   * @param directory     The directory containing the journal segments
+   * @param segmentSize   The size in octets of each segment file; a segment
+   *                      is rolled over when the next message does not fit
+   * @param indexInterval The approximate number of octets of messages
+   *                      between entries in the sparse offset index of each
+   *                      segment
+   * @param clock         The clock used to timestamp messages
+   */
+
+  public CBJournalConfiguration
+  {
+    Objects.requireNonNull(directory, "directory");
+    Objects.requireNonNull(clock, "clock");
+
+    if (segmentSize < MINIMUM_SEGMENT_SIZE) {
+      throw new IllegalArgumentException(String.format(
+        "Segment size %d must be at least %d",
+        Integer.valueOf(segmentSize),
+        Integer.valueOf(MINIMUM_SEGMENT_SIZE))
+      );
+    }
+    if (indexInterval < 1) {
+      throw new IllegalArgumentException(String.format(
+        "Index interval %d must be positive",
+        Integer.valueOf(indexInterval))
+      );
+    }
+  }
+
+  /**
+   * A configuration with the default segment size, index interval, and the
+   * system UTC clock.
+   *
+   * @param directory The directory containing the journal segments
+   */
+
+  public CBJournalConfiguration(
+    final Path directory)
+  {
+    this(
+      directory,
+      DEFAULT_SEGMENT_SIZE,
+      DEFAULT_INDEX_INTERVAL,
+      Clock.systemUTC()
+    );
+  }
+}
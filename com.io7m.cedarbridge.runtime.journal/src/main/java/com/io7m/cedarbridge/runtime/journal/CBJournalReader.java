@@ -0,0 +1,381 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.cedarbridge.runtime.journal;
+
+import com.io7m.cedarbridge.runtime.api.CBProtocolMessageType;
+import com.io7m.cedarbridge.runtime.api.CBProtocolType;
+import com.io7m.cedarbridge.runtime.api.CBSerializationContextByteBuffer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.OptionalLong;
+
+import static com.io7m.cedarbridge.runtime.journal.CBJournalSegment.HEADER_SIZE;
+
+/**
+ * <p>A reader that replays the messages in a journal.</p>
+ *
+ * <p>The reader sees the segments that existed when it was opened. Seeking
+ * uses the sparse offset index of each segment to find a nearby frame, and
+ * then scans forward. Seeking by time assumes that timestamps never
+ * decrease, which {@link CBJournalWriter} guarantees.</p>
+ *
+ * <p>Iterators throw {@link UncheckedIOException} on reaching a corrupt
+ * frame, except that a damaged frame at the end of the last segment
+ * is treated as the end of the journal, because it may be an append
+ * that was interrupted or is still in progress.</p>
+ *
+ * <p>Readers are not thread-safe.</p>
+ */
+
+public final class CBJournalReader implements Closeable
+{
+  private final List<CBJournalSegment> segments;
+
+  private CBJournalReader(
+    final List<CBJournalSegment> inSegments)
+  {
+    this.segments = List.copyOf(inSegments);
+  }
+
+  /**
+   * Open a journal for reading.
+   *
+   * @param directory The journal directory
+   *
+   * @return A reader
+   *
+   * @throws IOException On I/O errors
+   */
+
+  public static CBJournalReader open(
+    final Path directory)
+    throws IOException
+  {
+    Objects.requireNonNull(directory, "directory");
+
+    final var segments = new ArrayList<CBJournalSegment>();
+    for (final var file : CBJournalSegment.list(directory)) {
+      segments.add(CBJournalSegment.open(file, false));
+    }
+    return new CBJournalReader(segments);
+  }
+
+  /**
+   * Iterate over the encoded messages in the journal, starting at the first
+   * message with a sequence number not less than {@code fromSequence}.
+   *
+   * @param fromSequence The first sequence number
+   *
+   * @return An iterator over the messages
+   */
+
+  public Iterator<CBJournalRecord> records(
+    final long fromSequence)
+  {
+    var segmentIndex = 0;
+    for (int index = 0; index < this.segments.size(); ++index) {
+      if (this.segments.get(index).baseSequence() <= fromSequence) {
+        segmentIndex = index;
+      }
+    }
+
+    final var offset =
+      this.segments.isEmpty()
+        ? HEADER_SIZE
+        : this.segments.get(segmentIndex).offsetForSequence(fromSequence);
+
+    return new RecordIterator(
+      segmentIndex,
+      offset,
+      r -> r.sequence() >= fromSequence
+    );
+  }
+
+  /**
+   * Iterate over the encoded messages in the journal, starting at the first
+   * message appended at or after {@code time}.
+   *
+   * @param time The time
+   *
+   * @return An iterator over the messages
+   */
+
+  public Iterator<CBJournalRecord> records(
+    final Instant time)
+  {
+    Objects.requireNonNull(time, "time");
+
+    var segmentIndex = 0;
+    for (int index = 0; index < this.segments.size(); ++index) {
+      final var first = this.segments.get(index).read(HEADER_SIZE);
+      if (first != null && first.time().isBefore(time)) {
+        segmentIndex = index;
+      }
+    }
+
+    final var offset =
+      this.segments.isEmpty()
+        ? HEADER_SIZE
+        : this.segments.get(segmentIndex).offsetForTime(time);
+
+    return new RecordIterator(
+      segmentIndex,
+      offset,
+      r -> !r.time().isBefore(time)
+    );
+  }
+
+  /**
+   * Find the sequence number of the first message appended at or after
+   * {@code time}.
+   *
+   * @param time The time
+   *
+   * @return The sequence number, if any such message exists
+   */
+
+  public OptionalLong sequenceAt(
+    final Instant time)
+  {
+    final var iterator = this.records(time);
+    if (iterator.hasNext()) {
+      return OptionalLong.of(iterator.next().sequence());
+    }
+    return OptionalLong.empty();
+  }
+
+  /**
+   * Replay the messages of the given protocol, starting at the first
+   * message with a sequence number not less than {@code fromSequence}.
+   * Messages of other protocols are skipped. The iterator throws
+   * {@link UncheckedIOException} if a message cannot be deserialized, or
+   * was encoded with a protocol version that {@code protocol} does not
+   * support.
+   *
+   * @param protocol     The protocol
+   * @param fromSequence The first sequence number
+   * @param <T>          The type of protocol messages
+   *
+   * @return An iterator over the messages
+   */
+
+  public <T extends CBProtocolMessageType> Iterator<CBJournalEntry<T>> replay(
+    final CBProtocolType<T> protocol,
+    final long fromSequence)
+  {
+    Objects.requireNonNull(protocol, "protocol");
+    return new ReplayIterator<>(protocol, this.records(fromSequence));
+  }
+
+  /**
+   * Replay the messages of the given protocol, starting at the first
+   * message appended at or after {@code time}.
+   *
+   * @param protocol The protocol
+   * @param time     The time
+   * @param <T>      The type of protocol messages
+   *
+   * @return An iterator over the messages
+   *
+   * @see #replay(CBProtocolType, long)
+   */
+
+  public <T extends CBProtocolMessageType> Iterator<CBJournalEntry<T>> replay(
+    final CBProtocolType<T> protocol,
+    final Instant time)
+  {
+    Objects.requireNonNull(protocol, "protocol");
+    return new ReplayIterator<>(protocol, this.records(time));
+  }
+
+  @Override
+  public void close()
+    throws IOException
+  {
+    for (final var segment : this.segments) {
+      segment.close();
+    }
+  }
+
+  /*
+   * A segment ends at the first unwritten frame. Anything else that is
+   * not an intact frame is corruption, unless it is in the last segment,
+   * where it may be an append that was interrupted or is still in
+   * progress.
+   */
+
+  private static void checkEndOfSegment(
+    final List<CBJournalSegment> segments,
+    final int segmentIndex,
+    final int offset)
+  {
+    final var segment = segments.get(segmentIndex);
+    if (segmentIndex == segments.size() - 1) {
+      return;
+    }
+    if (offset >= HEADER_SIZE && segment.isUnwritten(offset)) {
+      return;
+    }
+
+    throw new UncheckedIOException(new IOException(
+      "Journal segment %d has a corrupt frame at offset %d".formatted(
+        Long.valueOf(segment.baseSequence()),
+        Integer.valueOf(offset))
+    ));
+  }
+
+  private interface RecordFilterType
+  {
+    boolean accept(CBJournalRecord record);
+  }
+
+  private final class RecordIterator implements Iterator<CBJournalRecord>
+  {
+    private final RecordFilterType filter;
+    private int segmentIndex;
+    private int offset;
+    private CBJournalRecord next;
+
+    RecordIterator(
+      final int inSegmentIndex,
+      final int inOffset,
+      final RecordFilterType inFilter)
+    {
+      this.segmentIndex = inSegmentIndex;
+      this.offset = inOffset;
+      this.filter = inFilter;
+      this.advance();
+    }
+
+    private void advance()
+    {
+      final var segments = CBJournalReader.this.segments;
+
+      this.next = null;
+      while (this.segmentIndex < segments.size()) {
+        final var segment = segments.get(this.segmentIndex);
+        final var record = segment.read(this.offset);
+        if (record == null) {
+          checkEndOfSegment(segments, this.segmentIndex, this.offset);
+          this.segmentIndex += 1;
+          this.offset = HEADER_SIZE;
+          continue;
+        }
+
+        this.offset =
+          CBJournalSegment.frameEnd(this.offset, record.payload().remaining());
+        if (this.filter.accept(record)) {
+          this.next = record;
+          return;
+        }
+      }
+    }
+
+    @Override
+    public boolean hasNext()
+    {
+      return this.next != null;
+    }
+
+    @Override
+    public CBJournalRecord next()
+    {
+      final var result = this.next;
+      if (result == null) {
+        throw new NoSuchElementException();
+      }
+      this.advance();
+      return result;
+    }
+  }
+
+  private static final class ReplayIterator<T extends CBProtocolMessageType>
+    implements Iterator<CBJournalEntry<T>>
+  {
+    private final CBProtocolType<T> protocol;
+    private final Iterator<CBJournalRecord> records;
+    private CBJournalRecord next;
+
+    ReplayIterator(
+      final CBProtocolType<T> inProtocol,
+      final Iterator<CBJournalRecord> inRecords)
+    {
+      this.protocol = inProtocol;
+      this.records = inRecords;
+      this.advance();
+    }
+
+    private void advance()
+    {
+      this.next = null;
+      while (this.records.hasNext()) {
+        final var record = this.records.next();
+        if (record.protocolId().equals(this.protocol.protocolId())) {
+          this.next = record;
+          return;
+        }
+      }
+    }
+
+    @Override
+    public boolean hasNext()
+    {
+      return this.next != null;
+    }
+
+    @Override
+    public CBJournalEntry<T> next()
+    {
+      final var record = this.next;
+      if (record == null) {
+        throw new NoSuchElementException();
+      }
+      this.advance();
+
+      final var version = record.protocolVersion();
+      final var serializer =
+        this.protocol.serializerForProtocolVersion(version)
+          .orElseThrow(() -> new UncheckedIOException(new IOException(
+            "Message %d uses unsupported protocol version %s".formatted(
+              Long.valueOf(record.sequence()),
+              Long.toUnsignedString(version))
+          )));
+
+      try {
+        return new CBJournalEntry<>(
+          record.sequence(),
+          record.time(),
+          version,
+          serializer.deserialize(
+            CBSerializationContextByteBuffer.create(record.payload()))
+        );
+      } catch (final IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+  }
+}
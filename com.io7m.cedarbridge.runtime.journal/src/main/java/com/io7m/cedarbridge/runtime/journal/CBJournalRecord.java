@@ -0,0 +1,64 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.cedarbridge.runtime.journal;
+
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * A message recorded in a journal, in its encoded form.
+ *
+ * @param sequence        The sequence number of the message
+ * @param time            The time at which the message was appended
+ * @param protocolId      The ID of the protocol to which the message belongs
+ * @param protocolVersion The version of the protocol used to encode the
+ *                        message
+ * @param payload         The encoded message; a read-only view of the
+ *                        journal that remains valid while the reader is open
+ */
+
+public record CBJournalRecord(
+  long sequence,
+  Instant time,
+  UUID protocolId,
+  long protocolVersion,
+  ByteBuffer payload)
+{
+  /**
+   * A message recorded in a journal, in its encoded form.
+   *
+   * @param sequence        The sequence number of the message
+   * @param time            The time at which the message was appended
+   * @param protocolId      The ID of the protocol to which the message
+   *                        belongs
+   * @param protocolVersion The version of the protocol used to encode the
+   *                        message
+   * @param payload         The encoded message; a read-only view of the
+   *                        journal that remains valid while the reader is
+   *                        open
+   */
+
+  public CBJournalRecord
+  {
+    Objects.requireNonNull(time, "time");
+    Objects.requireNonNull(protocolId, "protocolId");
+    Objects.requireNonNull(payload, "payload");
+  }
+}
@@ -0,0 +1,481 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.cedarbridge.runtime.journal;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32C;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.CREATE_NEW;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * <p>A single memory-mapped journal segment and its sparse offset
+ * index.</p>
+ *
+ * <p>A segment file begins with a 32 octet header (magic number, format
+ * version, base sequence number, and segment size) followed by frames
+ * aligned to 8 octets. Each frame consists of a 52 octet header (frame
+ * size, CRC32C checksum, sequence number, timestamp seconds and
+ * nanoseconds, protocol ID, and protocol version) followed by the encoded
+ * message. The frame size is written last, and a frame size of zero marks
+ * the end of the segment.</p>
+ *
+ * <p>The index file holds 24 octet entries (sequence number, timestamp
+ * seconds and nanoseconds, and frame offset) for a subset of the frames in
+ * the segment.</p>
+ */
+
+final class CBJournalSegment implements Closeable
+{
+  static final int MAGIC = 0x43424A53;
+  static final int VERSION = 1;
+  static final int HEADER_SIZE = 32;
+  static final int FRAME_HEADER_SIZE = 52;
+  static final int INDEX_ENTRY_SIZE = 24;
+
+  private static final Pattern SEGMENT_NAME =
+    Pattern.compile("([0-9]{20})\\.journal");
+
+  private final long baseSequence;
+  private final MappedByteBuffer buffer;
+  private final ArrayList<IndexEntry> index;
+  private final FileChannel indexChannel;
+  private final ByteBuffer indexScratch;
+  private final CRC32C crc;
+
+  record IndexEntry(
+    long sequence,
+    Instant time,
+    int offset)
+  {
+
+  }
+
+  private CBJournalSegment(
+    final long inBaseSequence,
+    final MappedByteBuffer inBuffer,
+    final List<IndexEntry> inIndex,
+    final FileChannel inIndexChannel)
+  {
+    this.baseSequence =
+      inBaseSequence;
+    this.buffer =
+      Objects.requireNonNull(inBuffer, "buffer");
+    this.index =
+      new ArrayList<>(inIndex);
+    this.indexChannel =
+      inIndexChannel;
+    this.indexScratch =
+      ByteBuffer.allocate(INDEX_ENTRY_SIZE);
+    this.crc =
+      new CRC32C();
+
+    this.buffer.order(ByteOrder.BIG_ENDIAN);
+  }
+
+  static Path segmentFile(
+    final Path directory,
+    final long baseSequence)
+  {
+    return directory.resolve(
+      "%020d.journal".formatted(Long.valueOf(baseSequence)));
+  }
+
+  private static Path indexFileOf(
+    final Path segmentFile)
+  {
+    final var name = segmentFile.getFileName().toString();
+    return segmentFile.resolveSibling(
+      name.substring(0, name.length() - ".journal".length()) + ".index"
+    );
+  }
+
+  /**
+   * @param directory The journal directory
+   *
+   * @return The segment files in the directory in sequence order
+   *
+   * @throws IOException On I/O errors
+   */
+
+  static List<Path> list(
+    final Path directory)
+    throws IOException
+  {
+    try (var stream = Files.list(directory)) {
+      return stream
+        .filter(p -> SEGMENT_NAME.matcher(p.getFileName().toString()).matches())
+        .sorted()
+        .toList();
+    }
+  }
+
+  static CBJournalSegment create(
+    final Path directory,
+    final long baseSequence,
+    final int size)
+    throws IOException
+  {
+    final var file = segmentFile(directory, baseSequence);
+
+    final MappedByteBuffer buffer;
+    try (var channel = FileChannel.open(file, CREATE_NEW, READ, WRITE)) {
+      buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0L, size);
+    }
+
+    buffer.order(ByteOrder.BIG_ENDIAN);
+    buffer.putInt(4, VERSION);
+    buffer.putLong(8, baseSequence);
+    buffer.putInt(16, size);
+    buffer.putInt(0, MAGIC);
+
+    final var indexChannel =
+      FileChannel.open(indexFileOf(file), CREATE, WRITE);
+    indexChannel.truncate(0L);
+    return new CBJournalSegment(baseSequence, buffer, List.of(), indexChannel);
+  }
+
+  static CBJournalSegment open(
+    final Path file,
+    final boolean writable)
+    throws IOException
+  {
+    final MappedByteBuffer buffer;
+    if (writable) {
+      try (var channel = FileChannel.open(file, READ, WRITE)) {
+        buffer = channel.map(
+          FileChannel.MapMode.READ_WRITE, 0L, channel.size());
+      }
+    } else {
+      try (var channel = FileChannel.open(file, READ)) {
+        buffer = channel.map(
+          FileChannel.MapMode.READ_ONLY, 0L, channel.size());
+      }
+    }
+
+    buffer.order(ByteOrder.BIG_ENDIAN);
+    if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+      throw new IOException(
+        "File %s is not a journal segment".formatted(file));
+    }
+
+    final var version = buffer.getInt(4);
+    if (version != VERSION) {
+      throw new IOException(
+        "File %s has an unsupported version %d".formatted(
+          file,
+          Integer.valueOf(version))
+      );
+    }
+
+    final var baseSequence = buffer.getLong(8);
+    final var indexFile = indexFileOf(file);
+    final var entries = new ArrayList<IndexEntry>();
+    if (Files.isRegularFile(indexFile)) {
+      final var data = ByteBuffer.wrap(Files.readAllBytes(indexFile));
+      while (data.remaining() >= INDEX_ENTRY_SIZE) {
+        final var sequence = data.getLong();
+        final var seconds = data.getLong();
+        final var nanos = data.getInt();
+        final var offset = data.getInt();
+        entries.add(new IndexEntry(
+          sequence,
+          Instant.ofEpochSecond(seconds, Integer.toUnsignedLong(nanos)),
+          offset
+        ));
+      }
+    }
+
+    final FileChannel indexChannel;
+    if (writable) {
+      indexChannel = FileChannel.open(indexFile, CREATE, WRITE);
+      indexChannel.truncate((long) entries.size() * INDEX_ENTRY_SIZE);
+      indexChannel.position(indexChannel.size());
+    } else {
+      indexChannel = null;
+    }
+
+    return new CBJournalSegment(baseSequence, buffer, entries, indexChannel);
+  }
+
+  long baseSequence()
+  {
+    return this.baseSequence;
+  }
+
+  int size()
+  {
+    return this.buffer.capacity();
+  }
+
+  static int frameEnd(
+    final int offset,
+    final int payloadSize)
+  {
+    final var end = (long) offset + FRAME_HEADER_SIZE + payloadSize;
+    return (int) ((end + 7L) & ~7L);
+  }
+
+  /**
+   * Read the frame at the given offset.
+   *
+   * @param offset The frame offset
+   *
+   * @return The frame, or {@code null} if there is no complete frame at the
+   * offset
+   */
+
+  CBJournalRecord read(
+    final int offset)
+  {
+    if (offset < HEADER_SIZE
+        || offset > this.buffer.capacity() - FRAME_HEADER_SIZE) {
+      return null;
+    }
+
+    final var frameSize = this.buffer.getInt(offset);
+    if (frameSize < FRAME_HEADER_SIZE
+        || frameSize > this.buffer.capacity() - offset) {
+      return null;
+    }
+
+    this.crc.reset();
+    this.crc.update(this.buffer.slice(offset + 8, frameSize - 8));
+    if ((int) this.crc.getValue() != this.buffer.getInt(offset + 4)) {
+      return null;
+    }
+
+    return new CBJournalRecord(
+      this.buffer.getLong(offset + 8),
+      Instant.ofEpochSecond(
+        this.buffer.getLong(offset + 16),
+        Integer.toUnsignedLong(this.buffer.getInt(offset + 24))
+      ),
+      new UUID(
+        this.buffer.getLong(offset + 28),
+        this.buffer.getLong(offset + 36)
+      ),
+      this.buffer.getLong(offset + 44),
+      this.buffer.slice(
+        offset + FRAME_HEADER_SIZE,
+        frameSize - FRAME_HEADER_SIZE
+      ).asReadOnlyBuffer()
+    );
+  }
+
+  /**
+   * @param offset The frame offset
+   *
+   * @return {@code true} if the frame size at the given offset is zero
+   */
+
+  boolean isUnwritten(
+    final int offset)
+  {
+    return offset > this.buffer.capacity() - 4
+           || this.buffer.getInt(offset) == 0;
+  }
+
+  /**
+   * Zero the segment from the given offset onwards, discarding any partially
+   * written frames.
+   *
+   * @param offset The offset
+   */
+
+  void clearFrom(
+    final int offset)
+  {
+    final var zeroes = new byte[4096];
+    var position = offset;
+    while (position < this.buffer.capacity()) {
+      final var length =
+        Math.min(zeroes.length, this.buffer.capacity() - position);
+      this.buffer.put(position, zeroes, 0, length);
+      position += length;
+    }
+  }
+
+  /**
+   * @param offset The frame offset
+   *
+   * @return A view of the space available for a message payload in a frame
+   * at the given offset
+   */
+
+  ByteBuffer payloadArea(
+    final int offset)
+  {
+    final var start = offset + FRAME_HEADER_SIZE;
+    return this.buffer.slice(start, this.buffer.capacity() - start);
+  }
+
+  /**
+   * Complete a frame whose payload has already been written to
+   * {@link #payloadArea(int)}.
+   */
+
+  void commit(
+    final int offset,
+    final long sequence,
+    final Instant time,
+    final UUID protocolId,
+    final long protocolVersion,
+    final int payloadSize)
+  {
+    final var frameSize = FRAME_HEADER_SIZE + payloadSize;
+
+    this.buffer.putLong(offset + 8, sequence);
+    this.buffer.putLong(offset + 16, time.getEpochSecond());
+    this.buffer.putInt(offset + 24, time.getNano());
+    this.buffer.putLong(offset + 28, protocolId.getMostSignificantBits());
+    this.buffer.putLong(offset + 36, protocolId.getLeastSignificantBits());
+    this.buffer.putLong(offset + 44, protocolVersion);
+
+    this.crc.reset();
+    this.crc.update(this.buffer.slice(offset + 8, frameSize - 8));
+    this.buffer.putInt(offset + 4, (int) this.crc.getValue());
+    this.buffer.putInt(offset, frameSize);
+  }
+
+  boolean isIndexEmpty()
+  {
+    return this.index.isEmpty();
+  }
+
+  void addIndex(
+    final long sequence,
+    final Instant time,
+    final int offset)
+    throws IOException
+  {
+    this.index.add(new IndexEntry(sequence, time, offset));
+
+    this.indexScratch.clear();
+    this.indexScratch.putLong(sequence);
+    this.indexScratch.putLong(time.getEpochSecond());
+    this.indexScratch.putInt(time.getNano());
+    this.indexScratch.putInt(offset);
+    this.indexScratch.flip();
+    while (this.indexScratch.hasRemaining()) {
+      this.indexChannel.write(this.indexScratch);
+    }
+  }
+
+  /**
+   * Discard index entries that refer to frames at or beyond the given offset.
+   *
+   * @param offset The offset
+   *
+   * @throws IOException On I/O errors
+   */
+
+  void truncateIndex(
+    final int offset)
+    throws IOException
+  {
+    this.index.removeIf(e -> e.offset() >= offset);
+    this.indexChannel.truncate((long) this.index.size() * INDEX_ENTRY_SIZE);
+    this.indexChannel.position(this.indexChannel.size());
+  }
+
+  /**
+   * @param sequence The sequence number
+   *
+   * @return The offset of the last indexed frame with a sequence number not
+   * greater than {@code sequence}
+   */
+
+  int offsetForSequence(
+    final long sequence)
+  {
+    var low = 0;
+    var high = this.index.size() - 1;
+    var result = HEADER_SIZE;
+    while (low <= high) {
+      final var middle = (low + high) >>> 1;
+      final var entry = this.index.get(middle);
+      if (entry.sequence() <= sequence) {
+        result = entry.offset();
+        low = middle + 1;
+      } else {
+        high = middle - 1;
+      }
+    }
+    return result;
+  }
+
+  /**
+   * @param time The time
+   *
+   * @return The offset of the last indexed frame with a timestamp strictly
+   * before {@code time}
+   */
+
+  int offsetForTime(
+    final Instant time)
+  {
+    var low = 0;
+    var high = this.index.size() - 1;
+    var result = HEADER_SIZE;
+    while (low <= high) {
+      final var middle = (low + high) >>> 1;
+      final var entry = this.index.get(middle);
+      if (entry.time().isBefore(time)) {
+        result = entry.offset();
+        low = middle + 1;
+      } else {
+        high = middle - 1;
+      }
+    }
+    return result;
+  }
+
+  void force()
+    throws IOException
+  {
+    this.buffer.force();
+    if (this.indexChannel != null) {
+      this.indexChannel.force(false);
+    }
+  }
+
+  @Override
+  public void close()
+    throws IOException
+  {
+    if (this.indexChannel != null) {
+      this.indexChannel.close();
+    }
+  }
+}
@@ -0,0 +1,366 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.cedarbridge.runtime.journal;
+
+import com.io7m.cedarbridge.runtime.api.CBProtocolMessageType;
+import com.io7m.cedarbridge.runtime.api.CBProtocolMessageVersionedSerializerType;
+import com.io7m.cedarbridge.runtime.api.CBSerializationContextByteBuffer;
+import com.io7m.cedarbridge.runtime.api.CBSerializationException;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.time.Instant;
+import java.util.Objects;
+import java.util.UUID;
+
+import static com.io7m.cedarbridge.runtime.journal.CBJournalSegment.FRAME_HEADER_SIZE;
+import static com.io7m.cedarbridge.runtime.journal.CBJournalSegment.HEADER_SIZE;
+
+/**
+ * <p>A writer that appends messages to a journal.</p>
+ *
+ * <p>A journal is a directory of memory-mapped segment files, each named
+ * after the sequence number of its first message. Messages are serialized
+ * directly into the current segment, and a new segment is started when the
+ * next message does not fit. Each message is assigned the next sequence
+ * number and a timestamp taken from the configured clock; timestamps never
+ * decrease, even if the clock does.</p>
+ *
+ * <p>Opening a writer on an existing journal continues the last segment
+ * after its last intact message. Appended messages reach the operating
+ * system immediately, but are only guaranteed to be durable after
+ * {@link #flush()} or {@link #close()}.</p>
+ */
+
+public final class CBJournalWriter implements Closeable
+{
+  private final CBJournalConfiguration configuration;
+  private final Object lock;
+  private CBJournalSegment segment;
+  private int offset;
+  private int bytesSinceIndex;
+  private long nextSequence;
+  private Instant lastTime;
+  private boolean closed;
+
+  private CBJournalWriter(
+    final CBJournalConfiguration inConfiguration,
+    final CBJournalSegment inSegment,
+    final int inOffset,
+    final long inNextSequence,
+    final Instant inLastTime)
+  {
+    this.configuration =
+      Objects.requireNonNull(inConfiguration, "configuration");
+    this.segment =
+      Objects.requireNonNull(inSegment, "segment");
+    this.offset =
+      inOffset;
+    this.nextSequence =
+      inNextSequence;
+    this.lastTime =
+      Objects.requireNonNull(inLastTime, "lastTime");
+    this.lock =
+      new Object();
+  }
+
+  /**
+   * Open a journal for writing, creating the directory and the first
+   * segment if necessary.
+   *
+   * @param configuration The configuration
+   *
+   * @return A writer
+   *
+   * @throws IOException On I/O errors
+   */
+
+  public static CBJournalWriter open(
+    final CBJournalConfiguration configuration)
+    throws IOException
+  {
+    Objects.requireNonNull(configuration, "configuration");
+
+    final var directory = configuration.directory();
+    Files.createDirectories(directory);
+
+    final var files = CBJournalSegment.list(directory);
+    if (files.isEmpty()) {
+      final var segment =
+        CBJournalSegment.create(directory, 0L, configuration.segmentSize());
+      return new CBJournalWriter(
+        configuration, segment, HEADER_SIZE, 0L, Instant.EPOCH);
+    }
+
+    final var segment =
+      CBJournalSegment.open(files.get(files.size() - 1), true);
+
+    try {
+      var offset = HEADER_SIZE;
+      var nextSequence = segment.baseSequence();
+      var lastTime = Instant.EPOCH;
+      while (true) {
+        final var record = segment.read(offset);
+        if (record == null || record.sequence() != nextSequence) {
+          break;
+        }
+        nextSequence = record.sequence() + 1L;
+        lastTime = record.time();
+        offset = CBJournalSegment.frameEnd(
+          offset, record.payload().remaining());
+      }
+
+      /*
+       * Anything after the last intact frame was left by an interrupted
+       * append, and must not be mistaken for a frame later.
+       */
+
+      if (!segment.isUnwritten(offset)) {
+        segment.clearFrom(offset);
+      }
+      segment.truncateIndex(offset);
+
+      final var writer =
+        new CBJournalWriter(
+          configuration, segment, offset, nextSequence, lastTime);
+      writer.bytesSinceIndex = configuration.indexInterval();
+      return writer;
+    } catch (final IOException e) {
+      segment.close();
+      throw e;
+    }
+  }
+
+  /**
+   * @return The sequence number that will be assigned to the next message
+   */
+
+  public long nextSequence()
+  {
+    synchronized (this.lock) {
+      return this.nextSequence;
+    }
+  }
+
+  /**
+   * Serialize and append a message.
+   *
+   * @param protocolId The ID of the protocol to which the message belongs
+   * @param serializer The serializer for the message
+   * @param message    The message
+   * @param <T>        The type of protocol messages
+   *
+   * @return The sequence number assigned to the message
+   *
+   * @throws IOException On I/O errors, or if the serialized message does not
+   *                     fit in an empty segment
+   */
+
+  public <T extends CBProtocolMessageType> long append(
+    final UUID protocolId,
+    final CBProtocolMessageVersionedSerializerType<T> serializer,
+    final T message)
+    throws IOException
+  {
+    Objects.requireNonNull(protocolId, "protocolId");
+    Objects.requireNonNull(serializer, "serializer");
+    Objects.requireNonNull(message, "message");
+
+    final var version = serializer.version().longValueExact();
+
+    synchronized (this.lock) {
+      this.checkOpen();
+      this.ensureHeaderSpace();
+
+      var context = payloadContext(this.segment, this.offset);
+      try {
+        serializer.serialize(context, message);
+      } catch (final CBSerializationException e) {
+        /*
+         * If the message simply did not fit in the rest of this segment,
+         * try once more in a fresh segment. Any other failure is an error
+         * in the message itself, and rolling would only leave an empty
+         * segment behind.
+         */
+
+        if (!context.isExhausted() || this.offset == HEADER_SIZE) {
+          throw e;
+        }
+        this.roll();
+        context = payloadContext(this.segment, this.offset);
+        serializer.serialize(context, message);
+      }
+      return this.commit(protocolId, version, context.position());
+    }
+  }
+
+  private static CBSerializationContextByteBuffer payloadContext(
+    final CBJournalSegment segment,
+    final int offset)
+  {
+    return CBSerializationContextByteBuffer.create(
+      segment.payloadArea(offset));
+  }
+
+  /**
+   * Append a message that has already been encoded. The position of
+   * {@code payload} is not changed.
+   *
+   * @param protocolId      The ID of the protocol to which the message
+   *                        belongs
+   * @param protocolVersion The version of the protocol used to encode the
+   *                        message
+   * @param payload         The encoded message
+   *
+   * @return The sequence number assigned to the message
+   *
+   * @throws IOException On I/O errors, or if the message does not fit in an
+   *                     empty segment
+   */
+
+  public long appendEncoded(
+    final UUID protocolId,
+    final long protocolVersion,
+    final ByteBuffer payload)
+    throws IOException
+  {
+    Objects.requireNonNull(protocolId, "protocolId");
+    Objects.requireNonNull(payload, "payload");
+
+    final var size = payload.remaining();
+    final var maximum =
+      this.configuration.segmentSize() - HEADER_SIZE - FRAME_HEADER_SIZE;
+    if (size > maximum) {
+      throw new IOException(
+        "Message size %d exceeds the maximum %d for the segment size".formatted(
+          Integer.valueOf(size),
+          Integer.valueOf(maximum))
+      );
+    }
+
+    synchronized (this.lock) {
+      this.checkOpen();
+      this.ensureHeaderSpace();
+
+      var area = this.segment.payloadArea(this.offset);
+      if (area.remaining() < size) {
+        this.roll();
+        area = this.segment.payloadArea(this.offset);
+      }
+      area.put(0, payload, payload.position(), size);
+      return this.commit(protocolId, protocolVersion, size);
+    }
+  }
+
+  private void ensureHeaderSpace()
+    throws IOException
+  {
+    if (this.offset > this.segment.size() - FRAME_HEADER_SIZE) {
+      this.roll();
+    }
+  }
+
+  private long commit(
+    final UUID protocolId,
+    final long protocolVersion,
+    final int size)
+    throws IOException
+  {
+    var time = this.configuration.clock().instant();
+    if (time.isBefore(this.lastTime)) {
+      time = this.lastTime;
+    }
+
+    final var sequence = this.nextSequence;
+    this.segment.commit(
+      this.offset, sequence, time, protocolId, protocolVersion, size);
+
+    if (this.segment.isIndexEmpty()
+        || this.bytesSinceIndex >= this.configuration.indexInterval()) {
+      this.segment.addIndex(sequence, time, this.offset);
+      this.bytesSinceIndex = 0;
+    }
+
+    final var end =
+      Math.min(
+        CBJournalSegment.frameEnd(this.offset, size),
+        this.segment.size()
+      );
+
+    this.bytesSinceIndex += end - this.offset;
+    this.offset = end;
+    this.nextSequence = sequence + 1L;
+    this.lastTime = time;
+    return sequence;
+  }
+
+  private void roll()
+    throws IOException
+  {
+    final var next =
+      CBJournalSegment.create(
+        this.configuration.directory(),
+        this.nextSequence,
+        this.configuration.segmentSize()
+      );
+
+    this.segment.force();
+    this.segment.close();
+    this.segment = next;
+    this.offset = HEADER_SIZE;
+    this.bytesSinceIndex = 0;
+  }
+
+  /**
+   * Force all appended messages to storage.
+   *
+   * @throws IOException On I/O errors
+   */
+
+  public void flush()
+    throws IOException
+  {
+    synchronized (this.lock) {
+      this.checkOpen();
+      this.segment.force();
+    }
+  }
+
+  private void checkOpen()
+    throws IOException
+  {
+    if (this.closed) {
+      throw new IOException("Journal writer is closed.");
+    }
+  }
+
+  @Override
+  public void close()
+    throws IOException
+  {
+    synchronized (this.lock) {
+      if (!this.closed) {
+        this.closed = true;
+        this.segment.force();
+        this.segment.close();
+      }
+    }
+  }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.cedarbridge.runtime.multiplex;
+
+import java.io.IOException;
+
+/**
+ * The kinds of frames that may appear on a multiplexed connection.
+ */
+
+enum CBMultiplexFrameKind
+{
+  /**
+   * A request; the peer is expected to reply with a response or error
+   * carrying the same correlation ID.
+   */
+
+  REQUEST(0),
+
+  /**
+   * A successful response to a request.
+   */
+
+  RESPONSE(1),
+
+  /**
+   * A one-way message; no reply is expected.
+   */
+
+  MESSAGE(2),
+
+  /**
+   * A failed response to a request. The payload is UTF-8 text.
+   */
+
+  ERROR(3);
+
+  private final int code;
+
+  CBMultiplexFrameKind(
+    final int inCode)
+  {
+    this.code = inCode;
+  }
+
+  int code()
+  {
+    return this.code;
+  }
+
+  static CBMultiplexFrameKind ofCode(
+    final int code)
+    throws IOException
+  {
+    return switch (code) {
+      case 0 -> REQUEST;
+      case 1 -> RESPONSE;
+      case 2 -> MESSAGE;
+      case 3 -> ERROR;
+      default -> throw new IOException(
+        "Unrecognized frame kind %d".formatted(Integer.valueOf(code))
+      );
+    };
+  }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.cedarbridge.runtime.multiplex;
+
+import com.io7m.cedarbridge.runtime.api.CBProtocolMessageType;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * A handler for messages arriving on a multiplexed connection that are not
+ * responses to requests made locally.
+ *
+ * @param <T> The type of protocol messages
+ */
+
+public interface CBMultiplexHandlerType<T extends CBProtocolMessageType>
+{
+  /**
+   * A request arrived. The response is sent to the peer when the returned
+   * stage completes; if it completes exceptionally, or if this method
+   * throws, the peer's request fails with a
+   * {@link CBMultiplexRemoteException}. Requests may be completed in any
+   * order.
+   *
+   * @param request The request
+   *
+   * @return The response
+   */
+
+  default CompletionStage<T> onRequest(
+    final T request)
+  {
+    return CompletableFuture.failedFuture(
+      new UnsupportedOperationException("Requests are not supported.")
+    );
+  }
+
+  /**
+   * A one-way message arrived. If this method throws, the exception is
+   * logged and the message is dropped; the connection remains usable.
+   *
+   * @param message The message
+   */
+
+  default void onMessage(
+    final T message)
+  {
+
+  }
+}
@@ -0,0 +1,483 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.cedarbridge.runtime.multiplex;
+
+import com.io7m.cedarbridge.runtime.api.CBPreEncodedFrame;
+import com.io7m.cedarbridge.runtime.api.CBProtocolMessageType;
+import com.io7m.cedarbridge.runtime.api.CBProtocolMessageVersionedSerializerType;
+import com.io7m.cedarbridge.runtime.bssio.CBPreEncodedFrames;
+import com.io7m.cedarbridge.runtime.bssio.CBSerializationContextBSSIO;
+import com.io7m.jbssio.api.BSSReaderProviderType;
+import com.io7m.jbssio.api.BSSWriterProviderType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * <p>A connection that carries any number of concurrent requests over a
+ * single pair of streams.</p>
+ *
+ * <p>Each message is carried in a frame consisting of an unsigned 32-bit
+ * big-endian payload size, an unsigned 64-bit big-endian correlation ID,
+ * an 8-bit frame kind, and the payload as encoded by the given
+ * serializer. Responses carry the correlation ID of the request to which
+ * they reply, and so may arrive in any order; the future returned by
+ * {@link #request(CBProtocolMessageType)} completes when the matching
+ * response arrives.</p>
+ *
+ * <p>Both peers are expected to have agreed upon a protocol version (using
+ * the container protocol, for example) before the connection is
+ * created.</p>
+ *
+ * @param <T> The type of protocol messages
+ */
+
+public final class CBMultiplexedConnection<T extends CBProtocolMessageType>
+  implements Closeable
+{
+  /**
+   * The maximum permitted size of a frame payload.
+   */
+
+  public static final int MAXIMUM_PAYLOAD_SIZE = 16 * 1024 * 1024;
+
+  private static final Logger LOG =
+    LoggerFactory.getLogger(CBMultiplexedConnection.class);
+
+  private final BSSReaderProviderType readers;
+  private final BSSWriterProviderType writers;
+  private final DataInputStream input;
+  private final DataOutputStream output;
+  private final CBProtocolMessageVersionedSerializerType<T> serializer;
+  private final CBMultiplexHandlerType<T> handler;
+  private final Map<Long, CompletableFuture<T>> pending;
+  private final AtomicLong correlationIds;
+  private final AtomicBoolean closed;
+  private final Object writeLock;
+
+  /**
+   * Create a connection.
+   *
+   * @param inReaders    A provider of binary readers
+   * @param inWriters    A provider of binary writers
+   * @param inInput      The stream from which frames are read
+   * @param inOutput     The stream to which frames are written
+   * @param inSerializer The message serializer
+   * @param inHandler    The handler for incoming requests and messages
+   */
+
+  public CBMultiplexedConnection(
+    final BSSReaderProviderType inReaders,
+    final BSSWriterProviderType inWriters,
+    final InputStream inInput,
+    final OutputStream inOutput,
+    final CBProtocolMessageVersionedSerializerType<T> inSerializer,
+    final CBMultiplexHandlerType<T> inHandler)
+  {
+    this.readers =
+      Objects.requireNonNull(inReaders, "readers");
+    this.writers =
+      Objects.requireNonNull(inWriters, "writers");
+    this.input =
+      new DataInputStream(
+        new BufferedInputStream(Objects.requireNonNull(inInput, "input")));
+    this.output =
+      new DataOutputStream(
+        new BufferedOutputStream(Objects.requireNonNull(inOutput, "output")));
+    this.serializer =
+      Objects.requireNonNull(inSerializer, "serializer");
+    this.handler =
+      Objects.requireNonNull(inHandler, "handler");
+
+    this.pending = new ConcurrentHashMap<>();
+    this.correlationIds = new AtomicLong(0L);
+    this.closed = new AtomicBoolean(false);
+    this.writeLock = new Object();
+  }
+
+  /**
+   * Send a request to the peer. The returned future completes with the
+   * peer's response, or completes exceptionally with a
+   * {@link CBMultiplexRemoteException} if the peer failed to produce a
+   * response, or with an {@link IOException} if the connection fails or is
+   * closed before a response arrives.
+   *
+   * @param message The request
+   *
+   * @return The response
+   */
+
+  public CompletableFuture<T> request(
+    final T message)
+  {
+    Objects.requireNonNull(message, "message");
+
+    final var id = this.correlationIds.incrementAndGet();
+    final var future = new CompletableFuture<T>();
+    this.pending.put(Long.valueOf(id), future);
+
+    try {
+      this.checkOpen();
+      this.writeFrame(CBMultiplexFrameKind.REQUEST, id, this.encode(message));
+    } catch (final IOException e) {
+      this.pending.remove(Long.valueOf(id));
+      future.completeExceptionally(e);
+    }
+    return future;
+  }
+
+  /**
+   * Send a one-way message to the peer.
+   *
+   * @param message The message
+   *
+   * @throws IOException On I/O errors
+   */
+
+  public void send(
+    final T message)
+    throws IOException
+  {
+    Objects.requireNonNull(message, "message");
+
+    this.checkOpen();
+    this.writeFrame(CBMultiplexFrameKind.MESSAGE, 0L, this.encode(message));
+  }
+
+  /**
+   * @return The number of requests that are awaiting responses
+   */
+
+  public int pendingRequests()
+  {
+    return this.pending.size();
+  }
+
+  /**
+   * Start reading frames on the given executor.
+   *
+   * @param executor The executor
+   *
+   * @see #readLoop()
+   */
+
+  public void start(
+    final Executor executor)
+  {
+    Objects.requireNonNull(executor, "executor");
+
+    executor.execute(() -> {
+      try {
+        this.readLoop();
+      } catch (final IOException e) {
+        // The connection has been closed and pending requests failed.
+      }
+    });
+  }
+
+  /**
+   * Read and dispatch frames until the connection is closed or the input
+   * is exhausted. Requests and one-way messages are passed to the handler
+   * on the calling thread. When this method returns, the connection is
+   * closed and any requests awaiting responses have failed.
+   *
+   * @throws IOException On I/O errors
+   */
+
+  public void readLoop()
+    throws IOException
+  {
+    try {
+      while (!this.closed.get()) {
+        final int size;
+        try {
+          size = this.input.readInt();
+        } catch (final EOFException e) {
+          return;
+        }
+
+        if (Integer.toUnsignedLong(size) > MAXIMUM_PAYLOAD_SIZE) {
+          throw new IOException(
+            "Frame payload size %s exceeds the maximum %d".formatted(
+              Integer.toUnsignedString(size),
+              Integer.valueOf(MAXIMUM_PAYLOAD_SIZE))
+          );
+        }
+
+        final var id =
+          this.input.readLong();
+        final var kind =
+          CBMultiplexFrameKind.ofCode(this.input.readUnsignedByte());
+        final var payload = new byte[size];
+        this.input.readFully(payload);
+        this.dispatch(kind, id, payload);
+      }
+    } catch (final IOException e) {
+      if (!this.closed.get()) {
+        throw e;
+      }
+    } finally {
+      this.close();
+    }
+  }
+
+  private void dispatch(
+    final CBMultiplexFrameKind kind,
+    final long id,
+    final byte[] payload)
+    throws IOException
+  {
+    switch (kind) {
+      case REQUEST -> {
+        this.dispatchRequest(id, payload);
+      }
+      case RESPONSE -> {
+        final var future = this.pending.remove(Long.valueOf(id));
+        if (future != null) {
+          try {
+            future.complete(this.decode(payload));
+          } catch (final Exception e) {
+            future.completeExceptionally(e);
+          }
+        }
+      }
+      case MESSAGE -> {
+        this.dispatchMessage(payload);
+      }
+      case ERROR -> {
+        final var future = this.pending.remove(Long.valueOf(id));
+        if (future != null) {
+          future.completeExceptionally(
+            new CBMultiplexRemoteException(new String(payload, UTF_8))
+          );
+        }
+      }
+    }
+  }
+
+  private void dispatchRequest(
+    final long id,
+    final byte[] payload)
+    throws IOException
+  {
+    /*
+     * A request that cannot be decoded, or that the handler rejects by
+     * throwing, fails only that request; the frame has been consumed in
+     * full, so the connection remains usable.
+     */
+
+    final CompletionStage<T> stage;
+    try {
+      stage = this.handler.onRequest(this.decode(payload));
+    } catch (final Exception e) {
+      this.writeError(id, e);
+      return;
+    }
+
+    stage.whenComplete((response, failure) -> {
+      this.reply(id, response, failure);
+    });
+  }
+
+  private void dispatchMessage(
+    final byte[] payload)
+  {
+    /*
+     * A message that cannot be decoded, or that the handler rejects by
+     * throwing, is dropped; the handler runs on the reader thread, and
+     * letting the exception escape would close the connection and fail
+     * every pending request.
+     */
+
+    try {
+      this.handler.onMessage(this.decode(payload));
+    } catch (final Exception e) {
+      LOG.warn("dropped message: ", e);
+    }
+  }
+
+  private void reply(
+    final long id,
+    final T response,
+    final Throwable failure)
+  {
+    try {
+      if (failure == null) {
+        this.writeFrame(
+          CBMultiplexFrameKind.RESPONSE, id, this.encode(response));
+      } else {
+        this.writeError(id, failure);
+      }
+    } catch (final IOException e) {
+      try {
+        this.close();
+      } catch (final IOException ex) {
+        // Nothing further can be done.
+      }
+    }
+  }
+
+  private void writeError(
+    final long id,
+    final Throwable failure)
+    throws IOException
+  {
+    var cause = failure;
+    if (cause instanceof CompletionException && cause.getCause() != null) {
+      cause = cause.getCause();
+    }
+
+    final var message =
+      Objects.requireNonNullElse(
+        cause.getMessage(),
+        cause.getClass().getName()
+      );
+    final var bytes =
+      message.getBytes(UTF_8);
+
+    /*
+     * The peer rejects frames larger than the maximum payload size, so
+     * long messages are truncated, without splitting a UTF-8 sequence.
+     */
+
+    var length = bytes.length;
+    if (length > MAXIMUM_PAYLOAD_SIZE) {
+      length = MAXIMUM_PAYLOAD_SIZE;
+      while (length > 0 && (bytes[length] & 0xc0) == 0x80) {
+        --length;
+      }
+    }
+
+    synchronized (this.writeLock) {
+      this.writeHeader(CBMultiplexFrameKind.ERROR, id, length);
+      this.output.write(bytes, 0, length);
+      this.output.flush();
+    }
+  }
+
+  private T decode(
+    final byte[] payload)
+    throws IOException
+  {
+    return this.serializer.deserialize(
+      CBSerializationContextBSSIO.createFromByteArray(this.readers, payload)
+    );
+  }
+
+  private CBPreEncodedFrame encode(
+    final T message)
+    throws IOException
+  {
+    final var frame =
+      CBPreEncodedFrames.encode(this.writers, this.serializer, message);
+    if (frame.size() > MAXIMUM_PAYLOAD_SIZE) {
+      throw new IOException(
+        "Frame payload size %d exceeds the maximum %d".formatted(
+          Integer.valueOf(frame.size()),
+          Integer.valueOf(MAXIMUM_PAYLOAD_SIZE))
+      );
+    }
+    return frame;
+  }
+
+  private void writeFrame(
+    final CBMultiplexFrameKind kind,
+    final long id,
+    final CBPreEncodedFrame frame)
+    throws IOException
+  {
+    synchronized (this.writeLock) {
+      this.writeHeader(kind, id, frame.size());
+      frame.writeTo(this.output);
+      this.output.flush();
+    }
+  }
+
+  private void writeHeader(
+    final CBMultiplexFrameKind kind,
+    final long id,
+    final int size)
+    throws IOException
+  {
+    this.output.writeInt(size);
+    this.output.writeLong(id);
+    this.output.writeByte(kind.code());
+  }
+
+  private void checkOpen()
+    throws IOException
+  {
+    if (this.closed.get()) {
+      throw new IOException("Connection is closed.");
+    }
+  }
+
+  /**
+   * Close the connection. Any requests awaiting responses fail with an
+   * {@link IOException}.
+   *
+   * @throws IOException On I/O errors
+   */
+
+  @Override
+  public void close()
+    throws IOException
+  {
+    if (!this.closed.compareAndSet(false, true)) {
+      return;
+    }
+
+    try {
+      try {
+        this.input.close();
+      } finally {
+        synchronized (this.writeLock) {
+          this.output.close();
+        }
+      }
+    } finally {
+      final var failure = new IOException("Connection is closed.");
+      for (final var id : this.pending.keySet()) {
+        final var future = this.pending.remove(id);
+        if (future != null) {
+          future.completeExceptionally(failure);
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,410 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.cedarbridge.runtime.shared_memory;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.locks.LockSupport;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * <p>A bidirectional channel of length-framed messages between two
+ * processes on the same host, exchanged through a memory-mapped file.</p>
+ *
+ * <p>The file contains a header followed by two rings, one for each
+ * direction. Each ring has exactly one producer and one consumer: the
+ * process that created the file with {@link #create(Path, int)} writes to
+ * the second ring and reads from the first, and the process that opened it
+ * with {@link #open(Path)} does the opposite. A channel must therefore only
+ * be used by one sending thread and one receiving thread at a time.</p>
+ *
+ * <p>Receiving threads spin briefly before yielding and then parking, so
+ * that messages sent to a waiting receiver are handed off without any
+ * system calls.</p>
+ */
+
+public final class CBSharedMemoryChannel implements Closeable
+{
+  private static final int MAGIC = 0x4342534D;
+  private static final int VERSION = 1;
+  private static final int HEADER_SIZE = 64;
+  private static final int SPIN_ITERATIONS = 10_000;
+  private static final int YIELD_ITERATIONS = 100;
+  private static final long PARK_NANOS = 50_000L;
+
+  private final Path file;
+  private final CBSharedMemoryRing outbound;
+  private final CBSharedMemoryRing inbound;
+  private final ByteBuffer receiveBuffer;
+  private final int ringCapacity;
+  private volatile boolean closed;
+
+  private CBSharedMemoryChannel(
+    final Path inFile,
+    final MappedByteBuffer inBuffer,
+    final int inRingCapacity,
+    final boolean inCreator)
+  {
+    this.file =
+      Objects.requireNonNull(inFile, "file");
+    this.ringCapacity =
+      inRingCapacity;
+
+    final var ring0 =
+      new CBSharedMemoryRing(
+        inBuffer, ringOffset(0, inRingCapacity), inRingCapacity);
+    final var ring1 =
+      new CBSharedMemoryRing(
+        inBuffer, ringOffset(1, inRingCapacity), inRingCapacity);
+
+    if (inCreator) {
+      this.inbound = ring0;
+      this.outbound = ring1;
+    } else {
+      this.inbound = ring1;
+      this.outbound = ring0;
+    }
+
+    this.receiveBuffer =
+      ByteBuffer.allocateDirect(inRingCapacity)
+        .order(ByteOrder.BIG_ENDIAN);
+  }
+
+  private static int ringOffset(
+    final int ring,
+    final int ringCapacity)
+  {
+    return HEADER_SIZE
+           + (ring * (CBSharedMemoryRing.CONTROL_SIZE + ringCapacity));
+  }
+
+  /*
+   * Both rings must fit into a single mapping, and so the largest capacity
+   * is the largest power of two for which the file size fits into an int.
+   */
+
+  private static boolean isValidRingCapacity(
+    final int ringCapacity)
+  {
+    return ringCapacity >= 64
+           && ringCapacity <= (1 << 29)
+           && Integer.bitCount(ringCapacity) == 1;
+  }
+
+  private static long fileSize(
+    final int ringCapacity)
+  {
+    return ringOffset(2, ringCapacity);
+  }
+
+  /**
+   * Create a new channel file, replacing any existing file.
+   *
+   * @param file         The file
+   * @param ringCapacity The capacity in octets of each ring; must be a power
+   *                     of two in the range {@code [64, 2^29]}
+   *
+   * @return A channel
+   *
+   * @throws IOException On I/O errors
+   */
+
+  public static CBSharedMemoryChannel create(
+    final Path file,
+    final int ringCapacity)
+    throws IOException
+  {
+    Objects.requireNonNull(file, "file");
+
+    if (!isValidRingCapacity(ringCapacity)) {
+      throw new IllegalArgumentException(String.format(
+        "Ring capacity %d must be a power of two in the range [64, 2^29]",
+        Integer.valueOf(ringCapacity))
+      );
+    }
+
+    final MappedByteBuffer buffer;
+    try (var channel =
+           FileChannel.open(file, CREATE, TRUNCATE_EXISTING, READ, WRITE)) {
+      buffer = channel.map(
+        FileChannel.MapMode.READ_WRITE,
+        0L,
+        fileSize(ringCapacity)
+      );
+    }
+
+    /*
+     * The magic number is written last so that a peer that opens the file
+     * early does not observe a partially initialized header.
+     */
+
+    buffer.order(ByteOrder.BIG_ENDIAN);
+    buffer.putInt(4, VERSION);
+    buffer.putInt(8, ringCapacity);
+    buffer.putInt(0, MAGIC);
+    buffer.force();
+
+    return new CBSharedMemoryChannel(file, buffer, ringCapacity, true);
+  }
+
+  /**
+   * Open an existing channel file created by {@link #create(Path, int)}.
+   *
+   * @param file The file
+   *
+   * @return A channel
+   *
+   * @throws IOException On I/O errors, or if the file is not a channel file
+   */
+
+  public static CBSharedMemoryChannel open(
+    final Path file)
+    throws IOException
+  {
+    Objects.requireNonNull(file, "file");
+
+    try (var channel = FileChannel.open(file, READ, WRITE)) {
+      final var size = channel.size();
+      if (size < HEADER_SIZE) {
+        throw new IOException(
+          "File %s is too small to be a channel file".formatted(file)
+        );
+      }
+
+      final var header =
+        channel.map(FileChannel.MapMode.READ_ONLY, 0L, HEADER_SIZE)
+          .order(ByteOrder.BIG_ENDIAN);
+
+      final var magic = header.getInt(0);
+      if (magic != MAGIC) {
+        throw new IOException(
+          "File %s has an unrecognized magic number 0x%s".formatted(
+            file,
+            Integer.toUnsignedString(magic, 16))
+        );
+      }
+
+      final var version = header.getInt(4);
+      if (version != VERSION) {
+        throw new IOException(
+          "File %s has an unsupported version %d".formatted(
+            file,
+            Integer.valueOf(version))
+        );
+      }
+
+      final var ringCapacity = header.getInt(8);
+      if (!isValidRingCapacity(ringCapacity)) {
+        throw new IOException(
+          "File %s has an invalid ring capacity %d".formatted(
+            file,
+            Integer.valueOf(ringCapacity))
+        );
+      }
+
+      if (size != fileSize(ringCapacity)) {
+        throw new IOException(
+          "File %s has size %d, but a ring capacity of %d requires %d"
+            .formatted(
+              file,
+              Long.valueOf(size),
+              Integer.valueOf(ringCapacity),
+              Long.valueOf(fileSize(ringCapacity)))
+        );
+      }
+
+      final var buffer =
+        channel.map(FileChannel.MapMode.READ_WRITE, 0L, size);
+      return new CBSharedMemoryChannel(file, buffer, ringCapacity, false);
+    }
+  }
+
+  /**
+   * @return The channel file
+   */
+
+  public Path file()
+  {
+    return this.file;
+  }
+
+  /**
+   * @return The largest payload that can be carried in a single message
+   */
+
+  public int maximumMessageSize()
+  {
+    return this.outbound.maximumPayloadSize();
+  }
+
+  /**
+   * @return The capacity in octets of each ring
+   */
+
+  public int ringCapacity()
+  {
+    return this.ringCapacity;
+  }
+
+  /**
+   * Send the remaining bytes of {@code message} as a single message, waiting
+   * for space in the ring if necessary. The position of {@code message} is
+   * not changed.
+   *
+   * @param message The message
+   *
+   * @throws IOException On I/O errors, or if the channel is closed
+   */
+
+  public void send(
+    final ByteBuffer message)
+    throws IOException
+  {
+    Objects.requireNonNull(message, "message");
+    this.checkOpen();
+
+    final var size = message.remaining();
+    if (size > this.maximumMessageSize()) {
+      throw new IOException(
+        "Message size %d exceeds the maximum %d".formatted(
+          Integer.valueOf(size),
+          Integer.valueOf(this.maximumMessageSize()))
+      );
+    }
+
+    var iterations = 0;
+    while (!this.outbound.offer(message)) {
+      this.checkOpen();
+      if (this.inbound.isClosed()) {
+        throw new EOFException("Peer has closed the channel.");
+      }
+      iterations = backOff(iterations);
+    }
+  }
+
+  /**
+   * Receive a message if one is immediately available. The returned buffer
+   * is only valid until the next call to {@link #receive()} or
+   * {@link #poll()}.
+   *
+   * @return A message, if one is available
+   *
+   * @throws IOException On I/O errors, or if the channel is closed
+   */
+
+  public Optional<ByteBuffer> poll()
+    throws IOException
+  {
+    this.checkOpen();
+
+    final var size = this.inbound.poll(this.receiveBuffer);
+    if (size < 0) {
+      return Optional.empty();
+    }
+    return Optional.of(this.receiveBuffer.slice(0, size));
+  }
+
+  /**
+   * Receive a message, waiting until one is available. The returned buffer
+   * is only valid until the next call to {@link #receive()} or
+   * {@link #poll()}.
+   *
+   * @return A message
+   *
+   * @throws EOFException If the peer closed the channel
+   * @throws IOException  On I/O errors, or if the channel is closed
+   */
+
+  public ByteBuffer receive()
+    throws IOException
+  {
+    var iterations = 0;
+    while (true) {
+      this.checkOpen();
+
+      final var size = this.inbound.poll(this.receiveBuffer);
+      if (size >= 0) {
+        return this.receiveBuffer.slice(0, size);
+      }
+
+      /*
+       * The peer may have sent a final message before closing the ring,
+       * so the ring is polled once more after observing the closed flag.
+       */
+
+      if (this.inbound.isClosed()) {
+        final var last = this.inbound.poll(this.receiveBuffer);
+        if (last >= 0) {
+          return this.receiveBuffer.slice(0, last);
+        }
+        throw new EOFException("Peer has closed the channel.");
+      }
+
+      iterations = backOff(iterations);
+    }
+  }
+
+  private static int backOff(
+    final int iterations)
+  {
+    if (iterations < SPIN_ITERATIONS) {
+      Thread.onSpinWait();
+    } else if (iterations < SPIN_ITERATIONS + YIELD_ITERATIONS) {
+      Thread.yield();
+    } else {
+      LockSupport.parkNanos(PARK_NANOS);
+      return iterations;
+    }
+    return iterations + 1;
+  }
+
+  private void checkOpen()
+    throws IOException
+  {
+    if (this.closed) {
+      throw new IOException("Channel is closed.");
+    }
+  }
+
+  /**
+   * Close the channel. The peer observes the end of the stream once it has
+   * received all messages sent before the channel was closed. The channel
+   * file is not deleted.
+   */
+
+  @Override
+  public void close()
+  {
+    if (!this.closed) {
+      this.closed = true;
+      this.outbound.close();
+    }
+  }
+}
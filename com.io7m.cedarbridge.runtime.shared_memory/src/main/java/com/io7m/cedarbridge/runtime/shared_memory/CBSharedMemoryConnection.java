@@ -0,0 +1,362 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.cedarbridge.runtime.shared_memory;
+
+import com.io7m.cedarbridge.runtime.api.CBProtocolMessageType;
+import com.io7m.cedarbridge.runtime.api.CBProtocolMessageVersionedSerializerType;
+import com.io7m.cedarbridge.runtime.api.CBProtocolType;
+import com.io7m.cedarbridge.runtime.api.CBSerializationContextByteBuffer;
+import com.io7m.cedarbridge.runtime.container_protocol.CBContainerProtocolAvailable;
+import com.io7m.cedarbridge.runtime.container_protocol.CBContainerProtocolMessages;
+import com.io7m.cedarbridge.runtime.container_protocol.CBContainerProtocolResponse;
+import com.io7m.cedarbridge.runtime.container_protocol.CBContainerProtocolUse;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * <p>A connection that exchanges protocol messages over a
+ * {@link CBSharedMemoryChannel}.</p>
+ *
+ * <p>The protocol version is negotiated using the messages of the container
+ * protocol (version 1), carried as ordinary channel messages: the accepting
+ * side sends an {@code Available} message, the connecting side replies with
+ * a {@code Use} message, and the accepting side confirms with a
+ * {@code Response} message. Thereafter, each channel message carries
+ * exactly one protocol message. Messages are serialized directly into a
+ * reusable buffer and then copied once into the ring; no compression is
+ * performed.</p>
+ *
+ * @param <T> The type of protocol messages
+ */
+
+public final class CBSharedMemoryConnection<T extends CBProtocolMessageType>
+  implements Closeable
+{
+  private static final long CONTAINER_PROTOCOL_VERSION = 1L;
+
+  private final CBSharedMemoryChannel channel;
+  private final CBProtocolMessageVersionedSerializerType<T> serializer;
+  private final ByteBuffer sendBuffer;
+
+  private CBSharedMemoryConnection(
+    final CBSharedMemoryChannel inChannel,
+    final CBProtocolMessageVersionedSerializerType<T> inSerializer)
+  {
+    this.channel =
+      Objects.requireNonNull(inChannel, "channel");
+    this.serializer =
+      Objects.requireNonNull(inSerializer, "serializer");
+    this.sendBuffer =
+      ByteBuffer.allocateDirect(inChannel.maximumMessageSize());
+  }
+
+  private static void checkChannel(
+    final CBSharedMemoryChannel channel)
+  {
+    final var required =
+      CBContainerProtocolMessages.sizeResponse();
+
+    if (channel.maximumMessageSize() < required) {
+      throw new IllegalArgumentException(String.format(
+        "Channel maximum message size %d is below the %d octets required",
+        Integer.valueOf(channel.maximumMessageSize()),
+        Integer.valueOf(required))
+      );
+    }
+  }
+
+  /**
+   * Accept a connection from a peer, offering all versions of the given
+   * protocol. This is typically called by the side that created the
+   * channel.
+   *
+   * @param channel  The channel
+   * @param protocol The protocol
+   * @param <T>      The type of protocol messages
+   *
+   * @return A connection
+   *
+   * @throws IOException On I/O errors, or if negotiation fails
+   */
+
+  public static <T extends CBProtocolMessageType>
+  CBSharedMemoryConnection<T> accept(
+    final CBSharedMemoryChannel channel,
+    final CBProtocolType<T> protocol)
+    throws IOException
+  {
+    Objects.requireNonNull(channel, "channel");
+    Objects.requireNonNull(protocol, "protocol");
+    checkChannel(channel);
+
+    final var versions = protocol.protocolVersions();
+    channel.send(
+      CBContainerProtocolMessages.serializeAvailable(
+        new CBContainerProtocolAvailable(
+          CONTAINER_PROTOCOL_VERSION,
+          CONTAINER_PROTOCOL_VERSION,
+          protocol.protocolId(),
+          versions.first().longValueExact(),
+          versions.last().longValueExact()
+        )
+      )
+    );
+
+    final CBContainerProtocolUse use;
+    try {
+      use = CBContainerProtocolMessages.parseUse(channel.receive());
+    } catch (final IllegalArgumentException e) {
+      throw failNegotiation(channel, e.getMessage());
+    } catch (final BufferUnderflowException e) {
+      throw failNegotiation(channel, "Truncated Use message.");
+    }
+
+    if (use.containerProtocolVersion() != CONTAINER_PROTOCOL_VERSION) {
+      throw failNegotiation(
+        channel,
+        "Unsupported container protocol version %s".formatted(
+          Long.toUnsignedString(use.containerProtocolVersion()))
+      );
+    }
+
+    if (!Objects.equals(use.applicationProtocolId(), protocol.protocolId())) {
+      throw failNegotiation(
+        channel,
+        "Unsupported application protocol %s".formatted(
+          use.applicationProtocolId())
+      );
+    }
+
+    final var version = use.applicationProtocolVersion();
+    final var serializer =
+      protocol.serializerForProtocolVersion(version);
+    if (serializer.isEmpty()) {
+      throw failNegotiation(
+        channel,
+        "Unsupported application protocol version %s".formatted(
+          Long.toUnsignedString(version))
+      );
+    }
+
+    channel.send(
+      CBContainerProtocolMessages.serializeResponse(
+        new CBContainerProtocolResponse(true, "OK")
+      )
+    );
+    return new CBSharedMemoryConnection<>(channel, serializer.get());
+  }
+
+  private static IOException failNegotiation(
+    final CBSharedMemoryChannel channel,
+    final String message)
+    throws IOException
+  {
+    channel.send(
+      CBContainerProtocolMessages.serializeResponse(
+        new CBContainerProtocolResponse(false, message)
+      )
+    );
+    return new IOException(message);
+  }
+
+  /**
+   * Connect to a peer, selecting the highest version of the given protocol
+   * supported by both sides. This is typically called by the side that
+   * opened the channel.
+   *
+   * @param channel  The channel
+   * @param protocol The protocol
+   * @param <T>      The type of protocol messages
+   *
+   * @return A connection
+   *
+   * @throws IOException On I/O errors, or if negotiation fails
+   */
+
+  public static <T extends CBProtocolMessageType>
+  CBSharedMemoryConnection<T> connect(
+    final CBSharedMemoryChannel channel,
+    final CBProtocolType<T> protocol)
+    throws IOException
+  {
+    Objects.requireNonNull(channel, "channel");
+    Objects.requireNonNull(protocol, "protocol");
+    checkChannel(channel);
+
+    final CBContainerProtocolAvailable available;
+    try {
+      available =
+        CBContainerProtocolMessages.parseAvailable(channel.receive());
+    } catch (final IllegalArgumentException e) {
+      throw new IOException(e.getMessage(), e);
+    } catch (final BufferUnderflowException e) {
+      throw new IOException("Truncated Available message.", e);
+    }
+
+    if (!Objects.equals(
+      available.applicationProtocolId(), protocol.protocolId())) {
+      throw new IOException(
+        "Peer offered application protocol %s, but %s is required".formatted(
+          available.applicationProtocolId(),
+          protocol.protocolId())
+      );
+    }
+
+    final var minimum =
+      new BigInteger(
+        Long.toUnsignedString(available.applicationProtocolMinimumVersion()));
+    final var maximum =
+      new BigInteger(
+        Long.toUnsignedString(available.applicationProtocolMaximumVersion()));
+
+    BigInteger version = null;
+    for (final var candidate : protocol.protocolVersions()) {
+      if (candidate.compareTo(minimum) >= 0
+          && candidate.compareTo(maximum) <= 0) {
+        version = candidate;
+      }
+    }
+
+    if (version == null) {
+      throw new IOException(
+        "No supported protocol version in the range [%s, %s]".formatted(
+          minimum,
+          maximum)
+      );
+    }
+
+    channel.send(
+      CBContainerProtocolMessages.serializeUse(
+        new CBContainerProtocolUse(
+          CONTAINER_PROTOCOL_VERSION,
+          protocol.protocolId(),
+          version.longValueExact()
+        )
+      )
+    );
+
+    final CBContainerProtocolResponse response;
+    try {
+      response =
+        CBContainerProtocolMessages.parseResponse(channel.receive());
+    } catch (final IllegalArgumentException e) {
+      throw new IOException(e.getMessage(), e);
+    } catch (final BufferUnderflowException e) {
+      throw new IOException("Truncated Response message.", e);
+    }
+
+    if (!response.ok()) {
+      throw new IOException(response.message());
+    }
+
+    final var serializer =
+      protocol.serializerForProtocolVersion(version)
+        .orElseThrow();
+    return new CBSharedMemoryConnection<>(channel, serializer);
+  }
+
+  /**
+   * @return The negotiated protocol version
+   */
+
+  public BigInteger protocolVersion()
+  {
+    return this.serializer.version();
+  }
+
+  /**
+   * Send a message to the peer, waiting for space in the channel if
+   * necessary.
+   *
+   * @param message The message
+   *
+   * @throws IOException On I/O errors, or if the serialized message does not
+   *                     fit in the channel
+   */
+
+  public void send(
+    final T message)
+    throws IOException
+  {
+    Objects.requireNonNull(message, "message");
+
+    this.sendBuffer.clear();
+    final var context =
+      CBSerializationContextByteBuffer.create(this.sendBuffer);
+    this.serializer.serialize(context, message);
+    this.channel.send(this.sendBuffer.slice(0, context.position()));
+  }
+
+  /**
+   * Receive a message from the peer, waiting until one is available.
+   *
+   * @return A message
+   *
+   * @throws java.io.EOFException If the peer closed the channel
+   * @throws IOException          On I/O errors
+   */
+
+  public T receive()
+    throws IOException
+  {
+    return this.decode(this.channel.receive());
+  }
+
+  /**
+   * Receive a message from the peer, if one is immediately available.
+   *
+   * @return A message, if one is available
+   *
+   * @throws IOException On I/O errors
+   */
+
+  public Optional<T> poll()
+    throws IOException
+  {
+    final var frame = this.channel.poll();
+    if (frame.isEmpty()) {
+      return Optional.empty();
+    }
+    return Optional.of(this.decode(frame.get()));
+  }
+
+  private T decode(
+    final ByteBuffer frame)
+    throws IOException
+  {
+    return this.serializer.deserialize(
+      CBSerializationContextByteBuffer.create(frame)
+    );
+  }
+
+  /**
+   * Close the connection and the underlying channel.
+   */
+
+  @Override
+  public void close()
+  {
+    this.channel.close();
+  }
+}
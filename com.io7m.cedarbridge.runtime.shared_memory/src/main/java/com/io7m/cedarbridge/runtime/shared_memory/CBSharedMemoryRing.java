@@ -0,0 +1,235 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.cedarbridge.runtime.shared_memory;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Objects;
+
+/**
+ * <p>A single-producer, single-consumer ring of length-framed messages
+ * stored in a region of a (typically memory-mapped) buffer.</p>
+ *
+ * <p>The region begins with three 64-octet lines holding the consumer
+ * position ("head"), the producer position ("tail"), and the producer's
+ * "closed" flag, followed by the frame data. Positions increase
+ * monotonically and are reduced modulo the capacity when indexing the data.
+ * The producer publishes frames by storing the tail with release semantics,
+ * and the consumer frees space by storing the head with release semantics;
+ * each side reads the other's position with acquire semantics.</p>
+ *
+ * <p>Each frame is an unsigned 32-bit big-endian payload size followed by
+ * the payload, padded to a multiple of four octets so that frame headers
+ * never straddle the end of the data area.</p>
+ */
+
+final class CBSharedMemoryRing
+{
+  static final int CONTROL_SIZE = 192;
+
+  private static final int OFFSET_HEAD = 0;
+  private static final int OFFSET_TAIL = 64;
+  private static final int OFFSET_CLOSED = 128;
+
+  private static final VarHandle LONGS =
+    MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+
+  private final ByteBuffer buffer;
+  private final int base;
+  private final int dataBase;
+  private final int capacity;
+  private final int mask;
+  private long localHead;
+  private long localTail;
+  private long cachedHead;
+  private long cachedTail;
+
+  CBSharedMemoryRing(
+    final ByteBuffer inBuffer,
+    final int inBase,
+    final int inCapacity)
+  {
+    this.buffer =
+      Objects.requireNonNull(inBuffer, "buffer")
+        .duplicate()
+        .order(ByteOrder.BIG_ENDIAN);
+    this.base = inBase;
+    this.dataBase = inBase + CONTROL_SIZE;
+    this.capacity = inCapacity;
+    this.mask = inCapacity - 1;
+
+    this.localHead =
+      (long) LONGS.getAcquire(this.buffer, this.base + OFFSET_HEAD);
+    this.localTail =
+      (long) LONGS.getAcquire(this.buffer, this.base + OFFSET_TAIL);
+    this.cachedHead = this.localHead;
+    this.cachedTail = this.localTail;
+  }
+
+  static int frameSize(
+    final int payloadSize)
+  {
+    return 4 + ((payloadSize + 3) & ~3);
+  }
+
+  int maximumPayloadSize()
+  {
+    return this.capacity - 4;
+  }
+
+  /**
+   * Publish a frame containing the remaining bytes of {@code payload}, if
+   * there is room. Only the producer may call this method.
+   *
+   * @param payload The payload
+   *
+   * @return {@code true} if the frame was published
+   */
+
+  boolean offer(
+    final ByteBuffer payload)
+  {
+    final var size = payload.remaining();
+    final var frameSize = frameSize(size);
+    final var tail = this.localTail;
+
+    /*
+     * The head is only re-read (with acquire semantics) when the cached
+     * copy suggests that there is not enough space.
+     */
+
+    if (tail + frameSize - this.cachedHead > this.capacity) {
+      this.cachedHead =
+        (long) LONGS.getAcquire(this.buffer, this.base + OFFSET_HEAD);
+      if (tail + frameSize - this.cachedHead > this.capacity) {
+        return false;
+      }
+    }
+
+    final var index = (int) (tail & this.mask);
+    this.buffer.putInt(this.dataBase + index, size);
+    this.copyIn((index + 4) & this.mask, payload, size);
+
+    final var newTail = tail + frameSize;
+    this.localTail = newTail;
+    LONGS.setRelease(this.buffer, this.base + OFFSET_TAIL, newTail);
+    return true;
+  }
+
+  /**
+   * Consume a frame, if one is available, copying its payload into
+   * {@code output} starting at index {@code 0}. Only the consumer may call
+   * this method.
+   *
+   * @param output The output buffer
+   *
+   * @return The payload size, or {@code -1} if no frame is available
+   *
+   * @throws IOException If the peer published a malformed frame
+   */
+
+  int poll(
+    final ByteBuffer output)
+    throws IOException
+  {
+    final var head = this.localHead;
+    if (head == this.cachedTail) {
+      this.cachedTail =
+        (long) LONGS.getAcquire(this.buffer, this.base + OFFSET_TAIL);
+      if (head == this.cachedTail) {
+        return -1;
+      }
+    }
+
+    /*
+     * The positions and frame sizes are written by the peer, and so must be
+     * checked before they are used to index the data area.
+     */
+
+    final var available = this.cachedTail - head;
+    if (available < 0L || available > this.capacity) {
+      throw new IOException(
+        "Ring tail %d is invalid for a head of %d and a capacity of %d"
+          .formatted(
+            Long.valueOf(this.cachedTail),
+            Long.valueOf(head),
+            Integer.valueOf(this.capacity))
+      );
+    }
+
+    final var index = (int) (head & this.mask);
+    final var size = this.buffer.getInt(this.dataBase + index);
+    if (size < 0
+        || size > this.maximumPayloadSize()
+        || frameSize(size) > available) {
+      throw new IOException(
+        "Frame size %d at position %d is invalid (%d octets are available)"
+          .formatted(
+            Integer.valueOf(size),
+            Long.valueOf(head),
+            Long.valueOf(available))
+      );
+    }
+
+    this.copyOut((index + 4) & this.mask, output, size);
+
+    final var newHead = head + frameSize(size);
+    this.localHead = newHead;
+    LONGS.setRelease(this.buffer, this.base + OFFSET_HEAD, newHead);
+    return size;
+  }
+
+  void close()
+  {
+    LONGS.setRelease(this.buffer, this.base + OFFSET_CLOSED, 1L);
+  }
+
+  boolean isClosed()
+  {
+    return (long) LONGS.getAcquire(this.buffer, this.base + OFFSET_CLOSED)
+           != 0L;
+  }
+
+  private void copyIn(
+    final int index,
+    final ByteBuffer payload,
+    final int size)
+  {
+    final var position = payload.position();
+    final var first = Math.min(size, this.capacity - index);
+    this.buffer.put(this.dataBase + index, payload, position, first);
+    if (first < size) {
+      this.buffer.put(this.dataBase, payload, position + first, size - first);
+    }
+  }
+
+  private void copyOut(
+    final int index,
+    final ByteBuffer output,
+    final int size)
+  {
+    final var first = Math.min(size, this.capacity - index);
+    output.put(0, this.buffer, this.dataBase + index, first);
+    if (first < size) {
+      output.put(first, this.buffer, this.dataBase, size - first);
+    }
+  }
+}
@@ -20,6 +20,8 @@ import com.io7m.cedarbridge.runtime.api.CBDeserializerMethod;
 import com.io7m.cedarbridge.runtime.api.CBSerializableType;
 import com.io7m.cedarbridge.runtime.api.CBSerializationContextType;
 import com.io7m.cedarbridge.runtime.api.CBSerializerMethod;
+import com.io7m.cedarbridge.runtime.api.CBSkipperMethod;
+import com.io7m.cedarbridge.runtime.api.CBValidatorMethod;
 
 import java.io.IOException;
 import java.io.UncheckedIOException;
@@ -107,4 +109,46 @@ public record CBDuration(Duration value)
     final var nanos = context.readU32();
     return new CBDuration(Duration.ofSeconds(seconds, nanos));
   }
+
+  /**
+   * Validate a serialized value without deserializing it.
+   *
+   * @param context The serialization context
+   *
+   * @throws IOException On errors
+   */
+
+  @CBValidatorMethod
+  public static void validate(
+    final CBSerializationContextType context)
+    throws IOException
+  {
+    final var seconds = context.readU64();
+    final var nanos = context.readU32();
+
+    try {
+      Math.addExact(seconds, Math.floorDiv(nanos, 1_000_000_000L));
+    } catch (final ArithmeticException e) {
+      throw context.errorInvalidValue(
+        CBDuration.class,
+        "Duration out of range: %ds %dns".formatted(seconds, nanos)
+      );
+    }
+  }
+
+  /**
+   * Skip over a serialized value without deserializing it.
+   *
+   * @param context The serialization context
+   *
+   * @throws IOException On errors
+   */
+
+  @CBSkipperMethod
+  public static void skip(
+    final CBSerializationContextType context)
+    throws IOException
+  {
+    context.skipBytes(12L);
+  }
 }
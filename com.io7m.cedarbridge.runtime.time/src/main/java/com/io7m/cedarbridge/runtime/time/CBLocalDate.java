@@ -20,15 +20,21 @@ import com.io7m.cedarbridge.runtime.api.CBDeserializerMethod;
 import com.io7m.cedarbridge.runtime.api.CBSerializableType;
 import com.io7m.cedarbridge.runtime.api.CBSerializationContextType;
 import com.io7m.cedarbridge.runtime.api.CBSerializerMethod;
+import com.io7m.cedarbridge.runtime.api.CBSkipperMethod;
+import com.io7m.cedarbridge.runtime.api.CBValidatorMethod;
 
 import java.io.IOException;
 import java.io.UncheckedIOException;
 import java.time.LocalDate;
+import java.time.Month;
+import java.time.Year;
 import java.util.Formattable;
 import java.util.Formatter;
 import java.util.Objects;
 
 import static java.lang.Integer.toUnsignedLong;
+import static java.time.temporal.ChronoField.MONTH_OF_YEAR;
+import static java.time.temporal.ChronoField.YEAR;
 
 /**
  * The type of local date values.
@@ -111,4 +117,48 @@ public record CBLocalDate(LocalDate value)
     final var day = context.readU8();
     return new CBLocalDate(LocalDate.of((int) year, month, day));
   }
+
+  /**
+   * Validate a serialized value without deserializing it.
+   *
+   * @param context The serialization context
+   *
+   * @throws IOException On errors
+   */
+
+  @CBValidatorMethod
+  public static void validate(
+    final CBSerializationContextType context)
+    throws IOException
+  {
+    final var year = (int) context.readU32();
+    final var month = context.readU8();
+    final var day = context.readU8();
+
+    if (!YEAR.range().isValidIntValue(year)
+        || !MONTH_OF_YEAR.range().isValidIntValue(month)
+        || day < 1
+        || day > Month.of(month).length(Year.isLeap(year))) {
+      throw context.errorInvalidValue(
+        CBLocalDate.class,
+        "Invalid date: %d-%d-%d".formatted(year, month, day)
+      );
+    }
+  }
+
+  /**
+   * Skip over a serialized value without deserializing it.
+   *
+   * @param context The serialization context
+   *
+   * @throws IOException On errors
+   */
+
+  @CBSkipperMethod
+  public static void skip(
+    final CBSerializationContextType context)
+    throws IOException
+  {
+    context.skipBytes(6L);
+  }
 }
@@ -20,6 +20,8 @@ import com.io7m.cedarbridge.runtime.api.CBDeserializerMethod;
 import com.io7m.cedarbridge.runtime.api.CBSerializableType;
 import com.io7m.cedarbridge.runtime.api.CBSerializationContextType;
 import com.io7m.cedarbridge.runtime.api.CBSerializerMethod;
+import com.io7m.cedarbridge.runtime.api.CBSkipperMethod;
+import com.io7m.cedarbridge.runtime.api.CBValidatorMethod;
 
 import java.io.IOException;
 import java.io.UncheckedIOException;
@@ -28,6 +30,8 @@ import java.util.Formattable;
 import java.util.Formatter;
 import java.util.Objects;
 
+import static java.lang.Integer.toUnsignedLong;
+
 /**
  * The type of local date/time values.
  *
@@ -84,8 +88,14 @@ public record CBLocalDateTime(LocalDateTime value)
     final CBLocalDateTime x)
     throws IOException
   {
-    CBLocalDate.serialize(context, new CBLocalDate(x.value.toLocalDate()));
-    CBLocalTime.serialize(context, new CBLocalTime(x.value.toLocalTime()));
+    final var v = x.value;
+    context.writeU32(toUnsignedLong(v.getYear()));
+    context.writeU8(toUnsignedLong(v.getMonthValue()));
+    context.writeU8(toUnsignedLong(v.getDayOfMonth()));
+    context.writeU8(toUnsignedLong(v.getHour()));
+    context.writeU8(toUnsignedLong(v.getMinute()));
+    context.writeU8(toUnsignedLong(v.getSecond()));
+    context.writeU32(toUnsignedLong(v.getNano()));
   }
 
   /**
@@ -103,8 +113,50 @@ public record CBLocalDateTime(LocalDateTime value)
     final CBSerializationContextType context)
     throws IOException
   {
-    final var date = CBLocalDate.deserialize(context);
-    final var time = CBLocalTime.deserialize(context);
-    return new CBLocalDateTime(LocalDateTime.of(date.value(), time.value()));
+    final var year = context.readU32();
+    final var month = context.readU8();
+    final var day = context.readU8();
+    final var hour = context.readU8();
+    final var minute = context.readU8();
+    final var second = context.readU8();
+    final var nanos = context.readU32();
+
+    return new CBLocalDateTime(
+      LocalDateTime.of(
+        (int) year, month, day, hour, minute, second, (int) nanos)
+    );
+  }
+
+  /**
+   * Validate a serialized value without deserializing it.
+   *
+   * @param context The serialization context
+   *
+   * @throws IOException On errors
+   */
+
+  @CBValidatorMethod
+  public static void validate(
+    final CBSerializationContextType context)
+    throws IOException
+  {
+    CBLocalDate.validate(context);
+    CBLocalTime.validate(context);
+  }
+
+  /**
+   * Skip over a serialized value without deserializing it.
+   *
+   * @param context The serialization context
+   *
+   * @throws IOException On errors
+   */
+
+  @CBSkipperMethod
+  public static void skip(
+    final CBSerializationContextType context)
+    throws IOException
+  {
+    context.skipBytes(13L);
   }
 }
@@ -20,6 +20,8 @@ import com.io7m.cedarbridge.runtime.api.CBDeserializerMethod;
 import com.io7m.cedarbridge.runtime.api.CBSerializableType;
 import com.io7m.cedarbridge.runtime.api.CBSerializationContextType;
 import com.io7m.cedarbridge.runtime.api.CBSerializerMethod;
+import com.io7m.cedarbridge.runtime.api.CBSkipperMethod;
+import com.io7m.cedarbridge.runtime.api.CBValidatorMethod;
 
 import java.io.IOException;
 import java.io.UncheckedIOException;
@@ -29,6 +31,10 @@ import java.util.Formatter;
 import java.util.Objects;
 
 import static java.lang.Integer.toUnsignedLong;
+import static java.time.temporal.ChronoField.HOUR_OF_DAY;
+import static java.time.temporal.ChronoField.MINUTE_OF_HOUR;
+import static java.time.temporal.ChronoField.NANO_OF_SECOND;
+import static java.time.temporal.ChronoField.SECOND_OF_MINUTE;
 
 /**
  * The type of local time values.
@@ -113,4 +119,49 @@ public record CBLocalTime(LocalTime value)
     final var nanos = context.readU32();
     return new CBLocalTime(LocalTime.of(hour, minute, second, (int) nanos));
   }
+
+  /**
+   * Validate a serialized value without deserializing it.
+   *
+   * @param context The serialization context
+   *
+   * @throws IOException On errors
+   */
+
+  @CBValidatorMethod
+  public static void validate(
+    final CBSerializationContextType context)
+    throws IOException
+  {
+    final var hour = context.readU8();
+    final var minute = context.readU8();
+    final var second = context.readU8();
+    final var nanos = (int) context.readU32();
+
+    if (!HOUR_OF_DAY.range().isValidIntValue(hour)
+        || !MINUTE_OF_HOUR.range().isValidIntValue(minute)
+        || !SECOND_OF_MINUTE.range().isValidIntValue(second)
+        || !NANO_OF_SECOND.range().isValidIntValue(nanos)) {
+      throw context.errorInvalidValue(
+        CBLocalTime.class,
+        "Invalid time: %d:%d:%d.%d".formatted(hour, minute, second, nanos)
+      );
+    }
+  }
+
+  /**
+   * Skip over a serialized value without deserializing it.
+   *
+   * @param context The serialization context
+   *
+   * @throws IOException On errors
+   */
+
+  @CBSkipperMethod
+  public static void skip(
+    final CBSerializationContextType context)
+    throws IOException
+  {
+    context.skipBytes(7L);
+  }
 }
@@ -20,14 +20,19 @@ import com.io7m.cedarbridge.runtime.api.CBDeserializerMethod;
 import com.io7m.cedarbridge.runtime.api.CBSerializableType;
 import com.io7m.cedarbridge.runtime.api.CBSerializationContextType;
 import com.io7m.cedarbridge.runtime.api.CBSerializerMethod;
+import com.io7m.cedarbridge.runtime.api.CBSkipperMethod;
+import com.io7m.cedarbridge.runtime.api.CBValidatorMethod;
 
 import java.io.IOException;
 import java.io.UncheckedIOException;
 import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
 import java.util.Formattable;
 import java.util.Formatter;
 import java.util.Objects;
 
+import static java.lang.Integer.toUnsignedLong;
+
 /**
  * The type of offset date/time values.
  *
@@ -84,14 +89,15 @@ public record CBOffsetDateTime(OffsetDateTime value)
     final CBOffsetDateTime x)
     throws IOException
   {
-    CBLocalDateTime.serialize(
-      context,
-      new CBLocalDateTime(x.value.toLocalDateTime())
-    );
-    CBZoneOffset.serialize(
-      context,
-      new CBZoneOffset(x.value.getOffset())
-    );
+    final var v = x.value;
+    context.writeU32(toUnsignedLong(v.getYear()));
+    context.writeU8(toUnsignedLong(v.getMonthValue()));
+    context.writeU8(toUnsignedLong(v.getDayOfMonth()));
+    context.writeU8(toUnsignedLong(v.getHour()));
+    context.writeU8(toUnsignedLong(v.getMinute()));
+    context.writeU8(toUnsignedLong(v.getSecond()));
+    context.writeU32(toUnsignedLong(v.getNano()));
+    context.writeS32((long) v.getOffset().getTotalSeconds());
   }
 
   /**
@@ -109,13 +115,59 @@ public record CBOffsetDateTime(OffsetDateTime value)
     final CBSerializationContextType context)
     throws IOException
   {
-    final var localDateTime =
-      CBLocalDateTime.deserialize(context);
-    final var offset =
-      CBZoneOffset.deserialize(context);
+    final var year = context.readU32();
+    final var month = context.readU8();
+    final var day = context.readU8();
+    final var hour = context.readU8();
+    final var minute = context.readU8();
+    final var second = context.readU8();
+    final var nanos = context.readU32();
+    final var offset = context.readS32();
 
     return new CBOffsetDateTime(
-      OffsetDateTime.of(localDateTime.value(), offset.value())
+      OffsetDateTime.of(
+        (int) year,
+        month,
+        day,
+        hour,
+        minute,
+        second,
+        (int) nanos,
+        ZoneOffset.ofTotalSeconds(offset)
+      )
     );
   }
+
+  /**
+   * Validate a serialized value without deserializing it.
+   *
+   * @param context The serialization context
+   *
+   * @throws IOException On errors
+   */
+
+  @CBValidatorMethod
+  public static void validate(
+    final CBSerializationContextType context)
+    throws IOException
+  {
+    CBLocalDateTime.validate(context);
+    CBZoneOffset.validate(context);
+  }
+
+  /**
+   * Skip over a serialized value without deserializing it.
+   *
+   * @param context The serialization context
+   *
+   * @throws IOException On errors
+   */
+
+  @CBSkipperMethod
+  public static void skip(
+    final CBSerializationContextType context)
+    throws IOException
+  {
+    context.skipBytes(17L);
+  }
 }
@@ -20,6 +20,8 @@ import com.io7m.cedarbridge.runtime.api.CBDeserializerMethod;
 import com.io7m.cedarbridge.runtime.api.CBSerializableType;
 import com.io7m.cedarbridge.runtime.api.CBSerializationContextType;
 import com.io7m.cedarbridge.runtime.api.CBSerializerMethod;
+import com.io7m.cedarbridge.runtime.api.CBSkipperMethod;
+import com.io7m.cedarbridge.runtime.api.CBValidatorMethod;
 
 import java.io.IOException;
 import java.io.UncheckedIOException;
@@ -28,6 +30,8 @@ import java.util.Formattable;
 import java.util.Formatter;
 import java.util.Objects;
 
+import static java.time.temporal.ChronoField.OFFSET_SECONDS;
+
 /**
  * The type of time zone offset values.
  *
@@ -106,4 +110,42 @@ public record CBZoneOffset(ZoneOffset value)
       ZoneOffset.ofTotalSeconds(context.readS32())
     );
   }
+
+  /**
+   * Validate a serialized value without deserializing it.
+   *
+   * @param context The serialization context
+   *
+   * @throws IOException On errors
+   */
+
+  @CBValidatorMethod
+  public static void validate(
+    final CBSerializationContextType context)
+    throws IOException
+  {
+    final var seconds = context.readS32();
+    if (!OFFSET_SECONDS.range().isValidIntValue(seconds)) {
+      throw context.errorInvalidValue(
+        CBZoneOffset.class,
+        "Invalid zone offset: %d seconds".formatted(seconds)
+      );
+    }
+  }
+
+  /**
+   * Skip over a serialized value without deserializing it.
+   *
+   * @param context The serialization context
+   *
+   * @throws IOException On errors
+   */
+
+  @CBSkipperMethod
+  public static void skip(
+    final CBSerializationContextType context)
+    throws IOException
+  {
+    context.skipBytes(4L);
+  }
 }
@@ -0,0 +1,251 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.cedarbridge.schema.compiled;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.OptionalLong;
+import java.util.Set;
+
+import static com.io7m.cedarbridge.schema.compiled.CBTypeExpressionType.CBTypeExprApplicationType;
+import static com.io7m.cedarbridge.schema.compiled.CBTypeExpressionType.CBTypeExprNamedType;
+import static com.io7m.cedarbridge.schema.compiled.CBTypeExpressionType.CBTypeExprParameterType;
+
+/**
+ * <p>Functions to calculate the statically known encoded sizes of types.</p>
+ *
+ * <p>A type has a fixed encoded size if every value of the type is encoded
+ * using exactly the same number of octets. Records have a fixed size if all
+ * of their fields have a fixed size. Variants have a fixed size if all of
+ * their cases have the same fixed size, in which case the size includes the
+ * 32-bit variant index. External types have a fixed size only if one was
+ * declared for them. Types that refer to themselves never have a fixed
+ * size.</p>
+ */
+
+public final class CBEncodedSizes
+{
+  /**
+   * The size in octets of an encoded variant index.
+   */
+
+  public static final long VARIANT_INDEX_SIZE = 4L;
+
+  private CBEncodedSizes()
+  {
+
+  }
+
+  /**
+   * Calculate the encoded size of the given type declaration when applied
+   * to type arguments of the given sizes.
+   *
+   * @param declaration The type declaration
+   * @param arguments   The encoded sizes of the type arguments
+   *
+   * @return The encoded size, if it is fixed
+   */
+
+  public static OptionalLong ofDeclaration(
+    final CBTypeDeclarationType declaration,
+    final List<OptionalLong> arguments)
+  {
+    Objects.requireNonNull(declaration, "declaration");
+    Objects.requireNonNull(arguments, "arguments");
+
+    if (arguments.size() != declaration.arity()) {
+      throw new IllegalArgumentException(
+        String.format(
+          "Type %s has arity %d but %d arguments were provided",
+          declaration.name(),
+          Integer.valueOf(declaration.arity()),
+          Integer.valueOf(arguments.size())
+        )
+      );
+    }
+
+    return declarationStep(new HashSet<>(), declaration, arguments);
+  }
+
+  /**
+   * Calculate the encoded size of the given type expression. Type parameters
+   * are never considered to have a fixed size.
+   *
+   * @param expression The type expression
+   *
+   * @return The encoded size, if it is fixed
+   */
+
+  public static OptionalLong ofExpression(
+    final CBTypeExpressionType expression)
+  {
+    Objects.requireNonNull(expression, "expression");
+    return expressionStep(new HashSet<>(), Map.of(), expression);
+  }
+
+  /**
+   * Calculate the total encoded size of the given fields. Type parameters
+   * are never considered to have a fixed size.
+   *
+   * @param fields The fields
+   *
+   * @return The encoded size, if it is fixed
+   */
+
+  public static OptionalLong ofFields(
+    final List<CBFieldType> fields)
+  {
+    Objects.requireNonNull(fields, "fields");
+    return fieldsStep(new HashSet<>(), Map.of(), fields);
+  }
+
+  private static OptionalLong declarationStep(
+    final Set<CBTypeDeclarationType> visiting,
+    final CBTypeDeclarationType declaration,
+    final List<OptionalLong> arguments)
+  {
+    if (declaration instanceof CBExternalType) {
+      if (declaration.arity() == 0) {
+        return declaration.encodedSizeIfFixed();
+      }
+      return OptionalLong.empty();
+    }
+
+    final var parameters = declaration.parameters();
+    if (parameters.size() != arguments.size()) {
+      return OptionalLong.empty();
+    }
+
+    if (!visiting.add(declaration)) {
+      return OptionalLong.empty();
+    }
+
+    try {
+      final var substitution =
+        new HashMap<CBTypeParameterType, OptionalLong>();
+
+      for (int index = 0; index < parameters.size(); ++index) {
+        substitution.put(parameters.get(index), arguments.get(index));
+      }
+
+      if (declaration instanceof CBRecordType record) {
+        return fieldsStep(visiting, substitution, record.fields());
+      }
+
+      if (declaration instanceof CBVariantType variant) {
+        return variantStep(visiting, substitution, variant);
+      }
+
+      return OptionalLong.empty();
+    } finally {
+      visiting.remove(declaration);
+    }
+  }
+
+  private static OptionalLong variantStep(
+    final Set<CBTypeDeclarationType> visiting,
+    final Map<CBTypeParameterType, OptionalLong> substitution,
+    final CBVariantType variant)
+  {
+    final var cases = variant.cases();
+    if (cases.isEmpty()) {
+      return OptionalLong.empty();
+    }
+
+    final var caseSizes = new ArrayList<OptionalLong>(cases.size());
+    for (final var caseV : cases) {
+      caseSizes.add(fieldsStep(visiting, substitution, caseV.fields()));
+    }
+
+    final var first = caseSizes.get(0);
+    if (first.isEmpty()) {
+      return OptionalLong.empty();
+    }
+    for (final var size : caseSizes) {
+      if (!size.equals(first)) {
+        return OptionalLong.empty();
+      }
+    }
+    return add(OptionalLong.of(VARIANT_INDEX_SIZE), first);
+  }
+
+  private static OptionalLong fieldsStep(
+    final Set<CBTypeDeclarationType> visiting,
+    final Map<CBTypeParameterType, OptionalLong> substitution,
+    final List<CBFieldType> fields)
+  {
+    var size = OptionalLong.of(0L);
+    for (final var field : fields) {
+      size = add(size, expressionStep(visiting, substitution, field.type()));
+      if (size.isEmpty()) {
+        return size;
+      }
+    }
+    return size;
+  }
+
+  private static OptionalLong expressionStep(
+    final Set<CBTypeDeclarationType> visiting,
+    final Map<CBTypeParameterType, OptionalLong> substitution,
+    final CBTypeExpressionType expression)
+  {
+    if (expression instanceof CBTypeExprParameterType parameter) {
+      return substitution.getOrDefault(
+        parameter.parameter(),
+        OptionalLong.empty()
+      );
+    }
+
+    if (expression instanceof CBTypeExprNamedType named) {
+      return declarationStep(visiting, named.declaration(), List.of());
+    }
+
+    if (expression instanceof CBTypeExprApplicationType application) {
+      final var arguments =
+        new ArrayList<OptionalLong>(application.arguments().size());
+      for (final var argument : application.arguments()) {
+        arguments.add(expressionStep(visiting, substitution, argument));
+      }
+      return declarationStep(
+        visiting,
+        application.target().declaration(),
+        arguments
+      );
+    }
+
+    return OptionalLong.empty();
+  }
+
+  private static OptionalLong add(
+    final OptionalLong x,
+    final OptionalLong y)
+  {
+    if (x.isEmpty() || y.isEmpty()) {
+      return OptionalLong.empty();
+    }
+    try {
+      return OptionalLong.of(Math.addExact(x.getAsLong(), y.getAsLong()));
+    } catch (final ArithmeticException e) {
+      return OptionalLong.empty();
+    }
+  }
+}
@@ -90,4 +90,16 @@ public interface CBTypeDeclarationBuilderType
   void setExternalName(
     String externalPackageName,
     String name);
+
+  /**
+   * Declare the encoded size of an external type. The encoded sizes of
+   * records and variants are calculated when the package is built.
+   *
+   * @param size The encoded size in octets
+   *
+   * @throws UnsupportedOperationException If the type is not external
+   * @see CBTypeDeclarationType#encodedSizeIfFixed()
+   */
+
+  void setEncodedSize(long size);
 }
@@ -22,6 +22,7 @@ import java.io.UncheckedIOException;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.OptionalLong;
 import java.util.UUID;
 import java.util.function.Function;
 import java.util.stream.Collectors;
@@ -86,6 +87,18 @@ public interface CBTypeDeclarationType
 
   UUID id();
 
+  /**
+   * The encoded size of the type, if every value of the type is encoded
+   * using the same number of octets. For types with type parameters, the
+   * size is only present if it does not depend on any of the parameters.
+   *
+   * @return The encoded size of values of this type in octets, if fixed
+   *
+   * @see CBEncodedSizes
+   */
+
+  OptionalLong encodedSizeIfFixed();
+
   /**
    * @return Documentation for the type declaration
    */
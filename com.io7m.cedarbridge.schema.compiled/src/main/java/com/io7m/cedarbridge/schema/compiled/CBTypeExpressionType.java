@@ -20,6 +20,7 @@ import java.util.Formattable;
 import java.util.Formatter;
 import java.util.List;
 import java.util.Objects;
+import java.util.OptionalLong;
 import java.util.stream.Collectors;
 
 /**
@@ -38,6 +39,17 @@ public sealed interface CBTypeExpressionType extends Formattable
 
   boolean contains(CBTypeParameterType parameter);
 
+  /**
+   * The encoded size of the type expression, if every value of the type is
+   * encoded using the same number of octets.
+   *
+   * @return The encoded size of values of this type in octets, if fixed
+   *
+   * @see CBEncodedSizes
+   */
+
+  OptionalLong encodedSizeIfFixed();
+
   /**
    * A type parameter expression.
    */
@@ -57,6 +69,12 @@ public sealed interface CBTypeExpressionType extends Formattable
       return Objects.equals(parameter, this.parameter());
     }
 
+    @Override
+    default OptionalLong encodedSizeIfFixed()
+    {
+      return OptionalLong.empty();
+    }
+
     @Override
     default void formatTo(
       final Formatter formatter,
@@ -87,6 +105,16 @@ public sealed interface CBTypeExpressionType extends Formattable
       return false;
     }
 
+    @Override
+    default OptionalLong encodedSizeIfFixed()
+    {
+      final var decl = this.declaration();
+      if (decl.arity() == 0) {
+        return decl.encodedSizeIfFixed();
+      }
+      return OptionalLong.empty();
+    }
+
     @Override
     default void formatTo(
       final Formatter formatter,
@@ -126,6 +154,12 @@ public sealed interface CBTypeExpressionType extends Formattable
         .anyMatch(p -> p.contains(parameter));
     }
 
+    @Override
+    default OptionalLong encodedSizeIfFixed()
+    {
+      return CBEncodedSizes.ofExpression(this);
+    }
+
     @Override
     default void formatTo(
       final Formatter formatter,
@@ -16,6 +16,7 @@
 
 package com.io7m.cedarbridge.schema.compiled.internal;
 
+import com.io7m.cedarbridge.schema.compiled.CBEncodedSizes;
 import com.io7m.cedarbridge.schema.compiled.CBPackageBuilderType;
 import com.io7m.cedarbridge.schema.compiled.CBPackageType;
 import com.io7m.cedarbridge.schema.compiled.CBProtocolBuilderType;
@@ -41,6 +42,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.OptionalLong;
 
 import static com.io7m.cedarbridge.schema.compiled.CBTypeExpressionType.CBTypeExprNamedType;
 import static com.io7m.cedarbridge.schema.compiled.CBTypeExpressionType.CBTypeExprParameterType;
@@ -245,9 +247,35 @@ public final class CBPackageBuilder implements CBPackageBuilderType
   {
     this.checkNotDone();
     this.done = true;
+    this.calculateEncodedSizes();
     return this.packageNow;
   }
 
+  private void calculateEncodedSizes()
+  {
+    for (final var builder : this.typeBuilders.values()) {
+      if (builder instanceof RecordBuilder recordBuilder) {
+        final var record = recordBuilder.record;
+        record.setEncodedSize(encodedSizeOf(record));
+      } else if (builder instanceof VariantBuilder variantBuilder) {
+        final var variant = variantBuilder.variant;
+        variant.setEncodedSize(encodedSizeOf(variant));
+      }
+    }
+  }
+
+  private static OptionalLong encodedSizeOf(
+    final CBTypeDeclarationType type)
+  {
+    final var arguments =
+      type.parameters()
+        .stream()
+        .map(p -> OptionalLong.empty())
+        .toList();
+
+    return CBEncodedSizes.ofDeclaration(type, arguments);
+  }
+
   @Override
   public CBPackageBuilderType addImport(
     final CBPackageType imported)
@@ -407,6 +435,15 @@ public final class CBPackageBuilder implements CBPackageBuilderType
       this.record.setExternalName(externalPackageName, name);
     }
 
+    @Override
+    public void setEncodedSize(
+      final long size)
+    {
+      throw new UnsupportedOperationException(
+        "The encoded sizes of records are calculated when the package is built"
+      );
+    }
+
     @Override
     public CBPackageBuilderType ownerPackage()
     {
@@ -509,6 +546,15 @@ public final class CBPackageBuilder implements CBPackageBuilderType
       this.variant.setExternalName(externalPackageName, name);
     }
 
+    @Override
+    public void setEncodedSize(
+      final long size)
+    {
+      throw new UnsupportedOperationException(
+        "The encoded sizes of variants are calculated when the package is built"
+      );
+    }
+
     @Override
     public CBPackageBuilderType ownerPackage()
     {
@@ -682,5 +728,21 @@ public final class CBPackageBuilder implements CBPackageBuilderType
     {
       throw new UnsupportedOperationException();
     }
+
+    @Override
+    public void setEncodedSize(
+      final long size)
+    {
+      CBPackageBuilder.this.checkNotDone();
+
+      if (size < 0L) {
+        throw new IllegalArgumentException(
+          String.format(
+            "Encoded size %d must be non-negative",
+            Long.valueOf(size))
+        );
+      }
+      this.external.setEncodedSize(OptionalLong.of(size));
+    }
   }
 }
@@ -29,6 +29,7 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.OptionalLong;
 
 /**
  * An external type declaration.
@@ -44,6 +45,7 @@ public final class CBTypeDeclarationExternal implements CBExternalType
   private final Optional<CBExternalName> externalName;
   private CBPackageType owner;
   private List<String> documentation;
+  private OptionalLong encodedSize;
 
   /**
    * Construct an external type.
@@ -68,6 +70,8 @@ public final class CBTypeDeclarationExternal implements CBExternalType
       new ArrayList<>();
     this.documentation =
       List.of();
+    this.encodedSize =
+      OptionalLong.empty();
 
     Preconditions.checkPreconditionV(
       inName,
@@ -181,4 +185,22 @@ public final class CBTypeDeclarationExternal implements CBExternalType
   {
     this.documentation = Objects.requireNonNull(text, "text");
   }
+
+  @Override
+  public OptionalLong encodedSizeIfFixed()
+  {
+    return this.encodedSize;
+  }
+
+  /**
+   * Set the encoded size of the type.
+   *
+   * @param size The encoded size, if fixed
+   */
+
+  public void setEncodedSize(
+    final OptionalLong size)
+  {
+    this.encodedSize = Objects.requireNonNull(size, "size");
+  }
 }
@@ -29,6 +29,7 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.OptionalLong;
 
 /**
  * A record type declaration.
@@ -44,6 +45,7 @@ public final class CBTypeDeclarationRecord implements CBRecordType
   private CBPackageType owner;
   private Optional<CBExternalName> externalName;
   private List<String> documentation;
+  private OptionalLong encodedSize;
 
   /**
    * Construct a type declaration.
@@ -65,6 +67,8 @@ public final class CBTypeDeclarationRecord implements CBRecordType
       Optional.empty();
     this.documentation =
       List.of();
+    this.encodedSize =
+      OptionalLong.empty();
 
     Preconditions.checkPreconditionV(
       inName,
@@ -213,4 +217,22 @@ public final class CBTypeDeclarationRecord implements CBRecordType
   {
     this.documentation = Objects.requireNonNull(text, "text");
   }
+
+  @Override
+  public OptionalLong encodedSizeIfFixed()
+  {
+    return this.encodedSize;
+  }
+
+  /**
+   * Set the encoded size of the type.
+   *
+   * @param size The encoded size, if fixed
+   */
+
+  public void setEncodedSize(
+    final OptionalLong size)
+  {
+    this.encodedSize = Objects.requireNonNull(size, "size");
+  }
 }
@@ -29,6 +29,7 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.OptionalLong;
 
 /**
  * A variant type declaration.
@@ -44,6 +45,7 @@ public final class CBTypeDeclarationVariant implements CBVariantType
   private CBPackageType owner;
   private Optional<CBExternalName> externalName;
   private List<String> documentation;
+  private OptionalLong encodedSize;
 
   /**
    * Construct a variant type declaration.
@@ -71,6 +73,8 @@ public final class CBTypeDeclarationVariant implements CBVariantType
       Optional.empty();
     this.documentation =
       List.of();
+    this.encodedSize =
+      OptionalLong.empty();
 
     this.casesRead =
       Collections.unmodifiableList(this.cases);
@@ -218,4 +222,22 @@ public final class CBTypeDeclarationVariant implements CBVariantType
   {
     this.documentation = Objects.requireNonNull(text, "text");
   }
+
+  @Override
+  public OptionalLong encodedSizeIfFixed()
+  {
+    return this.encodedSize;
+  }
+
+  /**
+   * Set the encoded size of the type.
+   *
+   * @param size The encoded size, if fixed
+   */
+
+  public void setEncodedSize(
+    final OptionalLong size)
+  {
+    this.encodedSize = Objects.requireNonNull(size, "size");
+  }
 }
@@ -18,26 +18,34 @@ package com.io7m.cedarbridge.schema.compiler.api;
 
 import com.io7m.cedarbridge.schema.compiled.CBPackageType;
 
+import java.nio.file.Path;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 
 /**
  * The result of a compilation.
  *
- * @param compiledPackages The list of compiled packages
+ * @param compiledPackages       The list of compiled packages
+ * @param compiledPackagesByFile The compiled packages, keyed by the files
+ *                               from which they were compiled
  */
 
 public record CBSchemaCompilation(
-  List<CBPackageType> compiledPackages)
+  List<CBPackageType> compiledPackages,
+  Map<Path, CBPackageType> compiledPackagesByFile)
 {
   /**
    * The result of a compilation.
    *
-   * @param compiledPackages The list of compiled packages
+   * @param compiledPackages       The list of compiled packages
+   * @param compiledPackagesByFile The compiled packages, keyed by the files
+   *                               from which they were compiled
    */
 
   public CBSchemaCompilation
   {
     Objects.requireNonNull(compiledPackages, "compiledPackages");
+    Objects.requireNonNull(compiledPackagesByFile, "compiledPackagesByFile");
   }
 }
@@ -19,6 +19,7 @@ package com.io7m.cedarbridge.schema.compiler.api;
 import java.nio.file.Path;
 import java.util.List;
 import java.util.Objects;
+import java.util.Optional;
 
 /**
  * The compiler configuration.
@@ -26,11 +27,16 @@ import java.util.Objects;
  * @param includeDirectories The list of directories within which to search for
  *                           packages
  * @param filesToCompile     The list of files to compile
+ * @param cacheDirectory     The directory used to cache compiled packages,
+ *                           if any
+ * @param instrumentation    The receiver of compiler instrumentation
  */
 
 public record CBSchemaCompilerConfiguration(
   List<Path> includeDirectories,
-  List<Path> filesToCompile)
+  List<Path> filesToCompile,
+  Optional<Path> cacheDirectory,
+  CBSchemaCompilerInstrumentationType instrumentation)
 {
   /**
    * The compiler configuration.
@@ -38,17 +44,63 @@ public record CBSchemaCompilerConfiguration(
    * @param includeDirectories The list of directories within which to search
    *                           for packages
    * @param filesToCompile     The list of files to compile
+   * @param cacheDirectory     The directory used to cache compiled packages,
+   *                           if any
+   * @param instrumentation    The receiver of compiler instrumentation
    */
 
   public CBSchemaCompilerConfiguration
   {
     Objects.requireNonNull(includeDirectories, "includeDirectories");
     Objects.requireNonNull(filesToCompile, "filesToCompile");
+    Objects.requireNonNull(cacheDirectory, "cacheDirectory");
+    Objects.requireNonNull(instrumentation, "instrumentation");
 
     includeDirectories
       .forEach(CBSchemaCompilerConfiguration::checkAbsolute);
     filesToCompile
       .forEach(CBSchemaCompilerConfiguration::checkAbsolute);
+    cacheDirectory
+      .ifPresent(CBSchemaCompilerConfiguration::checkAbsolute);
+  }
+
+  /**
+   * The compiler configuration. No instrumentation is collected.
+   *
+   * @param includeDirectories The list of directories within which to search
+   *                           for packages
+   * @param filesToCompile     The list of files to compile
+   * @param cacheDirectory     The directory used to cache compiled packages,
+   *                           if any
+   */
+
+  public CBSchemaCompilerConfiguration(
+    final List<Path> includeDirectories,
+    final List<Path> filesToCompile,
+    final Optional<Path> cacheDirectory)
+  {
+    this(
+      includeDirectories,
+      filesToCompile,
+      cacheDirectory,
+      CBSchemaCompilerInstrumentationType.NONE
+    );
+  }
+
+  /**
+   * The compiler configuration. No package cache is used, and no
+   * instrumentation is collected.
+   *
+   * @param includeDirectories The list of directories within which to search
+   *                           for packages
+   * @param filesToCompile     The list of files to compile
+   */
+
+  public CBSchemaCompilerConfiguration(
+    final List<Path> includeDirectories,
+    final List<Path> filesToCompile)
+  {
+    this(includeDirectories, filesToCompile, Optional.empty());
   }
 
   private static void checkAbsolute(
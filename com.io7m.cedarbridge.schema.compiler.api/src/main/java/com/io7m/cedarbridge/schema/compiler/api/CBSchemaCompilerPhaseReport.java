@@ -0,0 +1,69 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.cedarbridge.schema.compiler.api;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * A report of the execution of a single compilation phase for a single
+ * source file.
+ *
+ * @param source           The source file
+ * @param packageName      The name of the package, if it is known
+ * @param phase            The phase
+ * @param duration         The time taken by the phase
+ * @param succeeded        {@code true} if the phase succeeded
+ * @param expressions      The number of top-level expressions in the source
+ * @param types            The number of type declarations in the package
+ * @param protocolVersions The number of protocol versions in the package
+ */
+
+public record CBSchemaCompilerPhaseReport(
+  URI source,
+  Optional<String> packageName,
+  CBSchemaCompilerPhase phase,
+  Duration duration,
+  boolean succeeded,
+  long expressions,
+  long types,
+  long protocolVersions)
+{
+  /**
+   * A report of the execution of a single compilation phase for a single
+   * source file.
+   *
+   * @param source           The source file
+   * @param packageName      The name of the package, if it is known
+   * @param phase            The phase
+   * @param duration         The time taken by the phase
+   * @param succeeded        {@code true} if the phase succeeded
+   * @param expressions      The number of top-level expressions in the source
+   * @param types            The number of type declarations in the package
+   * @param protocolVersions The number of protocol versions in the package
+   */
+
+  public CBSchemaCompilerPhaseReport
+  {
+    Objects.requireNonNull(source, "source");
+    Objects.requireNonNull(packageName, "packageName");
+    Objects.requireNonNull(phase, "phase");
+    Objects.requireNonNull(duration, "duration");
+  }
+}
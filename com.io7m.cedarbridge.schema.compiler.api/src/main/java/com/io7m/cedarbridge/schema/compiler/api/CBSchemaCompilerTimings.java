@@ -0,0 +1,180 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.cedarbridge.schema.compiler.api;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * An instrumentation receiver that collects phase reports and can produce
+ * a simple tabular summary of them.
+ */
+
+public final class CBSchemaCompilerTimings
+  implements CBSchemaCompilerInstrumentationType
+{
+  private final ArrayList<CBSchemaCompilerPhaseReport> reports;
+
+  /**
+   * An instrumentation receiver that collects phase reports.
+   */
+
+  public CBSchemaCompilerTimings()
+  {
+    this.reports = new ArrayList<>();
+  }
+
+  @Override
+  public void onPhaseCompleted(
+    final CBSchemaCompilerPhaseReport report)
+  {
+    synchronized (this.reports) {
+      this.reports.add(report);
+    }
+  }
+
+  /**
+   * @return The reports collected so far, in the order they were received
+   */
+
+  public List<CBSchemaCompilerPhaseReport> reports()
+  {
+    synchronized (this.reports) {
+      return List.copyOf(this.reports);
+    }
+  }
+
+  /**
+   * @return The number of distinct source files seen
+   */
+
+  public int files()
+  {
+    final var sources = new HashSet<URI>();
+    for (final var report : this.reports()) {
+      sources.add(report.source());
+    }
+    return sources.size();
+  }
+
+  /**
+   * @param phase The phase
+   *
+   * @return The total time spent in the given phase
+   */
+
+  public Duration totalFor(
+    final CBSchemaCompilerPhase phase)
+  {
+    var total = Duration.ZERO;
+    for (final var report : this.reports()) {
+      if (report.phase() == phase) {
+        total = total.plus(report.duration());
+      }
+    }
+    return total;
+  }
+
+  private static String millis(
+    final Duration duration)
+  {
+    return String.format(
+      Locale.ROOT,
+      "%.3f",
+      Double.valueOf((double) duration.toNanos() / 1_000_000.0)
+    );
+  }
+
+  /**
+   * Format the collected reports as a table, one line per report, followed
+   * by a summary line for each phase and a line of totals.
+   *
+   * @return The lines of text
+   */
+
+  public List<String> formatTable()
+  {
+    final var lines = new ArrayList<String>();
+    final var format = "%-40s %-12s %12s %12s %8s %10s";
+
+    lines.add(String.format(
+      format,
+      "Package",
+      "Phase",
+      "Time (ms)",
+      "Expressions",
+      "Types",
+      "Versions"
+    ));
+
+    final var reportsNow = this.reports();
+    for (final var report : reportsNow) {
+      lines.add(String.format(
+        format,
+        report.packageName().orElse(report.source().toString()),
+        report.succeeded() ? report.phase() : report.phase() + " (failed)",
+        millis(report.duration()),
+        Long.valueOf(report.expressions()),
+        Long.valueOf(report.types()),
+        Long.valueOf(report.protocolVersions())
+      ));
+    }
+
+    final var totals =
+      new EnumMap<CBSchemaCompilerPhase, Duration>(CBSchemaCompilerPhase.class);
+    long expressions = 0L;
+    long types = 0L;
+    long versions = 0L;
+
+    for (final var report : reportsNow) {
+      totals.merge(report.phase(), report.duration(), Duration::plus);
+      if (report.phase() == CBSchemaCompilerPhase.PARSE) {
+        expressions += report.expressions();
+      }
+      if (report.phase() == CBSchemaCompilerPhase.TYPE_CHECK) {
+        types += report.types();
+        versions += report.protocolVersions();
+      }
+    }
+
+    for (final var entry : totals.entrySet()) {
+      lines.add(String.format(
+        format,
+        "(total)",
+        entry.getKey(),
+        millis(entry.getValue()),
+        "",
+        "",
+        ""
+      ));
+    }
+
+    lines.add(String.format(
+      "%d file(s), %d expression(s), %d type(s), %d protocol version(s)",
+      Integer.valueOf(this.files()),
+      Long.valueOf(expressions),
+      Long.valueOf(types),
+      Long.valueOf(versions)
+    ));
+    return List.copyOf(lines);
+  }
+}
@@ -23,6 +23,7 @@ import com.io7m.cedarbridge.schema.compiler.api.CBSchemaCompilerConfiguration;
 import com.io7m.cedarbridge.schema.compiler.api.CBSchemaCompilerFactoryType;
 import com.io7m.cedarbridge.schema.compiler.api.CBSchemaCompilerType;
 import com.io7m.cedarbridge.schema.compiler.internal.CBLoader;
+import com.io7m.cedarbridge.schema.compiler.internal.CBPackageCache;
 import com.io7m.cedarbridge.schema.compiler.internal.CBSchemaCompiler;
 import com.io7m.cedarbridge.schema.compiler.internal.CBSchemaCompilerInternalFactory;
 import com.io7m.cedarbridge.schema.compiler.internal.CBServices;
@@ -114,7 +115,9 @@ public final class CBSchemaCompilerFactory
       new CBLoader(
         this.factory,
         configuration.includeDirectories(),
-        errorConsumer)
+        errorConsumer,
+        configuration.cacheDirectory().map(CBPackageCache::create),
+        configuration.instrumentation())
     );
   }
 }
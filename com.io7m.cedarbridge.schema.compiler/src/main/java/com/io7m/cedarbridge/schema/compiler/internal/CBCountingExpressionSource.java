@@ -0,0 +1,99 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.cedarbridge.schema.compiler.internal;
+
+import com.io7m.cedarbridge.exprsrc.api.CBExpressionSourceType;
+import com.io7m.jlexing.core.LexicalPosition;
+import com.io7m.jsx.SExpressionType;
+import com.io7m.jsx.api.parser.JSXParserException;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * An expression source that counts the top-level expressions read from
+ * an underlying source.
+ */
+
+public final class CBCountingExpressionSource
+  implements CBExpressionSourceType
+{
+  private final CBExpressionSourceType delegate;
+  private long expressions;
+
+  /**
+   * An expression source that counts the top-level expressions read from
+   * an underlying source.
+   *
+   * @param inDelegate The underlying source
+   */
+
+  public CBCountingExpressionSource(
+    final CBExpressionSourceType inDelegate)
+  {
+    this.delegate = Objects.requireNonNull(inDelegate, "delegate");
+  }
+
+  /**
+   * @return The number of top-level expressions read so far
+   */
+
+  public long expressions()
+  {
+    return this.expressions;
+  }
+
+  @Override
+  public URI source()
+  {
+    return this.delegate.source();
+  }
+
+  @Override
+  public Optional<SExpressionType> parseExpressionOrEOF()
+    throws JSXParserException, IOException
+  {
+    final var result = this.delegate.parseExpressionOrEOF();
+    if (result.isPresent()) {
+      ++this.expressions;
+    }
+    return result;
+  }
+
+  @Override
+  public Optional<String> showLineFor(
+    final int lineNumber)
+  {
+    return this.delegate.showLineFor(lineNumber);
+  }
+
+  @Override
+  public Optional<String> contextualize(
+    final LexicalPosition<?> position)
+  {
+    return this.delegate.contextualize(position);
+  }
+
+  @Override
+  public void close()
+    throws IOException
+  {
+    this.delegate.close();
+  }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.cedarbridge.schema.compiler.internal;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.NotDirectoryException;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * <p>An index of the source files available in include directories.</p>
+ *
+ * <p>Rather than probing the filesystem for each candidate file of each
+ * import, the index lists each directory once and remembers the names of
+ * the source files within it.</p>
+ *
+ * <p>An index belongs to a single loader, and so lives only as long as one
+ * compilation. Long-lived processes (such as the "watch" command) create a
+ * new compiler, and therefore a new index, for each compilation, and so
+ * observe files being created and deleted.</p>
+ */
+
+public final class CBIncludeIndex
+{
+  private static final Logger LOG =
+    LoggerFactory.getLogger(CBIncludeIndex.class);
+
+  private final Map<Path, Set<String>> listings;
+
+  /**
+   * Create an empty index.
+   */
+
+  public CBIncludeIndex()
+  {
+    this.listings = new HashMap<>();
+  }
+
+  /**
+   * Resolve the file that would hold the given package within the given
+   * include directory.
+   *
+   * @param includeBase The include directory
+   * @param components  The package name components
+   *
+   * @return The candidate source file
+   */
+
+  public static Path sourceFileOf(
+    final Path includeBase,
+    final List<String> components)
+  {
+    var transformed = includeBase;
+    for (int index = 0; index < components.size() - 1; ++index) {
+      transformed = transformed.resolve(components.get(index));
+    }
+
+    return transformed.resolve(components.get(components.size() - 1) + ".cbs")
+      .toAbsolutePath()
+      .normalize();
+  }
+
+  /**
+   * Find the source file for the given package in the first include
+   * directory that contains one.
+   *
+   * @param includePaths The include directories
+   * @param name         The package name
+   *
+   * @return The source file, if any
+   */
+
+  public Optional<Path> find(
+    final List<Path> includePaths,
+    final String name)
+  {
+    Objects.requireNonNull(includePaths, "includePaths");
+    Objects.requireNonNull(name, "name");
+
+    final var components = List.of(name.split("\\."));
+    for (final var base : includePaths) {
+      final var file = sourceFileOf(base, components);
+      final var listing =
+        this.listings.computeIfAbsent(file.getParent(), CBIncludeIndex::scan);
+
+      if (listing.contains(file.getFileName().toString())) {
+        return Optional.of(file);
+      }
+    }
+    return Optional.empty();
+  }
+
+  private static Set<String> scan(
+    final Path directory)
+  {
+    LOG.trace("scan {}", directory);
+
+    final var files = new HashSet<String>();
+    try (var stream = Files.newDirectoryStream(directory, "*.cbs")) {
+      for (final var path : stream) {
+        if (Files.isRegularFile(path)) {
+          files.add(path.getFileName().toString());
+        }
+      }
+    } catch (final NoSuchFileException | NotDirectoryException e) {
+      return Set.of();
+    } catch (final IOException e) {
+      LOG.debug("unable to list {}: ", directory, e);
+      return Set.of();
+    }
+    return Set.copyOf(files);
+  }
+}
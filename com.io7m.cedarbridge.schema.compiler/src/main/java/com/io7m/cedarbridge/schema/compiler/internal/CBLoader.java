@@ -20,17 +20,17 @@ import com.io7m.cedarbridge.errors.CBError;
 import com.io7m.cedarbridge.schema.compiled.CBPackageType;
 import com.io7m.cedarbridge.schema.compiler.api.CBSchemaCompilerConfiguration;
 import com.io7m.cedarbridge.schema.compiler.api.CBSchemaCompilerException;
+import com.io7m.cedarbridge.schema.compiler.api.CBSchemaCompilerInstrumentationType;
 import com.io7m.cedarbridge.schema.loader.api.CBLoadFailedException;
 import com.io7m.cedarbridge.schema.loader.api.CBLoaderType;
 import com.io7m.cedarbridge.strings.api.CBStringsType;
-import com.io7m.jaffirm.core.Postconditions;
 import com.io7m.jaffirm.core.Preconditions;
 import com.io7m.jlexing.core.LexicalPosition;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
 import java.net.URI;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.HashMap;
 import java.util.LinkedList;
@@ -55,6 +55,10 @@ public final class CBLoader implements CBLoaderType
   private final Consumer<CBError> errors;
   private final HashMap<String, CBPackageType> packages;
   private final CBSchemaCompilerInternalFactory factory;
+  private final Optional<CBPackageCache> cache;
+  private final HashMap<String, String> packageKeys;
+  private final CBSchemaCompilerInstrumentationType instrumentation;
+  private final CBIncludeIndex includeIndex;
 
   /**
    * The default loader implementation.
@@ -68,6 +72,33 @@ public final class CBLoader implements CBLoaderType
     final CBSchemaCompilerInternalFactory internalFactory,
     final List<Path> inIncludePaths,
     final Consumer<CBError> inErrors)
+  {
+    this(
+      internalFactory,
+      inIncludePaths,
+      inErrors,
+      Optional.empty(),
+      CBSchemaCompilerInstrumentationType.NONE
+    );
+  }
+
+  /**
+   * The default loader implementation.
+   *
+   * @param inErrors          An error consumer
+   * @param inIncludePaths    The list of include paths
+   * @param internalFactory   An internal compiler factory
+   * @param inCache           The package cache, if any
+   * @param inInstrumentation The receiver of instrumentation for packages
+   *                          compiled by the loader
+   */
+
+  public CBLoader(
+    final CBSchemaCompilerInternalFactory internalFactory,
+    final List<Path> inIncludePaths,
+    final Consumer<CBError> inErrors,
+    final Optional<CBPackageCache> inCache,
+    final CBSchemaCompilerInstrumentationType inInstrumentation)
   {
     this.factory =
       Objects.requireNonNull(internalFactory, "internalFactory");
@@ -75,10 +106,16 @@ public final class CBLoader implements CBLoaderType
       Objects.requireNonNull(inIncludePaths, "includePaths");
     this.errors =
       Objects.requireNonNull(inErrors, "errors");
+    this.cache =
+      Objects.requireNonNull(inCache, "cache");
+    this.instrumentation =
+      Objects.requireNonNull(inInstrumentation, "instrumentation");
 
     this.strings = CBSchemaCompilerStrings.create();
     this.imports = new LinkedList<>();
     this.packages = new HashMap<>();
+    this.packageKeys = new HashMap<>();
+    this.includeIndex = new CBIncludeIndex();
 
     this.includePaths.forEach(p -> {
       Preconditions.checkPreconditionV(
@@ -87,32 +124,6 @@ public final class CBLoader implements CBLoaderType
     });
   }
 
-  private static Path sourceFileOf(
-    final Path includeBase,
-    final List<String> components)
-  {
-    Preconditions.checkPreconditionV(
-      includeBase,
-      includeBase.isAbsolute(),
-      "Path must be absolute");
-
-    var transformed = includeBase;
-    for (int index = 0; index < components.size() - 1; ++index) {
-      transformed = transformed.resolve(components.get(index));
-    }
-
-    final var result =
-      transformed.resolve(components.get(components.size() - 1) + ".cbs")
-        .toAbsolutePath()
-        .normalize();
-
-    Postconditions.checkPostconditionV(
-      result,
-      result.isAbsolute(),
-      "Path must be absolute");
-    return result;
-  }
-
   @Override
   public void register(
     final CBPackageType pack)
@@ -162,12 +173,79 @@ public final class CBLoader implements CBLoaderType
     final String name)
     throws CBLoadFailedException
   {
-    final var source = this.findSourceFile(name);
+    final var source = this.findSourceFileOrFail(name);
 
+    if (this.cache.isPresent()) {
+      return this.tryCompilePackageCached(this.cache.get(), name, source);
+    }
+    return this.compilePackage(name, source);
+  }
+
+  private CBPackageType tryCompilePackageCached(
+    final CBPackageCache packageCache,
+    final String name,
+    final Path source)
+    throws CBLoadFailedException
+  {
+    final String key;
+    try {
+      key = packageCache.keyOf(source);
+    } catch (final IOException e) {
+      LOG.debug("unable to hash {}: ", source, e);
+      return this.compilePackage(name, source);
+    }
+
+    final var cached =
+      packageCache.find(name, key, new CBPackageCache.ImportResolverType()
+      {
+        @Override
+        public CBPackageType resolve(
+          final String importName)
+          throws CBLoadFailedException
+        {
+          return CBLoader.this.load(name, importName);
+        }
+
+        @Override
+        public String keyOf(
+          final String importName)
+        {
+          return CBLoader.this.packageKeys.getOrDefault(importName, "");
+        }
+      });
+
+    if (cached.isPresent()) {
+      final var pack = cached.get();
+      this.register(pack);
+      this.packageKeys.put(name, key);
+      return pack;
+    }
+
+    final var pack = this.compilePackage(name, source);
+    this.packageKeys.put(name, key);
+
+    final var importKeys = new HashMap<String, String>();
+    for (final var imported : pack.imports()) {
+      importKeys.put(
+        imported.name(),
+        this.packageKeys.getOrDefault(imported.name(), "")
+      );
+    }
+    packageCache.store(pack, key, importKeys);
+    return pack;
+  }
+
+  private CBPackageType compilePackage(
+    final String name,
+    final Path source)
+    throws CBLoadFailedException
+  {
     final var configuration =
       new CBSchemaCompilerConfiguration(
         this.includePaths,
-        List.of(source)
+        List.of(source),
+        Optional.empty(),
+        this.instrumentation
       );
 
     final var compiler =
@@ -203,17 +281,24 @@ public final class CBLoader implements CBLoaderType
     }
   }
 
-  private Path findSourceFile(
+  @Override
+  public Optional<Path> findSourceFile(
+    final String name)
+  {
+    Objects.requireNonNull(name, "name");
+    return this.includeIndex.find(this.includePaths, name);
+  }
+
+  private Path findSourceFileOrFail(
     final String name)
     throws CBLoadFailedException
   {
-    final var paths = this.possibleFilePathsOf(name);
-    for (final var path : paths) {
-      if (Files.isRegularFile(path)) {
-        return path;
-      }
+    final var found = this.findSourceFile(name);
+    if (found.isPresent()) {
+      return found.get();
     }
 
+    final var paths = this.possibleFilePathsOf(name);
     this.errors.accept(this.errorMissingFile(name, paths));
     throw new CBLoadFailedException();
   }
@@ -223,9 +308,7 @@ public final class CBLoader implements CBLoaderType
   {
     final var components = List.of(name.split("\\."));
     return this.includePaths.stream()
-      .map(base -> sourceFileOf(base, components))
-      .map(Path::toAbsolutePath)
-      .map(Path::normalize)
+      .map(base -> CBIncludeIndex.sourceFileOf(base, components))
       .collect(Collectors.toList());
   }
 
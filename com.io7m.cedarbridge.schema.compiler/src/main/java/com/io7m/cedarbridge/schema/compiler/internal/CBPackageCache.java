@@ -0,0 +1,296 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.cedarbridge.schema.compiler.internal;
+
+import com.io7m.cedarbridge.schema.compiled.CBPackageType;
+import com.io7m.cedarbridge.schema.loader.api.CBLoadFailedException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+/**
+ * <p>An on-disk cache of compiled packages.</p>
+ *
+ * <p>Each cached package is stored in a file named after the package, and is
+ * tagged with a key derived from the hash of the package's source file and
+ * the version of the compiler. Each entry additionally records the keys of
+ * the imports that were used to compile it; an entry is only used if the
+ * source key matches and every import resolves to a package with the same
+ * key, so changes to an import cause dependents to be recompiled.</p>
+ */
+
+public final class CBPackageCache
+{
+  private static final Logger LOG =
+    LoggerFactory.getLogger(CBPackageCache.class);
+
+  private static final int MAGIC = 0x4342504B;
+  private static final int FORMAT_VERSION = 1;
+
+  private final Path directory;
+  private final String compilerVersion;
+
+  private CBPackageCache(
+    final Path inDirectory,
+    final String inCompilerVersion)
+  {
+    this.directory =
+      Objects.requireNonNull(inDirectory, "directory");
+    this.compilerVersion =
+      Objects.requireNonNull(inCompilerVersion, "compilerVersion");
+  }
+
+  /**
+   * A function that resolves imports.
+   */
+
+  public interface ImportResolverType
+  {
+    /**
+     * Resolve an import.
+     *
+     * @param name The package name
+     *
+     * @return The package
+     *
+     * @throws CBLoadFailedException If the package cannot be loaded
+     */
+
+    CBPackageType resolve(String name)
+      throws CBLoadFailedException;
+
+    /**
+     * @param name The package name
+     *
+     * @return The cache key of the given (already resolved) package, or the
+     * empty string if the package did not come from a source file
+     */
+
+    String keyOf(String name);
+  }
+
+  /**
+   * Create a package cache in the given directory.
+   *
+   * @param directory The directory
+   *
+   * @return A package cache
+   */
+
+  public static CBPackageCache create(
+    final Path directory)
+  {
+    return new CBPackageCache(
+      directory.toAbsolutePath(),
+      compilerVersion()
+    );
+  }
+
+  private static String compilerVersion()
+  {
+    final var descriptor = CBPackageCache.class.getModule().getDescriptor();
+    if (descriptor != null) {
+      final var version = descriptor.rawVersion();
+      if (version.isPresent()) {
+        return version.get();
+      }
+    }
+
+    return Optional.ofNullable(
+      CBPackageCache.class.getPackage().getImplementationVersion()
+    ).orElse("0.0.0");
+  }
+
+  /**
+   * Calculate the cache key for the given source file.
+   *
+   * @param source The source file
+   *
+   * @return The cache key
+   *
+   * @throws IOException On I/O errors
+   */
+
+  public String keyOf(
+    final Path source)
+    throws IOException
+  {
+    Objects.requireNonNull(source, "source");
+
+    try {
+      final var digest = MessageDigest.getInstance("SHA-256");
+      digest.update(
+        "%d:%s:".formatted(Integer.valueOf(FORMAT_VERSION), this.compilerVersion)
+          .getBytes(UTF_8)
+      );
+      digest.update(Files.readAllBytes(source));
+      return HexFormat.of().formatHex(digest.digest());
+    } catch (final NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private Path fileOf(
+    final String name)
+  {
+    return this.directory.resolve(name + ".cbc");
+  }
+
+  /**
+   * Find a cached package.
+   *
+   * @param name     The package name
+   * @param key      The expected key
+   * @param resolver The import resolver
+   *
+   * @return The cached package, if a valid entry exists
+   *
+   * @throws CBLoadFailedException If an import cannot be loaded
+   */
+
+  public Optional<CBPackageType> find(
+    final String name,
+    final String key,
+    final ImportResolverType resolver)
+    throws CBLoadFailedException
+  {
+    Objects.requireNonNull(name, "name");
+    Objects.requireNonNull(key, "key");
+    Objects.requireNonNull(resolver, "resolver");
+
+    final var file = this.fileOf(name);
+    try (var stream = new DataInputStream(
+      new BufferedInputStream(Files.newInputStream(file)))) {
+
+      if (stream.readInt() != MAGIC) {
+        LOG.debug("cache {}: bad magic number", name);
+        return Optional.empty();
+      }
+      if (stream.readInt() != FORMAT_VERSION) {
+        LOG.debug("cache {}: unsupported format version", name);
+        return Optional.empty();
+      }
+      if (!Objects.equals(stream.readUTF(), key)) {
+        LOG.debug("cache {}: stale", name);
+        return Optional.empty();
+      }
+
+      final var importKeys = new LinkedHashMap<String, String>();
+      final var importCount = stream.readInt();
+      for (int index = 0; index < importCount; ++index) {
+        importKeys.put(stream.readUTF(), stream.readUTF());
+      }
+
+      final var imports = new LinkedHashMap<String, CBPackageType>();
+      for (final var entry : importKeys.entrySet()) {
+        final var importName = entry.getKey();
+        imports.put(importName, resolver.resolve(importName));
+        if (!Objects.equals(resolver.keyOf(importName), entry.getValue())) {
+          LOG.debug("cache {}: import {} changed", name, importName);
+          return Optional.empty();
+        }
+      }
+
+      final var header = CBPackageCacheCodec.decodeHeader(stream);
+      if (!Objects.equals(header.get(0), name)
+        || !Objects.equals(header.subList(1, header.size()),
+                           importKeys.keySet().stream().toList())) {
+        LOG.debug("cache {}: inconsistent entry", name);
+        return Optional.empty();
+      }
+
+      LOG.debug("cache {}: hit", name);
+      return Optional.of(CBPackageCacheCodec.decode(stream, name, imports));
+    } catch (final NoSuchFileException e) {
+      LOG.debug("cache {}: miss", name);
+      return Optional.empty();
+    } catch (final IOException e) {
+      LOG.debug("cache {}: unreadable: ", name, e);
+      return Optional.empty();
+    }
+  }
+
+  /**
+   * Store a package in the cache. Failures are logged and otherwise ignored;
+   * the cache is purely an optimization.
+   *
+   * @param pack       The package
+   * @param key        The package key
+   * @param importKeys The keys of the package's imports
+   */
+
+  public void store(
+    final CBPackageType pack,
+    final String key,
+    final Map<String, String> importKeys)
+  {
+    Objects.requireNonNull(pack, "pack");
+    Objects.requireNonNull(key, "key");
+    Objects.requireNonNull(importKeys, "importKeys");
+
+    if (!CBPackageCacheCodec.isEncodable(pack)) {
+      return;
+    }
+
+    final var file = this.fileOf(pack.name());
+    try {
+      Files.createDirectories(this.directory);
+
+      final var fileTmp =
+        Files.createTempFile(this.directory, pack.name(), ".tmp");
+
+      try {
+        try (var stream = new DataOutputStream(
+          new BufferedOutputStream(Files.newOutputStream(fileTmp)))) {
+          stream.writeInt(MAGIC);
+          stream.writeInt(FORMAT_VERSION);
+          stream.writeUTF(key);
+          stream.writeInt(pack.imports().size());
+          for (final var imported : pack.imports()) {
+            stream.writeUTF(imported.name());
+            stream.writeUTF(importKeys.getOrDefault(imported.name(), ""));
+          }
+          CBPackageCacheCodec.encode(stream, pack);
+        }
+        Files.move(fileTmp, file, ATOMIC_MOVE, REPLACE_EXISTING);
+      } finally {
+        Files.deleteIfExists(fileTmp);
+      }
+    } catch (final IOException e) {
+      LOG.debug("cache {}: could not store: ", pack.name(), e);
+    }
+  }
+}
@@ -0,0 +1,560 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.cedarbridge.schema.compiler.internal;
+
+import com.io7m.cedarbridge.schema.compiled.CBFieldType;
+import com.io7m.cedarbridge.schema.compiled.CBPackageBuilderType;
+import com.io7m.cedarbridge.schema.compiled.CBPackageType;
+import com.io7m.cedarbridge.schema.compiled.CBPackages;
+import com.io7m.cedarbridge.schema.compiled.CBProtocolDeclarationType;
+import com.io7m.cedarbridge.schema.compiled.CBRecordBuilderType;
+import com.io7m.cedarbridge.schema.compiled.CBRecordType;
+import com.io7m.cedarbridge.schema.compiled.CBTypeDeclarationBuilderType;
+import com.io7m.cedarbridge.schema.compiled.CBTypeDeclarationType;
+import com.io7m.cedarbridge.schema.compiled.CBTypeExpressionApplication;
+import com.io7m.cedarbridge.schema.compiled.CBTypeExpressionType;
+import com.io7m.cedarbridge.schema.compiled.CBTypeExpressionType.CBTypeExprApplicationType;
+import com.io7m.cedarbridge.schema.compiled.CBTypeExpressionType.CBTypeExprNamedType;
+import com.io7m.cedarbridge.schema.compiled.CBTypeExpressionType.CBTypeExprParameterType;
+import com.io7m.cedarbridge.schema.compiled.CBVariantBuilderType;
+import com.io7m.cedarbridge.schema.compiled.CBVariantType;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * <p>A binary codec for compiled packages.</p>
+ *
+ * <p>The encoding follows the conventions of the Cedarbridge wire format:
+ * All integers are big-endian, sequences and strings are prefixed with
+ * unsigned 32-bit lengths, and sum types are prefixed with an unsigned 8-bit
+ * tag. Type references are encoded by package and type name, and are resolved
+ * against the package itself or its (already loaded) imports when decoding,
+ * so a decoded package shares type declarations with its imports exactly
+ * as a package produced by the type checker would.</p>
+ */
+
+public final class CBPackageCacheCodec
+{
+  private static final int TYPE_RECORD = 0;
+  private static final int TYPE_VARIANT = 1;
+
+  private static final int EXPR_PARAMETER = 0;
+  private static final int EXPR_NAMED = 1;
+  private static final int EXPR_APPLICATION = 2;
+
+  private CBPackageCacheCodec()
+  {
+
+  }
+
+  /**
+   * Determine if the given package can be encoded. Packages that declare
+   * external types are only ever constructed programmatically, and are not
+   * cached.
+   *
+   * @param pack The package
+   *
+   * @return {@code true} if the package can be encoded
+   */
+
+  public static boolean isEncodable(
+    final CBPackageType pack)
+  {
+    Objects.requireNonNull(pack, "pack");
+
+    for (final var type : pack.types().values()) {
+      if (!(type instanceof CBRecordType || type instanceof CBVariantType)) {
+        return false;
+      }
+      if (type.external().isPresent()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Encode the given package.
+   *
+   * @param output The output stream
+   * @param pack   The package
+   *
+   * @throws IOException On I/O errors
+   */
+
+  public static void encode(
+    final DataOutputStream output,
+    final CBPackageType pack)
+    throws IOException
+  {
+    Objects.requireNonNull(output, "output");
+    Objects.requireNonNull(pack, "pack");
+
+    writeString(output, pack.name());
+
+    final var imports = pack.imports();
+    output.writeInt(imports.size());
+    for (final var imported : imports) {
+      writeString(output, imported.name());
+    }
+
+    final var types =
+      pack.types()
+        .values()
+        .stream()
+        .sorted(Comparator.comparing(CBTypeDeclarationType::name))
+        .toList();
+
+    output.writeInt(types.size());
+    for (final var type : types) {
+      encodeTypeHead(output, type);
+    }
+    for (final var type : types) {
+      encodeTypeBody(output, type);
+    }
+
+    final var protocols =
+      pack.protocols()
+        .values()
+        .stream()
+        .sorted(Comparator.comparing(CBProtocolDeclarationType::name))
+        .toList();
+
+    output.writeInt(protocols.size());
+    for (final var protocol : protocols) {
+      encodeProtocol(output, protocol);
+    }
+  }
+
+  private static void encodeProtocol(
+    final DataOutputStream output,
+    final CBProtocolDeclarationType protocol)
+    throws IOException
+  {
+    writeString(output, protocol.name());
+    writeStrings(output, protocol.documentation());
+
+    final var versions = protocol.versions();
+    output.writeInt(versions.size());
+    for (final var version : versions.values()) {
+      writeString(output, version.version().toString());
+      final var typesInOrder = version.typesInOrder();
+      output.writeInt(typesInOrder.size());
+      for (final var type : typesInOrder) {
+        encodeTypeExpression(output, type);
+      }
+    }
+  }
+
+  private static void encodeTypeHead(
+    final DataOutputStream output,
+    final CBTypeDeclarationType type)
+    throws IOException
+  {
+    if (type instanceof CBRecordType) {
+      output.writeByte(TYPE_RECORD);
+    } else if (type instanceof CBVariantType) {
+      output.writeByte(TYPE_VARIANT);
+    } else {
+      throw new IllegalArgumentException(
+        String.format("Unencodable type: %s", type.name())
+      );
+    }
+
+    writeString(output, type.name());
+    writeStrings(output, type.documentation());
+
+    final var parameters = type.parameters();
+    output.writeInt(parameters.size());
+    for (final var parameter : parameters) {
+      writeString(output, parameter.name());
+      writeStrings(output, parameter.documentation());
+    }
+  }
+
+  private static void encodeTypeBody(
+    final DataOutputStream output,
+    final CBTypeDeclarationType type)
+    throws IOException
+  {
+    if (type instanceof CBRecordType record) {
+      encodeFields(output, record.fields());
+      return;
+    }
+
+    if (type instanceof CBVariantType variant) {
+      final var cases = variant.cases();
+      output.writeInt(cases.size());
+      for (final var caseV : cases) {
+        writeString(output, caseV.name());
+        writeStrings(output, caseV.documentation());
+        encodeFields(output, caseV.fields());
+      }
+    }
+  }
+
+  private static void encodeFields(
+    final DataOutputStream output,
+    final List<CBFieldType> fields)
+    throws IOException
+  {
+    output.writeInt(fields.size());
+    for (final var field : fields) {
+      writeString(output, field.name());
+      writeStrings(output, field.documentation());
+      encodeTypeExpression(output, field.type());
+    }
+  }
+
+  private static void encodeTypeExpression(
+    final DataOutputStream output,
+    final CBTypeExpressionType type)
+    throws IOException
+  {
+    if (type instanceof CBTypeExprParameterType parameter) {
+      output.writeByte(EXPR_PARAMETER);
+      writeString(output, parameter.parameter().name());
+      return;
+    }
+
+    if (type instanceof CBTypeExprNamedType named) {
+      output.writeByte(EXPR_NAMED);
+      final var declaration = named.declaration();
+      writeString(output, declaration.owner().name());
+      writeString(output, declaration.name());
+      return;
+    }
+
+    if (type instanceof CBTypeExprApplicationType application) {
+      output.writeByte(EXPR_APPLICATION);
+      encodeTypeExpression(output, application.target());
+      final var arguments = application.arguments();
+      output.writeInt(arguments.size());
+      for (final var argument : arguments) {
+        encodeTypeExpression(output, argument);
+      }
+    }
+  }
+
+  /**
+   * Decode the names of the imports of the encoded package. This consumes
+   * the package name and import list from the given stream, and must be
+   * followed by a call to
+   * {@link #decode(DataInputStream, String, Map)}.
+   *
+   * @param input The input stream
+   *
+   * @return The package name followed by the names of all imports
+   *
+   * @throws IOException On I/O errors
+   */
+
+  public static List<String> decodeHeader(
+    final DataInputStream input)
+    throws IOException
+  {
+    Objects.requireNonNull(input, "input");
+
+    final var names = new ArrayList<String>();
+    names.add(readString(input));
+
+    final var importCount = readCount(input);
+    for (int index = 0; index < importCount; ++index) {
+      names.add(readString(input));
+    }
+    return names;
+  }
+
+  /**
+   * Decode the remainder of a package.
+   *
+   * @param input   The input stream
+   * @param name    The package name
+   * @param imports The loaded imports, by name, in declaration order
+   *
+   * @return A compiled package
+   *
+   * @throws IOException On I/O errors or malformed data
+   */
+
+  public static CBPackageType decode(
+    final DataInputStream input,
+    final String name,
+    final Map<String, CBPackageType> imports)
+    throws IOException
+  {
+    Objects.requireNonNull(input, "input");
+    Objects.requireNonNull(name, "name");
+    Objects.requireNonNull(imports, "imports");
+
+    try {
+      final var builder = CBPackages.createPackage(name);
+      for (final var imported : imports.values()) {
+        builder.addImport(imported);
+      }
+
+      final var context = new DecodeContext(builder, name, imports);
+      final var typeCount = readCount(input);
+      final var typeBuilders =
+        new ArrayList<CBTypeDeclarationBuilderType>(typeCount);
+
+      for (int index = 0; index < typeCount; ++index) {
+        typeBuilders.add(decodeTypeHead(input, builder));
+      }
+      for (final var typeBuilder : typeBuilders) {
+        decodeTypeBody(input, context, typeBuilder);
+      }
+
+      final var protocolCount = readCount(input);
+      for (int index = 0; index < protocolCount; ++index) {
+        decodeProtocol(input, context);
+      }
+
+      return builder.build();
+    } catch (final IllegalArgumentException | IllegalStateException e) {
+      throw new IOException(e);
+    }
+  }
+
+  private static void decodeProtocol(
+    final DataInputStream input,
+    final DecodeContext context)
+    throws IOException
+  {
+    final var protocol =
+      context.builder.createProtocol(readString(input));
+    protocol.setDocumentation(readStrings(input));
+
+    final var versionCount = readCount(input);
+    for (int index = 0; index < versionCount; ++index) {
+      final var version =
+        protocol.createVersion(new BigInteger(readString(input)));
+      final var typeCount = readCount(input);
+      for (int typeIndex = 0; typeIndex < typeCount; ++typeIndex) {
+        final var type = decodeTypeExpression(input, context, null);
+        if (type instanceof CBTypeExprNamedType named) {
+          version.addType(named);
+        } else {
+          throw new IOException("Protocol types must be named types");
+        }
+      }
+    }
+  }
+
+  private static CBTypeDeclarationBuilderType decodeTypeHead(
+    final DataInputStream input,
+    final CBPackageBuilderType builder)
+    throws IOException
+  {
+    final var kind = input.readUnsignedByte();
+    final var name = readString(input);
+
+    final CBTypeDeclarationBuilderType typeBuilder =
+      switch (kind) {
+        case TYPE_RECORD -> builder.createRecord(name);
+        case TYPE_VARIANT -> builder.createVariant(name);
+        default -> throw new IOException(
+          String.format("Unrecognized type kind: %d", Integer.valueOf(kind))
+        );
+      };
+
+    typeBuilder.setDocumentation(readStrings(input));
+
+    final var parameterCount = readCount(input);
+    for (int index = 0; index < parameterCount; ++index) {
+      typeBuilder.addTypeParameter(readString(input), readStrings(input));
+    }
+    return typeBuilder;
+  }
+
+  private static void decodeTypeBody(
+    final DataInputStream input,
+    final DecodeContext context,
+    final CBTypeDeclarationBuilderType typeBuilder)
+    throws IOException
+  {
+    if (typeBuilder instanceof CBRecordBuilderType record) {
+      final var fieldCount = readCount(input);
+      for (int index = 0; index < fieldCount; ++index) {
+        final var fieldName = readString(input);
+        final var fieldDocs = readStrings(input);
+        final var fieldType = decodeTypeExpression(input, context, record);
+        record.createField(fieldName, fieldType, fieldDocs);
+      }
+      return;
+    }
+
+    if (typeBuilder instanceof CBVariantBuilderType variant) {
+      final var caseCount = readCount(input);
+      for (int index = 0; index < caseCount; ++index) {
+        final var caseV = variant.createCase(readString(input));
+        caseV.setDocumentation(readStrings(input));
+
+        final var fieldCount = readCount(input);
+        for (int fieldIndex = 0; fieldIndex < fieldCount; ++fieldIndex) {
+          final var fieldName = readString(input);
+          final var fieldDocs = readStrings(input);
+          final var fieldType = decodeTypeExpression(input, context, variant);
+          caseV.createField(fieldName, fieldType, fieldDocs);
+        }
+      }
+    }
+  }
+
+  private static CBTypeExpressionType decodeTypeExpression(
+    final DataInputStream input,
+    final DecodeContext context,
+    final CBTypeDeclarationBuilderType owner)
+    throws IOException
+  {
+    final var kind = input.readUnsignedByte();
+    return switch (kind) {
+      case EXPR_PARAMETER -> {
+        if (owner == null) {
+          throw new IOException("Type parameter used outside of a type");
+        }
+        yield owner.referenceParameter(readString(input));
+      }
+      case EXPR_NAMED -> {
+        yield context.referenceNamed(readString(input), readString(input));
+      }
+      case EXPR_APPLICATION -> {
+        final var target = decodeTypeExpression(input, context, owner);
+        if (!(target instanceof CBTypeExprNamedType named)) {
+          throw new IOException("Application targets must be named types");
+        }
+        final var argumentCount = readCount(input);
+        final var arguments =
+          new ArrayList<CBTypeExpressionType>(argumentCount);
+        for (int index = 0; index < argumentCount; ++index) {
+          arguments.add(decodeTypeExpression(input, context, owner));
+        }
+        yield new CBTypeExpressionApplication(named, arguments);
+      }
+      default -> throw new IOException(
+        String.format("Unrecognized expression kind: %d", Integer.valueOf(kind))
+      );
+    };
+  }
+
+  private static int readCount(
+    final DataInputStream input)
+    throws IOException
+  {
+    final var count = input.readInt();
+    if (count < 0) {
+      throw new IOException(
+        String.format("Unsupported count: %s", Integer.toUnsignedString(count))
+      );
+    }
+    return count;
+  }
+
+  private static void writeStrings(
+    final DataOutputStream output,
+    final List<String> texts)
+    throws IOException
+  {
+    output.writeInt(texts.size());
+    for (final var text : texts) {
+      writeString(output, text);
+    }
+  }
+
+  private static List<String> readStrings(
+    final DataInputStream input)
+    throws IOException
+  {
+    final var count = readCount(input);
+    final var texts = new ArrayList<String>(count);
+    for (int index = 0; index < count; ++index) {
+      texts.add(readString(input));
+    }
+    return List.copyOf(texts);
+  }
+
+  private static void writeString(
+    final DataOutputStream output,
+    final String text)
+    throws IOException
+  {
+    final var bytes = text.getBytes(UTF_8);
+    output.writeInt(bytes.length);
+    output.write(bytes);
+  }
+
+  private static String readString(
+    final DataInputStream input)
+    throws IOException
+  {
+    final var bytes = new byte[readCount(input)];
+    input.readFully(bytes);
+    return new String(bytes, UTF_8);
+  }
+
+  private static final class DecodeContext
+  {
+    private final CBPackageBuilderType builder;
+    private final String name;
+    private final Map<String, CBPackageType> imports;
+
+    DecodeContext(
+      final CBPackageBuilderType inBuilder,
+      final String inName,
+      final Map<String, CBPackageType> inImports)
+    {
+      this.builder = Objects.requireNonNull(inBuilder, "builder");
+      this.name = Objects.requireNonNull(inName, "name");
+      this.imports = Objects.requireNonNull(inImports, "imports");
+    }
+
+    CBTypeExprNamedType referenceNamed(
+      final String packageName,
+      final String typeName)
+      throws IOException
+    {
+      if (Objects.equals(packageName, this.name)) {
+        return this.builder.referenceType(typeName);
+      }
+
+      final var imported = this.imports.get(packageName);
+      if (imported == null) {
+        throw new IOException(
+          String.format("Reference to unimported package %s", packageName)
+        );
+      }
+
+      final var type = imported.types().get(typeName);
+      if (type == null) {
+        throw new IOException(
+          String.format("No such type %s:%s", packageName, typeName)
+        );
+      }
+      return this.builder.referenceExternalType(type);
+    }
+  }
+}
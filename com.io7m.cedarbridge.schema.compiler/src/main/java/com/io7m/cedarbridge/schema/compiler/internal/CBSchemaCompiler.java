@@ -19,12 +19,15 @@ package com.io7m.cedarbridge.schema.compiler.internal;
 import com.io7m.cedarbridge.errors.CBError;
 import com.io7m.cedarbridge.errors.CBExceptionTracker;
 import com.io7m.cedarbridge.exprsrc.api.CBExpressionSourceFactoryType;
+import com.io7m.cedarbridge.schema.ast.CBASTPackage;
 import com.io7m.cedarbridge.schema.binder.api.CBBindFailedException;
 import com.io7m.cedarbridge.schema.binder.api.CBBinderFactoryType;
 import com.io7m.cedarbridge.schema.compiled.CBPackageType;
 import com.io7m.cedarbridge.schema.compiler.api.CBSchemaCompilation;
 import com.io7m.cedarbridge.schema.compiler.api.CBSchemaCompilerConfiguration;
 import com.io7m.cedarbridge.schema.compiler.api.CBSchemaCompilerException;
+import com.io7m.cedarbridge.schema.compiler.api.CBSchemaCompilerPhase;
+import com.io7m.cedarbridge.schema.compiler.api.CBSchemaCompilerPhaseReport;
 import com.io7m.cedarbridge.schema.compiler.api.CBSchemaCompilerType;
 import com.io7m.cedarbridge.schema.loader.api.CBLoaderType;
 import com.io7m.cedarbridge.schema.parser.api.CBParseFailedException;
@@ -36,8 +39,12 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.nio.file.Path;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.function.Consumer;
 
 /**
@@ -110,16 +117,22 @@ public final class CBSchemaCompiler implements CBSchemaCompilerType
       new CBExceptionTracker<CBSchemaCompilerException>();
 
     final var packages = new ArrayList<CBPackageType>();
+    final var packagesByFile = new LinkedHashMap<Path, CBPackageType>();
     for (final var path : paths) {
       try {
-        packages.add(this.compileOne(path));
+        final var pack = this.compileOne(path);
+        packages.add(pack);
+        packagesByFile.put(path, pack);
       } catch (final CBSchemaCompilerException e) {
         exceptions.addException(e);
       }
     }
 
     exceptions.throwIfNecessary();
-    return new CBSchemaCompilation(packages);
+    return new CBSchemaCompilation(
+      packages,
+      Collections.unmodifiableMap(packagesByFile)
+    );
   }
 
   private CBPackageType compileOne(
@@ -128,27 +141,40 @@ public final class CBSchemaCompiler implements CBSchemaCompilerType
   {
     LOG.debug("compile: {}", path);
 
-    try (var source = this.sources.create(path)) {
+    final var phases = new PhaseTracker(path);
+    try (var source =
+           new CBCountingExpressionSource(this.sources.create(path))) {
+      phases.source = source;
       try (var parser = this.parsers.createParser(
         this.errorConsumer,
         source)) {
+        phases.begin(CBSchemaCompilerPhase.PARSE);
         final var pack = parser.execute();
+        phases.pack = pack;
+        phases.end();
+
         try (var binder =
                this.binders.createBinder(
                  this.loader, this.errorConsumer, source, pack)) {
+          phases.begin(CBSchemaCompilerPhase.BIND);
           binder.execute();
+          phases.end();
+
           try (var typeChecker =
                  this.typers.createTypeChecker(
                    this.errorConsumer,
                    source,
                    pack)) {
+            phases.begin(CBSchemaCompilerPhase.TYPE_CHECK);
             typeChecker.execute();
+            phases.end();
             return pack.userData().get(CBPackageType.class);
           }
         }
       } catch (final CBBindFailedException
         | CBParseFailedException
         | CBTypeCheckFailedException e) {
+        phases.fail();
         throw new CBSchemaCompilerException();
       }
     } catch (final IOException exception) {
@@ -156,5 +182,82 @@ public final class CBSchemaCompiler implements CBSchemaCompilerType
       throw new CBSchemaCompilerException();
     }
   }
+
+  /**
+   * A tracker that measures the time taken by each phase of the compilation
+   * of a single file, and publishes the results to the configured
+   * instrumentation receiver.
+   */
+
+  private final class PhaseTracker
+  {
+    private final Path path;
+    private CBCountingExpressionSource source;
+    private CBASTPackage pack;
+    private CBSchemaCompilerPhase phase;
+    private long timeStart;
+
+    PhaseTracker(
+      final Path inPath)
+    {
+      this.path = Objects.requireNonNull(inPath, "path");
+    }
+
+    void begin(
+      final CBSchemaCompilerPhase inPhase)
+    {
+      this.phase = inPhase;
+      this.timeStart = System.nanoTime();
+    }
+
+    void end()
+    {
+      this.publish(true);
+    }
+
+    void fail()
+    {
+      if (this.phase != null) {
+        this.publish(false);
+      }
+    }
+
+    private void publish(
+      final boolean succeeded)
+    {
+      final var duration =
+        Duration.ofNanos(System.nanoTime() - this.timeStart);
+
+      long types = 0L;
+      long versions = 0L;
+      Optional<String> name = Optional.empty();
+      if (this.pack != null) {
+        name = Optional.of(this.pack.name().text());
+        types = this.pack.types().size();
+        for (final var protocol : this.pack.protocols()) {
+          versions += protocol.versions().size();
+        }
+      }
+
+      final var expressions =
+        this.source == null ? 0L : this.source.expressions();
+
+      CBSchemaCompiler.this.configuration.instrumentation()
+        .onPhaseCompleted(
+          new CBSchemaCompilerPhaseReport(
+            this.path.toUri(),
+            name,
+            this.phase,
+            duration,
+            succeeded,
+            expressions,
+            types,
+            versions
+          )
+        );
+
+      this.phase = null;
+    }
+  }
 }
 
@@ -38,6 +38,8 @@ module com.io7m.cedarbridge.schema.compiler
   requires transitive com.io7m.cedarbridge.schema.parser.api;
   requires transitive com.io7m.cedarbridge.schema.typer.api;
   requires com.io7m.cedarbridge.strings.api;
+  requires com.io7m.jsx.core;
+  requires com.io7m.jsx.parser.api;
 
   requires org.slf4j;
 
@@ -37,6 +37,7 @@ public final class CBCore
 
   private static final CBPackageType PACKAGE_VALUE;
   private static final Map<String, String> EXTERNAL_TYPE_DOCUMENTATION;
+  private static final Map<String, Long> EXTERNAL_TYPE_SIZES;
 
   static {
     EXTERNAL_TYPE_DOCUMENTATION =
@@ -58,6 +59,22 @@ public final class CBCore
         Map.entry("URI", "A URI value.")
       );
 
+    EXTERNAL_TYPE_SIZES =
+      Map.ofEntries(
+        Map.entry("IntegerUnsigned8", Long.valueOf(1L)),
+        Map.entry("IntegerUnsigned16", Long.valueOf(2L)),
+        Map.entry("IntegerUnsigned32", Long.valueOf(4L)),
+        Map.entry("IntegerUnsigned64", Long.valueOf(8L)),
+        Map.entry("IntegerSigned8", Long.valueOf(1L)),
+        Map.entry("IntegerSigned16", Long.valueOf(2L)),
+        Map.entry("IntegerSigned32", Long.valueOf(4L)),
+        Map.entry("IntegerSigned64", Long.valueOf(8L)),
+        Map.entry("Float16", Long.valueOf(2L)),
+        Map.entry("Float32", Long.valueOf(4L)),
+        Map.entry("Float64", Long.valueOf(8L)),
+        Map.entry("UUID", Long.valueOf(16L))
+      );
+
     final var externalPackageName =
       "com.io7m.cedarbridge.runtime.api";
     final var packageName =
@@ -159,6 +176,11 @@ public final class CBCore
             .orElseThrow()
         )
       );
+
+      final var size = EXTERNAL_TYPE_SIZES.get(name);
+      if (size != null) {
+        t.setEncodedSize(size.longValue());
+      }
     }
   }
 
@@ -19,6 +19,8 @@ package com.io7m.cedarbridge.schema.loader.api;
 import com.io7m.cedarbridge.schema.compiled.CBPackageType;
 
 import java.io.Closeable;
+import java.nio.file.Path;
+import java.util.Optional;
 
 /**
  * A package loader.
@@ -50,4 +52,16 @@ public interface CBLoaderType extends Closeable
     String from,
     String name)
     throws CBLoadFailedException;
+
+  /**
+   * Find the source file from which {@link #load(String, String)} would
+   * compile the given package, if the package were not already registered.
+   *
+   * @param name The package name
+   *
+   * @return The source file, if any
+   */
+
+  Optional<Path> findSourceFile(
+    String name);
 }
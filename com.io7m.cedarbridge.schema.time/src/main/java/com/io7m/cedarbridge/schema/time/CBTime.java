@@ -47,6 +47,7 @@ public final class CBTime
           "Duration"
         );
       t.setDocumentation(List.of("An ISO duration value."));
+      t.setEncodedSize(12L);
     }
 
     {
@@ -57,6 +58,7 @@ public final class CBTime
           "LocalDate"
         );
       t.setDocumentation(List.of("A local date value."));
+      t.setEncodedSize(6L);
     }
 
     {
@@ -67,6 +69,7 @@ public final class CBTime
           "LocalDateTime"
         );
       t.setDocumentation(List.of("A local date/time value."));
+      t.setEncodedSize(13L);
     }
 
     {
@@ -77,6 +80,7 @@ public final class CBTime
           "LocalTime"
         );
       t.setDocumentation(List.of("A local time value."));
+      t.setEncodedSize(7L);
     }
 
     {
@@ -88,6 +92,7 @@ public final class CBTime
         );
       t.setDocumentation(List.of(
         "A date/time value with an explicit timezone offset."));
+      t.setEncodedSize(17L);
     }
 
     {
@@ -98,6 +103,7 @@ public final class CBTime
           "ZoneOffset"
         );
       t.setDocumentation(List.of("A timezone offset."));
+      t.setEncodedSize(4L);
     }
 
     PACKAGE_VALUE = builder.build();
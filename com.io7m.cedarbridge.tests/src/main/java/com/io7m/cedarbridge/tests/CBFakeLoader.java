@@ -20,6 +20,7 @@ import com.io7m.cedarbridge.schema.compiled.CBPackageType;
 import com.io7m.cedarbridge.schema.loader.api.CBLoadFailedException;
 import com.io7m.cedarbridge.schema.loader.api.CBLoaderType;
 
+import java.nio.file.Path;
 import java.util.HashMap;
 import java.util.Optional;
 
@@ -49,6 +50,13 @@ public final class CBFakeLoader implements CBLoaderType
       .orElseThrow(CBLoadFailedException::new);
   }
 
+  @Override
+  public Optional<Path> findSourceFile(
+    final String name)
+  {
+    return Optional.empty();
+  }
+
   @Override
   public void close()
   {
@@ -25,6 +25,7 @@ import com.io7m.cedarbridge.schema.compiled.CBTypeParameterType;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.OptionalLong;
 
 public final class CBFakeRecord implements CBRecordType
 {
@@ -90,6 +91,12 @@ public final class CBFakeRecord implements CBRecordType
     return this.documentation;
   }
 
+  @Override
+  public OptionalLong encodedSizeIfFixed()
+  {
+    return OptionalLong.empty();
+  }
+
   @Override
   public List<CBFieldType> fields()
   {
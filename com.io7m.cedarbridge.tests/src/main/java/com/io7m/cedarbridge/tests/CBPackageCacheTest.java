@@ -0,0 +1,317 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.cedarbridge.tests;
+
+import com.io7m.cedarbridge.errors.CBError;
+import com.io7m.cedarbridge.schema.compiled.CBPackageType;
+import com.io7m.cedarbridge.schema.compiled.CBRecordType;
+import com.io7m.cedarbridge.schema.compiled.CBTypeExpressionType.CBTypeExprApplicationType;
+import com.io7m.cedarbridge.schema.compiled.CBTypeExpressionType.CBTypeExprNamedType;
+import com.io7m.cedarbridge.schema.compiled.CBVariantType;
+import com.io7m.cedarbridge.schema.compiler.CBSchemaCompilerFactory;
+import com.io7m.cedarbridge.schema.compiler.api.CBSchemaCompilation;
+import com.io7m.cedarbridge.schema.compiler.api.CBSchemaCompilerConfiguration;
+import com.io7m.cedarbridge.schema.compiler.api.CBSchemaCompilerException;
+import com.io7m.cedarbridge.schema.compiler.api.CBSchemaCompilerPhase;
+import com.io7m.cedarbridge.schema.compiler.api.CBSchemaCompilerTimings;
+import com.io7m.cedarbridge.schema.core_types.CBCore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public final class CBPackageCacheTest
+{
+  private static final String PACKAGE_A = """
+    (package x.a)
+    (import com.io7m.cedarbridge cb)
+    (record P
+      [parameter A]
+      [field f A]
+      [field g cb:IntegerUnsigned32])
+    (variant V
+      [case X]
+      [case Y (field y [P cb:String])])
+    (protocol Q
+      [version 1 [types-added V]])
+    """;
+
+  private static final String PACKAGE_B = """
+    (package x.b)
+    (import x.a a)
+    (record R
+      [field r a:V])
+    """;
+
+  private static final String PACKAGE_C = """
+    (package x.c)
+    (import com.io7m.cedarbridge cb)
+    (record S
+      [field s cb:String])
+    """;
+
+  private static final String PACKAGE_A_USING_C = """
+    (package x.a)
+    (import x.c c)
+    (record T
+      [field t c:S])
+    """;
+
+  private CBSchemaCompilerFactory compilers;
+  private CBSchemaCompilerTimings timings;
+  private Path directory;
+  private Path includes;
+  private Path cache;
+  private ArrayList<CBError> errors;
+
+  @BeforeEach
+  public void setup()
+    throws Exception
+  {
+    this.compilers = new CBSchemaCompilerFactory();
+    this.directory = CBTestDirectories.createTempDirectory();
+    this.includes = this.directory.resolve("include");
+    this.cache = this.directory.resolve("cache");
+    this.errors = new ArrayList<>();
+
+    Files.createDirectories(this.includes.resolve("x"));
+    Files.writeString(this.includes.resolve("x").resolve("a.cbs"), PACKAGE_A);
+    Files.writeString(this.directory.resolve("b.cbs"), PACKAGE_B);
+  }
+
+  @AfterEach
+  public void tearDown()
+    throws Exception
+  {
+    CBTestDirectories.deleteDirectory(this.directory);
+  }
+
+  private CBPackageType compile()
+    throws Exception
+  {
+    final var compilation = this.execute();
+    assertEquals(List.of(), this.errors);
+    assertEquals(1, compilation.compiledPackages().size());
+    return compilation.compiledPackages().get(0);
+  }
+
+  private CBSchemaCompilation execute()
+    throws Exception
+  {
+    this.timings = new CBSchemaCompilerTimings();
+
+    final var configuration =
+      new CBSchemaCompilerConfiguration(
+        List.of(this.includes),
+        List.of(this.directory.resolve("b.cbs")),
+        Optional.of(this.cache),
+        this.timings
+      );
+
+    final var compiler =
+      this.compilers.createCompiler(configuration, this.errors::add);
+
+    compiler.loader().register(CBCore.get());
+    return compiler.execute();
+  }
+
+  private List<String> parsedFiles()
+  {
+    return this.timings.reports()
+      .stream()
+      .filter(r -> r.phase() == CBSchemaCompilerPhase.PARSE)
+      .map(r -> Path.of(r.source()).getFileName().toString())
+      .sorted()
+      .toList();
+  }
+
+  private List<String> typeCheckedFiles()
+  {
+    return this.timings.reports()
+      .stream()
+      .filter(r -> r.phase() == CBSchemaCompilerPhase.TYPE_CHECK)
+      .map(r -> Path.of(r.source()).getFileName().toString())
+      .sorted()
+      .toList();
+  }
+
+  @Test
+  public void testCacheRoundTrip()
+    throws Exception
+  {
+    final var b0 = this.compile();
+    assertTrue(Files.isRegularFile(this.cache.resolve("x.a.cbc")));
+    assertEquals(List.of("a.cbs", "b.cbs"), this.parsedFiles());
+
+    final var b1 = this.compile();
+    assertEquals(List.of("b.cbs"), this.parsedFiles());
+    assertEquals(List.of("b.cbs"), this.typeCheckedFiles());
+
+    final var a0 = b0.imports().get(0);
+    final var a1 = b1.imports().get(0);
+    assertEquals(a0.name(), a1.name());
+    assertEquals(a0.types().keySet(), a1.types().keySet());
+    assertEquals(a0.protocols().keySet(), a1.protocols().keySet());
+
+    final var p0 = assertInstanceOf(CBRecordType.class, a0.types().get("P"));
+    final var p1 = assertInstanceOf(CBRecordType.class, a1.types().get("P"));
+    assertEquals(p0.arity(), p1.arity());
+    assertEquals(p0.fields().size(), p1.fields().size());
+    for (int index = 0; index < p0.fields().size(); ++index) {
+      final var f0 = p0.fields().get(index);
+      final var f1 = p1.fields().get(index);
+      assertEquals(f0.name(), f1.name());
+      assertEquals(
+        String.format("%s", f0.type()),
+        String.format("%s", f1.type())
+      );
+    }
+
+    final var v1 = assertInstanceOf(CBVariantType.class, a1.types().get("V"));
+    assertEquals(2, v1.cases().size());
+    assertEquals(
+      "(x.a:P com.io7m.cedarbridge:String)",
+      String.format("%s", v1.cases().get(1).fields().get(0).type())
+    );
+
+    final var application =
+      assertInstanceOf(
+        CBTypeExprApplicationType.class,
+        v1.cases().get(1).fields().get(0).type()
+      );
+    final var argument =
+      assertInstanceOf(
+        CBTypeExprNamedType.class,
+        application.arguments().get(0)
+      );
+    assertSame(CBCore.get().types().get("String"), argument.declaration());
+
+    final var q1 = a1.protocols().get("Q");
+    assertEquals(1, q1.versions().size());
+  }
+
+  @Test
+  public void testCacheInvalidated()
+    throws Exception
+  {
+    this.compile();
+
+    Files.writeString(
+      this.includes.resolve("x").resolve("a.cbs"),
+      PACKAGE_A + "(record Z [field z cb:String])\n"
+    );
+
+    final var b1 = this.compile();
+    assertEquals(List.of("a.cbs", "b.cbs"), this.parsedFiles());
+    assertTrue(b1.imports().get(0).types().containsKey("Z"));
+  }
+
+  @Test
+  public void testCacheInvalidatedByChangedImport()
+    throws Exception
+  {
+    final var fileA = this.includes.resolve("x").resolve("a.cbs");
+    final var fileC = this.includes.resolve("x").resolve("c.cbs");
+    Files.writeString(fileA, PACKAGE_A_USING_C);
+    Files.writeString(fileC, PACKAGE_C);
+    Files.writeString(
+      this.directory.resolve("b.cbs"),
+      """
+        (package x.b)
+        (import x.a a)
+        (record R
+          [field r a:T])
+        """
+    );
+
+    this.compile();
+    assertTrue(Files.isRegularFile(this.cache.resolve("x.a.cbc")));
+    assertTrue(Files.isRegularFile(this.cache.resolve("x.c.cbc")));
+
+    this.compile();
+    assertEquals(List.of("b.cbs"), this.parsedFiles());
+
+    /*
+     * Changing x.c leaves the source of x.a untouched, but the cached entry
+     * for x.a must be discarded because the key of its import changed.
+     */
+
+    Files.writeString(fileC, PACKAGE_C + "(record U [field u cb:String])\n");
+
+    final var b2 = this.compile();
+    assertEquals(List.of("a.cbs", "b.cbs", "c.cbs"), this.parsedFiles());
+
+    final var a2 = b2.imports().get(0);
+    final var c2 = a2.imports().get(0);
+    assertEquals("x.c", c2.name());
+    assertTrue(c2.types().containsKey("U"));
+
+    final var t2 =
+      assertInstanceOf(CBRecordType.class, a2.types().get("T"));
+    final var s2 =
+      assertInstanceOf(CBTypeExprNamedType.class, t2.fields().get(0).type());
+    assertSame(c2.types().get("S"), s2.declaration());
+
+    this.compile();
+    assertEquals(List.of("b.cbs"), this.parsedFiles());
+
+    /*
+     * Removing the type that x.a refers to must cause x.a to be recompiled
+     * and rejected, rather than silently loaded from the cache.
+     */
+
+    Files.writeString(fileC, """
+      (package x.c)
+      (import com.io7m.cedarbridge cb)
+      (record V
+        [field v cb:String])
+      """);
+
+    assertThrows(CBSchemaCompilerException.class, this::execute);
+    assertTrue(this.parsedFiles().contains("a.cbs"));
+    assertTrue(
+      this.errors.stream()
+        .anyMatch(e -> "errorBindingMissing".equals(e.errorCode())),
+      this.errors.toString()
+    );
+  }
+
+  @Test
+  public void testCacheCorrupted()
+    throws Exception
+  {
+    Files.createDirectories(this.cache);
+    Files.write(this.cache.resolve("x.a.cbc"), new byte[]{0x43, 0x42, 0x50});
+
+    final var b0 = this.compile();
+    assertTrue(b0.imports().get(0).types().containsKey("V"));
+
+    final var b1 = this.compile();
+    assertTrue(b1.imports().get(0).types().containsKey("V"));
+  }
+}
@@ -21,15 +21,22 @@ import com.io7m.cedarbridge.errors.CBError;
 import com.io7m.cedarbridge.schema.compiler.CBSchemaCompilerFactory;
 import com.io7m.cedarbridge.schema.compiler.api.CBSchemaCompilerConfiguration;
 import com.io7m.cedarbridge.schema.compiler.api.CBSchemaCompilerException;
+import com.io7m.cedarbridge.schema.compiler.api.CBSchemaCompilerPhase;
+import com.io7m.cedarbridge.schema.compiler.api.CBSchemaCompilerTimings;
+import com.io7m.cedarbridge.schema.core_types.CBCore;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -77,4 +84,179 @@ public final class CBSchemaCompilerTest
     assertThrows(CBSchemaCompilerException.class, compiler::execute);
     assertTrue(errors.get(0).message().contains("[document"));
   }
+
+  @Test
+  public void testTimings()
+    throws Exception
+  {
+    final var file = this.directory.resolve("x.cbs");
+    Files.writeString(file, """
+      (package x)
+      (import com.io7m.cedarbridge cb)
+      (record A [field a cb:String])
+      (record B [field b cb:String])
+      (protocol P [version 1 [types-added A]] [version 2 [types-added B]])
+      """);
+
+    final var timings = new CBSchemaCompilerTimings();
+    final var configuration =
+      new CBSchemaCompilerConfiguration(
+        List.of(),
+        List.of(file),
+        Optional.empty(),
+        timings
+      );
+
+    final var errors = new ArrayList<CBError>();
+    final var compiler =
+      this.compilers.createCompiler(configuration, errors::add);
+    compiler.loader().register(CBCore.get());
+    compiler.execute();
+
+    final var reports = timings.reports();
+    assertEquals(
+      List.of(
+        CBSchemaCompilerPhase.PARSE,
+        CBSchemaCompilerPhase.BIND,
+        CBSchemaCompilerPhase.TYPE_CHECK
+      ),
+      reports.stream().map(r -> r.phase()).toList()
+    );
+
+    for (final var report : reports) {
+      assertTrue(report.succeeded());
+      assertEquals(Optional.of("x"), report.packageName());
+    }
+
+    final var typeCheck = reports.get(2);
+    assertEquals(5L, reports.get(0).expressions());
+    assertEquals(2L, typeCheck.types());
+    assertEquals(2L, typeCheck.protocolVersions());
+    assertEquals(1, timings.files());
+    assertFalse(timings.formatTable().isEmpty());
+  }
+
+  @Test
+  public void testTimingsFailed()
+    throws Exception
+  {
+    final var file = this.directory.resolve("x.cbs");
+    Files.writeString(file, "(package x) (record A [field a Q])");
+
+    final var timings = new CBSchemaCompilerTimings();
+    final var configuration =
+      new CBSchemaCompilerConfiguration(
+        List.of(),
+        List.of(file),
+        Optional.empty(),
+        timings
+      );
+
+    final var compiler =
+      this.compilers.createCompiler(configuration, e -> { });
+
+    assertThrows(CBSchemaCompilerException.class, compiler::execute);
+
+    final var reports = timings.reports();
+    final var last = reports.get(reports.size() - 1);
+    assertEquals(CBSchemaCompilerPhase.BIND, last.phase());
+    assertFalse(last.succeeded());
+  }
+
+  @Test
+  public void testIncludeFileCreatedLater()
+    throws Exception
+  {
+    final var includes = this.directory.resolve("include");
+    Files.createDirectories(includes.resolve("x"));
+
+    final var file = this.directory.resolve("b.cbs");
+    Files.writeString(file, """
+      (package x.b)
+      (import x.a a)
+      (record B [field b a:A])
+      """);
+
+    final var configuration =
+      new CBSchemaCompilerConfiguration(List.of(includes), List.of(file));
+
+    final var errors0 = new ArrayList<CBError>();
+    final var compiler0 =
+      this.compilers.createCompiler(configuration, errors0::add);
+    compiler0.loader().register(CBCore.get());
+
+    assertThrows(CBSchemaCompilerException.class, compiler0::execute);
+    assertTrue(
+      errors0.stream().anyMatch(e -> "loadMissingFile".equals(e.errorCode()))
+    );
+
+    Files.writeString(includes.resolve("x").resolve("a.cbs"), """
+      (package x.a)
+      (import com.io7m.cedarbridge cb)
+      (record A [field a cb:String])
+      """);
+
+    final var errors1 = new ArrayList<CBError>();
+    final var compiler1 =
+      this.compilers.createCompiler(configuration, errors1::add);
+    compiler1.loader().register(CBCore.get());
+
+    compiler1.execute();
+    assertEquals(List.of(), errors1);
+  }
+
+  @Test
+  public void testCompiledPackagesByFile()
+    throws Exception
+  {
+    final var includes = this.directory.resolve("include");
+    Files.createDirectories(includes.resolve("x"));
+
+    final var fileA = includes.resolve("x").resolve("a.cbs");
+    Files.writeString(fileA, """
+      (package x.a)
+      (import com.io7m.cedarbridge cb)
+      (record A [field a cb:String])
+      """);
+
+    final var fileB = this.directory.resolve("b.cbs");
+    Files.writeString(fileB, """
+      (package x.b)
+      (import x.a a)
+      (record B [field b a:A])
+      """);
+
+    final var fileC = this.directory.resolve("c.cbs");
+    Files.writeString(fileC, """
+      (package x.c)
+      (import com.io7m.cedarbridge cb)
+      (record C [field c cb:String])
+      """);
+
+    final var configuration =
+      new CBSchemaCompilerConfiguration(
+        List.of(includes),
+        List.of(fileC, fileB)
+      );
+
+    final var errors = new ArrayList<CBError>();
+    final var compiler =
+      this.compilers.createCompiler(configuration, errors::add);
+    compiler.loader().register(CBCore.get());
+
+    final var compilation = compiler.execute();
+    final var byFile = compilation.compiledPackagesByFile();
+    assertEquals(List.of(fileC, fileB), List.copyOf(byFile.keySet()));
+    assertEquals("x.c", byFile.get(fileC).name());
+    assertEquals("x.b", byFile.get(fileB).name());
+
+    assertEquals(
+      Optional.of(fileA.toAbsolutePath().normalize()),
+      compiler.loader().findSourceFile("x.a")
+    );
+    assertEquals(
+      Optional.empty(),
+      compiler.loader().findSourceFile("x.nonexistent")
+    );
+  }
 }
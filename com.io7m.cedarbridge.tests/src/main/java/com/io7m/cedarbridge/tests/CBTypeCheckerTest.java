@@ -32,11 +32,13 @@ import com.io7m.cedarbridge.schema.binder.api.CBBindingLocalType;
 import com.io7m.cedarbridge.schema.binder.api.CBBindingLocalTypeDeclaration;
 import com.io7m.cedarbridge.schema.binder.api.CBBindingLocalTypeParameter;
 import com.io7m.cedarbridge.schema.binder.api.CBBindingType;
+import com.io7m.cedarbridge.schema.compiled.CBEncodedSizes;
 import com.io7m.cedarbridge.schema.compiled.CBFieldType;
 import com.io7m.cedarbridge.schema.compiled.CBPackageType;
 import com.io7m.cedarbridge.schema.compiled.CBRecordType;
 import com.io7m.cedarbridge.schema.compiled.CBTypeExpressionType;
 import com.io7m.cedarbridge.schema.compiled.CBVariantType;
+import com.io7m.cedarbridge.schema.core_types.CBCore;
 import com.io7m.cedarbridge.schema.parser.CBParserFactory;
 import com.io7m.cedarbridge.schema.typer.CBTypeCheckerFactory;
 import com.io7m.cedarbridge.schema.typer.api.CBTypeAssignment;
@@ -58,6 +60,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Objects;
+import java.util.OptionalLong;
 
 import static com.io7m.cedarbridge.schema.compiled.CBTypeExpressionType.CBTypeExprApplicationType;
 import static com.io7m.cedarbridge.schema.compiled.CBTypeExpressionType.CBTypeExprNamedType;
@@ -940,6 +943,54 @@ public final class CBTypeCheckerTest
     assertEquals(0, this.errors.size());
   }
 
+  @Test
+  public void testEncodedSizes0()
+    throws Exception
+  {
+    this.loader.register(CBCore.get());
+
+    final var pack = this.check("encodedSizes0.cbs");
+    assertEquals(0, this.errors.size());
+
+    final var p = pack.userData().get(CBPackageType.class);
+    final var types = p.types();
+
+    assertEquals(OptionalLong.of(12L), types.get("P").encodedSizeIfFixed());
+    assertEquals(OptionalLong.empty(), types.get("Q").encodedSizeIfFixed());
+    assertEquals(OptionalLong.of(29L), types.get("S").encodedSizeIfFixed());
+    assertEquals(OptionalLong.of(16L), types.get("V").encodedSizeIfFixed());
+    assertEquals(OptionalLong.empty(), types.get("Tree").encodedSizeIfFixed());
+    assertEquals(OptionalLong.empty(), types.get("W").encodedSizeIfFixed());
+    assertEquals(OptionalLong.empty(), types.get("L").encodedSizeIfFixed());
+
+    final var s = (CBRecordType) types.get("S");
+    assertEquals(
+      OptionalLong.of(13L),
+      s.fieldsByName().get("q").type().encodedSizeIfFixed()
+    );
+
+    final var l = (CBRecordType) types.get("L");
+    assertEquals(
+      OptionalLong.empty(),
+      l.fieldsByName().get("ps").type().encodedSizeIfFixed()
+    );
+    assertEquals(
+      OptionalLong.empty(),
+      l.fieldsByName().get("q").type().encodedSizeIfFixed()
+    );
+
+    assertEquals(
+      OptionalLong.of(13L),
+      CBEncodedSizes.ofDeclaration(
+        types.get("Q"),
+        List.of(OptionalLong.of(12L)))
+    );
+    assertEquals(
+      OptionalLong.of(4L),
+      CBCore.get().types().get("Boolean").encodedSizeIfFixed()
+    );
+  }
+
   @Test
   public void testDocumented0()
     throws Exception
@@ -191,4 +191,34 @@ public final class CBXGeneratorTest
       assertTrue(text.contains("piltdown.css"));
     }
   }
+
+  @Test
+  public void testUnchangedPagesNotRewritten()
+    throws Exception
+  {
+    final var file =
+      CBTestDirectories.resourceOf(
+        CBXGeneratorTest.class, this.directory, "Admin1.cbs");
+
+    final var output = this.directory.resolve("out");
+    Files.createDirectories(output);
+
+    final var results0 = document(List.of(file), output);
+    final var page = results0.get(0);
+    final var text0 = Files.readString(page);
+    assertTrue(text0.contains("cedarbridge-fingerprint"));
+
+    final var time0 = Files.getLastModifiedTime(page);
+    Thread.sleep(1_100L);
+
+    final var results1 = document(List.of(file), output);
+    assertEquals(results0, results1);
+    assertEquals(time0, Files.getLastModifiedTime(page));
+    assertEquals(text0, Files.readString(page));
+
+    final var results2 =
+      document(List.of(file), output, Optional.of("piltdown"));
+    assertEquals(results0, results2);
+    assertTrue(Files.readString(page).contains("piltdown.css"));
+  }
 }
@@ -0,0 +1,228 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.cedarbridge.tests.cmdline;
+
+import com.io7m.cedarbridge.cmdline.internal.CBBenchmark;
+import com.io7m.cedarbridge.cmdline.internal.CBBenchmark.CBBenchmarkConfiguration;
+import com.io7m.cedarbridge.cmdline.internal.CBBenchmarkOutput;
+import com.io7m.cedarbridge.runtime.dynamic.CBDynamicCodecStrategy;
+import com.io7m.cedarbridge.schema.compiled.CBPackageType;
+import com.io7m.cedarbridge.schema.compiled.CBPackages;
+import com.io7m.cedarbridge.schema.compiled.CBTypeExpressionApplication;
+import com.io7m.cedarbridge.schema.core_types.CBCore;
+import com.io7m.cedarbridge.schema.time.CBTime;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public final class CBBenchmarkTest
+{
+  private static CBPackageType createPackage()
+  {
+    final var core = CBCore.get();
+    final var builder = CBPackages.createPackage("x.y");
+    builder.addImport(core);
+
+    final var s32 =
+      builder.referenceExternalType(core.types().get("IntegerSigned32"));
+    final var string =
+      builder.referenceExternalType(core.types().get("String"));
+    final var list =
+      builder.referenceExternalType(core.types().get("List"));
+
+    final var point = builder.createRecord("Point");
+    point.createField("x", s32, List.of());
+    point.createField("y", s32, List.of());
+
+    final var shape = builder.createVariant("Shape");
+    shape.createCase("Named")
+      .createField("name", string, List.of());
+    shape.createCase("Polygon")
+      .createField(
+        "points",
+        new CBTypeExpressionApplication(list, List.of(point.reference())),
+        List.of());
+
+    final var pair = builder.createRecord("Pair");
+    pair.addTypeParameter("A", List.of());
+    pair.createField("first", pair.referenceParameter("A"), List.of());
+
+    final var protocol = builder.createProtocol("Shapes");
+    final var v1 = protocol.createVersion(BigInteger.ONE);
+    v1.addType(point.reference());
+    v1.addType(shape.reference());
+    return builder.build();
+  }
+
+  private static CBPackageType createTimePackage()
+  {
+    final var time = CBTime.get();
+    final var builder = CBPackages.createPackage("x.t");
+    builder.addImport(time);
+
+    for (final var name : List.of(
+      "Duration",
+      "LocalDate",
+      "LocalDateTime",
+      "LocalTime",
+      "OffsetDateTime",
+      "ZoneOffset")) {
+      final var type =
+        builder.referenceExternalType(time.types().get(name));
+      builder.createRecord("T" + name)
+        .createField("value", type, List.of());
+    }
+    return builder.build();
+  }
+
+  private static CBBenchmarkConfiguration configuration(
+    final CBDynamicCodecStrategy strategy)
+  {
+    return new CBBenchmarkConfiguration(100, 1, 2, 0L, strategy);
+  }
+
+  @Test
+  public void testBenchmark()
+    throws Exception
+  {
+    for (final var strategy : CBDynamicCodecStrategy.values()) {
+      final var results =
+        new CBBenchmark(configuration(strategy))
+          .run(List.of(createPackage()));
+
+      assertEquals(
+        List.of("x.y:Point", "x.y:Shape", "x.y:Shapes v1"),
+        results.stream().map(r -> r.name()).toList()
+      );
+
+      final var point = results.get(0);
+      assertEquals(100, point.samples());
+      assertEquals(8, point.sizeMinimum());
+      assertEquals(8, point.sizeMaximum());
+      assertEquals(8.0, point.sizeMean());
+
+      for (final var result : results) {
+        assertTrue(result.sizeMinimum() <= result.sizeMedian());
+        assertTrue(result.sizeMedian() <= result.sizeP99());
+        assertTrue(result.sizeP99() <= result.sizeMaximum());
+        assertTrue(result.encodeMessagesPerSec() > 0.0);
+        assertTrue(result.decodeMessagesPerSec() > 0.0);
+        assertTrue(result.encodeBytesPerSec() > 0.0);
+        assertTrue(result.decodeBytesPerSec() > 0.0);
+      }
+    }
+  }
+
+  @Test
+  public void testBenchmarkTime()
+    throws Exception
+  {
+    for (final var strategy : CBDynamicCodecStrategy.values()) {
+      final var results =
+        new CBBenchmark(configuration(strategy))
+          .run(List.of(createTimePackage()));
+
+      assertEquals(
+        List.of(
+          "x.t:TDuration",
+          "x.t:TLocalDate",
+          "x.t:TLocalDateTime",
+          "x.t:TLocalTime",
+          "x.t:TOffsetDateTime",
+          "x.t:TZoneOffset"),
+        results.stream().map(r -> r.name()).toList()
+      );
+      assertEquals(
+        List.of(12, 6, 13, 7, 17, 4),
+        results.stream().map(r -> r.sizeMaximum()).toList()
+      );
+
+      for (final var result : results) {
+        assertEquals(result.sizeMinimum(), result.sizeMaximum());
+        assertTrue(result.encodeMessagesPerSec() > 0.0);
+        assertTrue(result.decodeMessagesPerSec() > 0.0);
+      }
+    }
+  }
+
+  @Test
+  public void testSizesDeterministic()
+    throws Exception
+  {
+    final var a =
+      new CBBenchmark(configuration(CBDynamicCodecStrategy.INTERPRETED))
+        .run(List.of(createPackage()));
+    final var b =
+      new CBBenchmark(configuration(CBDynamicCodecStrategy.BYTECODE))
+        .run(List.of(createPackage()));
+
+    for (int index = 0; index < a.size(); ++index) {
+      assertEquals(a.get(index).sizeMinimum(), b.get(index).sizeMinimum());
+      assertEquals(a.get(index).sizeMedian(), b.get(index).sizeMedian());
+      assertEquals(a.get(index).sizeMaximum(), b.get(index).sizeMaximum());
+      assertEquals(a.get(index).sizeMean(), b.get(index).sizeMean());
+    }
+  }
+
+  @Test
+  public void testOutput()
+    throws Exception
+  {
+    final var results =
+      new CBBenchmark(configuration(CBDynamicCodecStrategy.BYTECODE))
+        .run(List.of(createPackage()));
+
+    final var table = CBBenchmarkOutput.formatTable(results);
+    assertEquals(results.size() + 1, table.size());
+    assertTrue(table.get(0).startsWith("Name"));
+    assertTrue(table.get(1).startsWith("x.y:Point"));
+
+    final var width = table.get(0).length();
+    for (final var line : table) {
+      assertEquals(width, line.length());
+    }
+
+    final var json = CBBenchmarkOutput.formatJSON(results);
+    assertTrue(json.startsWith("[\n"));
+    assertTrue(json.contains("\"name\": \"x.y:Shapes v1\""));
+    assertTrue(json.contains("\"allocatedBytesPerMessage\""));
+    assertTrue(json.endsWith("]\n"));
+  }
+
+  @Test
+  public void testConfigurationInvalid()
+  {
+    assertThrows(IllegalArgumentException.class, () -> {
+      new CBBenchmarkConfiguration(
+        0, 1, 1, 0L, CBDynamicCodecStrategy.BYTECODE);
+    });
+    assertThrows(IllegalArgumentException.class, () -> {
+      new CBBenchmarkConfiguration(
+        1, -1, 1, 0L, CBDynamicCodecStrategy.BYTECODE);
+    });
+    assertThrows(IllegalArgumentException.class, () -> {
+      new CBBenchmarkConfiguration(
+        1, 1, 0, 0L, CBDynamicCodecStrategy.BYTECODE);
+    });
+  }
+}
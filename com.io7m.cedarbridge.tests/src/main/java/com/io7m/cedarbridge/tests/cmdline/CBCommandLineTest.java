@@ -28,6 +28,9 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.PrintStream;
 import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -291,6 +294,75 @@ public final class CBCommandLineTest
     LOG.debug("{}", text);
   }
 
+  @Test
+  public void testCheckTimings()
+    throws IOException
+  {
+    System.setOut(this.outputPrint);
+    System.setErr(this.outputPrint);
+
+    final var file =
+      CBTestDirectories.resourceOf(
+        CBCommandLineTest.class,
+        this.directory,
+        "basicWithCore.cbs"
+      );
+
+    final var code =
+      CBMain.mainExitless(new String[]{
+        "check",
+        "--file",
+        file.toString(),
+        "--timings",
+        "true"
+      });
+
+    this.flush();
+    final var text = this.output.toString();
+    LOG.debug("{}", text);
+    assertEquals(0, code);
+    assertTrue(text.contains("PARSE"));
+    assertTrue(text.contains("TYPE_CHECK"));
+    assertTrue(text.contains("1 file(s)"));
+  }
+
+  @Test
+  public void testCompileTimings()
+    throws IOException
+  {
+    System.setOut(this.outputPrint);
+    System.setErr(this.outputPrint);
+
+    final var file =
+      CBTestDirectories.resourceOf(
+        CBCommandLineTest.class,
+        this.directory,
+        "basicWithCore.cbs"
+      );
+
+    final var code =
+      CBMain.mainExitless(new String[]{
+        "compile",
+        "--file",
+        file.toString(),
+        "--language",
+        "Java 17+",
+        "--output-directory",
+        this.directoryOutput.toString(),
+        "--timings",
+        "true"
+      });
+
+    this.flush();
+    final var text = this.output.toString();
+    LOG.debug("{}", text);
+    assertEquals(0, code);
+    assertTrue(text.contains("PARSE"));
+    assertTrue(text.contains("TYPE_CHECK"));
+    assertTrue(text.contains("1 file(s)"));
+    assertTrue(text.contains("code generation: 1 package(s)"));
+  }
+
   @Test
   public void testDocumentSimple()
     throws IOException
@@ -319,4 +391,84 @@ public final class CBCommandLineTest
     final var text = this.output.toString();
     LOG.debug("{}", text);
   }
+
+  @Test
+  public void testBenchSimple()
+    throws IOException
+  {
+    System.setOut(this.outputPrint);
+    System.setErr(this.outputPrint);
+
+    final var file =
+      CBTestDirectories.resourceOf(
+        CBCommandLineTest.class,
+        this.directory,
+        "basicWithCore.cbs"
+      );
+
+    final var code = CBMain.mainExitless(new String[]{
+      "bench",
+      "--file",
+      file.toString(),
+      "--samples",
+      "10",
+      "--warmup",
+      "0",
+      "--iterations",
+      "1",
+      "--format",
+      "json"
+    });
+
+    this.flush();
+    final var text = this.output.toString();
+    LOG.debug("{}", text);
+    assertEquals(0, code);
+    assertTrue(text.contains("\"name\": \"x.y.z:Mix\""));
+  }
+
+  @Test
+  public void testInspectSimple()
+    throws IOException
+  {
+    System.setOut(this.outputPrint);
+    System.setErr(this.outputPrint);
+
+    final var file =
+      CBTestDirectories.resourceOf(
+        CBCommandLineTest.class,
+        this.directory,
+        "chat.cbs"
+      );
+
+    final var name = "alice".getBytes(StandardCharsets.UTF_8);
+    final var buffer = ByteBuffer.allocate(4 + 4 + 4 + name.length);
+    buffer.putInt(4 + 4 + name.length);
+    buffer.putInt(0);
+    buffer.putInt(name.length);
+    buffer.put(name);
+
+    final var capture = this.directory.resolve("chat.bin");
+    Files.write(capture, buffer.array());
+
+    final var code = CBMain.mainExitless(new String[]{
+      "inspect",
+      "--file",
+      file.toString(),
+      "--protocol",
+      "com.io7m.cedarbridge.examples.chat:Chat",
+      "--protocol-version",
+      "1",
+      "--capture",
+      capture.toString()
+    });
+
+    this.flush();
+    final var text = this.output.toString();
+    LOG.debug("{}", text);
+    assertEquals(0, code);
+    assertTrue(text.contains(
+      "0 0 com.io7m.cedarbridge.examples.chat:ChatCommandJoin {name=\"alice\"}"
+    ));
+  }
 }
@@ -0,0 +1,489 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.cedarbridge.tests.cmdline;
+
+import com.io7m.cedarbridge.cmdline.internal.CBInspector;
+import com.io7m.cedarbridge.cmdline.internal.CBInspector.CBInspectorConfiguration;
+import com.io7m.cedarbridge.runtime.api.CBIntegerSigned32;
+import com.io7m.cedarbridge.runtime.api.CBList;
+import com.io7m.cedarbridge.runtime.api.CBSerializationContextByteBuffer;
+import com.io7m.cedarbridge.runtime.api.CBString;
+import com.io7m.cedarbridge.runtime.dynamic.CBDynamicCodecStrategy;
+import com.io7m.cedarbridge.runtime.dynamic.CBDynamicCompiler;
+import com.io7m.cedarbridge.runtime.dynamic.CBDynamicField;
+import com.io7m.cedarbridge.runtime.dynamic.CBDynamicProtocolCodec;
+import com.io7m.cedarbridge.runtime.dynamic.CBDynamicRecord;
+import com.io7m.cedarbridge.runtime.dynamic.CBDynamicValueType;
+import com.io7m.cedarbridge.runtime.dynamic.CBDynamicVariant;
+import com.io7m.cedarbridge.schema.compiled.CBPackageType;
+import com.io7m.cedarbridge.schema.compiled.CBPackages;
+import com.io7m.cedarbridge.schema.compiled.CBTypeExpressionApplication;
+import com.io7m.cedarbridge.schema.core_types.CBCore;
+import com.io7m.cedarbridge.schema.time.CBTime;
+import com.io7m.cedarbridge.tests.CBTestDirectories;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public final class CBInspectorTest
+{
+  private Path directory;
+  private Path capture;
+  private CBDynamicProtocolCodec codec;
+
+  private static CBPackageType createPackage()
+  {
+    final var core = CBCore.get();
+    final var time = CBTime.get();
+    final var builder = CBPackages.createPackage("x.y");
+    builder.addImport(core);
+    builder.addImport(time);
+
+    final var s32 =
+      builder.referenceExternalType(core.types().get("IntegerSigned32"));
+    final var string =
+      builder.referenceExternalType(core.types().get("String"));
+    final var list =
+      builder.referenceExternalType(core.types().get("List"));
+    final var date =
+      builder.referenceExternalType(time.types().get("LocalDate"));
+
+    final var point = builder.createRecord("Point");
+    point.createField("x", s32, List.of());
+    point.createField("y", s32, List.of());
+
+    final var shape = builder.createVariant("Shape");
+    shape.createCase("Named")
+      .createField("name", string, List.of());
+    shape.createCase("Polygon")
+      .createField(
+        "points",
+        new CBTypeExpressionApplication(list, List.of(point.reference())),
+        List.of());
+
+    final var day = builder.createRecord("Day");
+    day.createField("date", date, List.of());
+
+    final var protocol = builder.createProtocol("Shapes");
+    final var v1 = protocol.createVersion(BigInteger.ONE);
+    v1.addType(point.reference());
+    v1.addType(shape.reference());
+    v1.addType(day.reference());
+    return builder.build();
+  }
+
+  private static CBDynamicRecord point(
+    final int x,
+    final int y)
+  {
+    return new CBDynamicRecord(
+      "x.y:Point",
+      List.of(
+        new CBDynamicField("x", new CBIntegerSigned32(x)),
+        new CBDynamicField("y", new CBIntegerSigned32(y))
+      )
+    );
+  }
+
+  private static CBDynamicVariant named(
+    final String name)
+  {
+    return new CBDynamicVariant(
+      "x.y:Shape",
+      "Named",
+      0,
+      List.of(new CBDynamicField("name", new CBString(name)))
+    );
+  }
+
+  private static CBDynamicVariant polygon(
+    final CBDynamicRecord... points)
+  {
+    return new CBDynamicVariant(
+      "x.y:Shape",
+      "Polygon",
+      1,
+      List.of(new CBDynamicField("points", new CBList<>(List.of(points))))
+    );
+  }
+
+  private static byte[] frame(
+    final ByteBuffer payload)
+  {
+    final var bytes = new byte[4 + payload.remaining()];
+    final var buffer = ByteBuffer.wrap(bytes);
+    buffer.putInt(payload.remaining());
+    buffer.put(payload);
+    return bytes;
+  }
+
+  private byte[] encode(
+    final CBDynamicValueType message)
+    throws IOException
+  {
+    final var buffer = ByteBuffer.allocate(4096);
+    final var context = CBSerializationContextByteBuffer.create(buffer);
+    this.codec.serialize(context, message);
+    return frame(buffer.slice(0, context.position()));
+  }
+
+  private void writeCapture(
+    final List<byte[]> frames)
+    throws IOException
+  {
+    try (var output = Files.newOutputStream(this.capture)) {
+      for (final var frame : frames) {
+        output.write(frame);
+      }
+    }
+  }
+
+  private CBInspectorConfiguration configuration(
+    final Set<String> types,
+    final int threads,
+    final boolean json,
+    final int windowSize)
+  {
+    return new CBInspectorConfiguration(
+      this.codec,
+      types,
+      threads,
+      json,
+      windowSize
+    );
+  }
+
+  private String inspect(
+    final CBInspectorConfiguration configuration,
+    final CBInspector.CBInspectorSummary expected)
+    throws IOException
+  {
+    final var writer = new StringWriter();
+    final var summary =
+      new CBInspector(configuration).run(this.capture, writer);
+    assertEquals(expected, summary);
+    return writer.toString();
+  }
+
+  @BeforeEach
+  public void setup()
+    throws IOException
+  {
+    this.directory =
+      CBTestDirectories.createTempDirectory();
+    this.capture =
+      this.directory.resolve("capture.bin");
+    this.codec =
+      new CBDynamicCompiler()
+        .protocolCodecFor(createPackage(), "Shapes", BigInteger.ONE);
+  }
+
+  @AfterEach
+  public void tearDown()
+    throws IOException
+  {
+    CBTestDirectories.deleteDirectory(this.directory);
+  }
+
+  @Test
+  public void testText()
+    throws IOException
+  {
+    this.writeCapture(List.of(
+      this.encode(point(1, 2)),
+      this.encode(named("a \"b\"")),
+      this.encode(polygon(point(3, 4), point(-5, 6)))
+    ));
+
+    final var text =
+      this.inspect(
+        this.configuration(Set.of(), 1, false, CBInspector.DEFAULT_WINDOW_SIZE),
+        new CBInspector.CBInspectorSummary(3L, 3L, 0L, 0L)
+      );
+
+    assertEquals(
+      String.join(
+        "\n",
+        "0 0 x.y:Point {x=1, y=2}",
+        "1 16 x.y:Shape Named{name=\"a \\\"b\\\"\"}",
+        "2 37 x.y:Shape Polygon{points=[{x=3, y=4}, {x=-5, y=6}]}",
+        ""
+      ),
+      text
+    );
+  }
+
+  @Test
+  public void testJSON()
+    throws IOException
+  {
+    this.writeCapture(List.of(
+      this.encode(point(1, 2)),
+      this.encode(polygon(point(3, 4)))
+    ));
+
+    final var text =
+      this.inspect(
+        this.configuration(Set.of(), 1, true, CBInspector.DEFAULT_WINDOW_SIZE),
+        new CBInspector.CBInspectorSummary(2L, 2L, 0L, 0L)
+      );
+
+    assertEquals(
+      String.join(
+        "\n",
+        "{\"index\":0,\"offset\":0,\"size\":12,\"type\":\"x.y:Point\","
+          + "\"value\":{\"x\":1,\"y\":2}}",
+        "{\"index\":1,\"offset\":16,\"size\":20,\"type\":\"x.y:Shape\","
+          + "\"value\":{\"case\":\"Polygon\",\"fields\":"
+          + "{\"points\":[{\"x\":3,\"y\":4}]}}}",
+        ""
+      ),
+      text
+    );
+  }
+
+  @Test
+  public void testFilter()
+    throws IOException
+  {
+    this.writeCapture(List.of(
+      this.encode(point(1, 2)),
+      this.encode(named("a")),
+      this.encode(point(3, 4))
+    ));
+
+    final var expected =
+      String.join(
+        "\n",
+        "0 0 x.y:Point {x=1, y=2}",
+        "2 33 x.y:Point {x=3, y=4}",
+        ""
+      );
+
+    assertEquals(
+      expected,
+      this.inspect(
+        this.configuration(
+          Set.of("Point"), 1, false, CBInspector.DEFAULT_WINDOW_SIZE),
+        new CBInspector.CBInspectorSummary(3L, 2L, 1L, 0L)
+      )
+    );
+    assertEquals(
+      expected,
+      this.inspect(
+        this.configuration(
+          Set.of("x.y:Point"), 1, false, CBInspector.DEFAULT_WINDOW_SIZE),
+        new CBInspector.CBInspectorSummary(3L, 2L, 1L, 0L)
+      )
+    );
+  }
+
+  @Test
+  public void testParallelSmallWindow()
+    throws IOException
+  {
+    final var frames = new ArrayList<byte[]>();
+    for (int index = 0; index < 5000; ++index) {
+      if (index % 3 == 0) {
+        frames.add(this.encode(named("n" + index)));
+      } else {
+        frames.add(this.encode(point(index, -index)));
+      }
+    }
+    this.writeCapture(frames);
+
+    final var expected =
+      this.inspect(
+        this.configuration(Set.of(), 1, false, CBInspector.DEFAULT_WINDOW_SIZE),
+        new CBInspector.CBInspectorSummary(5000L, 5000L, 0L, 0L)
+      );
+
+    for (final var strategy : CBDynamicCodecStrategy.values()) {
+      this.codec =
+        new CBDynamicCompiler(strategy)
+          .protocolCodecFor(createPackage(), "Shapes", BigInteger.ONE);
+
+      assertEquals(
+        expected,
+        this.inspect(
+          this.configuration(Set.of(), 4, false, 64),
+          new CBInspector.CBInspectorSummary(5000L, 5000L, 0L, 0L)
+        )
+      );
+    }
+  }
+
+  @Test
+  public void testCorruptFrame()
+    throws IOException
+  {
+    final var bad = ByteBuffer.allocate(4);
+    bad.putInt(23);
+    bad.flip();
+
+    this.writeCapture(List.of(
+      this.encode(point(1, 2)),
+      frame(bad),
+      this.encode(point(3, 4))
+    ));
+
+    final var lines =
+      this.inspect(
+        this.configuration(Set.of(), 1, false, CBInspector.DEFAULT_WINDOW_SIZE),
+        new CBInspector.CBInspectorSummary(3L, 2L, 0L, 1L)
+      ).split("\n");
+
+    assertEquals(3, lines.length);
+    assertEquals("0 0 x.y:Point {x=1, y=2}", lines[0]);
+    assertTrue(lines[1].startsWith("1 16 error: "));
+    assertEquals("2 24 x.y:Point {x=3, y=4}", lines[2]);
+  }
+
+  @Test
+  public void testUncheckedFailure()
+    throws IOException
+  {
+    /*
+     * A Day message whose date has month 13: the time codec rejects it with
+     * a DateTimeException rather than an IOException.
+     */
+
+    final var bad = ByteBuffer.allocate(4 + 4 + 1 + 1);
+    bad.putInt(2);
+    bad.putInt(2024);
+    bad.put((byte) 13);
+    bad.put((byte) 1);
+    bad.flip();
+
+    final var frames = new ArrayList<byte[]>();
+    for (int index = 0; index < 200; ++index) {
+      if (index % 50 == 1) {
+        frames.add(frame(bad.duplicate()));
+      } else {
+        frames.add(this.encode(point(index, index)));
+      }
+    }
+    this.writeCapture(frames);
+
+    for (final var threads : new int[]{1, 4}) {
+      final var lines =
+        this.inspect(
+          this.configuration(Set.of(), threads, false, 16),
+          new CBInspector.CBInspectorSummary(200L, 196L, 0L, 4L)
+        ).split("\n");
+
+      assertEquals(200, lines.length);
+      assertEquals("0 0 x.y:Point {x=0, y=0}", lines[0]);
+      assertTrue(lines[1].startsWith("1 16 error: "), lines[1]);
+      assertTrue(lines[51].startsWith("51 "), lines[51]);
+      assertTrue(lines[51].contains(" error: "), lines[51]);
+      assertTrue(lines[199].startsWith("199 "), lines[199]);
+    }
+  }
+
+  @Test
+  public void testTrailingOctets()
+    throws IOException
+  {
+    final var payload = ByteBuffer.allocate(20);
+    final var context = CBSerializationContextByteBuffer.create(payload);
+    this.codec.serialize(context, point(1, 2));
+
+    this.writeCapture(List.of(frame(payload)));
+
+    final var text =
+      this.inspect(
+        this.configuration(Set.of(), 1, false, CBInspector.DEFAULT_WINDOW_SIZE),
+        new CBInspector.CBInspectorSummary(1L, 0L, 0L, 1L)
+      );
+
+    assertEquals(
+      "0 0 error: 8 unread octets follow the x.y:Point message\n",
+      text
+    );
+  }
+
+  @Test
+  public void testTruncated()
+    throws IOException
+  {
+    final var frame = this.encode(point(1, 2));
+    final var partial = new byte[frame.length - 1];
+    System.arraycopy(frame, 0, partial, 0, partial.length);
+
+    this.writeCapture(List.of(frame, partial));
+
+    final var text =
+      this.inspect(
+        this.configuration(Set.of(), 1, true, CBInspector.DEFAULT_WINDOW_SIZE),
+        new CBInspector.CBInspectorSummary(1L, 1L, 0L, 1L)
+      );
+
+    assertEquals(
+      String.join(
+        "\n",
+        "{\"index\":0,\"offset\":0,\"size\":12,\"type\":\"x.y:Point\","
+          + "\"value\":{\"x\":1,\"y\":2}}",
+        "{\"index\":1,\"offset\":16,\"error\":"
+          + "\"Truncated frame (size 12, 11 octets remaining)\"}",
+        ""
+      ),
+      text
+    );
+  }
+
+  @Test
+  public void testEmpty()
+    throws IOException
+  {
+    this.writeCapture(List.of());
+
+    assertEquals(
+      "",
+      this.inspect(
+        this.configuration(Set.of(), 2, false, CBInspector.DEFAULT_WINDOW_SIZE),
+        new CBInspector.CBInspectorSummary(0L, 0L, 0L, 0L)
+      )
+    );
+  }
+
+  @Test
+  public void testConfigurationInvalid()
+  {
+    assertThrows(IllegalArgumentException.class, () -> {
+      this.configuration(Set.of(), 0, false, CBInspector.DEFAULT_WINDOW_SIZE);
+    });
+    assertThrows(IllegalArgumentException.class, () -> {
+      this.configuration(Set.of(), 1, false, 3);
+    });
+  }
+}
@@ -0,0 +1,199 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.cedarbridge.tests.cmdline;
+
+import com.io7m.cedarbridge.cmdline.internal.CBWatcher;
+import com.io7m.cedarbridge.schema.compiled.CBPackageType;
+import com.io7m.cedarbridge.schema.compiler.CBSchemaCompilerFactory;
+import com.io7m.cedarbridge.schema.compiler.api.CBSchemaCompilerException;
+import com.io7m.cedarbridge.schema.core_types.CBCore;
+import com.io7m.cedarbridge.tests.CBTestDirectories;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public final class CBWatcherTest
+{
+  private Path directory;
+  private Path includes;
+  private Path fileA;
+  private Path fileB;
+  private Path fileC;
+  private CBWatcher watcher;
+
+  private static Set<String> names(
+    final List<CBPackageType> packages)
+  {
+    return packages.stream()
+      .map(CBPackageType::name)
+      .collect(Collectors.toSet());
+  }
+
+  @BeforeEach
+  public void setup()
+    throws IOException
+  {
+    this.directory = CBTestDirectories.createTempDirectory();
+    this.includes = this.directory.resolve("include");
+    Files.createDirectories(this.includes.resolve("x"));
+
+    this.fileA = this.includes.resolve("x").resolve("a.cbs");
+    this.fileB = this.directory.resolve("b.cbs");
+    this.fileC = this.directory.resolve("c.cbs");
+
+    Files.writeString(this.fileA, """
+      (package x.a)
+      (import com.io7m.cedarbridge cb)
+      (record A [field a cb:String])
+      """);
+    Files.writeString(this.fileB, """
+      (package x.b)
+      (import x.a a)
+      (record B [field b a:A])
+      """);
+    Files.writeString(this.fileC, """
+      (package x.c)
+      (import com.io7m.cedarbridge cb)
+      (record C [field c cb:String])
+      """);
+
+    this.watcher =
+      new CBWatcher(
+        new CBSchemaCompilerFactory(),
+        List.of(this.includes),
+        List.of(this.fileB, this.fileC),
+        List.of(CBCore.get()),
+        Optional.empty()
+      );
+  }
+
+  @AfterEach
+  public void tearDown()
+    throws IOException
+  {
+    CBTestDirectories.deleteDirectory(this.directory);
+  }
+
+  @Test
+  public void testCompileAll()
+    throws Exception
+  {
+    final var compiled = this.watcher.compileAll();
+    assertEquals(Set.of("x.b", "x.c"), names(compiled));
+    assertEquals(
+      Set.of("x.a", "x.b", "x.c"),
+      this.watcher.packages().keySet()
+    );
+  }
+
+  @Test
+  public void testRecompileUnrelated()
+    throws Exception
+  {
+    this.watcher.compileAll();
+    final var before = this.watcher.packages();
+
+    final var compiled =
+      this.watcher.recompile(List.of(this.directory.resolve("other.cbs")));
+
+    assertEquals(List.of(), compiled);
+    assertEquals(before, this.watcher.packages());
+  }
+
+  @Test
+  public void testRecompileLeaf()
+    throws Exception
+  {
+    this.watcher.compileAll();
+    final var before = this.watcher.packages();
+
+    Files.writeString(this.fileC, """
+      (package x.c)
+      (import com.io7m.cedarbridge cb)
+      (record C [field c cb:String])
+      (record D [field d cb:String])
+      """);
+
+    final var compiled = this.watcher.recompile(List.of(this.fileC));
+    assertEquals(Set.of("x.c"), names(compiled));
+
+    final var after = this.watcher.packages();
+    assertSame(before.get("x.a"), after.get("x.a"));
+    assertSame(before.get("x.b"), after.get("x.b"));
+    assertTrue(after.get("x.c").types().containsKey("D"));
+  }
+
+  @Test
+  public void testRecompileDependents()
+    throws Exception
+  {
+    this.watcher.compileAll();
+    final var before = this.watcher.packages();
+
+    Files.writeString(this.fileA, """
+      (package x.a)
+      (import com.io7m.cedarbridge cb)
+      (record A [field a cb:String] [field z cb:String])
+      """);
+
+    final var compiled = this.watcher.recompile(List.of(this.fileA));
+    assertEquals(Set.of("x.b"), names(compiled));
+
+    final var after = this.watcher.packages();
+    assertNotSame(before.get("x.a"), after.get("x.a"));
+    assertNotSame(before.get("x.b"), after.get("x.b"));
+    assertSame(before.get("x.c"), after.get("x.c"));
+  }
+
+  @Test
+  public void testRecompileAfterFailure()
+    throws Exception
+  {
+    this.watcher.compileAll();
+
+    Files.writeString(this.fileA, "(package x.a) (record A [field a Q])");
+    assertThrows(
+      CBSchemaCompilerException.class,
+      () -> this.watcher.recompile(List.of(this.fileA))
+    );
+    assertFalse(this.watcher.packages().containsKey("x.a"));
+
+    Files.writeString(this.fileA, """
+      (package x.a)
+      (import com.io7m.cedarbridge cb)
+      (record A [field a cb:String])
+      """);
+
+    final var compiled = this.watcher.recompile(List.of(this.fileA));
+    assertEquals(Set.of("x.b", "x.c"), names(compiled));
+  }
+}
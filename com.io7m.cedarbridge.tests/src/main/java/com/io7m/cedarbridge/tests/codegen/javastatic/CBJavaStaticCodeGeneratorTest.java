@@ -16,9 +16,22 @@
 
 package com.io7m.cedarbridge.tests.codegen.javastatic;
 
+import com.io7m.cedarbridge.codegen.spi.CBSPICodeGeneratorException;
 import com.io7m.cedarbridge.runtime.api.CBDeserializeType;
+import com.io7m.cedarbridge.runtime.api.CBIntegerSigned32;
+import com.io7m.cedarbridge.runtime.api.CBIntegerUnsigned32;
+import com.io7m.cedarbridge.runtime.api.CBIntegerUnsigned8;
+import com.io7m.cedarbridge.runtime.api.CBList;
+import com.io7m.cedarbridge.runtime.api.CBProtocolMessageType;
+import com.io7m.cedarbridge.runtime.api.CBProtocolMessageVersionedSerializerType;
+import com.io7m.cedarbridge.runtime.api.CBSerializableType;
+import com.io7m.cedarbridge.runtime.api.CBSerializationContextByteBuffer;
 import com.io7m.cedarbridge.runtime.api.CBSerializationContextType;
 import com.io7m.cedarbridge.runtime.api.CBSerializeType;
+import com.io7m.cedarbridge.runtime.api.CBSerializerMethod;
+import com.io7m.cedarbridge.runtime.api.CBSkipType;
+import com.io7m.cedarbridge.runtime.api.CBString;
+import com.io7m.cedarbridge.runtime.api.CBValidateType;
 import com.io7m.cedarbridge.schema.core_types.CBCore;
 import com.io7m.cedarbridge.schema.time.CBTime;
 import com.io7m.cedarbridge.tests.CBFakeLoader;
@@ -35,6 +48,8 @@ import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
 import java.nio.ByteBuffer;
 import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
@@ -44,6 +59,9 @@ import static java.lang.reflect.Modifier.STATIC;
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
@@ -70,6 +88,9 @@ public final class CBJavaStaticCodeGeneratorTest
     this.context =
       mock(CBSerializationContextType.class);
 
+    when(this.context.readString())
+      .thenCallRealMethod();
+
     when(this.context.errorUnrecognizedVariantIndex(
       Mockito.any(),
       Mockito.anyInt()))
@@ -197,6 +218,16 @@ public final class CBJavaStaticCodeGeneratorTest
         CBSerializationContextType.class,
         CBDeserializeType.class
       );
+      checkValidateMethod(
+        c,
+        CBSerializationContextType.class,
+        CBValidateType.class
+      );
+      checkSkipMethod(
+        c,
+        CBSerializationContextType.class,
+        CBSkipType.class
+      );
     }
 
     {
@@ -210,6 +241,14 @@ public final class CBJavaStaticCodeGeneratorTest
         c,
         CBSerializationContextType.class
       );
+      checkValidateMethod(
+        c,
+        CBSerializationContextType.class
+      );
+      checkSkipMethod(
+        c,
+        CBSerializationContextType.class
+      );
     }
 
     {
@@ -223,6 +262,14 @@ public final class CBJavaStaticCodeGeneratorTest
         c,
         CBSerializationContextType.class
       );
+      checkValidateMethod(
+        c,
+        CBSerializationContextType.class
+      );
+      checkSkipMethod(
+        c,
+        CBSerializationContextType.class
+      );
     }
   }
 
@@ -250,6 +297,14 @@ public final class CBJavaStaticCodeGeneratorTest
         c,
         CBSerializationContextType.class
       );
+      checkValidateMethod(
+        c,
+        CBSerializationContextType.class
+      );
+      checkSkipMethod(
+        c,
+        CBSerializationContextType.class
+      );
     }
 
     {
@@ -265,6 +320,16 @@ public final class CBJavaStaticCodeGeneratorTest
         CBSerializationContextType.class,
         CBDeserializeType.class
       );
+      checkValidateMethod(
+        c,
+        CBSerializationContextType.class,
+        CBValidateType.class
+      );
+      checkSkipMethod(
+        c,
+        CBSerializationContextType.class,
+        CBSkipType.class
+      );
     }
 
     {
@@ -278,6 +343,14 @@ public final class CBJavaStaticCodeGeneratorTest
         c,
         CBSerializationContextType.class
       );
+      checkValidateMethod(
+        c,
+        CBSerializationContextType.class
+      );
+      checkSkipMethod(
+        c,
+        CBSerializationContextType.class
+      );
     }
 
     {
@@ -297,6 +370,20 @@ public final class CBJavaStaticCodeGeneratorTest
         CBDeserializeType.class,
         CBDeserializeType.class
       );
+      checkValidateMethod(
+        c,
+        CBSerializationContextType.class,
+        CBValidateType.class,
+        CBValidateType.class,
+        CBValidateType.class
+      );
+      checkSkipMethod(
+        c,
+        CBSerializationContextType.class,
+        CBSkipType.class,
+        CBSkipType.class,
+        CBSkipType.class
+      );
     }
   }
 
@@ -311,6 +398,28 @@ public final class CBJavaStaticCodeGeneratorTest
     assertEquals(STATIC, m.getModifiers() & STATIC);
   }
 
+  private static void checkValidateMethod(
+    final Class<?> c,
+    final Class<?>... arguments)
+    throws Exception
+  {
+    final var m = c.getMethod("validate", arguments);
+    assertEquals(void.class, m.getReturnType());
+    assertEquals(PUBLIC, m.getModifiers() & PUBLIC);
+    assertEquals(STATIC, m.getModifiers() & STATIC);
+  }
+
+  private static void checkSkipMethod(
+    final Class<?> c,
+    final Class<?>... arguments)
+    throws Exception
+  {
+    final var m = c.getMethod("skip", arguments);
+    assertEquals(void.class, m.getReturnType());
+    assertEquals(PUBLIC, m.getModifiers() & PUBLIC);
+    assertEquals(STATIC, m.getModifiers() & STATIC);
+  }
+
   private static void checkSerializeMethod(
     final Class<?> c,
     final Class<?>... arguments)
@@ -807,6 +916,58 @@ public final class CBJavaStaticCodeGeneratorTest
     verify(this.context).writeUTF8("A String");
   }
 
+  @Test
+  public void testCodegenSingleton0()
+    throws Exception
+  {
+    this.loader.register(CBCore.get());
+    this.compile("codegenSingleton0.cbs");
+
+    final var loader = this.loadClasses(
+      "x.Status",
+      "x.Maybe",
+      "x.Ping"
+    );
+
+    final var status =
+      loader.loadClass("x.Status");
+    final var online =
+      loader.loadClass("x.Status$Online");
+    final var d =
+      status.getMethod("deserialize", CBSerializationContextType.class);
+    final var s =
+      status.getMethod("serialize", CBSerializationContextType.class, status);
+
+    when(Integer.valueOf(this.context.readVariantIndex()))
+      .thenReturn(Integer.valueOf(0));
+
+    final var x0 = d.invoke(status, this.context);
+    final var x1 = d.invoke(status, this.context);
+    assertSame(online.getField("INSTANCE").get(null), x0);
+    assertSame(x0, x1);
+    assertEquals(online.getConstructor().newInstance(), x0);
+    s.invoke(status, this.context, x0);
+    verify(this.context).writeVariantIndex(0);
+
+    final var maybe =
+      loader.loadClass("x.Maybe");
+    final var md =
+      maybe.getMethod(
+        "deserialize",
+        CBSerializationContextType.class,
+        CBDeserializeType.class);
+
+    final var m0 = md.invoke(maybe, this.context, null);
+    final var m1 = md.invoke(maybe, this.context, null);
+    assertSame(m0, m1);
+
+    final var ping =
+      loader.loadClass("x.Ping");
+    final var pd =
+      ping.getMethod("deserialize", CBSerializationContextType.class);
+    assertSame(pd.invoke(ping, this.context), pd.invoke(ping, this.context));
+  }
+
   @Test
   public void testCodegenBoolean0_0()
     throws Exception
@@ -887,6 +1048,68 @@ public final class CBJavaStaticCodeGeneratorTest
     assertInstanceOf(IOException.class, ex.getCause());
   }
 
+  @Test
+  public void testCodegenBoolean0_3()
+    throws Exception
+  {
+    this.loader.register(CBCore.get());
+    this.compile("codegenBoolean0.cbs");
+
+    final var loader = this.loadClasses(
+      "x.Data"
+    );
+
+    final var c = loader.loadClass("x.Data");
+
+    final var v =
+      c.getMethod("validate", CBSerializationContextType.class);
+
+    when(Integer.valueOf(this.context.readVariantIndex()))
+      .thenReturn(Integer.valueOf(1));
+
+    v.invoke(c, this.context);
+
+    when(Integer.valueOf(this.context.readVariantIndex()))
+      .thenReturn(Integer.valueOf(2));
+
+    final var ex =
+      assertThrows(InvocationTargetException.class, () -> {
+        v.invoke(c, this.context);
+      });
+    assertInstanceOf(IOException.class, ex.getCause());
+  }
+
+  @Test
+  public void testCodegenBoolean0_4()
+    throws Exception
+  {
+    this.loader.register(CBCore.get());
+    this.compile("codegenBoolean0.cbs");
+
+    final var loader = this.loadClasses(
+      "x.Data"
+    );
+
+    final var c = loader.loadClass("x.Data");
+
+    final var k =
+      c.getMethod("skip", CBSerializationContextType.class);
+
+    when(Integer.valueOf(this.context.readVariantIndex()))
+      .thenReturn(Integer.valueOf(0));
+
+    k.invoke(c, this.context);
+
+    when(Integer.valueOf(this.context.readVariantIndex()))
+      .thenReturn(Integer.valueOf(2));
+
+    final var ex =
+      assertThrows(InvocationTargetException.class, () -> {
+        k.invoke(c, this.context);
+      });
+    assertInstanceOf(IOException.class, ex.getCause());
+  }
+
   @Test
   public void testCodegenUUID0()
     throws Exception
@@ -921,6 +1144,154 @@ public final class CBJavaStaticCodeGeneratorTest
     verify(this.context).writeU64(0x99aabbcc_ddeeff00L);
   }
 
+  @Test
+  public void testCodegenUUID1()
+    throws Exception
+  {
+    this.loader.register(CBCore.get());
+    this.compile("codegenUUID0.cbs");
+
+    final var loader = this.loadClasses(
+      "x.Data"
+    );
+
+    final var c =
+      loader.loadClass("x.Data");
+    final var v =
+      c.getMethod("validate", CBSerializationContextType.class);
+
+    v.invoke(c, this.context);
+
+    verify(this.context, new Times(1)).begin("s");
+    verify(this.context, new Times(2)).readU64();
+    verify(this.context, new Times(1)).end("s");
+  }
+
+  @Test
+  public void testCodegenUUID2()
+    throws Exception
+  {
+    this.loader.register(CBCore.get());
+    this.compile("codegenUUID0.cbs");
+
+    final var loader = this.loadClasses(
+      "x.Data"
+    );
+
+    final var c =
+      loader.loadClass("x.Data");
+    final var k =
+      c.getMethod("skip", CBSerializationContextType.class);
+
+    assertEquals(Long.valueOf(16L), c.getField("ENCODED_SIZE").get(null));
+
+    k.invoke(c, this.context);
+
+    verify(this.context, new Times(1)).skipBytes(16L);
+    verify(this.context, new Times(0)).readU64();
+  }
+
+  @Test
+  public void testCodegenList1()
+    throws Exception
+  {
+    this.loader.register(CBCore.get());
+    this.compile("codegenList0.cbs");
+
+    final var loader = this.loadClasses(
+      "x.Data"
+    );
+
+    final var c =
+      loader.loadClass("x.Data");
+    final var v =
+      c.getMethod("validate", CBSerializationContextType.class);
+
+    when(Integer.valueOf(this.context.readSequenceLength()))
+      .thenReturn(Integer.valueOf(3));
+
+    v.invoke(c, this.context);
+
+    verify(this.context, new Times(1)).readSequenceLength();
+    verify(this.context, new Times(3)).readS32();
+  }
+
+  @Test
+  public void testCodegenList2()
+    throws Exception
+  {
+    this.loader.register(CBCore.get());
+    this.compile("codegenList0.cbs");
+
+    final var loader = this.loadClasses(
+      "x.Data"
+    );
+
+    final var c =
+      loader.loadClass("x.Data");
+    final var k =
+      c.getMethod("skip", CBSerializationContextType.class);
+
+    when(Integer.valueOf(this.context.readSequenceLength()))
+      .thenReturn(Integer.valueOf(3));
+
+    k.invoke(c, this.context);
+
+    verify(this.context, new Times(1)).readSequenceLength();
+    verify(this.context, new Times(1)).skipBytes(12L);
+    verify(this.context, new Times(0)).readS32();
+  }
+
+  @Test
+  public void testCodegenSkipVariant0()
+    throws Exception
+  {
+    this.loader.register(CBCore.get());
+    this.compile("codegenSkipVariant0.cbs");
+
+    final var loader = this.loadClasses(
+      "x.Data"
+    );
+
+    final var c =
+      loader.loadClass("x.Data");
+    final var k =
+      c.getMethod("skip", CBSerializationContextType.class);
+
+    assertEquals(Long.valueOf(12L), c.getField("ENCODED_SIZE").get(null));
+
+    k.invoke(c, this.context);
+
+    verify(this.context, new Times(2)).skipBytes(4L);
+    verify(this.context, new Times(1)).readVariantIndex();
+  }
+
+  @Test
+  public void testCodegenSkipVariant1()
+    throws Exception
+  {
+    this.loader.register(CBCore.get());
+    this.compile("codegenSkipVariant0.cbs");
+
+    final var loader = this.loadClasses(
+      "x.Data"
+    );
+
+    final var c =
+      loader.loadClass("x.Data");
+    final var k =
+      c.getMethod("skip", CBSerializationContextType.class);
+
+    when(Integer.valueOf(this.context.readVariantIndex()))
+      .thenReturn(Integer.valueOf(2));
+
+    final var ex =
+      assertThrows(InvocationTargetException.class, () -> {
+        k.invoke(c, this.context);
+      });
+    assertInstanceOf(IOException.class, ex.getCause());
+  }
+
   @Test
   public void testBug14()
     throws Exception
@@ -1097,4 +1468,214 @@ public final class CBJavaStaticCodeGeneratorTest
       }
     });
   }
+
+  @Test
+  public void testCodegenView0()
+    throws Exception
+  {
+    this.loader.register(CBCore.get());
+    this.compiled =
+      CBJavaStaticCompilation.compile(
+        this.loader,
+        this.directory,
+        this.moduleDirectory,
+        "codegenView0.cbs",
+        Map.of("views", "true")
+      );
+
+    final var loader = this.loadClasses(
+      "x.Data",
+      "x.DataView",
+      "x.Fixed",
+      "x.FixedView"
+    );
+
+    final var c =
+      loader.loadClass("x.Data");
+    final var v =
+      loader.loadClass("x.DataView");
+
+    final var value =
+      c.getConstructors()[0].newInstance(
+        new CBIntegerUnsigned32(23L),
+        new CBString("Hello"),
+        new CBIntegerUnsigned8(7),
+        new CBList<>(List.of(
+          new CBIntegerSigned32(1),
+          new CBIntegerSigned32(2))
+        ),
+        new CBString("World")
+      );
+
+    final var buffer = ByteBuffer.allocate(64);
+    buffer.position(3);
+    final var context =
+      CBSerializationContextByteBuffer.create(buffer);
+    c.getMethod("serialize", CBSerializationContextType.class, c)
+      .invoke(null, context, value);
+
+    final var view =
+      v.getMethod("of", ByteBuffer.class)
+        .invoke(null, buffer);
+
+    assertEquals(
+      new CBString("World"),
+      v.getMethod("fieldE").invoke(view));
+    assertEquals(
+      new CBIntegerUnsigned32(23L),
+      v.getMethod("fieldA").invoke(view));
+    assertEquals(
+      new CBIntegerUnsigned8(7),
+      v.getMethod("fieldC").invoke(view));
+    assertEquals(
+      new CBString("Hello"),
+      v.getMethod("fieldB").invoke(view));
+    assertEquals(
+      Integer.valueOf(context.position() - 3),
+      v.getMethod("encodedSize").invoke(view));
+    assertEquals(
+      value,
+      v.getMethod("materialize").invoke(view));
+
+    final var f =
+      loader.loadClass("x.FixedView");
+    final var fixedView =
+      f.getMethod("of", ByteBuffer.class, int.class)
+        .invoke(null, ByteBuffer.allocate(5), Integer.valueOf(0));
+
+    assertEquals(
+      Integer.valueOf(5),
+      f.getMethod("encodedSize").invoke(fixedView));
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testCodegenContext0()
+    throws Exception
+  {
+    this.loader.register(CBCore.get());
+    this.compiled =
+      CBJavaStaticCompilation.compile(
+        this.loader,
+        this.directory,
+        this.moduleDirectory,
+        "codegenContext0.cbs",
+        Map.of(
+          "contextClass",
+          CBSerializationContextByteBuffer.class.getCanonicalName())
+      );
+
+    final var loader = this.loadClasses(
+      "x.Point",
+      "x.Path",
+      "x.Box",
+      "x.Shape",
+      "x.ProtocolShapesv1Type",
+      "x.ProtocolShapesv1Serializer"
+    );
+
+    final var point =
+      loader.loadClass("x.Point");
+    final var path =
+      loader.loadClass("x.Path");
+    final var box =
+      loader.loadClass("x.Box");
+    final var shape =
+      loader.loadClass("x.Shape");
+
+    final var contextClass = CBSerializationContextByteBuffer.class;
+    assertNotNull(
+      point.getMethod("serialize", CBSerializationContextType.class, point)
+        .getAnnotation(CBSerializerMethod.class));
+    assertNull(
+      point.getMethod("serialize", contextClass, point)
+        .getAnnotation(CBSerializerMethod.class));
+    point.getMethod("deserialize", contextClass);
+    box.getMethod(
+      "deserialize", contextClass, CBDeserializeType.class);
+    shape.getMethod("serialize", contextClass, shape);
+    shape.getMethod("deserialize", contextClass);
+
+    final var p0 =
+      (CBSerializableType) point.getConstructors()[0].newInstance(
+        new CBIntegerSigned32(1),
+        new CBIntegerSigned32(2));
+    final var p1 =
+      (CBSerializableType) point.getConstructors()[0].newInstance(
+        new CBIntegerSigned32(3),
+        new CBIntegerSigned32(4));
+    final var value =
+      path.getConstructors()[0].newInstance(
+        new CBString("route"),
+        new CBList<>(List.of(p0, p1)));
+
+    /*
+     * The specialized and general methods must produce identical bytes.
+     */
+
+    final var bufferA = ByteBuffer.allocate(64);
+    final var contextA = CBSerializationContextByteBuffer.create(bufferA);
+    path.getMethod("serialize", contextClass, path)
+      .invoke(null, contextA, value);
+
+    final var bufferB = ByteBuffer.allocate(64);
+    final var contextB = CBSerializationContextByteBuffer.create(bufferB);
+    path.getMethod("serialize", CBSerializationContextType.class, path)
+      .invoke(null, contextB, value);
+
+    assertEquals(contextB.position(), contextA.position());
+    assertEquals(bufferB, bufferA);
+
+    contextA.setPosition(0);
+    assertEquals(
+      value,
+      path.getMethod("deserialize", contextClass).invoke(null, contextA));
+
+    /*
+     * The protocol serializer routes to the specialized methods when given
+     * the context class, and the results are readable by the general
+     * methods.
+     */
+
+    final var line =
+      (CBProtocolMessageType) loader.loadClass("x.Shape$Line")
+        .getConstructors()[0]
+        .newInstance(p0, p1);
+
+    final var serializer =
+      (CBProtocolMessageVersionedSerializerType<CBProtocolMessageType>)
+        loader.loadClass("x.ProtocolShapesv1Serializer")
+          .getConstructor()
+          .newInstance();
+
+    final var bufferC = ByteBuffer.allocate(64);
+    final var contextC = CBSerializationContextByteBuffer.create(bufferC);
+    serializer.serialize(contextC, line);
+    contextC.setPosition(0);
+
+    final var protocol =
+      loader.loadClass("x.ProtocolShapesv1Type");
+    assertEquals(
+      line,
+      protocol.getMethod("deserialize", CBSerializationContextType.class)
+        .invoke(null, contextC));
+
+    contextC.setPosition(0);
+    assertEquals(line, serializer.deserialize(contextC));
+  }
+
+  @Test
+  public void testCodegenContextInvalid()
+  {
+    this.loader.register(CBCore.get());
+    assertThrows(CBSPICodeGeneratorException.class, () -> {
+      CBJavaStaticCompilation.compile(
+        this.loader,
+        this.directory,
+        this.moduleDirectory,
+        "codegenContext0.cbs",
+        Map.of("contextClass", "not a class")
+      );
+    });
+  }
 }
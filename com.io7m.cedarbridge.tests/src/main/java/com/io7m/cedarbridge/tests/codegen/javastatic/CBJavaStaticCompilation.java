@@ -41,6 +41,7 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Properties;
 import java.util.Set;
@@ -112,6 +113,17 @@ public final class CBJavaStaticCompilation
     final Path moduleDirectory,
     final String name)
     throws Exception
+  {
+    return compile(loader, outputDirectory, moduleDirectory, name, Map.of());
+  }
+
+  public static CBJavaStaticCompilation compile(
+    final CBFakeLoader loader,
+    final Path outputDirectory,
+    final Path moduleDirectory,
+    final String name,
+    final Map<String, String> options)
+    throws Exception
   {
     final var compilation =
       new CBJavaStaticCompilation(loader, outputDirectory, moduleDirectory);
@@ -121,7 +133,7 @@ public final class CBJavaStaticCompilation
 
     final var result =
       compilation.codeGen.createGenerator(
-        new CBSPICodeGeneratorConfiguration(outputDirectory)
+        new CBSPICodeGeneratorConfiguration(outputDirectory, options)
       ).execute(pack);
 
     compilation.compileJava(result.createdFiles());
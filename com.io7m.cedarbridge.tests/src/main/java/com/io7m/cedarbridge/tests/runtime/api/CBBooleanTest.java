@@ -18,12 +18,17 @@ package com.io7m.cedarbridge.tests.runtime.api;
 
 import com.io7m.cedarbridge.runtime.api.CBBooleanType;
 import com.io7m.cedarbridge.runtime.api.CBFalse;
+import com.io7m.cedarbridge.runtime.api.CBSerializationContextByteBuffer;
 import com.io7m.cedarbridge.runtime.api.CBTrue;
 import net.jqwik.api.ForAll;
 import net.jqwik.api.Property;
 import org.junit.jupiter.api.Test;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
 
 public final class CBBooleanTest
 {
@@ -58,6 +63,19 @@ public final class CBBooleanTest
     );
   }
 
+  @Test
+  public void testSharedInstances()
+    throws IOException
+  {
+    final var context =
+      CBSerializationContextByteBuffer.create(ByteBuffer.allocate(8));
+
+    assertSame(CBTrue.INSTANCE, CBTrue.deserialize(context));
+    assertSame(CBFalse.INSTANCE, CBFalse.deserialize(context));
+    assertSame(CBTrue.INSTANCE, CBBooleanType.fromBoolean(true));
+    assertSame(CBFalse.INSTANCE, CBBooleanType.fromBoolean(false));
+  }
+
   @Property
   public void testIdentity(
     final @ForAll boolean x)
@@ -0,0 +1,139 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.cedarbridge.tests.runtime.api;
+
+import com.io7m.cedarbridge.runtime.api.CBByteArrayArena;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public final class CBByteArrayArenaTest
+{
+  @Test
+  public void testConfinedAllocate()
+  {
+    try (var arena = CBByteArrayArena.createConfined(16)) {
+      assertTrue(arena.isConfined());
+
+      final var b0 = arena.allocate(10);
+      final var b1 = arena.allocate(10);
+      final var b2 = arena.allocate(100);
+
+      assertTrue(b0.isDirect());
+      assertTrue(b1.isDirect());
+      assertTrue(b2.isDirect());
+      assertEquals(0, b0.position());
+      assertEquals(10, b0.limit());
+      assertEquals(10, b1.limit());
+      assertEquals(100, b2.limit());
+
+      b0.put(0, (byte) 1);
+      b1.put(0, (byte) 2);
+      assertEquals(1, b0.get(0));
+      assertEquals(2, b1.get(0));
+    }
+  }
+
+  @Test
+  public void testConfinedWrongThread()
+    throws Exception
+  {
+    try (var arena = CBByteArrayArena.createConfined(16)) {
+      final var failures = new ConcurrentLinkedQueue<Throwable>();
+      final var thread = new Thread(() -> {
+        try {
+          arena.allocate(1);
+        } catch (final Throwable e) {
+          failures.add(e);
+        }
+      });
+      thread.start();
+      thread.join();
+
+      assertEquals(1, failures.size());
+      assertInstanceOf(WrongThreadException.class, failures.peek());
+    }
+  }
+
+  @Test
+  public void testSharedAllocate()
+    throws Exception
+  {
+    final var buffers = new ConcurrentLinkedQueue<ByteBuffer>();
+
+    try (var arena = CBByteArrayArena.createShared(64)) {
+      assertFalse(arena.isConfined());
+
+      final var executor = Executors.newFixedThreadPool(4);
+      try {
+        for (int index = 0; index < 100; ++index) {
+          final var value = (byte) index;
+          executor.execute(() -> {
+            final var b = arena.allocate(8);
+            for (int k = 0; k < 8; ++k) {
+              b.put(k, value);
+            }
+            buffers.add(b);
+          });
+        }
+      } finally {
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10L, TimeUnit.SECONDS));
+      }
+    }
+
+    assertEquals(100, buffers.size());
+    for (final var b : buffers) {
+      for (int k = 0; k < 8; ++k) {
+        assertEquals(b.get(0), b.get(k));
+      }
+    }
+  }
+
+  @Test
+  public void testClosed()
+  {
+    final var arena = CBByteArrayArena.createConfined(16);
+    final var b = arena.allocate(4);
+    arena.close();
+
+    assertThrows(IllegalStateException.class, () -> arena.allocate(1));
+    assertEquals(4, b.limit());
+  }
+
+  @Test
+  public void testInvalid()
+  {
+    assertThrows(
+      IllegalArgumentException.class,
+      () -> CBByteArrayArena.createShared(0));
+
+    try (var arena = CBByteArrayArena.createShared(16)) {
+      assertThrows(IllegalArgumentException.class, () -> arena.allocate(-1));
+    }
+  }
+}
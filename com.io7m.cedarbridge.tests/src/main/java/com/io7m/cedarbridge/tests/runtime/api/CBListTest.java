@@ -18,11 +18,19 @@ package com.io7m.cedarbridge.tests.runtime.api;
 
 import com.io7m.cedarbridge.runtime.api.CBIntegerUnsigned32;
 import com.io7m.cedarbridge.runtime.api.CBList;
+import com.io7m.cedarbridge.runtime.api.CBSkipType;
+import com.io7m.cedarbridge.runtime.api.CBString;
+import com.io7m.cedarbridge.runtime.bssio.CBSerializationContextBSSIO;
+import com.io7m.jbssio.vanilla.BSSReaders;
+import com.io7m.jbssio.vanilla.BSSWriters;
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 public final class CBListTest
 {
@@ -41,4 +49,89 @@ public final class CBListTest
       String.format("%s", new CBList<>(xs))
     );
   }
+
+  @Test
+  public void testSkip()
+    throws Exception
+  {
+    final var output = new ByteArrayOutputStream();
+    final var out =
+      CBSerializationContextBSSIO.createFromOutputStream(
+        new BSSWriters(), output);
+
+    CBList.serialize(
+      out,
+      new CBList<>(List.of(new CBString("a"), new CBString("bcd"))),
+      CBString::serialize
+    );
+    CBList.serialize(
+      out,
+      new CBList<>(List.of(
+        new CBIntegerUnsigned32(23L),
+        new CBIntegerUnsigned32(24L),
+        new CBIntegerUnsigned32(25L))),
+      CBIntegerUnsigned32::serialize
+    );
+    CBIntegerUnsigned32.serialize(out, new CBIntegerUnsigned32(0x7fL));
+
+    final var in =
+      CBSerializationContextBSSIO.createFromByteArray(
+        new BSSReaders(), output.toByteArray());
+
+    CBList.skip(in, CBString::skip);
+    CBList.skip(in, CBSkipType.fixed(4L));
+    assertEquals(0x7fL, CBIntegerUnsigned32.deserialize(in).value());
+  }
+
+  @Test
+  public void testDeserializeElement()
+    throws Exception
+  {
+    final var output = new ByteArrayOutputStream();
+    final var out =
+      CBSerializationContextBSSIO.createFromOutputStream(
+        new BSSWriters(), output);
+
+    final var list =
+      new CBList<>(List.of(
+        new CBIntegerUnsigned32(23L),
+        new CBIntegerUnsigned32(24L),
+        new CBIntegerUnsigned32(25L)));
+
+    CBList.serialize(out, list, CBIntegerUnsigned32::serialize);
+    CBList.serialize(out, list, CBIntegerUnsigned32::serialize);
+    CBList.serialize(out, list, CBIntegerUnsigned32::serialize);
+    CBIntegerUnsigned32.serialize(out, new CBIntegerUnsigned32(0x7fL));
+
+    final var in =
+      CBSerializationContextBSSIO.createFromByteArray(
+        new BSSReaders(), output.toByteArray());
+
+    assertEquals(
+      24L,
+      CBList.deserializeElement(
+        in,
+        1,
+        CBSkipType.fixed(4L),
+        CBIntegerUnsigned32::deserialize
+      ).value()
+    );
+    assertEquals(
+      25L,
+      CBList.deserializeElement(
+        in,
+        2,
+        CBIntegerUnsigned32::skip,
+        CBIntegerUnsigned32::deserialize
+      ).value()
+    );
+    assertThrows(IOException.class, () -> {
+      CBList.deserializeElement(
+        in,
+        3,
+        CBSkipType.fixed(4L),
+        CBIntegerUnsigned32::deserialize
+      );
+    });
+  }
 }
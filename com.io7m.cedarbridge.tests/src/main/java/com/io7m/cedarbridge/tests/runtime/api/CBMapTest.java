@@ -18,9 +18,14 @@ package com.io7m.cedarbridge.tests.runtime.api;
 
 import com.io7m.cedarbridge.runtime.api.CBIntegerUnsigned32;
 import com.io7m.cedarbridge.runtime.api.CBMap;
+import com.io7m.cedarbridge.runtime.api.CBSkipType;
 import com.io7m.cedarbridge.runtime.api.CBString;
+import com.io7m.cedarbridge.runtime.bssio.CBSerializationContextBSSIO;
+import com.io7m.jbssio.vanilla.BSSReaders;
+import com.io7m.jbssio.vanilla.BSSWriters;
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayOutputStream;
 import java.util.Map;
 import java.util.TreeMap;
 
@@ -46,4 +51,47 @@ public final class CBMapTest
       String.format("%s", new CBMap<>(linkMap))
     );
   }
+
+  @Test
+  public void testSkip()
+    throws Exception
+  {
+    final var output = new ByteArrayOutputStream();
+    final var out =
+      CBSerializationContextBSSIO.createFromOutputStream(
+        new BSSWriters(), output);
+
+    final var values =
+      Map.ofEntries(
+        Map.entry(new CBString("k0"), new CBIntegerUnsigned32(23L)),
+        Map.entry(new CBString("k1"), new CBIntegerUnsigned32(24L))
+      );
+    final var numbers =
+      Map.ofEntries(
+        Map.entry(new CBIntegerUnsigned32(0L), new CBIntegerUnsigned32(23L)),
+        Map.entry(new CBIntegerUnsigned32(1L), new CBIntegerUnsigned32(24L))
+      );
+
+    CBMap.serialize(
+      out,
+      new CBMap<>(values),
+      CBString::serialize,
+      CBIntegerUnsigned32::serialize
+    );
+    CBMap.serialize(
+      out,
+      new CBMap<>(numbers),
+      CBIntegerUnsigned32::serialize,
+      CBIntegerUnsigned32::serialize
+    );
+    CBIntegerUnsigned32.serialize(out, new CBIntegerUnsigned32(0x7fL));
+
+    final var in =
+      CBSerializationContextBSSIO.createFromByteArray(
+        new BSSReaders(), output.toByteArray());
+
+    CBMap.skip(in, CBString::skip, CBIntegerUnsigned32::skip);
+    CBMap.skip(in, CBSkipType.fixed(4L), CBSkipType.fixed(4L));
+    assertEquals(0x7fL, CBIntegerUnsigned32.deserialize(in).value());
+  }
 }
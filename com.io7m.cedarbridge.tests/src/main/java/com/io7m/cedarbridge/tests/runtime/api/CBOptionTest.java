@@ -20,14 +20,18 @@ import com.io7m.cedarbridge.runtime.api.CBIntegerSigned64;
 import com.io7m.cedarbridge.runtime.api.CBIntegerUnsigned32;
 import com.io7m.cedarbridge.runtime.api.CBNone;
 import com.io7m.cedarbridge.runtime.api.CBOptionType;
+import com.io7m.cedarbridge.runtime.api.CBSerializationContextByteBuffer;
 import com.io7m.cedarbridge.runtime.api.CBSome;
 import net.jqwik.api.ForAll;
 import net.jqwik.api.Property;
 import org.junit.jupiter.api.Test;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
 
 public final class CBOptionTest
 {
@@ -49,6 +53,18 @@ public final class CBOptionTest
     );
   }
 
+  @Test
+  public void testNoneShared()
+    throws IOException
+  {
+    final var context =
+      CBSerializationContextByteBuffer.create(ByteBuffer.allocate(8));
+
+    assertSame(CBNone.none(), CBNone.deserialize(context, c -> null));
+    assertSame(CBNone.none(), CBOptionType.fromOptional(Optional.empty()));
+    assertEquals(new CBNone<>(), CBNone.none());
+  }
+
   @Test
   public void testFormat()
   {
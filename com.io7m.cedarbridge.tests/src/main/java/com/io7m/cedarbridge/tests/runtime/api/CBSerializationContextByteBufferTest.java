@@ -0,0 +1,237 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.cedarbridge.tests.runtime.api;
+
+import com.io7m.cedarbridge.runtime.api.CBByteArray;
+import com.io7m.cedarbridge.runtime.api.CBByteArrayAllocators;
+import com.io7m.cedarbridge.runtime.api.CBByteArrayArena;
+import com.io7m.cedarbridge.runtime.api.CBSerializationContextByteBuffer;
+import com.io7m.cedarbridge.runtime.api.CBSerializationException;
+import com.io7m.cedarbridge.runtime.api.CBStringCache;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public final class CBSerializationContextByteBufferTest
+{
+  @Test
+  public void testExhaustive()
+    throws IOException
+  {
+    final var buffer =
+      ByteBuffer.allocate(128);
+    final var w =
+      CBSerializationContextByteBuffer.create(buffer);
+
+    w.writeS8(1L);
+    w.writeS16(2L);
+    w.writeS32(3L);
+    w.writeS64(4L);
+    w.writeU8(5L);
+    w.writeU16(6L);
+    w.writeU32(7L);
+    w.writeU64(8L);
+    w.writeF16(9.0);
+    w.writeF32(10.0);
+    w.writeF64(11.0);
+    w.writeUTF8("Hello");
+    w.writeByteArray(ByteBuffer.wrap(new byte[]{0x30, 0x40, 0x50}));
+    w.writeSequenceLength(12);
+    w.writeVariantIndex(13);
+
+    assertEquals(68, w.position());
+    assertEquals(0, buffer.position());
+
+    final var r =
+      CBSerializationContextByteBuffer.create(buffer);
+
+    assertEquals(1L, r.readS8());
+    assertEquals(2L, r.readS16());
+    assertEquals(3L, r.readS32());
+    assertEquals(4L, r.readS64());
+    assertEquals(5L, r.readU8());
+    assertEquals(6L, r.readU16());
+    assertEquals(7L, r.readU32());
+    assertEquals(8L, r.readU64());
+    assertEquals(9.0, r.readF16());
+    assertEquals(10.0, r.readF32());
+    assertEquals(11.0, r.readF64());
+    assertEquals("Hello", r.readUTF8());
+    final var data = r.readByteArray();
+    assertEquals(0x30, data.get(0));
+    assertEquals(0x40, data.get(1));
+    assertEquals(0x50, data.get(2));
+    assertEquals(12, r.readSequenceLength());
+    assertEquals(13, r.readVariantIndex());
+    assertEquals(68, r.position());
+
+    r.setPosition(44);
+    r.validateUTF8();
+    r.validateByteArray();
+    assertEquals(60, r.position());
+  }
+
+  @Test
+  public void testReadShort()
+  {
+    final var c =
+      CBSerializationContextByteBuffer.create(ByteBuffer.allocate(3));
+
+    c.begin("x");
+    c.begin("y");
+
+    assertFalse(c.isExhausted());
+
+    final var ex =
+      assertThrows(CBSerializationException.class, c::readU32);
+    assertTrue(c.isExhausted());
+    assertEquals("x.y", ex.path());
+    assertEquals(0L, ex.byteOffset());
+    assertEquals(
+      "@0x0: Buffer too short (wanted 4 bytes, 3 remaining)",
+      ex.getMessage()
+    );
+  }
+
+  @Test
+  public void testReadLengthTooLong()
+    throws IOException
+  {
+    final var buffer = ByteBuffer.allocate(8);
+    buffer.putInt(0, 5);
+
+    final var c =
+      CBSerializationContextByteBuffer.create(buffer);
+
+    assertThrows(CBSerializationException.class, c::readUTF8);
+    c.setPosition(0);
+    assertThrows(CBSerializationException.class, c::validateByteArray);
+  }
+
+  @Test
+  public void testValidateUTF8Malformed()
+  {
+    final var buffer = ByteBuffer.allocate(6);
+    buffer.putInt(0, 2);
+    buffer.put(4, (byte) 0xC0);
+    buffer.put(5, (byte) 0x80);
+
+    final var c =
+      CBSerializationContextByteBuffer.create(buffer);
+
+    final var ex =
+      assertThrows(CBSerializationException.class, c::validateUTF8);
+    assertEquals("@0x4: Malformed UTF-8 sequence", ex.getMessage());
+    assertFalse(c.isExhausted());
+  }
+
+  @Test
+  public void testReadUTF8Malformed()
+  {
+    final var buffer = ByteBuffer.allocate(7);
+    buffer.putInt(0, 3);
+    buffer.put(4, (byte) 0xED);
+    buffer.put(5, (byte) 0xA0);
+    buffer.put(6, (byte) 0x80);
+
+    final var c0 =
+      CBSerializationContextByteBuffer.create(buffer);
+    final var ex0 =
+      assertThrows(CBSerializationException.class, c0::readUTF8);
+    assertEquals("@0x5: Malformed UTF-8 sequence", ex0.getMessage());
+
+    final var c1 =
+      CBSerializationContextByteBuffer.create(
+        buffer,
+        CBByteArrayAllocators.heap(),
+        CBStringCache.create(64, 64)
+      );
+    final var ex1 =
+      assertThrows(CBSerializationException.class, c1::readString);
+    assertEquals("@0x5: Malformed UTF-8 sequence", ex1.getMessage());
+  }
+
+  @Test
+  public void testWriteShort()
+  {
+    final var c =
+      CBSerializationContextByteBuffer.create(ByteBuffer.allocate(4));
+
+    assertThrows(CBSerializationException.class, () -> c.writeUTF8("Hello"));
+    assertEquals(0, c.position());
+  }
+
+  @Test
+  public void testSetPositionInvalid()
+  {
+    final var c =
+      CBSerializationContextByteBuffer.create(ByteBuffer.allocate(4));
+
+    assertThrows(IllegalArgumentException.class, () -> c.setPosition(-1));
+    assertThrows(IllegalArgumentException.class, () -> c.setPosition(5));
+  }
+
+  @Test
+  public void testDirectByteArrays()
+    throws IOException
+  {
+    final var buffer =
+      ByteBuffer.allocateDirect(64);
+    final var w =
+      CBSerializationContextByteBuffer.create(buffer);
+
+    final var input = ByteBuffer.allocateDirect(3);
+    input.put(0, (byte) 0x30);
+    input.put(1, (byte) 0x40);
+    input.put(2, (byte) 0x50);
+
+    CBByteArray.serialize(w, new CBByteArray(input));
+    CBByteArray.serialize(w, new CBByteArray(input));
+    assertEquals(14, w.position());
+
+    final var rHeap =
+      CBSerializationContextByteBuffer.create(
+        buffer, CBByteArrayAllocators.heap());
+    final var heap = CBByteArray.deserialize(rHeap);
+    assertFalse(heap.value().isDirect());
+    assertEquals(input, heap.value());
+
+    final var rDirect =
+      CBSerializationContextByteBuffer.create(
+        buffer, CBByteArrayAllocators.direct());
+    final var direct = CBByteArray.deserialize(rDirect);
+    assertTrue(direct.value().isDirect());
+    assertEquals(input, direct.value());
+
+    try (var arena = CBByteArrayArena.createConfined(1024)) {
+      final var rArena =
+        CBSerializationContextByteBuffer.create(buffer, arena);
+      final var a0 = CBByteArray.deserialize(rArena);
+      final var a1 = CBByteArray.deserialize(rArena);
+      assertTrue(a0.value().isDirect());
+      assertEquals(input, a0.value());
+      assertEquals(input, a1.value());
+    }
+  }
+}
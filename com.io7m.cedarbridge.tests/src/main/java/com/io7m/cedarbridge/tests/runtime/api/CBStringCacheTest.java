@@ -0,0 +1,233 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.cedarbridge.tests.runtime.api;
+
+import com.io7m.cedarbridge.runtime.api.CBByteArrayAllocators;
+import com.io7m.cedarbridge.runtime.api.CBSerializationContextByteBuffer;
+import com.io7m.cedarbridge.runtime.api.CBString;
+import com.io7m.cedarbridge.runtime.api.CBStringCache;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public final class CBStringCacheTest
+{
+  private static ByteBuffer encode(
+    final ByteBuffer buffer,
+    final String... values)
+    throws IOException
+  {
+    final var context = CBSerializationContextByteBuffer.create(buffer);
+    for (final var value : values) {
+      CBString.serialize(context, new CBString(value));
+    }
+    return buffer.slice(0, context.position());
+  }
+
+  private static List<CBString> decode(
+    final ByteBuffer buffer,
+    final CBStringCache cache,
+    final int count)
+    throws IOException
+  {
+    final var context =
+      CBSerializationContextByteBuffer.create(
+        buffer, CBByteArrayAllocators.heap(), cache);
+
+    final var results = new ArrayList<CBString>(count);
+    for (int index = 0; index < count; ++index) {
+      results.add(CBString.deserialize(context));
+    }
+    assertEquals(0, context.remaining());
+    return results;
+  }
+
+  @Test
+  public void testRepeatedIdentical()
+    throws IOException
+  {
+    final var cache = CBStringCache.create(64, 64);
+    final var buffer =
+      encode(ByteBuffer.allocate(128), "alice", "bob", "alice", "alice");
+
+    final var r = decode(buffer, cache, 4);
+    assertEquals(new CBString("alice"), r.get(0));
+    assertEquals(new CBString("bob"), r.get(1));
+    assertSame(r.get(0), r.get(2));
+    assertSame(r.get(0), r.get(3));
+
+    final var again = decode(buffer, cache, 4);
+    assertSame(r.get(0), again.get(0));
+    assertSame(r.get(1), again.get(1));
+  }
+
+  @Test
+  public void testUncachedContext()
+    throws IOException
+  {
+    final var buffer =
+      encode(ByteBuffer.allocate(128), "alice", "alice");
+    final var context =
+      CBSerializationContextByteBuffer.create(buffer);
+
+    final var r0 = CBString.deserialize(context);
+    final var r1 = CBString.deserialize(context);
+    assertEquals(r0, r1);
+    assertNotSame(r0, r1);
+  }
+
+  @Test
+  public void testDirectBuffer()
+    throws IOException
+  {
+    final var cache = CBStringCache.create(64, 64);
+    final var buffer =
+      encode(ByteBuffer.allocateDirect(128), "été", "été");
+
+    final var r = decode(buffer, cache, 2);
+    assertEquals(new CBString("été"), r.get(0));
+    assertSame(r.get(0), r.get(1));
+  }
+
+  @Test
+  public void testTooLong()
+    throws IOException
+  {
+    final var cache = CBStringCache.create(64, 4);
+    final var buffer =
+      encode(ByteBuffer.allocate(128), "abcd", "abcd", "abcde", "abcde");
+
+    final var r = decode(buffer, cache, 4);
+    assertSame(r.get(0), r.get(1));
+    assertEquals(new CBString("abcde"), r.get(2));
+    assertEquals(r.get(2), r.get(3));
+    assertNotSame(r.get(2), r.get(3));
+  }
+
+  @Test
+  public void testEviction()
+    throws IOException
+  {
+    final var cache = CBStringCache.create(1, 64);
+    assertEquals(1, cache.capacity());
+
+    final var buffer =
+      encode(ByteBuffer.allocate(128), "a", "b", "a", "a");
+
+    final var r = decode(buffer, cache, 4);
+    assertEquals(new CBString("a"), r.get(0));
+    assertEquals(new CBString("b"), r.get(1));
+    assertEquals(new CBString("a"), r.get(2));
+    assertNotSame(r.get(0), r.get(2));
+    assertSame(r.get(2), r.get(3));
+  }
+
+  @Test
+  public void testClear()
+    throws IOException
+  {
+    final var cache = CBStringCache.create(16, 64);
+    final var buffer = encode(ByteBuffer.allocate(128), "a");
+
+    final var r0 = decode(buffer, cache, 1).get(0);
+    cache.clear();
+    final var r1 = decode(buffer, cache, 1).get(0);
+    assertEquals(r0, r1);
+    assertNotSame(r0, r1);
+  }
+
+  @Test
+  public void testManyValues()
+    throws IOException
+  {
+    final var cache = CBStringCache.create(8, 64);
+    final var values = new String[1000];
+    for (int index = 0; index < values.length; ++index) {
+      values[index] = "value-" + (index % 37);
+    }
+
+    final var buffer = encode(ByteBuffer.allocate(16384), values);
+    final var r = decode(buffer, cache, values.length);
+    for (int index = 0; index < values.length; ++index) {
+      assertEquals(new CBString(values[index]), r.get(index));
+    }
+  }
+
+  @Test
+  public void testShared()
+    throws Exception
+  {
+    final var cache = CBStringCache.create(4, 64);
+    final var values = new String[1000];
+    for (int index = 0; index < values.length; ++index) {
+      values[index] = "value-" + (index % 11);
+    }
+    final var buffer = encode(ByteBuffer.allocate(16384), values);
+
+    final var executor = Executors.newFixedThreadPool(4);
+    try {
+      final var futures = new ArrayList<Future<List<CBString>>>();
+      for (int index = 0; index < 8; ++index) {
+        futures.add(executor.submit(
+          () -> decode(buffer.duplicate(), cache, values.length)));
+      }
+      for (final var future : futures) {
+        final var r = future.get();
+        for (int index = 0; index < values.length; ++index) {
+          assertEquals(new CBString(values[index]), r.get(index));
+        }
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void testCapacityRounded()
+  {
+    assertEquals(1, CBStringCache.create(1, 0).capacity());
+    assertEquals(128, CBStringCache.create(100, 0).capacity());
+    assertEquals(128, CBStringCache.create(128, 0).capacity());
+    assertEquals(16, CBStringCache.create(16, 8).capacity());
+    assertEquals(8, CBStringCache.create(16, 8).maximumLength());
+  }
+
+  @Test
+  public void testInvalid()
+  {
+    assertThrows(IllegalArgumentException.class, () -> {
+      CBStringCache.create(0, 16);
+    });
+    assertThrows(IllegalArgumentException.class, () -> {
+      CBStringCache.create((1 << 30) + 1, 16);
+    });
+    assertThrows(IllegalArgumentException.class, () -> {
+      CBStringCache.create(16, -1);
+    });
+  }
+}
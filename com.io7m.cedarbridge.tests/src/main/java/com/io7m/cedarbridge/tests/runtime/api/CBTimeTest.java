@@ -16,6 +16,7 @@
 
 package com.io7m.cedarbridge.tests.runtime.api;
 
+import com.io7m.cedarbridge.runtime.api.CBSerializationException;
 import com.io7m.cedarbridge.runtime.time.CBDuration;
 import com.io7m.cedarbridge.runtime.time.CBLocalDate;
 import com.io7m.cedarbridge.runtime.time.CBLocalDateTime;
@@ -30,6 +31,7 @@ import net.jqwik.api.Combinators;
 import net.jqwik.api.ForAll;
 import net.jqwik.api.Property;
 import net.jqwik.api.Provide;
+import org.junit.jupiter.api.Test;
 
 import java.io.ByteArrayOutputStream;
 import java.time.Duration;
@@ -42,6 +44,7 @@ import java.time.ZoneOffset;
 import static com.io7m.cedarbridge.runtime.bssio.CBSerializationContextBSSIO.createFromByteArray;
 import static com.io7m.cedarbridge.runtime.bssio.CBSerializationContextBSSIO.createFromOutputStream;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 public final class CBTimeTest
 {
@@ -107,6 +110,7 @@ public final class CBTimeTest
 
     final var ctxIn = createFromByteArray(READERS, bao.toByteArray());
     final var x1 = CBDuration.deserialize(ctxIn);
+    CBDuration.validate(createFromByteArray(READERS, bao.toByteArray()));
 
     assertEquals(x0, x1);
     assertEquals(String.format("%s", x0), String.format("%s", x1));
@@ -126,6 +130,7 @@ public final class CBTimeTest
 
     final var ctxIn = createFromByteArray(READERS, bao.toByteArray());
     final var x1 = CBLocalDate.deserialize(ctxIn);
+    CBLocalDate.validate(createFromByteArray(READERS, bao.toByteArray()));
 
     assertEquals(x0, x1);
     assertEquals(String.format("%s", x0), String.format("%s", x1));
@@ -145,6 +150,7 @@ public final class CBTimeTest
 
     final var ctxIn = createFromByteArray(READERS, bao.toByteArray());
     final var x1 = CBLocalTime.deserialize(ctxIn);
+    CBLocalTime.validate(createFromByteArray(READERS, bao.toByteArray()));
 
     assertEquals(x0, x1);
     assertEquals(String.format("%s", x0), String.format("%s", x1));
@@ -164,6 +170,7 @@ public final class CBTimeTest
 
     final var ctxIn = createFromByteArray(READERS, bao.toByteArray());
     final var x1 = CBLocalDateTime.deserialize(ctxIn);
+    CBLocalDateTime.validate(createFromByteArray(READERS, bao.toByteArray()));
 
     assertEquals(x0, x1);
     assertEquals(String.format("%s", x0), String.format("%s", x1));
@@ -183,6 +190,7 @@ public final class CBTimeTest
 
     final var ctxIn = createFromByteArray(READERS, bao.toByteArray());
     final var x1 = CBOffsetDateTime.deserialize(ctxIn);
+    CBOffsetDateTime.validate(createFromByteArray(READERS, bao.toByteArray()));
 
     assertEquals(x0, x1);
     assertEquals(String.format("%s", x0), String.format("%s", x1));
@@ -202,9 +210,62 @@ public final class CBTimeTest
 
     final var ctxIn = createFromByteArray(READERS, bao.toByteArray());
     final var x1 = CBZoneOffset.deserialize(ctxIn);
+    CBZoneOffset.validate(createFromByteArray(READERS, bao.toByteArray()));
 
     assertEquals(x0, x1);
     assertEquals(String.format("%s", x0), String.format("%s", x1));
     assertEquals(0, x0.compareTo(x1));
   }
+
+  @Test
+  public void testLocalDateValidateInvalid()
+    throws Exception
+  {
+    final var bao = new ByteArrayOutputStream();
+    final var ctxOut = createFromOutputStream(WRITERS, bao);
+    ctxOut.writeU32(2023L);
+    ctxOut.writeU8(2L);
+    ctxOut.writeU8(29L);
+
+    final var ctxIn = createFromByteArray(READERS, bao.toByteArray());
+    ctxIn.begin("date");
+
+    final var ex =
+      assertThrows(CBSerializationException.class, () -> {
+        CBLocalDate.validate(ctxIn);
+      });
+    assertEquals("date", ex.path());
+    assertEquals(6L, ex.byteOffset());
+  }
+
+  @Test
+  public void testLocalTimeValidateInvalid()
+    throws Exception
+  {
+    final var bao = new ByteArrayOutputStream();
+    final var ctxOut = createFromOutputStream(WRITERS, bao);
+    ctxOut.writeU8(24L);
+    ctxOut.writeU8(0L);
+    ctxOut.writeU8(0L);
+    ctxOut.writeU32(0L);
+
+    final var ctxIn = createFromByteArray(READERS, bao.toByteArray());
+    assertThrows(CBSerializationException.class, () -> {
+      CBLocalTime.validate(ctxIn);
+    });
+  }
+
+  @Test
+  public void testZoneOffsetValidateInvalid()
+    throws Exception
+  {
+    final var bao = new ByteArrayOutputStream();
+    final var ctxOut = createFromOutputStream(WRITERS, bao);
+    ctxOut.writeS32(64801L);
+
+    final var ctxIn = createFromByteArray(READERS, bao.toByteArray());
+    assertThrows(CBSerializationException.class, () -> {
+      CBZoneOffset.validate(ctxIn);
+    });
+  }
 }
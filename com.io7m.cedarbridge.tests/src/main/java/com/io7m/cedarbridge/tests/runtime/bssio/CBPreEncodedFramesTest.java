@@ -0,0 +1,158 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.cedarbridge.tests.runtime.bssio;
+
+import com.io7m.cedarbridge.runtime.api.CBProtocolMessageSerializerType;
+import com.io7m.cedarbridge.runtime.api.CBProtocolMessageType;
+import com.io7m.cedarbridge.runtime.api.CBSerializationContextType;
+import com.io7m.cedarbridge.runtime.bssio.CBPreEncodedFrames;
+import com.io7m.cedarbridge.runtime.bssio.CBSerializationContextBSSIO;
+import com.io7m.jbssio.vanilla.BSSReaders;
+import com.io7m.jbssio.vanilla.BSSWriters;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ReadOnlyBufferException;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public final class CBPreEncodedFramesTest
+{
+  private BSSReaders readers;
+  private BSSWriters writers;
+
+  private record Message(
+    long number,
+    String text)
+    implements CBProtocolMessageType
+  {
+
+  }
+
+  private static final class MessageSerializer
+    implements CBProtocolMessageSerializerType<Message>
+  {
+    private final boolean inconsistent;
+    private int calls;
+
+    MessageSerializer(
+      final boolean inInconsistent)
+    {
+      this.inconsistent = inInconsistent;
+    }
+
+    @Override
+    public Class<Message> messageClass()
+    {
+      return Message.class;
+    }
+
+    @Override
+    public void serialize(
+      final CBSerializationContextType context,
+      final Message value)
+      throws IOException
+    {
+      context.writeU32(value.number());
+      context.writeUTF8(value.text());
+      if (this.inconsistent && this.calls > 0) {
+        context.writeU8(0L);
+      }
+      ++this.calls;
+    }
+
+    @Override
+    public Message deserialize(
+      final CBSerializationContextType context)
+      throws IOException
+    {
+      return new Message(context.readU32(), context.readUTF8());
+    }
+  }
+
+  @BeforeEach
+  public void setup()
+  {
+    this.readers = new BSSReaders();
+    this.writers = new BSSWriters();
+  }
+
+  @Test
+  public void testEncodeMatchesStreaming()
+    throws Exception
+  {
+    final var message = new Message(23L, "Hello.");
+
+    final var streamBytes = new ByteArrayOutputStream();
+    final var streamContext =
+      CBSerializationContextBSSIO.createFromOutputStream(
+        this.writers, streamBytes);
+    streamContext.writeU32(message.number());
+    streamContext.writeUTF8(message.text());
+    streamContext.flush();
+
+    final var serializer = new MessageSerializer(false);
+    final var frame =
+      CBPreEncodedFrames.encode(this.writers, serializer, message);
+    assertEquals(streamBytes.size(), frame.size());
+
+    final var written = new ByteArrayOutputStream();
+    frame.writeTo(written);
+    assertArrayEquals(streamBytes.toByteArray(), written.toByteArray());
+
+    final var readContext =
+      CBSerializationContextBSSIO.createFromByteArray(
+        this.readers, written.toByteArray());
+    assertEquals(message, serializer.deserialize(readContext));
+  }
+
+  @Test
+  public void testBuffersIndependent()
+    throws Exception
+  {
+    final var serializer = new MessageSerializer(false);
+    final var frame =
+      CBPreEncodedFrames.encode(
+        this.writers, serializer, new Message(1L, "x"));
+
+    final var b0 = frame.buffer();
+    final var b1 = frame.buffer();
+    assertTrue(b0.isReadOnly());
+    assertEquals(frame.size(), b0.remaining());
+
+    b0.get(new byte[frame.size()]);
+    assertEquals(0, b0.remaining());
+    assertEquals(frame.size(), b1.remaining());
+    assertThrows(ReadOnlyBufferException.class, () -> b1.put(0, (byte) 1));
+  }
+
+  @Test
+  public void testSizeMismatch()
+  {
+    final var serializer = new MessageSerializer(true);
+    assertThrows(IOException.class, () -> {
+      CBPreEncodedFrames.encode(
+        this.writers, serializer, new Message(1L, "x"));
+    });
+  }
+}
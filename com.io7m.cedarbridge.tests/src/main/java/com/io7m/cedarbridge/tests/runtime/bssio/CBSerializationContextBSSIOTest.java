@@ -19,8 +19,11 @@ package com.io7m.cedarbridge.tests.runtime.bssio;
 import com.io7m.cedarbridge.runtime.api.CBIntegerUnsigned32;
 import com.io7m.cedarbridge.runtime.api.CBIntegerUnsigned8;
 import com.io7m.cedarbridge.runtime.api.CBOptionType;
+import com.io7m.cedarbridge.runtime.api.CBSerializationContextSize;
 import com.io7m.cedarbridge.runtime.api.CBSerializationContextType;
 import com.io7m.cedarbridge.runtime.api.CBSerializationException;
+import com.io7m.cedarbridge.runtime.api.CBString;
+import com.io7m.cedarbridge.runtime.api.CBStringCache;
 import com.io7m.cedarbridge.runtime.bssio.CBSerializationContextBSSIO;
 import com.io7m.jbssio.vanilla.BSSReaders;
 import com.io7m.jbssio.vanilla.BSSWriters;
@@ -36,10 +39,22 @@ import java.nio.ByteBuffer;
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.junit.jupiter.api.Assertions.assertAll;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
 public final class CBSerializationContextBSSIOTest
 {
+  private static final byte[][] MALFORMED_UTF8 = {
+    {(byte) 0xc0, (byte) 0x80},
+    {(byte) 0xe0, (byte) 0x80, (byte) 0x80},
+    {(byte) 0xed, (byte) 0xa0, (byte) 0x80},
+    {(byte) 0xf4, (byte) 0x90, (byte) 0x80, (byte) 0x80},
+    {(byte) 0xf5, (byte) 0x80, (byte) 0x80, (byte) 0x80},
+    {(byte) 0xe2, (byte) 0x82},
+    {(byte) 0x80},
+  };
+
   private static final String READ_ERROR_MESSAGE =
     "@0x0: Attempting to read bytes would exceed the reader size limit.";
 
@@ -547,6 +562,239 @@ public final class CBSerializationContextBSSIOTest
     assertEquals("x.y.z", ex.path());
   }
 
+  @Test
+  public void testValidateUTF8()
+    throws IOException
+  {
+    this.writeContext.writeUTF8("Hello \u00e9\u4e16\u754c \ud83c\udf0d");
+    this.writeContext.writeByteArray(ByteBuffer.wrap(new byte[]{1, 2, 3}));
+    this.writeContext.writeU8(0x7fL);
+    this.writeContext.flush();
+
+    final var readContext = this.readContextArray();
+    readContext.validateUTF8();
+    readContext.validateByteArray();
+    assertEquals(0x7f, readContext.readU8());
+  }
+
+  @Test
+  public void testValidateUTF8Malformed()
+    throws IOException
+  {
+    for (final var bytes : MALFORMED_UTF8) {
+      final var output = new ByteArrayOutputStream();
+      final var c =
+        CBSerializationContextBSSIO.createFromOutputStream(
+          this.writers,
+          output);
+      c.writeU32(bytes.length);
+      output.write(bytes);
+
+      final var r =
+        CBSerializationContextBSSIO.createFromByteArray(
+          this.readers,
+          output.toByteArray());
+
+      final var ex =
+        assertThrows(CBSerializationException.class, () -> {
+          executeIO(r, r::validateUTF8);
+        });
+      assertEquals("x.y.z", ex.path());
+      assertEquals(
+        "Malformed UTF-8 sequence",
+        ex.getMessage().substring(ex.getMessage().indexOf(' ') + 1)
+      );
+    }
+  }
+
+  @Test
+  public void testErrorInvalidValue()
+  {
+    final var c =
+      CBSerializationContextBSSIO.createFromByteArray(
+        this.readers,
+        new byte[0]);
+
+    c.begin("x");
+    c.begin("y");
+
+    final var ex =
+      assertThrows(CBSerializationException.class, () -> {
+        throw c.errorInvalidValue(CBIntegerUnsigned32.class, "Bad value");
+      });
+
+    assertEquals(0L, ex.byteOffset());
+    assertEquals("@0x0: CBIntegerUnsigned32: Bad value", ex.getMessage());
+    assertEquals("x.y", ex.path());
+  }
+
+  @Test
+  public void testSkipBytes()
+    throws IOException
+  {
+    final var output = new ByteArrayOutputStream();
+    final var c =
+      CBSerializationContextBSSIO.createFromOutputStream(
+        this.writers,
+        output);
+
+    c.writeU64(0x1122334455667788L);
+    c.writeU32(0x11223344L);
+    c.writeU8(0x7f);
+
+    final var r =
+      CBSerializationContextBSSIO.createFromByteArray(
+        this.readers,
+        output.toByteArray());
+
+    r.skipBytes(12L);
+    assertEquals(0x7f, r.readU8());
+    assertThrows(CBSerializationException.class, () -> r.skipBytes(1L));
+  }
+
+  @Test
+  public void testWriteByteArrayRemaining()
+    throws IOException
+  {
+    final var array = new byte[]{1, 2, 3, 4, 5, 6, 7, 8};
+
+    final var wrapped =
+      ByteBuffer.wrap(array, 2, 3);
+    final var sliced =
+      ByteBuffer.wrap(array).position(1).slice().limit(3);
+    final var readOnly =
+      ByteBuffer.wrap(array, 2, 3).asReadOnlyBuffer();
+    final var direct =
+      ByteBuffer.allocateDirect(8).put(array).position(2).limit(5);
+
+    final var buffers =
+      new ByteBuffer[]{wrapped, sliced, readOnly, direct};
+
+    final var size = new CBSerializationContextSize();
+    for (final var buffer : buffers) {
+      this.writeContext.writeByteArray(buffer);
+      size.writeByteArray(buffer);
+    }
+    this.writeContext.flush();
+
+    final var data = this.writerBuffer.toByteArray();
+    assertEquals(size.size(), data.length);
+
+    final var r = this.readContextArray();
+    assertEquals(ByteBuffer.wrap(new byte[]{3, 4, 5}), r.readByteArray());
+    assertEquals(ByteBuffer.wrap(new byte[]{2, 3, 4}), r.readByteArray());
+    assertEquals(ByteBuffer.wrap(new byte[]{3, 4, 5}), r.readByteArray());
+    assertEquals(ByteBuffer.wrap(new byte[]{3, 4, 5}), r.readByteArray());
+
+    for (final var buffer : buffers) {
+      assertEquals(3, buffer.remaining());
+    }
+  }
+
+  @Test
+  public void testReadUTF8Malformed()
+    throws IOException
+  {
+    for (final var bytes : MALFORMED_UTF8) {
+      final var output = new ByteArrayOutputStream();
+      final var c =
+        CBSerializationContextBSSIO.createFromOutputStream(
+          this.writers,
+          output);
+      c.writeU32(bytes.length);
+      output.write(bytes);
+
+      final var data = output.toByteArray();
+      final var contexts = new CBSerializationContextType[]{
+        CBSerializationContextBSSIO.createFromByteArray(this.readers, data),
+        CBSerializationContextBSSIO.createFromByteArray(
+          this.readers, data, CBStringCache.create(64, 64)),
+      };
+
+      for (final var r : contexts) {
+        final var ex =
+          assertThrows(CBSerializationException.class, () -> {
+            executeIO(r, () -> CBString.deserialize(r));
+          });
+        assertEquals("x.y.z", ex.path());
+        assertEquals(
+          "Malformed UTF-8 sequence",
+          ex.getMessage().substring(ex.getMessage().indexOf(' ') + 1)
+        );
+      }
+    }
+  }
+
+  @Test
+  public void testReadStringCached()
+    throws IOException
+  {
+    final var cache = CBStringCache.create(64, 64);
+    for (final var value : new String[]{"alice", "bob", "alice", "été"}) {
+      CBString.serialize(this.writeContext, new CBString(value));
+    }
+    this.writeContext.writeU8(0x7f);
+    this.writeContext.flush();
+
+    final var data = this.writerBuffer.toByteArray();
+    final var r =
+      CBSerializationContextBSSIO.createFromByteArray(
+        this.readers, data, cache);
+
+    final var s0 = CBString.deserialize(r);
+    final var s1 = CBString.deserialize(r);
+    final var s2 = CBString.deserialize(r);
+    final var s3 = CBString.deserialize(r);
+    assertEquals(new CBString("alice"), s0);
+    assertEquals(new CBString("bob"), s1);
+    assertSame(s0, s2);
+    assertEquals(new CBString("été"), s3);
+    assertEquals(0x7f, r.readU8());
+
+    final var again =
+      CBSerializationContextBSSIO.createFromByteArray(
+        this.readers, data, cache);
+    assertSame(s0, CBString.deserialize(again));
+    assertSame(s1, CBString.deserialize(again));
+  }
+
+  @Test
+  public void testReadStringUncached()
+    throws IOException
+  {
+    CBString.serialize(this.writeContext, new CBString("alice"));
+    CBString.serialize(this.writeContext, new CBString("alice"));
+    this.writeContext.flush();
+
+    final var r = this.readContextArray();
+    final var s0 = CBString.deserialize(r);
+    final var s1 = CBString.deserialize(r);
+    assertEquals(s0, s1);
+    assertNotSame(s0, s1);
+  }
+
+  @Test
+  public void testReadStringCachedTruncated()
+    throws IOException
+  {
+    this.writeContext.writeU32(6L);
+    this.writeContext.writeU8(0x41);
+    this.writeContext.flush();
+
+    final var r =
+      CBSerializationContextBSSIO.createFromByteArray(
+        this.readers,
+        this.writerBuffer.toByteArray(),
+        CBStringCache.create(64, 64)
+      );
+
+    final var ex =
+      assertThrows(CBSerializationException.class, () -> {
+        executeIO(r, () -> CBString.deserialize(r));
+      });
+    assertEquals("x.y.z", ex.path());
+  }
+
   private CBSerializationContextType brokenWriteContext()
   {
     return CBSerializationContextBSSIO.createFromOutputStream(
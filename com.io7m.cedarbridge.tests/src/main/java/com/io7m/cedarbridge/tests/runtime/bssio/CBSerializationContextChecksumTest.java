@@ -0,0 +1,215 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.cedarbridge.tests.runtime.bssio;
+
+import com.io7m.cedarbridge.runtime.api.CBSerializationException;
+import com.io7m.cedarbridge.runtime.bssio.CBSerializationContextChecksumInput;
+import com.io7m.cedarbridge.runtime.bssio.CBSerializationContextChecksumOutput;
+import com.io7m.jbssio.vanilla.BSSReaders;
+import com.io7m.jbssio.vanilla.BSSWriters;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32C;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public final class CBSerializationContextChecksumTest
+{
+  private BSSReaders readers;
+  private BSSWriters writers;
+
+  @BeforeEach
+  public void setup()
+  {
+    this.readers = new BSSReaders();
+    this.writers = new BSSWriters();
+  }
+
+  private byte[] writeFrames()
+    throws Exception
+  {
+    final var bytes = new ByteArrayOutputStream();
+    final var output =
+      CBSerializationContextChecksumOutput.createFromOutputStream(
+        this.writers, bytes);
+
+    output.writeU32(23L);
+    output.writeUTF8("Hello.");
+    output.writeByteArray(ByteBuffer.wrap(new byte[]{1, 2, 3, 4, 5}));
+    output.writeChecksum();
+
+    output.writeS64(-1L);
+    output.writeF64(3.0);
+    output.writeChecksum();
+    return bytes.toByteArray();
+  }
+
+  @Test
+  public void testChecksumMatchesData()
+    throws Exception
+  {
+    final var bytes = new ByteArrayOutputStream();
+    final var output =
+      CBSerializationContextChecksumOutput.createFromOutputStream(
+        this.writers, bytes);
+
+    output.writeU32(23L);
+    output.writeUTF8("Hello.");
+
+    final var checksum = output.checksum();
+    final var written = output.writeChecksum();
+    assertEquals(checksum, written);
+
+    final var data = bytes.toByteArray();
+    final var expected = new CRC32C();
+    expected.update(data, 0, data.length - 4);
+    assertEquals(expected.getValue(), written);
+    assertEquals(
+      expected.getValue(),
+      ByteBuffer.wrap(data, data.length - 4, 4).getInt() & 0xffff_ffffL
+    );
+    assertEquals(new CRC32C().getValue(), output.checksum());
+  }
+
+  @Test
+  public void testRoundTrip()
+    throws Exception
+  {
+    final var data = this.writeFrames();
+    final var input =
+      CBSerializationContextChecksumInput.createFromInputStream(
+        this.readers, new ByteArrayInputStream(data));
+
+    assertEquals(23L, input.readU32());
+    assertEquals("Hello.", input.readUTF8());
+    assertEquals(5, input.readByteArray().remaining());
+    input.verifyChecksum();
+
+    assertEquals(-1L, input.readS64());
+    assertEquals(3.0, input.readF64());
+    input.verifyChecksum();
+  }
+
+  @Test
+  public void testCorrupted()
+    throws Exception
+  {
+    final var data = this.writeFrames();
+    data[2] ^= 0x10;
+
+    final var input =
+      CBSerializationContextChecksumInput.createFromInputStream(
+        this.readers, new ByteArrayInputStream(data));
+
+    input.readU32();
+    input.readUTF8();
+    input.readByteArray();
+
+    final var ex =
+      assertThrows(CBSerializationException.class, input::verifyChecksum);
+    assertEquals(4L + 4L + 6L + 4L + 5L + 4L, ex.byteOffset());
+    assertEquals("checksum", ex.path());
+  }
+
+  @Test
+  public void testOffsetsAcrossFrames()
+    throws Exception
+  {
+    final var data = this.writeFrames();
+    final var frame0 = 4L + 4L + 6L + 4L + 5L + 4L;
+
+    final var input =
+      CBSerializationContextChecksumInput.createFromInputStream(
+        this.readers, new ByteArrayInputStream(data));
+
+    input.readU32();
+    input.readUTF8();
+    input.readByteArray();
+    input.verifyChecksum();
+
+    input.readS64();
+    final var ex0 =
+      assertInstanceOf(
+        CBSerializationException.class,
+        input.errorInvalidValue(CBSerializationContextChecksumTest.class, "x")
+      );
+    assertEquals(frame0 + 8L, ex0.byteOffset());
+
+    input.readF64();
+    input.verifyChecksum();
+
+    final var ex1 =
+      assertThrows(CBSerializationException.class, input::readU32);
+    assertEquals(frame0 + 8L + 8L + 4L, ex1.byteOffset());
+  }
+
+  @Test
+  public void testCorruptedLaterFrame()
+    throws Exception
+  {
+    final var data = this.writeFrames();
+    final var frame0 = 4L + 4L + 6L + 4L + 5L + 4L;
+    data[(int) frame0 + 3] ^= 0x10;
+
+    final var input =
+      CBSerializationContextChecksumInput.createFromInputStream(
+        this.readers, new ByteArrayInputStream(data));
+
+    input.readU32();
+    input.readUTF8();
+    input.readByteArray();
+    input.verifyChecksum();
+
+    input.readS64();
+    input.readF64();
+
+    final var ex =
+      assertThrows(CBSerializationException.class, input::verifyChecksum);
+    assertEquals(frame0 + 8L + 8L + 4L, ex.byteOffset());
+    assertEquals("checksum", ex.path());
+  }
+
+  @Test
+  public void testMissingChecksum()
+    throws Exception
+  {
+    final var bytes = new ByteArrayOutputStream();
+    final var output =
+      CBSerializationContextChecksumOutput.createFromOutputStream(
+        this.writers, bytes);
+    output.writeU32(23L);
+    output.flush();
+
+    final var input =
+      CBSerializationContextChecksumInput.createFromInputStream(
+        this.readers, new ByteArrayInputStream(bytes.toByteArray()));
+
+    input.readU32();
+
+    final var ex =
+      assertThrows(CBSerializationException.class, input::verifyChecksum);
+    assertEquals(4L, ex.byteOffset());
+    assertEquals("checksum", ex.path());
+  }
+}
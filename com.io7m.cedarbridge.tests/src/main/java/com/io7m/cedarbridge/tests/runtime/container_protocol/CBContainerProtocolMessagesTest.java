@@ -16,8 +16,11 @@
 
 package com.io7m.cedarbridge.tests.runtime.container_protocol;
 
+import com.io7m.cedarbridge.runtime.container_protocol.CBContainerProtocolAvailable;
+import com.io7m.cedarbridge.runtime.container_protocol.CBContainerProtocolCompression;
 import com.io7m.cedarbridge.runtime.container_protocol.CBContainerProtocolMessages;
 import com.io7m.cedarbridge.runtime.container_protocol.CBContainerProtocolResponse;
+import com.io7m.cedarbridge.runtime.container_protocol.CBContainerProtocolUse;
 import com.io7m.cedarbridge.tests.CBTestDirectories;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -27,10 +30,14 @@ import org.slf4j.LoggerFactory;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -85,6 +92,60 @@ public final class CBContainerProtocolMessagesTest
     );
   }
 
+  @Test
+  public void testParseAvailableNoFlags()
+    throws Exception
+  {
+    final var data =
+      this.readHeader("protoHeaderAvailable0.bin");
+    final var header =
+      CBContainerProtocolMessages.parseAvailable(data);
+
+    assertEquals(0L, header.flags());
+    assertFalse(header.isPipelinedUseSupported());
+  }
+
+  @Test
+  public void testAvailableFlags()
+  {
+    final var header =
+      new CBContainerProtocolAvailable(
+        1L,
+        1L,
+        UUID.fromString("fb06cb82-4245-ff5a-d5e5-6d0060db3016"),
+        1L,
+        3L,
+        CBContainerProtocolAvailable.FLAG_PIPELINED_USE
+      );
+
+    assertTrue(header.isPipelinedUseSupported());
+
+    final var bytes =
+      CBContainerProtocolMessages.serializeAvailableAsBytes(header);
+    assertEquals(CBContainerProtocolMessages.sizeAvailable(), bytes.length);
+    assertEquals(1, bytes[15]);
+
+    final var parsed =
+      CBContainerProtocolMessages.parseAvailable(bytes);
+    assertEquals(header, parsed);
+    assertTrue(parsed.isPipelinedUseSupported());
+  }
+
+  @Test
+  public void testAvailableFlagsTooLarge()
+  {
+    assertThrows(IllegalArgumentException.class, () -> {
+      new CBContainerProtocolAvailable(
+        1L,
+        1L,
+        UUID.randomUUID(),
+        1L,
+        3L,
+        0x1_0000_0000L
+      );
+    });
+  }
+
   @Test
   public void testParseAvailableBadVersion0()
     throws Exception
@@ -155,6 +216,69 @@ public final class CBContainerProtocolMessagesTest
     );
   }
 
+  @Test
+  public void testUseVersion2()
+  {
+    final var use =
+      new CBContainerProtocolUse(
+        2L,
+        UUID.fromString("fb06cb82-4245-ff5a-d5e5-6d0060db3016"),
+        3L,
+        CBContainerProtocolCompression.DEFLATE,
+        512L
+      );
+
+    final var bytes =
+      CBContainerProtocolMessages.serializeUseAsBytes(use);
+    assertEquals(CBContainerProtocolMessages.sizeUse(2L), bytes.length);
+    assertEquals(
+      2L,
+      CBContainerProtocolMessages.parseUseContainerProtocolVersion(
+        Arrays.copyOf(bytes, CBContainerProtocolMessages.sizeUse()))
+    );
+    assertEquals(use, CBContainerProtocolMessages.parseUse(bytes));
+  }
+
+  @Test
+  public void testUseVersion1Compression()
+  {
+    assertThrows(IllegalArgumentException.class, () -> {
+      new CBContainerProtocolUse(
+        1L,
+        UUID.randomUUID(),
+        3L,
+        CBContainerProtocolCompression.DEFLATE,
+        512L
+      );
+    });
+  }
+
+  @Test
+  public void testAvailableCompression()
+  {
+    final var id = UUID.randomUUID();
+    final var deflate = CBContainerProtocolCompression.DEFLATE;
+
+    final var v1 =
+      new CBContainerProtocolAvailable(1L, 1L, id, 1L, 3L, 0L, deflate.flag());
+    assertFalse(v1.isCompressionSupported(deflate));
+
+    final var v2 =
+      new CBContainerProtocolAvailable(1L, 2L, id, 1L, 3L, 0L, deflate.flag());
+    assertTrue(v2.isCompressionSupported(deflate));
+    assertEquals(
+      v2,
+      CBContainerProtocolMessages.parseAvailable(
+        CBContainerProtocolMessages.serializeAvailableAsBytes(v2))
+    );
+
+    final var none =
+      new CBContainerProtocolAvailable(1L, 2L, id, 1L, 3L);
+    assertFalse(none.isCompressionSupported(deflate));
+    assertTrue(
+      none.isCompressionSupported(CBContainerProtocolCompression.NONE));
+  }
+
   @Test
   public void testParseUseBadMagic0()
     throws Exception
@@ -207,6 +331,25 @@ public final class CBContainerProtocolMessagesTest
     LOG.debug("", ex);
   }
 
+  @Test
+  public void testParseResponseBadLength()
+  {
+    for (final var length : new int[]{-1, 5}) {
+      final var data = ByteBuffer.allocate(16);
+      data.putInt(0x43420002);
+      data.putInt(0);
+      data.putInt(length);
+      data.putInt(0x41414141);
+      data.flip();
+
+      final var ex = assertThrows(IllegalArgumentException.class, () -> {
+        CBContainerProtocolMessages.parseResponse(data);
+      });
+
+      LOG.debug("", ex);
+    }
+  }
+
   @Test
   public void testErrorTooLong()
   {
@@ -0,0 +1,186 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.cedarbridge.tests.runtime.container_protocol;
+
+import com.io7m.cedarbridge.runtime.container_protocol.CBContainerProtocolUse;
+import com.io7m.cedarbridge.runtime.container_protocol.CBFrameCompression;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.UUID;
+
+import static com.io7m.cedarbridge.runtime.container_protocol.CBContainerProtocolCompression.DEFLATE;
+import static com.io7m.cedarbridge.runtime.container_protocol.CBContainerProtocolCompression.NONE;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public final class CBFrameCompressionTest
+{
+  private static byte[] text(
+    final int size)
+  {
+    final var line =
+      "The quick brown fox jumps over the lazy dog.\n".getBytes(UTF_8);
+    final var data = new byte[size];
+    for (int index = 0; index < size; ++index) {
+      data[index] = line[index % line.length];
+    }
+    return data;
+  }
+
+  @Test
+  public void testRoundTrip()
+    throws Exception
+  {
+    final var compression =
+      new CBFrameCompression(DEFLATE, 64L, 1_000_000);
+    final var data = text(10_000);
+
+    final var compressed =
+      compression.compress(data, 0, data.length)
+        .orElseThrow();
+
+    assertTrue(compressed.length < data.length);
+    assertArrayEquals(
+      data,
+      compression.decompress(compressed, 0, compressed.length)
+    );
+  }
+
+  @Test
+  public void testRoundTripOffset()
+    throws Exception
+  {
+    final var compression =
+      new CBFrameCompression(DEFLATE, 0L, 1_000_000);
+    final var data = text(1_000);
+
+    final var compressed =
+      compression.compress(data, 100, 500)
+        .orElseThrow();
+
+    final var padded = new byte[compressed.length + 20];
+    System.arraycopy(compressed, 0, padded, 10, compressed.length);
+
+    assertArrayEquals(
+      Arrays.copyOfRange(data, 100, 600),
+      compression.decompress(padded, 10, compressed.length)
+    );
+  }
+
+  @Test
+  public void testBelowThreshold()
+  {
+    final var compression =
+      new CBFrameCompression(DEFLATE, 1_000L, 1_000_000);
+    final var data = text(999);
+
+    assertTrue(compression.compress(data, 0, data.length).isEmpty());
+  }
+
+  @Test
+  public void testIncompressible()
+  {
+    final var compression =
+      new CBFrameCompression(DEFLATE, 0L, 1_000_000);
+    final var data = new byte[1_000];
+    new Random(0L).nextBytes(data);
+
+    assertTrue(compression.compress(data, 0, data.length).isEmpty());
+  }
+
+  @Test
+  public void testDisabled()
+  {
+    final var compression =
+      CBFrameCompression.forUse(
+        new CBContainerProtocolUse(1L, UUID.randomUUID(), 1L));
+    final var data = text(10_000);
+
+    assertEquals(NONE, compression.algorithm());
+    assertTrue(compression.compress(data, 0, data.length).isEmpty());
+    assertThrows(IOException.class, () -> {
+      compression.decompress(data, 0, data.length);
+    });
+  }
+
+  @Test
+  public void testDecompressTooLarge()
+  {
+    final var compressor =
+      new CBFrameCompression(DEFLATE, 0L, 1_000_000);
+    final var decompressor =
+      new CBFrameCompression(DEFLATE, 0L, 1_000);
+    final var data = text(10_000);
+    final var compressed =
+      compressor.compress(data, 0, data.length)
+        .orElseThrow();
+
+    assertThrows(IOException.class, () -> {
+      decompressor.decompress(compressed, 0, compressed.length);
+    });
+  }
+
+  @Test
+  public void testDecompressTruncated()
+  {
+    final var compression =
+      new CBFrameCompression(DEFLATE, 0L, 1_000_000);
+    final var data = text(10_000);
+    final var compressed =
+      compression.compress(data, 0, data.length)
+        .orElseThrow();
+
+    assertThrows(IOException.class, () -> {
+      compression.decompress(compressed, 0, compressed.length / 2);
+    });
+  }
+
+  @Test
+  public void testDecompressSizeMismatch()
+  {
+    final var compression =
+      new CBFrameCompression(DEFLATE, 0L, 1_000_000);
+    final var data = text(10_000);
+    final var compressed =
+      compression.compress(data, 0, data.length)
+        .orElseThrow();
+
+    compressed[3] = (byte) (compressed[3] + 1);
+    assertThrows(IOException.class, () -> {
+      compression.decompress(compressed, 0, compressed.length);
+    });
+  }
+
+  @Test
+  public void testDecompressGarbage()
+  {
+    final var compression =
+      new CBFrameCompression(DEFLATE, 0L, 1_000_000);
+    final var garbage = new byte[]{0, 0, 0, 8, 1, 2, 3, 4, 5, 6, 7, 8};
+
+    assertThrows(IOException.class, () -> {
+      compression.decompress(garbage, 0, garbage.length);
+    });
+  }
+}
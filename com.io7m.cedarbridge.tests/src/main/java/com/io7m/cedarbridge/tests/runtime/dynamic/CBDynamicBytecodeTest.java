@@ -0,0 +1,252 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.cedarbridge.tests.runtime.dynamic;
+
+import com.io7m.cedarbridge.runtime.api.CBFloat64;
+import com.io7m.cedarbridge.runtime.api.CBIntegerSigned32;
+import com.io7m.cedarbridge.runtime.api.CBList;
+import com.io7m.cedarbridge.runtime.api.CBSerializationContextByteBuffer;
+import com.io7m.cedarbridge.runtime.api.CBString;
+import com.io7m.cedarbridge.runtime.dynamic.CBDynamicCodec;
+import com.io7m.cedarbridge.runtime.dynamic.CBDynamicCodecStrategy;
+import com.io7m.cedarbridge.runtime.dynamic.CBDynamicCompiler;
+import com.io7m.cedarbridge.runtime.dynamic.CBDynamicField;
+import com.io7m.cedarbridge.runtime.dynamic.CBDynamicRecord;
+import com.io7m.cedarbridge.runtime.dynamic.CBDynamicVariant;
+import com.io7m.cedarbridge.schema.compiled.CBPackageType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.io7m.cedarbridge.tests.runtime.dynamic.CBDynamicCompilerTest.PACKAGE;
+import static com.io7m.cedarbridge.tests.runtime.dynamic.CBDynamicCompilerTest.decode;
+import static com.io7m.cedarbridge.tests.runtime.dynamic.CBDynamicCompilerTest.encode;
+import static com.io7m.cedarbridge.tests.runtime.dynamic.CBDynamicCompilerTest.everything;
+import static com.io7m.cedarbridge.tests.runtime.dynamic.CBDynamicCompilerTest.leaf;
+import static com.io7m.cedarbridge.tests.runtime.dynamic.CBDynamicCompilerTest.node;
+import static com.io7m.cedarbridge.tests.runtime.dynamic.CBDynamicCompilerTest.point;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public final class CBDynamicBytecodeTest
+{
+  private CBPackageType pack;
+  private CBDynamicCompiler interpreted;
+  private CBDynamicCompiler bytecode;
+
+  @BeforeEach
+  public void setup()
+  {
+    this.pack = CBDynamicCompilerTest.createPackage();
+    this.interpreted =
+      new CBDynamicCompiler(CBDynamicCodecStrategy.INTERPRETED);
+    this.bytecode =
+      new CBDynamicCompiler(CBDynamicCodecStrategy.BYTECODE);
+  }
+
+  private CBDynamicCodec interpretedCodec(
+    final String name)
+  {
+    return this.interpreted.codecFor(this.pack.types().get(name));
+  }
+
+  private CBDynamicCodec bytecodeCodec(
+    final String name)
+  {
+    return this.bytecode.codecFor(this.pack.types().get(name));
+  }
+
+  @Test
+  public void testStrategy()
+  {
+    assertEquals(
+      CBDynamicCodecStrategy.INTERPRETED,
+      new CBDynamicCompiler().strategy()
+    );
+    assertEquals(CBDynamicCodecStrategy.BYTECODE, this.bytecode.strategy());
+  }
+
+  @Test
+  public void testRecordSameAsInterpreted()
+    throws Exception
+  {
+    final var slow = this.interpretedCodec("Point");
+    final var fast = this.bytecodeCodec("Point");
+
+    final var data = encode(slow, point(23, -1000));
+    assertArrayEquals(data, encode(fast, point(23, -1000)));
+    assertEquals(point(23, -1000), decode(fast, data));
+  }
+
+  @Test
+  public void testVariantSameAsInterpreted()
+    throws Exception
+  {
+    final var slow = this.interpretedCodec("Shape");
+    final var fast = this.bytecodeCodec("Shape");
+
+    final var values = List.of(
+      new CBDynamicVariant(
+        PACKAGE + ":Shape",
+        "Circle",
+        0,
+        List.of(
+          new CBDynamicField("centre", point(5, 6)),
+          new CBDynamicField("radius", new CBFloat64(2.5)))
+      ),
+      new CBDynamicVariant(
+        PACKAGE + ":Shape",
+        "Polygon",
+        1,
+        List.of(new CBDynamicField(
+          "points",
+          new CBList<>(List.of(point(1, 2), point(3, 4)))))
+      )
+    );
+
+    for (final var value : values) {
+      final var data = encode(slow, value);
+      assertArrayEquals(data, encode(fast, value));
+      assertEquals(value, decode(fast, data));
+    }
+  }
+
+  @Test
+  public void testEverythingSameAsInterpreted()
+    throws Exception
+  {
+    final var slow = this.interpretedCodec("Everything");
+    final var fast = this.bytecodeCodec("Everything");
+
+    final var data = encode(slow, everything());
+    assertArrayEquals(data, encode(fast, everything()));
+    assertEquals(everything(), decode(fast, data));
+    assertEquals(decode(slow, data), decode(fast, data));
+  }
+
+  @Test
+  public void testRecursive()
+    throws Exception
+  {
+    final var slow = this.interpretedCodec("Everything");
+    final var fast = this.bytecodeCodec("Everything");
+
+    var tree = leaf();
+    for (int index = 0; index < 32; ++index) {
+      tree = node(index, tree, leaf());
+    }
+
+    final var fields = new ArrayList<>(everything().fields());
+    fields.set(5, new CBDynamicField("tree", tree));
+    final var value =
+      new CBDynamicRecord(PACKAGE + ":Everything", List.copyOf(fields));
+
+    final var buffer = ByteBuffer.allocate(4096);
+    final var context = CBSerializationContextByteBuffer.create(buffer);
+    fast.execute(context, value);
+
+    final var data = new byte[context.position()];
+    buffer.get(0, data);
+    assertEquals(value, decode(slow, data));
+    assertEquals(value, decode(fast, data));
+  }
+
+  @Test
+  public void testProtocol()
+    throws Exception
+  {
+    final var codec =
+      this.bytecode.protocolCodecFor(this.pack, "Shapes", BigInteger.TWO);
+
+    final var buffer = ByteBuffer.allocate(1024);
+    codec.serialize(
+      CBSerializationContextByteBuffer.create(buffer),
+      everything()
+    );
+    assertEquals(
+      everything(),
+      codec.deserialize(CBSerializationContextByteBuffer.create(buffer))
+    );
+  }
+
+  @Test
+  public void testWrongScalar()
+  {
+    final var fast = this.bytecodeCodec("Point");
+
+    final var ex = assertThrows(IOException.class, () -> {
+      encode(fast, new CBDynamicRecord(
+        PACKAGE + ":Point",
+        List.of(
+          new CBDynamicField("x", new CBIntegerSigned32(1)),
+          new CBDynamicField("y", new CBString("y"))
+        )));
+    });
+
+    final var slowEx = assertThrows(IOException.class, () -> {
+      encode(this.interpretedCodec("Point"), new CBDynamicRecord(
+        PACKAGE + ":Point",
+        List.of(
+          new CBDynamicField("x", new CBIntegerSigned32(1)),
+          new CBDynamicField("y", new CBString("y"))
+        )));
+    });
+    assertEquals(slowEx.getMessage(), ex.getMessage());
+  }
+
+  @Test
+  public void testWrongFieldCount()
+  {
+    final var fast = this.bytecodeCodec("Point");
+
+    assertThrows(IOException.class, () -> {
+      encode(fast, new CBDynamicRecord(PACKAGE + ":Point", List.of()));
+    });
+  }
+
+  @Test
+  public void testWrongNested()
+  {
+    final var fast = this.bytecodeCodec("Shape");
+
+    assertThrows(IOException.class, () -> {
+      encode(fast, new CBDynamicVariant(
+        PACKAGE + ":Shape",
+        "Circle",
+        0,
+        List.of(
+          new CBDynamicField("centre", new CBString("x")),
+          new CBDynamicField("radius", new CBFloat64(2.5)))
+      ));
+    });
+  }
+
+  @Test
+  public void testUnsupportedExternal()
+  {
+    assertThrows(IllegalArgumentException.class, () -> {
+      this.bytecodeCodec("Opaque");
+    });
+  }
+}
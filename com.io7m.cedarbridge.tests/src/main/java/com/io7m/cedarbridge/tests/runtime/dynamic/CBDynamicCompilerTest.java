@@ -0,0 +1,496 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.cedarbridge.tests.runtime.dynamic;
+
+import com.io7m.cedarbridge.runtime.api.CBByteArray;
+import com.io7m.cedarbridge.runtime.api.CBFloat32;
+import com.io7m.cedarbridge.runtime.api.CBFloat64;
+import com.io7m.cedarbridge.runtime.api.CBIntegerSigned32;
+import com.io7m.cedarbridge.runtime.api.CBIntegerUnsigned16;
+import com.io7m.cedarbridge.runtime.api.CBIntegerUnsigned8;
+import com.io7m.cedarbridge.runtime.api.CBList;
+import com.io7m.cedarbridge.runtime.api.CBMap;
+import com.io7m.cedarbridge.runtime.api.CBNone;
+import com.io7m.cedarbridge.runtime.api.CBSerializableType;
+import com.io7m.cedarbridge.runtime.api.CBSerializationContextByteBuffer;
+import com.io7m.cedarbridge.runtime.api.CBSome;
+import com.io7m.cedarbridge.runtime.api.CBString;
+import com.io7m.cedarbridge.runtime.api.CBTrue;
+import com.io7m.cedarbridge.runtime.api.CBUUID;
+import com.io7m.cedarbridge.runtime.dynamic.CBDynamicCodec;
+import com.io7m.cedarbridge.runtime.dynamic.CBDynamicCompiler;
+import com.io7m.cedarbridge.runtime.dynamic.CBDynamicField;
+import com.io7m.cedarbridge.runtime.dynamic.CBDynamicRecord;
+import com.io7m.cedarbridge.runtime.dynamic.CBDynamicValueType;
+import com.io7m.cedarbridge.runtime.dynamic.CBDynamicVariant;
+import com.io7m.cedarbridge.runtime.time.CBDuration;
+import com.io7m.cedarbridge.schema.compiled.CBPackageType;
+import com.io7m.cedarbridge.schema.compiled.CBPackages;
+import com.io7m.cedarbridge.schema.compiled.CBRecordType;
+import com.io7m.cedarbridge.schema.compiled.CBTypeExpressionApplication;
+import com.io7m.cedarbridge.schema.core_types.CBCore;
+import com.io7m.cedarbridge.schema.time.CBTime;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public final class CBDynamicCompilerTest
+{
+  static final String PACKAGE =
+    "com.io7m.cedarbridge.tests.dynamic";
+
+  private CBPackageType pack;
+  private CBDynamicCompiler compiler;
+
+  /*
+   * record Point { x: IntegerSigned32, y: IntegerSigned32 }
+   * variant Shape { case Circle { centre: Point, radius: Float64 },
+   *                 case Polygon { points: List Point } }
+   * record Pair [A B] { first: A, second: B }
+   * variant Tree [T] { case Leaf, case Node { value: T,
+   *                                           children: List (Tree T) } }
+   * record Everything { ... }
+   * record Opaque { x: Unknown }
+   * protocol Shapes { version 1 { Point Shape }
+   *                   version 2 { Point Shape Everything } }
+   */
+
+  static CBPackageType createPackage()
+  {
+    final var core = CBCore.get();
+    final var time = CBTime.get();
+    final var builder = CBPackages.createPackage(PACKAGE);
+    builder.addImport(core);
+    builder.addImport(time);
+
+    final var s32 =
+      builder.referenceExternalType(core.types().get("IntegerSigned32"));
+    final var u8 =
+      builder.referenceExternalType(core.types().get("IntegerUnsigned8"));
+    final var u16 =
+      builder.referenceExternalType(core.types().get("IntegerUnsigned16"));
+    final var f32 =
+      builder.referenceExternalType(core.types().get("Float32"));
+    final var f64 =
+      builder.referenceExternalType(core.types().get("Float64"));
+    final var string =
+      builder.referenceExternalType(core.types().get("String"));
+    final var bytes =
+      builder.referenceExternalType(core.types().get("ByteArray"));
+    final var uuid =
+      builder.referenceExternalType(core.types().get("UUID"));
+    final var bool =
+      builder.referenceExternalType(core.types().get("Boolean"));
+    final var list =
+      builder.referenceExternalType(core.types().get("List"));
+    final var map =
+      builder.referenceExternalType(core.types().get("Map"));
+    final var option =
+      builder.referenceExternalType(core.types().get("Option"));
+    final var duration =
+      builder.referenceExternalType(time.types().get("Duration"));
+
+    final var point = builder.createRecord("Point");
+    point.createField("x", s32, List.of());
+    point.createField("y", s32, List.of());
+
+    final var shape = builder.createVariant("Shape");
+    shape.createCase("Circle")
+      .createField("centre", point.reference(), List.of())
+      .createField("radius", f64, List.of());
+    shape.createCase("Polygon")
+      .createField(
+        "points",
+        new CBTypeExpressionApplication(list, List.of(point.reference())),
+        List.of());
+
+    final var pair = builder.createRecord("Pair");
+    pair.addTypeParameter("A", List.of());
+    pair.addTypeParameter("B", List.of());
+    pair.createField("first", pair.referenceParameter("A"), List.of());
+    pair.createField("second", pair.referenceParameter("B"), List.of());
+
+    final var tree = builder.createVariant("Tree");
+    tree.addTypeParameter("T", List.of());
+    tree.createCase("Leaf");
+    tree.createCase("Node")
+      .createField("value", tree.referenceParameter("T"), List.of())
+      .createField(
+        "children",
+        new CBTypeExpressionApplication(
+          list,
+          List.of(new CBTypeExpressionApplication(
+            tree.reference(),
+            List.of(tree.referenceParameter("T"))))
+        ),
+        List.of());
+
+    final var everything = builder.createRecord("Everything");
+    everything.createField("name", string, List.of());
+    everything.createField(
+      "tags",
+      new CBTypeExpressionApplication(map, List.of(string, u8)),
+      List.of());
+    everything.createField(
+      "maybe",
+      new CBTypeExpressionApplication(option, List.of(uuid)),
+      List.of());
+    everything.createField("flag", bool, List.of());
+    everything.createField(
+      "pair",
+      new CBTypeExpressionApplication(pair.reference(), List.of(string, f32)),
+      List.of());
+    everything.createField(
+      "tree",
+      new CBTypeExpressionApplication(tree.reference(), List.of(u16)),
+      List.of());
+    everything.createField("data", bytes, List.of());
+    everything.createField("when", duration, List.of());
+
+    final var unknown =
+      builder.createExternalType("com.example", "Unknown", "Unknown");
+    final var opaque = builder.createRecord("Opaque");
+    opaque.createField("x", unknown.reference(), List.of());
+
+    final var protocol = builder.createProtocol("Shapes");
+    final var v1 = protocol.createVersion(BigInteger.ONE);
+    v1.addType(point.reference());
+    v1.addType(shape.reference());
+    final var v2 = protocol.createVersion(BigInteger.TWO);
+    v2.addType(point.reference());
+    v2.addType(shape.reference());
+    v2.addType(everything.reference());
+    return builder.build();
+  }
+
+  @BeforeEach
+  public void setup()
+  {
+    this.pack = createPackage();
+    this.compiler = new CBDynamicCompiler();
+  }
+
+  static CBDynamicRecord point(
+    final int x,
+    final int y)
+  {
+    return new CBDynamicRecord(
+      PACKAGE + ":Point",
+      List.of(
+        new CBDynamicField("x", new CBIntegerSigned32(x)),
+        new CBDynamicField("y", new CBIntegerSigned32(y))
+      )
+    );
+  }
+
+  static CBDynamicVariant leaf()
+  {
+    return new CBDynamicVariant(PACKAGE + ":Tree", "Leaf", 0, List.of());
+  }
+
+  static CBDynamicVariant node(
+    final int value,
+    final CBDynamicVariant... children)
+  {
+    return new CBDynamicVariant(
+      PACKAGE + ":Tree",
+      "Node",
+      1,
+      List.of(
+        new CBDynamicField("value", new CBIntegerUnsigned16(value)),
+        new CBDynamicField("children", new CBList<>(List.of(children)))
+      )
+    );
+  }
+
+  static CBDynamicRecord everything()
+  {
+    return new CBDynamicRecord(
+      PACKAGE + ":Everything",
+      List.of(
+        new CBDynamicField("name", new CBString("Everything")),
+        new CBDynamicField("tags", new CBMap<>(Map.of(
+          new CBString("a"), new CBIntegerUnsigned8(1)
+        ))),
+        new CBDynamicField("maybe", new CBSome<>(new CBUUID(
+          UUID.fromString("a6f4e3e5-7d7b-4b8e-9a39-3c3c1e1e2f2f")))),
+        new CBDynamicField("flag", new CBTrue()),
+        new CBDynamicField("pair", new CBDynamicRecord(
+          PACKAGE + ":Pair",
+          List.of(
+            new CBDynamicField("first", new CBString("x")),
+            new CBDynamicField("second", new CBFloat32(1.5))
+          ))),
+        new CBDynamicField("tree", node(1, node(2, leaf()), leaf())),
+        new CBDynamicField("data", new CBByteArray(
+          ByteBuffer.wrap(new byte[]{1, 2, 3}))),
+        new CBDynamicField("when", new CBDuration(Duration.ofSeconds(90L)))
+      )
+    );
+  }
+
+  static byte[] encode(
+    final CBDynamicCodec codec,
+    final CBSerializableType value)
+    throws IOException
+  {
+    final var buffer = ByteBuffer.allocate(1024);
+    final var context = CBSerializationContextByteBuffer.create(buffer);
+    codec.execute(context, value);
+    final var result = new byte[context.position()];
+    buffer.get(0, result);
+    return result;
+  }
+
+  static CBSerializableType decode(
+    final CBDynamicCodec codec,
+    final byte[] data)
+    throws IOException
+  {
+    final var context =
+      CBSerializationContextByteBuffer.create(ByteBuffer.wrap(data));
+    final var result = codec.execute(context);
+    assertEquals(0, context.remaining());
+    return result;
+  }
+
+  @Test
+  public void testRecordEncoding()
+    throws Exception
+  {
+    final var codec =
+      this.compiler.codecFor(this.pack.types().get("Point"));
+    assertEquals(PACKAGE + ":Point", codec.type());
+
+    final var data = encode(codec, point(1, -2));
+    assertArrayEquals(
+      new byte[]{
+        0, 0, 0, 1,
+        (byte) 0xff, (byte) 0xff, (byte) 0xff, (byte) 0xfe,
+      },
+      data
+    );
+    assertEquals(point(1, -2), decode(codec, data));
+  }
+
+  @Test
+  public void testVariantEncoding()
+    throws Exception
+  {
+    final var codec =
+      this.compiler.codecFor(this.pack.types().get("Shape"));
+
+    final var polygon =
+      new CBDynamicVariant(
+        PACKAGE + ":Shape",
+        "Polygon",
+        1,
+        List.of(new CBDynamicField(
+          "points",
+          new CBList<>(List.of(point(1, 2), point(3, 4)))))
+      );
+
+    /*
+     * The variant index, the list length, then two points.
+     */
+
+    final var expected = ByteBuffer.allocate(4 + 4 + 16);
+    expected.putInt(1);
+    expected.putInt(2);
+    expected.putInt(1).putInt(2).putInt(3).putInt(4);
+
+    final var data = encode(codec, polygon);
+    assertArrayEquals(expected.array(), data);
+    assertEquals(polygon, decode(codec, data));
+
+    final var circle =
+      new CBDynamicVariant(
+        PACKAGE + ":Shape",
+        "Circle",
+        0,
+        List.of(
+          new CBDynamicField("centre", point(5, 6)),
+          new CBDynamicField("radius", new CBFloat64(2.5)))
+      );
+    assertEquals(circle, decode(codec, encode(codec, circle)));
+  }
+
+  @Test
+  public void testEverythingRoundTrip()
+    throws Exception
+  {
+    final var codec =
+      this.compiler.codecFor(this.pack.types().get("Everything"));
+
+    final var value = everything();
+    final var data = encode(codec, value);
+    final var decoded = (CBDynamicRecord) decode(codec, data);
+    assertEquals(value, decoded);
+    assertArrayEquals(data, encode(codec, decoded));
+  }
+
+  @Test
+  public void testProtocolCodec()
+    throws Exception
+  {
+    final var codec =
+      this.compiler.protocolCodecFor(this.pack, "Shapes", BigInteger.TWO);
+
+    assertEquals(BigInteger.TWO, codec.version());
+    assertEquals(
+      this.pack.protocols().get("Shapes").id(),
+      codec.protocolId()
+    );
+
+    /*
+     * Message types are indexed in name order.
+     */
+
+    assertEquals(
+      List.of(
+        PACKAGE + ":Everything",
+        PACKAGE + ":Point",
+        PACKAGE + ":Shape"),
+      codec.messageCodecs()
+        .stream()
+        .map(CBDynamicCodec::type)
+        .toList()
+    );
+
+    final var buffer = ByteBuffer.allocate(64);
+    final var output = CBSerializationContextByteBuffer.create(buffer);
+    codec.serialize(output, point(7, 8));
+    assertEquals(12, output.position());
+    assertEquals(1, buffer.getInt(0));
+
+    final CBDynamicValueType received =
+      codec.deserialize(CBSerializationContextByteBuffer.create(buffer));
+    assertEquals(point(7, 8), received);
+
+    final var unknown =
+      new CBDynamicRecord(PACKAGE + ":Pair", List.of());
+    assertThrows(IOException.class, () -> {
+      codec.serialize(
+        CBSerializationContextByteBuffer.create(ByteBuffer.allocate(64)),
+        unknown
+      );
+    });
+  }
+
+  @Test
+  public void testProtocolUnknownIndex()
+  {
+    final var codec =
+      this.compiler.protocolCodecFor(this.pack, "Shapes", BigInteger.ONE);
+    final var buffer = ByteBuffer.allocate(16).putInt(0, 2);
+
+    assertThrows(IOException.class, () -> {
+      codec.deserialize(CBSerializationContextByteBuffer.create(buffer));
+    });
+  }
+
+  @Test
+  public void testProtocolMissing()
+  {
+    assertThrows(IllegalArgumentException.class, () -> {
+      this.compiler.protocolCodecFor(this.pack, "Nope", BigInteger.ONE);
+    });
+    assertThrows(IllegalArgumentException.class, () -> {
+      this.compiler.protocolCodecFor(this.pack, "Shapes", BigInteger.TEN);
+    });
+  }
+
+  @Test
+  public void testCached()
+  {
+    final var everything =
+      (CBRecordType) this.pack.types().get("Everything");
+    final var a = this.compiler.codecFor(everything);
+    final var b = this.compiler.codecFor(everything);
+    assertSame(a, b);
+
+    final var field = everything.fieldsByName().get("tree").type();
+    final var tree = this.compiler.codecFor(field);
+    assertEquals(
+      "(%s:Tree com.io7m.cedarbridge:IntegerUnsigned16)".formatted(PACKAGE),
+      tree.type()
+    );
+    assertSame(tree, this.compiler.codecFor(field));
+  }
+
+  @Test
+  public void testUnsupportedExternal()
+  {
+    final var ex =
+      assertThrows(IllegalArgumentException.class, () -> {
+        this.compiler.codecFor(this.pack.types().get("Opaque"));
+      });
+    assertTrue(ex.getMessage().contains("com.example.Unknown"));
+
+    /*
+     * A failed compilation leaves nothing behind in the cache.
+     */
+
+    assertThrows(IllegalArgumentException.class, () -> {
+      this.compiler.codecFor(this.pack.types().get("Opaque"));
+    });
+  }
+
+  @Test
+  public void testUnapplied()
+  {
+    assertThrows(IllegalArgumentException.class, () -> {
+      this.compiler.codecFor(this.pack.types().get("Pair"));
+    });
+  }
+
+  @Test
+  public void testWrongValue()
+  {
+    final var codec =
+      this.compiler.codecFor(this.pack.types().get("Point"));
+
+    assertThrows(IOException.class, () -> {
+      encode(codec, new CBString("x"));
+    });
+    assertThrows(IOException.class, () -> {
+      encode(codec, new CBDynamicRecord(PACKAGE + ":Point", List.of()));
+    });
+    assertThrows(IOException.class, () -> {
+      encode(codec, new CBDynamicRecord(
+        PACKAGE + ":Point",
+        List.of(
+          new CBDynamicField("x", new CBIntegerSigned32(1)),
+          new CBDynamicField("y", new CBNone<>())
+        )));
+    });
+  }
+}
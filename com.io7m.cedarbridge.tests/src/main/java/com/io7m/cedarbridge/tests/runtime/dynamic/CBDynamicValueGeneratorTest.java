@@ -0,0 +1,159 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.cedarbridge.tests.runtime.dynamic;
+
+import com.io7m.cedarbridge.runtime.dynamic.CBDynamicCompiler;
+import com.io7m.cedarbridge.runtime.dynamic.CBDynamicValueGenerator;
+import com.io7m.cedarbridge.runtime.dynamic.CBDynamicVariant;
+import com.io7m.cedarbridge.schema.compiled.CBPackageType;
+import com.io7m.cedarbridge.schema.compiled.CBRecordType;
+import com.io7m.cedarbridge.schema.core_types.CBCore;
+import com.io7m.cedarbridge.schema.time.CBTime;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.stream.Stream;
+
+import static com.io7m.cedarbridge.tests.runtime.dynamic.CBDynamicCompilerTest.decode;
+import static com.io7m.cedarbridge.tests.runtime.dynamic.CBDynamicCompilerTest.encode;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public final class CBDynamicValueGeneratorTest
+{
+  private static final List<String> TYPES =
+    List.of("Point", "Shape", "Everything");
+
+  private CBPackageType pack;
+  private CBDynamicCompiler compiler;
+
+  @BeforeEach
+  public void setup()
+  {
+    this.pack = CBDynamicCompilerTest.createPackage();
+    this.compiler = new CBDynamicCompiler();
+  }
+
+  @Test
+  public void testGeneratedValuesRoundTrip()
+    throws Exception
+  {
+    final var generator =
+      new CBDynamicValueGenerator(new SplittableRandom(0L));
+
+    for (final var name : TYPES) {
+      final var type = this.pack.types().get(name);
+      final var codec = this.compiler.codecFor(type);
+      for (int index = 0; index < 200; ++index) {
+        final var value = generator.generate(type);
+        assertEquals(value, decode(codec, encode(codec, value)));
+      }
+    }
+  }
+
+  @Test
+  public void testGeneratedExpressionsRoundTrip()
+    throws Exception
+  {
+    final var generator =
+      new CBDynamicValueGenerator(new SplittableRandom(1L));
+    final var everything =
+      (CBRecordType) this.pack.types().get("Everything");
+
+    for (final var field : everything.fields()) {
+      final var codec = this.compiler.codecFor(field.type());
+      for (int index = 0; index < 50; ++index) {
+        final var value = generator.generate(field.type());
+        assertEquals(value, decode(codec, encode(codec, value)));
+      }
+    }
+  }
+
+  @Test
+  public void testGeneratedScalarsRoundTrip()
+    throws Exception
+  {
+    final var generator =
+      new CBDynamicValueGenerator(new SplittableRandom(2L));
+
+    final var types =
+      Stream.of(CBCore.get(), CBTime.get())
+        .flatMap(p -> p.types().values().stream())
+        .filter(t -> t.arity() == 0)
+        .toList();
+
+    assertTrue(types.size() > 20);
+    for (final var type : types) {
+      final var codec = this.compiler.codecFor(type);
+      for (int index = 0; index < 100; ++index) {
+        final var value = generator.generate(type);
+        assertEquals(value, decode(codec, encode(codec, value)));
+      }
+    }
+  }
+
+  @Test
+  public void testDeterministic()
+  {
+    final var type = this.pack.types().get("Everything");
+    final var a = new CBDynamicValueGenerator(new SplittableRandom(23L));
+    final var b = new CBDynamicValueGenerator(new SplittableRandom(23L));
+
+    for (int index = 0; index < 20; ++index) {
+      assertEquals(a.generate(type), b.generate(type));
+    }
+  }
+
+  @Test
+  public void testDepthLimit()
+  {
+    final var tree =
+      ((CBRecordType) this.pack.types().get("Everything"))
+        .fieldsByName()
+        .get("tree")
+        .type();
+
+    final var generator =
+      new CBDynamicValueGenerator(new SplittableRandom(0L), 8, 0);
+
+    for (int index = 0; index < 20; ++index) {
+      final var value = (CBDynamicVariant) generator.generate(tree);
+      assertEquals("Leaf", value.caseName());
+    }
+  }
+
+  @Test
+  public void testUnsupported()
+  {
+    final var generator =
+      new CBDynamicValueGenerator(new SplittableRandom(0L));
+
+    assertThrows(IllegalArgumentException.class, () -> {
+      generator.generate(this.pack.types().get("Opaque"));
+    });
+    assertThrows(IllegalArgumentException.class, () -> {
+      generator.generate(this.pack.types().get("Pair"));
+    });
+    assertThrows(IllegalArgumentException.class, () -> {
+      new CBDynamicValueGenerator(new SplittableRandom(0L), -1, 0);
+    });
+  }
+}
@@ -0,0 +1,616 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.cedarbridge.tests.runtime.journal;
+
+import com.io7m.cedarbridge.runtime.api.CBProtocolCoordinates;
+import com.io7m.cedarbridge.runtime.api.CBProtocolMessageType;
+import com.io7m.cedarbridge.runtime.api.CBProtocolMessageVersionedSerializerType;
+import com.io7m.cedarbridge.runtime.api.CBProtocolType;
+import com.io7m.cedarbridge.runtime.api.CBSerializationException;
+import com.io7m.cedarbridge.runtime.api.CBSerializationContextType;
+import com.io7m.cedarbridge.runtime.journal.CBJournalConfiguration;
+import com.io7m.cedarbridge.runtime.journal.CBJournalEntry;
+import com.io7m.cedarbridge.runtime.journal.CBJournalReader;
+import com.io7m.cedarbridge.runtime.journal.CBJournalWriter;
+import com.io7m.cedarbridge.tests.CBTestDirectories;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.UUID;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public final class CBJournalTest
+{
+  private static final Instant START =
+    Instant.parse("2024-01-01T00:00:00Z");
+
+  private Path directory;
+  private SteppingClock clock;
+  private Protocol protocol;
+
+  private record Message(
+    long number,
+    String text)
+    implements CBProtocolMessageType
+  {
+
+  }
+
+  private static final class SteppingClock extends Clock
+  {
+    private Instant time;
+
+    SteppingClock(
+      final Instant inTime)
+    {
+      this.time = inTime;
+    }
+
+    @Override
+    public ZoneId getZone()
+    {
+      return ZoneOffset.UTC;
+    }
+
+    @Override
+    public Clock withZone(
+      final ZoneId zone)
+    {
+      return this;
+    }
+
+    @Override
+    public Instant instant()
+    {
+      final var result = this.time;
+      this.time = this.time.plusSeconds(1L);
+      return result;
+    }
+  }
+
+  private static final class MessageSerializer
+    implements CBProtocolMessageVersionedSerializerType<Message>
+  {
+    private final BigInteger version;
+
+    MessageSerializer(
+      final long inVersion)
+    {
+      this.version = BigInteger.valueOf(inVersion);
+    }
+
+    @Override
+    public BigInteger version()
+    {
+      return this.version;
+    }
+
+    @Override
+    public Class<Message> messageClass()
+    {
+      return Message.class;
+    }
+
+    @Override
+    public void serialize(
+      final CBSerializationContextType context,
+      final Message value)
+      throws IOException
+    {
+      context.writeU32(value.number());
+      context.writeUTF8(value.text());
+    }
+
+    @Override
+    public Message deserialize(
+      final CBSerializationContextType context)
+      throws IOException
+    {
+      return new Message(context.readU32(), context.readUTF8());
+    }
+  }
+
+  private static final class FailingSerializer
+    implements CBProtocolMessageVersionedSerializerType<Message>
+  {
+    FailingSerializer()
+    {
+
+    }
+
+    @Override
+    public BigInteger version()
+    {
+      return BigInteger.ONE;
+    }
+
+    @Override
+    public Class<Message> messageClass()
+    {
+      return Message.class;
+    }
+
+    @Override
+    public void serialize(
+      final CBSerializationContextType context,
+      final Message value)
+      throws IOException
+    {
+      context.writeU32(value.number());
+      throw new CBSerializationException("Unserializable", 4L, "");
+    }
+
+    @Override
+    public Message deserialize(
+      final CBSerializationContextType context)
+    {
+      throw new UnsupportedOperationException();
+    }
+  }
+
+  private static final class Protocol
+    implements CBProtocolType<Message>
+  {
+    private final UUID id;
+    private final TreeMap<BigInteger, MessageSerializer> serializers;
+
+    Protocol(
+      final String name,
+      final long... versions)
+    {
+      this.id = UUID.nameUUIDFromBytes(name.getBytes(UTF_8));
+      this.serializers = new TreeMap<>();
+      for (final var version : versions) {
+        final var serializer = new MessageSerializer(version);
+        this.serializers.put(serializer.version(), serializer);
+      }
+    }
+
+    MessageSerializer serializer(
+      final long version)
+    {
+      return this.serializers.get(BigInteger.valueOf(version));
+    }
+
+    @Override
+    public Class<Message> messageClass()
+    {
+      return Message.class;
+    }
+
+    @Override
+    public UUID protocolId()
+    {
+      return this.id;
+    }
+
+    @Override
+    public Optional<CBProtocolMessageVersionedSerializerType<Message>>
+    serializerForMessageClass(
+      final Class<Message> messageClass)
+    {
+      return Optional.empty();
+    }
+
+    @Override
+    public Optional<CBProtocolMessageVersionedSerializerType<Message>>
+    serializerForProtocolVersion(
+      final BigInteger version)
+    {
+      return Optional.ofNullable(this.serializers.get(version));
+    }
+
+    @Override
+    public SortedSet<CBProtocolCoordinates> protocols()
+    {
+      return new TreeSet<>(
+        this.serializers.keySet()
+          .stream()
+          .map(v -> new CBProtocolCoordinates(this.id, v))
+          .toList()
+      );
+    }
+
+    @Override
+    public SortedSet<BigInteger> protocolVersions()
+    {
+      return new TreeSet<>(this.serializers.keySet());
+    }
+  }
+
+  @BeforeEach
+  public void setup()
+    throws Exception
+  {
+    this.directory = CBTestDirectories.createTempDirectory();
+    this.clock = new SteppingClock(START);
+    this.protocol = new Protocol("P", 1L, 2L);
+  }
+
+  @AfterEach
+  public void tearDown()
+    throws IOException
+  {
+    CBTestDirectories.deleteDirectory(this.directory);
+  }
+
+  private CBJournalWriter writer()
+    throws IOException
+  {
+    return CBJournalWriter.open(
+      new CBJournalConfiguration(this.directory, 4096, 256, this.clock)
+    );
+  }
+
+  private static Message messageOf(
+    final long index)
+  {
+    return new Message(index, "Message " + index);
+  }
+
+  private static <T> List<T> listOf(
+    final Iterator<T> iterator)
+  {
+    final var results = new ArrayList<T>();
+    iterator.forEachRemaining(results::add);
+    return results;
+  }
+
+  private void appendMessages(
+    final CBJournalWriter writer,
+    final long first,
+    final long count)
+    throws IOException
+  {
+    for (long index = first; index < first + count; ++index) {
+      assertEquals(
+        index,
+        writer.append(
+          this.protocol.protocolId(),
+          this.protocol.serializer(2L),
+          messageOf(index)
+        )
+      );
+    }
+  }
+
+  @Test
+  public void testAppendReplayRollover()
+    throws Exception
+  {
+    try (var writer = this.writer()) {
+      this.appendMessages(writer, 0L, 1000L);
+    }
+
+    try (var files = Files.list(this.directory)) {
+      assertTrue(
+        files.filter(p -> p.toString().endsWith(".journal")).count() > 1L);
+    }
+
+    try (var reader = CBJournalReader.open(this.directory)) {
+      final var entries = listOf(reader.replay(this.protocol, 0L));
+      assertEquals(1000, entries.size());
+      for (int index = 0; index < 1000; ++index) {
+        final var entry = entries.get(index);
+        assertEquals(index, entry.sequence());
+        assertEquals(2L, entry.protocolVersion());
+        assertEquals(START.plusSeconds(index), entry.time());
+        assertEquals(messageOf(index), entry.message());
+      }
+    }
+  }
+
+  @Test
+  public void testSeekSequence()
+    throws Exception
+  {
+    try (var writer = this.writer()) {
+      this.appendMessages(writer, 0L, 1000L);
+    }
+
+    try (var reader = CBJournalReader.open(this.directory)) {
+      for (final var start : new long[]{0L, 1L, 255L, 537L, 999L}) {
+        final var entries = listOf(reader.replay(this.protocol, start));
+        assertEquals(1000L - start, entries.size());
+        assertEquals(start, entries.get(0).sequence());
+      }
+      assertFalse(reader.replay(this.protocol, 1000L).hasNext());
+    }
+  }
+
+  @Test
+  public void testSeekTime()
+    throws Exception
+  {
+    try (var writer = this.writer()) {
+      this.appendMessages(writer, 0L, 1000L);
+    }
+
+    try (var reader = CBJournalReader.open(this.directory)) {
+      assertEquals(0L, reader.sequenceAt(Instant.EPOCH).getAsLong());
+      assertEquals(0L, reader.sequenceAt(START).getAsLong());
+      assertEquals(
+        612L,
+        reader.sequenceAt(START.plus(Duration.ofMillis(611_500L)))
+          .getAsLong()
+      );
+      assertEquals(
+        999L,
+        reader.sequenceAt(START.plusSeconds(999L)).getAsLong()
+      );
+      assertTrue(reader.sequenceAt(START.plusSeconds(1000L)).isEmpty());
+
+      final var entries =
+        listOf(reader.replay(this.protocol, START.plusSeconds(300L)));
+      assertEquals(700, entries.size());
+      assertEquals(300L, entries.get(0).sequence());
+    }
+  }
+
+  @Test
+  public void testReopenContinues()
+    throws Exception
+  {
+    try (var writer = this.writer()) {
+      this.appendMessages(writer, 0L, 10L);
+    }
+    try (var writer = this.writer()) {
+      assertEquals(10L, writer.nextSequence());
+      this.appendMessages(writer, 10L, 10L);
+    }
+
+    try (var reader = CBJournalReader.open(this.directory)) {
+      final var entries = listOf(reader.replay(this.protocol, 0L));
+      assertEquals(20, entries.size());
+      for (int index = 0; index < 20; ++index) {
+        assertEquals(messageOf(index), entries.get(index).message());
+      }
+    }
+  }
+
+  @Test
+  public void testRecoverTornFrame()
+    throws Exception
+  {
+    try (var writer = this.writer()) {
+      this.appendMessages(writer, 0L, 10L);
+    }
+
+    /*
+     * Damage the last frame's payload so that its checksum fails. Each
+     * frame occupies 72 octets after the 32 octet segment header.
+     */
+
+    final var file = this.directory.resolve("00000000000000000000.journal");
+    final var lastOffset = 32 + (9 * 72);
+
+    try (var channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+      channel.write(ByteBuffer.wrap(new byte[]{0x7f}), lastOffset + 60L);
+    }
+
+    try (var writer = this.writer()) {
+      assertEquals(9L, writer.nextSequence());
+      writer.append(
+        this.protocol.protocolId(),
+        this.protocol.serializer(1L),
+        new Message(99L, "Replacement")
+      );
+    }
+
+    try (var reader = CBJournalReader.open(this.directory)) {
+      final var entries = listOf(reader.replay(this.protocol, 0L));
+      assertEquals(10, entries.size());
+      assertEquals(new Message(99L, "Replacement"), entries.get(9).message());
+      assertEquals(1L, entries.get(9).protocolVersion());
+    }
+  }
+
+  @Test
+  public void testCorruptFrameReported()
+    throws Exception
+  {
+    try (var writer = this.writer()) {
+      this.appendMessages(writer, 0L, 1000L);
+    }
+
+    /*
+     * Damage a frame in the middle of the first segment, which is not the
+     * last segment and so cannot hold an interrupted append.
+     */
+
+    final var file = this.directory.resolve("00000000000000000000.journal");
+    final var offset = 32 + (5 * 72);
+
+    try (var channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+      channel.write(ByteBuffer.wrap(new byte[]{0x7f}), offset + 60L);
+    }
+
+    try (var reader = CBJournalReader.open(this.directory)) {
+      final var ex = assertThrows(UncheckedIOException.class, () -> {
+        listOf(reader.records(0L));
+      });
+      assertTrue(ex.getMessage().contains("corrupt frame at offset 392"));
+    }
+  }
+
+  @Test
+  public void testSerializationErrorDoesNotRoll()
+    throws Exception
+  {
+    final var failing = new FailingSerializer();
+
+    try (var writer = this.writer()) {
+      this.appendMessages(writer, 0L, 1L);
+      assertThrows(CBSerializationException.class, () -> {
+        writer.append(this.protocol.protocolId(), failing, messageOf(1L));
+      });
+      assertEquals(1L, writer.nextSequence());
+      this.appendMessages(writer, 1L, 1L);
+    }
+
+    try (var files = Files.list(this.directory)) {
+      assertEquals(
+        1L,
+        files.filter(p -> p.toString().endsWith(".journal")).count()
+      );
+    }
+
+    try (var reader = CBJournalReader.open(this.directory)) {
+      assertEquals(
+        List.of(messageOf(0L), messageOf(1L)),
+        listOf(reader.replay(this.protocol, 0L))
+          .stream()
+          .map(CBJournalEntry::message)
+          .toList()
+      );
+    }
+  }
+
+  @Test
+  public void testOtherProtocolsSkipped()
+    throws Exception
+  {
+    final var other = new Protocol("Q", 1L);
+
+    try (var writer = this.writer()) {
+      for (long index = 0L; index < 10L; ++index) {
+        final var p = (index % 2L == 0L) ? this.protocol : other;
+        writer.append(p.protocolId(), p.serializer(1L), messageOf(index));
+      }
+    }
+
+    try (var reader = CBJournalReader.open(this.directory)) {
+      assertEquals(
+        List.of(0L, 2L, 4L, 6L, 8L),
+        listOf(reader.replay(this.protocol, 0L))
+          .stream()
+          .map(CBJournalEntry::sequence)
+          .toList()
+      );
+      assertEquals(
+        List.of(1L, 3L, 5L, 7L, 9L),
+        listOf(reader.replay(other, 0L))
+          .stream()
+          .map(CBJournalEntry::sequence)
+          .toList()
+      );
+      assertEquals(10, listOf(reader.records(0L)).size());
+    }
+  }
+
+  @Test
+  public void testUnsupportedVersion()
+    throws Exception
+  {
+    try (var writer = this.writer()) {
+      this.appendMessages(writer, 0L, 1L);
+    }
+
+    try (var reader = CBJournalReader.open(this.directory)) {
+      final var iterator =
+        reader.replay(new Protocol("P", 1L), 0L);
+      assertTrue(iterator.hasNext());
+      assertThrows(UncheckedIOException.class, iterator::next);
+    }
+  }
+
+  @Test
+  public void testAppendEncoded()
+    throws Exception
+  {
+    final var id = UUID.randomUUID();
+    final var payload = ByteBuffer.wrap(new byte[]{1, 2, 3, 4, 5});
+
+    try (var writer = this.writer()) {
+      for (int index = 0; index < 200; ++index) {
+        writer.appendEncoded(id, 3L, payload);
+      }
+      assertThrows(IOException.class, () -> {
+        writer.appendEncoded(id, 3L, ByteBuffer.allocate(4096));
+      });
+    }
+
+    try (var reader = CBJournalReader.open(this.directory)) {
+      final var records = listOf(reader.records(0L));
+      assertEquals(200, records.size());
+      for (final var record : records) {
+        assertEquals(id, record.protocolId());
+        assertEquals(3L, record.protocolVersion());
+        assertEquals(payload, record.payload());
+      }
+    }
+  }
+
+  @Test
+  public void testMessageTooLarge()
+    throws Exception
+  {
+    try (var writer = this.writer()) {
+      writer.append(
+        this.protocol.protocolId(),
+        this.protocol.serializer(1L),
+        messageOf(0L)
+      );
+      assertThrows(IOException.class, () -> {
+        writer.append(
+          this.protocol.protocolId(),
+          this.protocol.serializer(1L),
+          new Message(1L, "x".repeat(8192))
+        );
+      });
+      assertEquals(1L, writer.nextSequence());
+    }
+  }
+
+  @Test
+  public void testConfigurationInvalid()
+  {
+    assertThrows(IllegalArgumentException.class, () -> {
+      new CBJournalConfiguration(this.directory, 1024, 256, this.clock);
+    });
+    assertThrows(IllegalArgumentException.class, () -> {
+      new CBJournalConfiguration(this.directory, 4096, 0, this.clock);
+    });
+  }
+}
@@ -0,0 +1,500 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.cedarbridge.tests.runtime.multiplex;
+
+import com.io7m.cedarbridge.runtime.api.CBProtocolMessageType;
+import com.io7m.cedarbridge.runtime.api.CBProtocolMessageVersionedSerializerType;
+import com.io7m.cedarbridge.runtime.api.CBSerializationContextType;
+import com.io7m.cedarbridge.runtime.multiplex.CBMultiplexHandlerType;
+import com.io7m.cedarbridge.runtime.multiplex.CBMultiplexRemoteException;
+import com.io7m.cedarbridge.runtime.multiplex.CBMultiplexedConnection;
+import com.io7m.jbssio.vanilla.BSSReaders;
+import com.io7m.jbssio.vanilla.BSSWriters;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.io.IOException;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@Timeout(value = 30L, unit = TimeUnit.SECONDS)
+public final class CBMultiplexedConnectionTest
+{
+  private ExecutorService executor;
+  private CBMultiplexedConnection<Message> client;
+  private CBMultiplexedConnection<Message> server;
+
+  private record Message(
+    long number,
+    String text)
+    implements CBProtocolMessageType
+  {
+
+  }
+
+  /**
+   * A message number that the serializer refuses to decode.
+   */
+
+  private static final long UNDECODABLE = 0xffff_ffffL;
+
+  private static final class MessageSerializer
+    implements CBProtocolMessageVersionedSerializerType<Message>
+  {
+    MessageSerializer()
+    {
+
+    }
+
+    @Override
+    public BigInteger version()
+    {
+      return BigInteger.ONE;
+    }
+
+    @Override
+    public Class<Message> messageClass()
+    {
+      return Message.class;
+    }
+
+    @Override
+    public void serialize(
+      final CBSerializationContextType context,
+      final Message value)
+      throws IOException
+    {
+      context.writeU32(value.number());
+      context.writeUTF8(value.text());
+    }
+
+    @Override
+    public Message deserialize(
+      final CBSerializationContextType context)
+      throws IOException
+    {
+      final var number = context.readU32();
+      final var text = context.readUTF8();
+      if (number == UNDECODABLE) {
+        throw new IOException("Undecodable " + text);
+      }
+      return new Message(number, text);
+    }
+  }
+
+  private void connect(
+    final CBMultiplexHandlerType<Message> serverHandler)
+    throws IOException
+  {
+    final var clientOut = new PipedOutputStream();
+    final var serverIn = new PipedInputStream(clientOut, 65536);
+    final var serverOut = new PipedOutputStream();
+    final var clientIn = new PipedInputStream(serverOut, 65536);
+
+    final var readers = new BSSReaders();
+    final var writers = new BSSWriters();
+
+    this.client =
+      new CBMultiplexedConnection<>(
+        readers,
+        writers,
+        clientIn,
+        clientOut,
+        new MessageSerializer(),
+        new CBMultiplexHandlerType<>() { }
+      );
+    this.server =
+      new CBMultiplexedConnection<>(
+        readers,
+        writers,
+        serverIn,
+        serverOut,
+        new MessageSerializer(),
+        serverHandler
+      );
+
+    this.client.start(this.executor);
+    this.server.start(this.executor);
+  }
+
+  @BeforeEach
+  public void setup()
+  {
+    this.executor = Executors.newCachedThreadPool();
+  }
+
+  @AfterEach
+  public void tearDown()
+    throws IOException
+  {
+    if (this.client != null) {
+      this.client.close();
+    }
+    if (this.server != null) {
+      this.server.close();
+    }
+    this.executor.shutdownNow();
+  }
+
+  @Test
+  public void testResponsesOutOfOrder()
+    throws Exception
+  {
+    final var count = 100;
+    final var arrived = new CountDownLatch(count);
+    final var replies =
+      new CopyOnWriteArrayList<CompletableFuture<Message>>();
+    final var requests =
+      new CopyOnWriteArrayList<Message>();
+
+    this.connect(new CBMultiplexHandlerType<>()
+    {
+      @Override
+      public CompletionStage<Message> onRequest(
+        final Message request)
+      {
+        final var reply = new CompletableFuture<Message>();
+        requests.add(request);
+        replies.add(reply);
+        arrived.countDown();
+        return reply;
+      }
+    });
+
+    final var futures = new ArrayList<CompletableFuture<Message>>();
+    for (int index = 0; index < count; ++index) {
+      futures.add(this.client.request(new Message(index, "x" + index)));
+    }
+
+    assertTrue(arrived.await(10L, TimeUnit.SECONDS));
+    assertEquals(count, this.client.pendingRequests());
+
+    for (int index = count - 1; index >= 0; --index) {
+      final var request = requests.get(index);
+      replies.get(index)
+        .complete(new Message(request.number() * 2L, request.text()));
+    }
+
+    for (int index = 0; index < count; ++index) {
+      final var response = futures.get(index).get(10L, TimeUnit.SECONDS);
+      assertEquals(index * 2L, response.number());
+      assertEquals("x" + index, response.text());
+    }
+    assertEquals(0, this.client.pendingRequests());
+  }
+
+  @Test
+  public void testResponseError()
+    throws Exception
+  {
+    this.connect(new CBMultiplexHandlerType<>()
+    {
+      @Override
+      public CompletionStage<Message> onRequest(
+        final Message request)
+      {
+        return CompletableFuture.failedFuture(
+          new IllegalStateException("Refused " + request.text())
+        );
+      }
+    });
+
+    final var ex =
+      assertThrows(ExecutionException.class, () -> {
+        this.client.request(new Message(1L, "a"))
+          .get(10L, TimeUnit.SECONDS);
+      });
+
+    final var cause =
+      assertInstanceOf(CBMultiplexRemoteException.class, ex.getCause());
+    assertEquals("Refused a", cause.getMessage());
+    assertEquals(0, this.client.pendingRequests());
+  }
+
+  @Test
+  public void testRequestHandlerThrows()
+    throws Exception
+  {
+    this.connect(new CBMultiplexHandlerType<>()
+    {
+      @Override
+      public CompletionStage<Message> onRequest(
+        final Message request)
+      {
+        if ("throw".equals(request.text())) {
+          throw new IllegalStateException("Thrown " + request.text());
+        }
+        return CompletableFuture.completedFuture(request);
+      }
+    });
+
+    final var ex =
+      assertThrows(ExecutionException.class, () -> {
+        this.client.request(new Message(1L, "throw"))
+          .get(10L, TimeUnit.SECONDS);
+      });
+
+    final var cause =
+      assertInstanceOf(CBMultiplexRemoteException.class, ex.getCause());
+    assertEquals("Thrown throw", cause.getMessage());
+
+    final var after =
+      this.client.request(new Message(2L, "b"))
+        .get(10L, TimeUnit.SECONDS);
+    assertEquals(new Message(2L, "b"), after);
+    assertEquals(0, this.client.pendingRequests());
+  }
+
+  @Test
+  public void testRequestUndecodable()
+    throws Exception
+  {
+    final var handled = new CopyOnWriteArrayList<Message>();
+
+    this.connect(new CBMultiplexHandlerType<>()
+    {
+      @Override
+      public CompletionStage<Message> onRequest(
+        final Message request)
+      {
+        handled.add(request);
+        return CompletableFuture.completedFuture(request);
+      }
+    });
+
+    final var ex =
+      assertThrows(ExecutionException.class, () -> {
+        this.client.request(new Message(UNDECODABLE, "a"))
+          .get(10L, TimeUnit.SECONDS);
+      });
+
+    final var cause =
+      assertInstanceOf(CBMultiplexRemoteException.class, ex.getCause());
+    assertEquals("Undecodable a", cause.getMessage());
+
+    final var after =
+      this.client.request(new Message(2L, "b"))
+        .get(10L, TimeUnit.SECONDS);
+    assertEquals(new Message(2L, "b"), after);
+    assertEquals(List.of(new Message(2L, "b")), handled);
+    assertEquals(0, this.client.pendingRequests());
+  }
+
+  @Test
+  public void testResponseUndecodable()
+    throws Exception
+  {
+    this.connect(new CBMultiplexHandlerType<>()
+    {
+      @Override
+      public CompletionStage<Message> onRequest(
+        final Message request)
+      {
+        if ("bad".equals(request.text())) {
+          return CompletableFuture.completedFuture(
+            new Message(UNDECODABLE, request.text())
+          );
+        }
+        return CompletableFuture.completedFuture(request);
+      }
+    });
+
+    final var ex =
+      assertThrows(ExecutionException.class, () -> {
+        this.client.request(new Message(1L, "bad"))
+          .get(10L, TimeUnit.SECONDS);
+      });
+
+    final var cause =
+      assertInstanceOf(IOException.class, ex.getCause());
+    assertEquals("Undecodable bad", cause.getMessage());
+    assertEquals(0, this.client.pendingRequests());
+
+    final var after =
+      this.client.request(new Message(2L, "b"))
+        .get(10L, TimeUnit.SECONDS);
+    assertEquals(new Message(2L, "b"), after);
+  }
+
+  @Test
+  public void testMessages()
+    throws Exception
+  {
+    final var received = new CopyOnWriteArrayList<Message>();
+    final var arrived = new CountDownLatch(3);
+
+    this.connect(new CBMultiplexHandlerType<>()
+    {
+      @Override
+      public void onMessage(
+        final Message message)
+      {
+        received.add(message);
+        arrived.countDown();
+      }
+    });
+
+    this.client.send(new Message(1L, "a"));
+    this.client.send(new Message(2L, "b"));
+    this.client.send(new Message(3L, "c"));
+
+    assertTrue(arrived.await(10L, TimeUnit.SECONDS));
+    assertEquals(
+      List.of(
+        new Message(1L, "a"),
+        new Message(2L, "b"),
+        new Message(3L, "c")),
+      received
+    );
+  }
+
+  @Test
+  public void testMessageFailures()
+    throws Exception
+  {
+    final var received = new CopyOnWriteArrayList<Message>();
+    final var arrived = new CountDownLatch(1);
+
+    this.connect(new CBMultiplexHandlerType<>()
+    {
+      @Override
+      public CompletionStage<Message> onRequest(
+        final Message request)
+      {
+        return CompletableFuture.completedFuture(request);
+      }
+
+      @Override
+      public void onMessage(
+        final Message message)
+      {
+        if ("throw".equals(message.text())) {
+          throw new IllegalStateException("Thrown " + message.text());
+        }
+        received.add(message);
+        arrived.countDown();
+      }
+    });
+
+    this.client.send(new Message(UNDECODABLE, "a"));
+    this.client.send(new Message(1L, "throw"));
+    this.client.send(new Message(2L, "b"));
+
+    assertTrue(arrived.await(10L, TimeUnit.SECONDS));
+    assertEquals(List.of(new Message(2L, "b")), received);
+
+    final var after =
+      this.client.request(new Message(3L, "c"))
+        .get(10L, TimeUnit.SECONDS);
+    assertEquals(new Message(3L, "c"), after);
+  }
+
+  @Test
+  public void testResponseErrorTruncated()
+    throws Exception
+  {
+    final var maximum = CBMultiplexedConnection.MAXIMUM_PAYLOAD_SIZE;
+
+    this.connect(new CBMultiplexHandlerType<>()
+    {
+      @Override
+      public CompletionStage<Message> onRequest(
+        final Message request)
+      {
+        if ("long".equals(request.text())) {
+          return CompletableFuture.failedFuture(
+            new IllegalStateException("a" + "\u00e9".repeat(maximum / 2))
+          );
+        }
+        return CompletableFuture.completedFuture(request);
+      }
+    });
+
+    final var ex =
+      assertThrows(ExecutionException.class, () -> {
+        this.client.request(new Message(1L, "long"))
+          .get(20L, TimeUnit.SECONDS);
+      });
+
+    final var cause =
+      assertInstanceOf(CBMultiplexRemoteException.class, ex.getCause());
+    final var text = cause.getMessage();
+    assertEquals(maximum - 1, text.getBytes(UTF_8).length);
+    assertTrue(text.endsWith("\u00e9"));
+
+    final var after =
+      this.client.request(new Message(2L, "b"))
+        .get(10L, TimeUnit.SECONDS);
+    assertEquals(new Message(2L, "b"), after);
+  }
+
+  @Test
+  public void testCloseFailsPending()
+    throws Exception
+  {
+    final var arrived = new CountDownLatch(1);
+
+    this.connect(new CBMultiplexHandlerType<>()
+    {
+      @Override
+      public CompletionStage<Message> onRequest(
+        final Message request)
+      {
+        arrived.countDown();
+        return new CompletableFuture<>();
+      }
+    });
+
+    final var future = this.client.request(new Message(1L, "a"));
+    assertTrue(arrived.await(10L, TimeUnit.SECONDS));
+
+    this.client.close();
+
+    final var ex =
+      assertThrows(ExecutionException.class, () -> {
+        future.get(10L, TimeUnit.SECONDS);
+      });
+    assertInstanceOf(IOException.class, ex.getCause());
+    assertEquals(0, this.client.pendingRequests());
+
+    final var after = this.client.request(new Message(2L, "b"));
+    assertTrue(after.isCompletedExceptionally());
+    assertThrows(IOException.class, () -> {
+      this.client.send(new Message(3L, "c"));
+    });
+  }
+}
@@ -0,0 +1,479 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.cedarbridge.tests.runtime.shared_memory;
+
+import com.io7m.cedarbridge.runtime.api.CBProtocolCoordinates;
+import com.io7m.cedarbridge.runtime.api.CBProtocolMessageType;
+import com.io7m.cedarbridge.runtime.api.CBProtocolMessageVersionedSerializerType;
+import com.io7m.cedarbridge.runtime.api.CBProtocolType;
+import com.io7m.cedarbridge.runtime.api.CBSerializationContextType;
+import com.io7m.cedarbridge.runtime.shared_memory.CBSharedMemoryChannel;
+import com.io7m.cedarbridge.runtime.shared_memory.CBSharedMemoryConnection;
+import com.io7m.cedarbridge.tests.CBTestDirectories;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@Timeout(value = 30L, unit = TimeUnit.SECONDS)
+public final class CBSharedMemoryChannelTest
+{
+  private Path directory;
+  private Path file;
+  private ExecutorService executor;
+
+  private record Message(
+    long number,
+    String text)
+    implements CBProtocolMessageType
+  {
+
+  }
+
+  private static final class MessageSerializer
+    implements CBProtocolMessageVersionedSerializerType<Message>
+  {
+    private final BigInteger version;
+
+    MessageSerializer(
+      final long inVersion)
+    {
+      this.version = BigInteger.valueOf(inVersion);
+    }
+
+    @Override
+    public BigInteger version()
+    {
+      return this.version;
+    }
+
+    @Override
+    public Class<Message> messageClass()
+    {
+      return Message.class;
+    }
+
+    @Override
+    public void serialize(
+      final CBSerializationContextType context,
+      final Message value)
+      throws IOException
+    {
+      context.writeU32(value.number());
+      context.writeUTF8(value.text());
+    }
+
+    @Override
+    public Message deserialize(
+      final CBSerializationContextType context)
+      throws IOException
+    {
+      return new Message(context.readU32(), context.readUTF8());
+    }
+  }
+
+  private static final class Protocol
+    implements CBProtocolType<Message>
+  {
+    private final UUID id;
+    private final TreeMap<BigInteger, MessageSerializer> serializers;
+
+    Protocol(
+      final String name,
+      final long... versions)
+    {
+      this.id = UUID.nameUUIDFromBytes(name.getBytes(UTF_8));
+      this.serializers = new TreeMap<>();
+      for (final var version : versions) {
+        final var serializer = new MessageSerializer(version);
+        this.serializers.put(serializer.version(), serializer);
+      }
+    }
+
+    @Override
+    public Class<Message> messageClass()
+    {
+      return Message.class;
+    }
+
+    @Override
+    public UUID protocolId()
+    {
+      return this.id;
+    }
+
+    @Override
+    public Optional<CBProtocolMessageVersionedSerializerType<Message>>
+    serializerForMessageClass(
+      final Class<Message> messageClass)
+    {
+      return Optional.empty();
+    }
+
+    @Override
+    public Optional<CBProtocolMessageVersionedSerializerType<Message>>
+    serializerForProtocolVersion(
+      final BigInteger version)
+    {
+      return Optional.ofNullable(this.serializers.get(version));
+    }
+
+    @Override
+    public SortedSet<CBProtocolCoordinates> protocols()
+    {
+      return new TreeSet<>(
+        this.serializers.keySet()
+          .stream()
+          .map(v -> new CBProtocolCoordinates(this.id, v))
+          .toList()
+      );
+    }
+
+    @Override
+    public SortedSet<BigInteger> protocolVersions()
+    {
+      return new TreeSet<>(this.serializers.keySet());
+    }
+  }
+
+  @BeforeEach
+  public void setup()
+    throws Exception
+  {
+    this.directory = CBTestDirectories.createTempDirectory();
+    this.file = this.directory.resolve("channel.shm");
+    this.executor = Executors.newCachedThreadPool();
+  }
+
+  @AfterEach
+  public void tearDown()
+    throws IOException
+  {
+    this.executor.shutdownNow();
+    CBTestDirectories.deleteDirectory(this.directory);
+  }
+
+  private void writeInt(
+    final long offset,
+    final int value)
+    throws IOException
+  {
+    try (var channel = FileChannel.open(this.file, WRITE)) {
+      channel.write(ByteBuffer.allocate(4).putInt(0, value), offset);
+    }
+  }
+
+  @Test
+  public void testSendReceiveWrapping()
+    throws Exception
+  {
+    final var count = 10_000;
+
+    try (var creator = CBSharedMemoryChannel.create(this.file, 256);
+         var peer = CBSharedMemoryChannel.open(this.file)) {
+
+      final var sender = this.executor.submit(() -> {
+        final var buffer = ByteBuffer.allocate(100);
+        for (int index = 0; index < count; ++index) {
+          final var size = 1 + (index % 100);
+          buffer.clear();
+          for (int k = 0; k < size; ++k) {
+            buffer.put((byte) (index + k));
+          }
+          buffer.flip();
+          peer.send(buffer);
+          assertEquals(0, buffer.position());
+        }
+        return null;
+      });
+
+      for (int index = 0; index < count; ++index) {
+        final var received = creator.receive();
+        final var size = 1 + (index % 100);
+        assertEquals(size, received.remaining());
+        for (int k = 0; k < size; ++k) {
+          assertEquals((byte) (index + k), received.get(k));
+        }
+      }
+
+      sender.get();
+      assertTrue(creator.poll().isEmpty());
+    }
+  }
+
+  @Test
+  public void testEndOfStream()
+    throws Exception
+  {
+    try (var creator = CBSharedMemoryChannel.create(this.file, 64);
+         var peer = CBSharedMemoryChannel.open(this.file)) {
+
+      creator.send(ByteBuffer.wrap(new byte[]{1, 2, 3}));
+      creator.send(ByteBuffer.wrap(new byte[]{4}));
+      creator.close();
+
+      assertEquals(3, peer.receive().remaining());
+      assertEquals(1, peer.receive().remaining());
+      assertThrows(EOFException.class, peer::receive);
+    }
+  }
+
+  @Test
+  public void testClosedSelf()
+    throws Exception
+  {
+    final var creator = CBSharedMemoryChannel.create(this.file, 64);
+    creator.close();
+    assertThrows(IOException.class, creator::receive);
+    assertThrows(IOException.class, () -> {
+      creator.send(ByteBuffer.allocate(1));
+    });
+  }
+
+  @Test
+  public void testMessageTooLarge()
+    throws Exception
+  {
+    try (var creator = CBSharedMemoryChannel.create(this.file, 64)) {
+      assertEquals(60, creator.maximumMessageSize());
+      creator.send(ByteBuffer.allocate(60));
+
+      final var ex = assertThrows(IOException.class, () -> {
+        creator.send(ByteBuffer.allocate(61));
+      });
+      assertTrue(ex.getMessage().contains("exceeds the maximum"));
+    }
+  }
+
+  @Test
+  public void testCapacityInvalid()
+  {
+    assertThrows(IllegalArgumentException.class, () -> {
+      CBSharedMemoryChannel.create(this.file, 32);
+    });
+    assertThrows(IllegalArgumentException.class, () -> {
+      CBSharedMemoryChannel.create(this.file, 100);
+    });
+  }
+
+  @Test
+  public void testOpenNotChannel()
+    throws Exception
+  {
+    Files.write(this.file, new byte[128]);
+
+    final var ex = assertThrows(IOException.class, () -> {
+      CBSharedMemoryChannel.open(this.file);
+    });
+    assertTrue(ex.getMessage().contains("magic number"));
+  }
+
+  @Test
+  public void testOpenBadCapacity()
+    throws Exception
+  {
+    for (final var capacity : new int[]{-64, 0, 100, 1 << 30}) {
+      CBSharedMemoryChannel.create(this.file, 64).close();
+      this.writeInt(8L, capacity);
+
+      final var ex = assertThrows(IOException.class, () -> {
+        CBSharedMemoryChannel.open(this.file);
+      });
+      assertTrue(ex.getMessage().contains("invalid ring capacity"));
+    }
+  }
+
+  @Test
+  public void testReceiveBadFrameSize()
+    throws Exception
+  {
+    for (final var size : new int[]{-1, 61, 8, Integer.MAX_VALUE}) {
+      try (var creator = CBSharedMemoryChannel.create(this.file, 64);
+           var peer = CBSharedMemoryChannel.open(this.file)) {
+        creator.send(ByteBuffer.allocate(4));
+
+        /*
+         * The creator writes to the second ring, the data area of which
+         * begins after the file header, the first ring, and the second
+         * ring's control lines.
+         */
+
+        this.writeInt(64L + 192L + 64L + 192L, size);
+
+        final var ex = assertThrows(IOException.class, peer::receive);
+        assertTrue(ex.getMessage().contains("Frame size"));
+      }
+    }
+  }
+
+  @Test
+  public void testConnectionTruncatedAvailable()
+    throws Exception
+  {
+    try (var creator = CBSharedMemoryChannel.create(this.file, 4096);
+         var peer = CBSharedMemoryChannel.open(this.file)) {
+      creator.send(ByteBuffer.allocate(4));
+
+      final var ex = assertThrows(IOException.class, () -> {
+        CBSharedMemoryConnection.connect(peer, new Protocol("P", 1L));
+      });
+      assertTrue(ex.getMessage().contains("Truncated"));
+    }
+  }
+
+  @Test
+  public void testConnectionTruncatedUse()
+    throws Exception
+  {
+    try (var creator = CBSharedMemoryChannel.create(this.file, 4096);
+         var peer = CBSharedMemoryChannel.open(this.file)) {
+
+      final var serverFuture = this.executor.submit(() -> {
+        return CBSharedMemoryConnection.accept(
+          creator, new Protocol("P", 1L));
+      });
+
+      peer.receive();
+      peer.send(ByteBuffer.allocate(4));
+
+      final var serverEx =
+        assertThrows(ExecutionException.class, serverFuture::get);
+      assertInstanceOf(IOException.class, serverEx.getCause());
+      assertTrue(serverEx.getCause().getMessage().contains("Truncated"));
+    }
+  }
+
+  @Test
+  public void testConnection()
+    throws Exception
+  {
+    try (var creator = CBSharedMemoryChannel.create(this.file, 4096);
+         var peer = CBSharedMemoryChannel.open(this.file)) {
+
+      final var serverFuture = this.executor.submit(() -> {
+        return CBSharedMemoryConnection.accept(
+          creator, new Protocol("P", 1L, 2L, 3L));
+      });
+
+      final var client =
+        CBSharedMemoryConnection.connect(peer, new Protocol("P", 1L, 2L));
+      final var server =
+        serverFuture.get();
+
+      assertEquals(BigInteger.TWO, client.protocolVersion());
+      assertEquals(BigInteger.TWO, server.protocolVersion());
+
+      for (int index = 0; index < 100; ++index) {
+        client.send(new Message(index, "Message " + index));
+      }
+      for (int index = 0; index < 100; ++index) {
+        assertEquals(
+          new Message(index, "Message " + index),
+          server.receive()
+        );
+      }
+
+      server.send(new Message(23L, "Reply"));
+      assertEquals(new Message(23L, "Reply"), client.receive());
+      assertTrue(client.poll().isEmpty());
+    }
+  }
+
+  @Test
+  public void testConnectionWrongProtocol()
+    throws Exception
+  {
+    try (var creator = CBSharedMemoryChannel.create(this.file, 4096);
+         var peer = CBSharedMemoryChannel.open(this.file)) {
+
+      final var serverFuture = this.executor.submit(() -> {
+        return CBSharedMemoryConnection.accept(
+          creator, new Protocol("P", 1L));
+      });
+
+      final var ex = assertThrows(IOException.class, () -> {
+        CBSharedMemoryConnection.connect(peer, new Protocol("Q", 1L));
+      });
+      assertTrue(ex.getMessage().contains("application protocol"));
+      peer.close();
+
+      final var serverEx =
+        assertThrows(ExecutionException.class, serverFuture::get);
+      assertInstanceOf(EOFException.class, serverEx.getCause());
+    }
+  }
+
+  @Test
+  public void testConnectionNoCommonVersion()
+    throws Exception
+  {
+    try (var creator = CBSharedMemoryChannel.create(this.file, 4096);
+         var peer = CBSharedMemoryChannel.open(this.file)) {
+
+      final var serverFuture = this.executor.submit(() -> {
+        return CBSharedMemoryConnection.accept(
+          creator, new Protocol("P", 3L, 4L));
+      });
+
+      final var ex = assertThrows(IOException.class, () -> {
+        CBSharedMemoryConnection.connect(peer, new Protocol("P", 1L, 2L));
+      });
+      assertTrue(ex.getMessage().contains("No supported protocol version"));
+      peer.close();
+
+      final var serverEx =
+        assertThrows(ExecutionException.class, serverFuture::get);
+      assertInstanceOf(EOFException.class, serverEx.getCause());
+    }
+  }
+
+  @Test
+  public void testConnectionChannelTooSmall()
+    throws Exception
+  {
+    try (var creator = CBSharedMemoryChannel.create(this.file, 128)) {
+      assertThrows(IllegalArgumentException.class, () -> {
+        CBSharedMemoryConnection.accept(creator, new Protocol("P", 1L));
+      });
+    }
+  }
+}
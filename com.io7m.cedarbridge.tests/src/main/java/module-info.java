@@ -31,6 +31,10 @@ open module com.io7m.cedarbridge.tests
   requires com.io7m.cedarbridge.runtime.bssio;
   requires com.io7m.cedarbridge.runtime.container_protocol;
   requires com.io7m.cedarbridge.runtime.convenience;
+  requires com.io7m.cedarbridge.runtime.dynamic;
+  requires com.io7m.cedarbridge.runtime.journal;
+  requires com.io7m.cedarbridge.runtime.multiplex;
+  requires com.io7m.cedarbridge.runtime.shared_memory;
   requires com.io7m.cedarbridge.runtime.time;
   requires com.io7m.cedarbridge.schema.ast;
   requires com.io7m.cedarbridge.schema.binder;
@@ -56,6 +60,10 @@ open module com.io7m.cedarbridge.tests
   exports com.io7m.cedarbridge.tests.runtime.bssio;
   exports com.io7m.cedarbridge.tests.runtime.container_protocol;
   exports com.io7m.cedarbridge.tests.runtime.convenience;
+  exports com.io7m.cedarbridge.tests.runtime.dynamic;
+  exports com.io7m.cedarbridge.tests.runtime.journal;
+  exports com.io7m.cedarbridge.tests.runtime.multiplex;
+  exports com.io7m.cedarbridge.tests.runtime.shared_memory;
   exports com.io7m.cedarbridge.tests;
 
   requires com.io7m.jbssio.vanilla;